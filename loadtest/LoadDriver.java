@@ -0,0 +1,270 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Load driver cho finance-backend: phát lại workload API hỗn hợp vào một instance đang chạy
+ * và in throughput, p50/p90/p99/max theo từng endpoint.
+ *
+ * Token lấy từ file do profile "seed" sinh ra (SyntheticDataGenerator), vì login cần captcha.
+ *
+ * Chạy (JDK 17, không cần build):
+ *   java loadtest/LoadDriver.java --tokens target/seed-tokens.csv --base-url http://localhost:8080 \
+ *        --duration 60 --warmup 10 --concurrency 32 [--write-ratio 1.0]
+ */
+public class LoadDriver {
+
+    private static final DateTimeFormatter ISO = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+    private static final String[] KEYWORDS = {"phở", "grab", "shopee", "điện", "cà phê", "lương", "netflix"};
+    private static final String[] NOTES = {"Ăn trưa", "Cà phê", "Grab", "Siêu thị", "Trà sữa", "Đổ xăng"};
+
+    record Account(long userId, String token, long[] walletIds, long[] expenseCategoryIds) {}
+
+    record Operation(String name, int weight, String method, Function<Account, String> path,
+                     Function<Account, String> body) {}
+
+    /** Latency theo micro giây, ghi lock-free theo từng thread rồi gộp lúc in báo cáo */
+    static final class Recorder {
+        long[] latencies = new long[1024];
+        int size;
+        int errors;
+
+        void record(long micros, boolean ok) {
+            if (size == latencies.length) {
+                latencies = Arrays.copyOf(latencies, size * 2);
+            }
+            latencies[size++] = micros;
+            if (!ok) {
+                errors++;
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseArgs(args);
+        String baseUrl = options.getOrDefault("base-url", "http://localhost:8080");
+        Path tokens = Path.of(options.getOrDefault("tokens", "target/seed-tokens.csv"));
+        int duration = Integer.parseInt(options.getOrDefault("duration", "60"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "10"));
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "16"));
+        double writeRatio = Double.parseDouble(options.getOrDefault("write-ratio", "1.0"));
+
+        List<Account> accounts = loadAccounts(tokens);
+        if (accounts.isEmpty()) {
+            throw new IllegalArgumentException("Không có tài khoản nào trong " + tokens);
+        }
+        List<Operation> operations = operations(writeRatio);
+        int totalWeight = operations.stream().mapToInt(Operation::weight).sum();
+
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newFixedThreadPool(Math.max(2, concurrency / 4)))
+                .build();
+
+        System.out.printf("Load: %d accounts, %d workers, warmup %ds, measure %ds against %s%n",
+                accounts.size(), concurrency, warmup, duration, baseUrl);
+
+        long warmupEnd = System.nanoTime() + TimeUnit.SECONDS.toNanos(warmup);
+        long end = warmupEnd + TimeUnit.SECONDS.toNanos(duration);
+        List<Map<String, Recorder>> perWorker = new ArrayList<>();
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        for (int w = 0; w < concurrency; w++) {
+            Map<String, Recorder> recorders = new HashMap<>();
+            perWorker.add(recorders);
+            workers.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (true) {
+                    long start = System.nanoTime();
+                    if (start >= end) {
+                        return;
+                    }
+                    Operation op = pick(operations, totalWeight, random.nextInt(totalWeight));
+                    Account account = accounts.get(random.nextInt(accounts.size()));
+                    boolean ok = execute(client, baseUrl, op, account);
+                    long finished = System.nanoTime();
+                    if (start >= warmupEnd) {
+                        recorders.computeIfAbsent(op.name(), k -> new Recorder())
+                                .record(TimeUnit.NANOSECONDS.toMicros(finished - start), ok);
+                    }
+                }
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(warmup + duration + 60L, TimeUnit.SECONDS);
+        report(operations, perWorker, duration);
+        System.exit(0);
+    }
+
+    static List<Operation> operations(double writeRatio) {
+        List<Operation> ops = new ArrayList<>();
+        ops.add(new Operation("GET /api/transactions", 20, "GET", a -> "/api/transactions", null));
+        ops.add(new Operation("GET /api/transactions?walletId", 6, "GET",
+                a -> "/api/transactions?walletId=" + any(a.walletIds()), null));
+        ops.add(new Operation("GET /api/transactions?keyword", 5, "GET",
+                a -> "/api/transactions?keyword=" + encode(KEYWORDS[ThreadLocalRandom.current().nextInt(KEYWORDS.length)]), null));
+        ops.add(new Operation("GET /api/transactions/recent", 10, "GET", a -> "/api/transactions/recent?limit=10", null));
+        ops.add(new Operation("GET /api/reports/summary", 10, "GET",
+                a -> "/api/reports/summary?from=" + LocalDateTime.now().minusMonths(1).format(ISO)
+                        + "&to=" + LocalDateTime.now().format(ISO), null));
+        ops.add(new Operation("GET /api/reports/cashflow", 5, "GET",
+                a -> "/api/reports/cashflow?from=" + LocalDateTime.now().minusMonths(6).format(ISO)
+                        + "&to=" + LocalDateTime.now().format(ISO), null));
+        ops.add(new Operation("GET /api/wallets", 12, "GET", a -> "/api/wallets", null));
+        ops.add(new Operation("GET /api/budgets", 6, "GET", a -> "/api/budgets", null));
+        ops.add(new Operation("GET /api/categories", 6, "GET", a -> "/api/categories", null));
+        ops.add(new Operation("GET /api/notifications/page", 6, "GET", a -> "/api/notifications/page?size=20", null));
+        ops.add(new Operation("GET /api/notifications/unread/count", 8, "GET", a -> "/api/notifications/unread/count", null));
+        ops.add(new Operation("GET /api/cashflow-forecast", 2, "GET", a -> "/api/cashflow-forecast?days=30", null));
+        int writeWeight = (int) Math.round(8 * writeRatio);
+        if (writeWeight > 0) {
+            ops.add(new Operation("POST /api/transactions", writeWeight, "POST", a -> "/api/transactions", a -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long amount = (10 + random.nextInt(490)) * 1000L;
+                return "{\"amount\":" + amount + ",\"type\":\"EXPENSE\",\"walletId\":" + any(a.walletIds())
+                        + ",\"categoryId\":" + any(a.expenseCategoryIds())
+                        + ",\"note\":\"" + NOTES[random.nextInt(NOTES.length)] + "\"}";
+            }));
+        }
+        return ops;
+    }
+
+    static boolean execute(HttpClient client, String baseUrl, Operation op, Account account) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + op.path().apply(account)))
+                .timeout(Duration.ofSeconds(30))
+                .header("Authorization", "Bearer " + account.token());
+        if ("POST".equals(op.method())) {
+            builder.header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(op.body().apply(account), StandardCharsets.UTF_8));
+        } else {
+            builder.GET();
+        }
+        try {
+            HttpResponse<Void> response = client.send(builder.build(), HttpResponse.BodyHandlers.discarding());
+            return response.statusCode() < 400;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    static void report(List<Operation> operations, List<Map<String, Recorder>> perWorker, int duration) {
+        Map<String, Recorder> merged = new LinkedHashMap<>();
+        for (Operation op : operations) {
+            Recorder total = new Recorder();
+            for (Map<String, Recorder> recorders : perWorker) {
+                Recorder r = recorders.get(op.name());
+                if (r != null) {
+                    for (int i = 0; i < r.size; i++) {
+                        total.record(r.latencies[i], true);
+                    }
+                    total.errors += r.errors;
+                }
+            }
+            merged.put(op.name(), total);
+        }
+
+        System.out.printf("%n%-40s %8s %7s %9s %9s %9s %9s %9s%n",
+                "endpoint", "count", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "max ms");
+        long allCount = 0;
+        long allErrors = 0;
+        Recorder all = new Recorder();
+        for (Map.Entry<String, Recorder> entry : merged.entrySet()) {
+            Recorder r = entry.getValue();
+            print(entry.getKey(), r, duration);
+            allCount += r.size;
+            allErrors += r.errors;
+            for (int i = 0; i < r.size; i++) {
+                all.record(r.latencies[i], true);
+            }
+        }
+        all.errors = (int) allErrors;
+        print("TOTAL", all, duration);
+        if (allCount == 0) {
+            System.out.println("Không có request nào được ghi nhận - kiểm tra base-url và token");
+        }
+    }
+
+    static void print(String name, Recorder r, int duration) {
+        long[] sorted = Arrays.copyOf(r.latencies, r.size);
+        Arrays.sort(sorted);
+        System.out.printf("%-40s %8d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n",
+                name, r.size, r.errors, (double) r.size / duration,
+                percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99),
+                sorted.length == 0 ? 0.0 : sorted[sorted.length - 1] / 1000.0);
+    }
+
+    static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0.0;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1000.0;
+    }
+
+    static Operation pick(List<Operation> operations, int totalWeight, int r) {
+        for (Operation op : operations) {
+            r -= op.weight();
+            if (r < 0) {
+                return op;
+            }
+        }
+        return operations.get(0);
+    }
+
+    static List<Account> loadAccounts(Path file) throws IOException {
+        List<Account> accounts = new ArrayList<>();
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        for (int i = 1; i < lines.size(); i++) {
+            String[] cols = lines.get(i).split(",");
+            if (cols.length < 5) {
+                continue;
+            }
+            accounts.add(new Account(Long.parseLong(cols[0]), cols[2], ids(cols[3]), ids(cols[4])));
+        }
+        return accounts;
+    }
+
+    static long[] ids(String value) {
+        return Arrays.stream(value.split(";")).filter(s -> !s.isBlank()).mapToLong(Long::parseLong).toArray();
+    }
+
+    static long any(long[] ids) {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+
+    static String encode(String value) {
+        return java.net.URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Tham số không hợp lệ: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.financebackend.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Chạy benchmark kèm GC profiler (allocation rate: gc.alloc.rate.norm = byte / operation).
+ *
+ * mvn -Pjmh test-compile exec:exec -Djmh.include=ReportBenchmark -Djmh.params="historySize=1000,10000"
+ * jmh.params: nhiều tham số cách nhau bởi ';', giá trị cách nhau bởi ','.
+ * Kết quả JSON ghi ra target/jmh-result.json để so sánh giữa các lần chạy.
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .include(System.getProperty("jmh.include", ".*Benchmark.*"))
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result("target/jmh-result.json");
+
+        String params = System.getProperty("jmh.params", "");
+        for (String param : params.split(";")) {
+            String[] keyValue = param.split("=", 2);
+            if (keyValue.length == 2 && !keyValue[0].isBlank()) {
+                options.param(keyValue[0].trim(), keyValue[1].split(","));
+            }
+        }
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.financebackend.benchmark;
+
+import com.example.financebackend.FinanceBackendApplication;
+import com.example.financebackend.entity.Category;
+import com.example.financebackend.entity.RecurringTransaction;
+import com.example.financebackend.entity.Transaction;
+import com.example.financebackend.entity.User;
+import com.example.financebackend.entity.Wallet;
+import com.example.financebackend.repository.CategoryRepository;
+import com.example.financebackend.repository.RecurringTransactionRepository;
+import com.example.financebackend.repository.TransactionRepository;
+import com.example.financebackend.repository.UserRepository;
+import com.example.financebackend.repository.WalletRepository;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * State dùng chung cho các benchmark: khởi động Spring context trên H2 (profile "jmh")
+ * và seed một user với historySize giao dịch trải đều trong 2 năm gần nhất.
+ */
+@State(Scope.Benchmark)
+public class BenchmarkState {
+
+    static final String[] EXPENSE_CATEGORIES = {
+            "Ăn uống", "Di chuyển", "Mua sắm", "Giải trí", "Hóa đơn", "Sức khỏe", "Giáo dục", "Nhà cửa"
+    };
+    static final String[] INCOME_CATEGORIES = {"Lương", "Thưởng"};
+    static final String[] NOTES = {
+            "Ăn trưa văn phòng", "Cà phê sáng", "Grab đi làm", "Đổ xăng", "Tiền điện tháng",
+            "Siêu thị cuối tuần", "Xem phim", "Mua thuốc", "Học phí tiếng Anh", "Sửa ống nước",
+            "Phở bò", "Trà sữa", "Shopee", "Netflix", "Internet FPT"
+    };
+    private static final int SEED_CHUNK = 1000;
+
+    @Param({"1000", "10000", "100000"})
+    public int historySize;
+
+    public ConfigurableApplicationContext context;
+    public Long userId;
+    public String userEmail;
+    public Long cashWalletId;
+    public Long bankWalletId;
+    public List<Long> expenseCategoryIds = new ArrayList<>();
+    public List<Long> incomeCategoryIds = new ArrayList<>();
+    public LocalDateTime from;
+    public LocalDateTime to;
+
+    private long seededMaxTransactionId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(FinanceBackendApplication.class)
+                .profiles("jmh")
+                .run();
+        seed();
+        to = LocalDateTime.now();
+        from = to.minusYears(1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    /**
+     * Xóa giao dịch sinh ra trong lúc đo (benchmark ghi) để history giữ nguyên historySize
+     */
+    public void resetWrites() {
+        JdbcTemplate jdbc = bean(JdbcTemplate.class);
+        jdbc.update("DELETE FROM transactions WHERE id > ?", seededMaxTransactionId);
+        jdbc.update("UPDATE wallets SET balance = ? WHERE id IN (?, ?)",
+                new BigDecimal("1000000000"), cashWalletId, bankWalletId);
+    }
+
+    private void seed() {
+        UserRepository userRepository = bean(UserRepository.class);
+        WalletRepository walletRepository = bean(WalletRepository.class);
+        CategoryRepository categoryRepository = bean(CategoryRepository.class);
+        TransactionRepository transactionRepository = bean(TransactionRepository.class);
+        RecurringTransactionRepository recurringRepository = bean(RecurringTransactionRepository.class);
+        TransactionTemplate tx = new TransactionTemplate(bean(PlatformTransactionManager.class));
+
+        tx.executeWithoutResult(status -> {
+            User user = new User();
+            user.setEmail("bench-" + historySize + "@example.com");
+            user.setPasswordHash("benchmark");
+            user.setFullName("Benchmark User");
+            userRepository.save(user);
+            userId = user.getId();
+            userEmail = user.getEmail();
+
+            cashWalletId = walletRepository.save(wallet(user, "Tiền mặt", Wallet.WalletType.CASH)).getId();
+            bankWalletId = walletRepository.save(wallet(user, "Ngân hàng", Wallet.WalletType.BANK)).getId();
+
+            for (String name : EXPENSE_CATEGORIES) {
+                expenseCategoryIds.add(categoryRepository.save(category(user, name, Category.CategoryType.EXPENSE)).getId());
+            }
+            for (String name : INCOME_CATEGORIES) {
+                incomeCategoryIds.add(categoryRepository.save(category(user, name, Category.CategoryType.INCOME)).getId());
+            }
+
+            recurringRepository.save(recurring(user, incomeCategoryIds.get(0), Transaction.TransactionType.INCOME,
+                    "25000000", RecurringTransaction.Frequency.MONTHLY, "Lương tháng"));
+            recurringRepository.save(recurring(user, expenseCategoryIds.get(7), Transaction.TransactionType.EXPENSE,
+                    "6000000", RecurringTransaction.Frequency.MONTHLY, "Tiền nhà"));
+            recurringRepository.save(recurring(user, expenseCategoryIds.get(0), Transaction.TransactionType.EXPENSE,
+                    "700000", RecurringTransaction.Frequency.WEEKLY, "Đi chợ"));
+        });
+
+        // Seed theo chunk, mỗi chunk một transaction để persistence context không phình ra
+        Random random = new Random(42);
+        LocalDateTime now = LocalDateTime.now();
+        long spanMinutes = 2L * 365 * 24 * 60;
+        for (int offset = 0; offset < historySize; offset += SEED_CHUNK) {
+            int count = Math.min(SEED_CHUNK, historySize - offset);
+            tx.executeWithoutResult(status -> {
+                User user = userRepository.getReferenceById(userId);
+                Wallet cash = walletRepository.getReferenceById(cashWalletId);
+                Wallet bank = walletRepository.getReferenceById(bankWalletId);
+                List<Transaction> chunk = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    boolean income = random.nextInt(10) == 0;
+                    List<Long> categories = income ? incomeCategoryIds : expenseCategoryIds;
+                    Transaction transaction = new Transaction();
+                    transaction.setUser(user);
+                    transaction.setWallet(random.nextBoolean() ? cash : bank);
+                    transaction.setCategory(categoryRepository.getReferenceById(
+                            categories.get(random.nextInt(categories.size()))));
+                    transaction.setType(income ? Transaction.TransactionType.INCOME : Transaction.TransactionType.EXPENSE);
+                    transaction.setAmount(BigDecimal.valueOf(income ? 5_000_000 + random.nextInt(20_000_000)
+                            : 10_000 + random.nextInt(1_000) * 1_000L));
+                    transaction.setNote(NOTES[random.nextInt(NOTES.length)]);
+                    transaction.setOccurredAt(now.minusMinutes((long) (random.nextDouble() * spanMinutes)));
+                    chunk.add(transaction);
+                }
+                transactionRepository.saveAll(chunk);
+            });
+        }
+
+        Long maxId = bean(JdbcTemplate.class).queryForObject("SELECT COALESCE(MAX(id), 0) FROM transactions", Long.class);
+        seededMaxTransactionId = maxId != null ? maxId : 0L;
+        resetWrites();
+    }
+
+    private static Wallet wallet(User user, String name, Wallet.WalletType type) {
+        Wallet wallet = new Wallet();
+        wallet.setUser(user);
+        wallet.setName(name);
+        wallet.setType(type);
+        wallet.setBalance(new BigDecimal("1000000000"));
+        return wallet;
+    }
+
+    private static Category category(User user, String name, Category.CategoryType type) {
+        Category category = new Category();
+        category.setUser(user);
+        category.setName(name);
+        category.setType(type);
+        return category;
+    }
+
+    private RecurringTransaction recurring(User user, Long categoryId, Transaction.TransactionType type,
+                                           String amount, RecurringTransaction.Frequency frequency, String note) {
+        RecurringTransaction recurring = new RecurringTransaction();
+        recurring.setUser(user);
+        recurring.setWallet(bean(WalletRepository.class).getReferenceById(bankWalletId));
+        recurring.setCategory(bean(CategoryRepository.class).getReferenceById(categoryId));
+        recurring.setType(type);
+        recurring.setAmount(new BigDecimal(amount));
+        recurring.setFrequency(frequency);
+        recurring.setStartDate(LocalDate.now().minusMonths(6));
+        recurring.setNextRunDate(LocalDate.now().plusDays(3));
+        recurring.setActive(true);
+        recurring.setNote(note);
+        return recurring;
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.financebackend.benchmark;
+
+import com.example.financebackend.dto.CashflowForecastDto;
+import com.example.financebackend.service.CashflowForecastService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CashflowForecastService.getForecast cho 30 và 90 ngày, tất định và Monte Carlo 10k đường
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CashflowForecastBenchmark {
+
+    @Param({"30", "90"})
+    public int days;
+
+    private CashflowForecastService forecastService;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkState state) {
+        forecastService = state.bean(CashflowForecastService.class);
+    }
+
+    @Benchmark
+    public CashflowForecastDto forecast(BenchmarkState state) {
+        return forecastService.getForecast(state.userId, days);
+    }
+
+    @Benchmark
+    public CashflowForecastDto probabilistic(BenchmarkState state) {
+        return forecastService.getForecast(state.userId, days, true, 10_000);
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.financebackend.benchmark;
+
+import com.example.financebackend.entity.Transaction;
+import com.example.financebackend.service.CategorySuggestionService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CategorySuggestionService.suggestCategories với note có và không khớp lịch sử
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CategorySuggestionBenchmark {
+
+    private CategorySuggestionService suggestionService;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkState state) {
+        suggestionService = state.bean(CategorySuggestionService.class);
+    }
+
+    @Benchmark
+    public List<CategorySuggestionService.CategorySuggestionDto> knownNote(BenchmarkState state) {
+        return suggestionService.suggestCategories("Cà phê sáng", Transaction.TransactionType.EXPENSE, state.userId);
+    }
+
+    @Benchmark
+    public List<CategorySuggestionService.CategorySuggestionDto> unknownNote(BenchmarkState state) {
+        return suggestionService.suggestCategories("quà sinh nhật", Transaction.TransactionType.EXPENSE, state.userId);
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.financebackend.benchmark;
+
+import com.example.financebackend.util.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cộng dồn số tiền: BigDecimal reduce (cách cũ) so với Money.Accumulator.
+ * Số tiền có scale 2 như khi đọc từ cột DECIMAL(19,2); so sánh gc.alloc.rate.norm giữa hai cách.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MoneyAggregationBenchmark {
+
+    @Param({"1000", "10000"})
+    public int size;
+
+    private BigDecimal[] amounts;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        amounts = new BigDecimal[size];
+        for (int i = 0; i < size; i++) {
+            amounts[i] = BigDecimal.valueOf(random.nextLong(1_000, 50_000_000) * 100, 2);
+        }
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimalReduce() {
+        return Arrays.stream(amounts).reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    @Benchmark
+    public BigDecimal accumulator() {
+        Money.Accumulator total = new Money.Accumulator();
+        for (BigDecimal amount : amounts) {
+            total.add(amount);
+        }
+        return total.sum();
+    }
+}
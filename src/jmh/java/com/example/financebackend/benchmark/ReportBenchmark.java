@@ -0,0 +1,48 @@
+package com.example.financebackend.benchmark;
+
+import com.example.financebackend.dto.CashflowDto;
+import com.example.financebackend.dto.ReportSummaryDto;
+import com.example.financebackend.service.ReportService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ReportService.getSummary / getCashflow trên khoảng 12 tháng gần nhất
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReportBenchmark {
+
+    private ReportService reportService;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkState state) {
+        reportService = state.bean(ReportService.class);
+    }
+
+    @Benchmark
+    public ReportSummaryDto summary(BenchmarkState state) {
+        return reportService.getSummary(state.userId, state.from, state.to);
+    }
+
+    @Benchmark
+    public List<CashflowDto> cashflow(BenchmarkState state) {
+        return reportService.getCashflow(state.userId, state.from, state.to);
+    }
+}
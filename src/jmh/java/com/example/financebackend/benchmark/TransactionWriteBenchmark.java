@@ -0,0 +1,62 @@
+package com.example.financebackend.benchmark;
+
+import com.example.financebackend.dto.TransactionDto;
+import com.example.financebackend.entity.Transaction;
+import com.example.financebackend.service.TransactionService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TransactionService.create / transfer (gồm cập nhật số dư, budget, cache...).
+ * Giao dịch sinh ra được xóa sau mỗi iteration để history không tăng dần.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransactionWriteBenchmark {
+
+    private TransactionService transactionService;
+    private final BigDecimal amount = new BigDecimal("45000");
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkState state) {
+        transactionService = state.bean(TransactionService.class);
+    }
+
+    @TearDown(Level.Iteration)
+    public void resetWrites(BenchmarkState state) {
+        state.resetWrites();
+    }
+
+    @Benchmark
+    public TransactionDto create(BenchmarkState state) {
+        TransactionDto dto = new TransactionDto();
+        dto.setAmount(amount);
+        dto.setType(Transaction.TransactionType.EXPENSE);
+        dto.setWalletId(state.cashWalletId);
+        dto.setCategoryId(state.expenseCategoryIds.get(0));
+        dto.setNote("Ăn trưa văn phòng");
+        return transactionService.create(dto, state.userId);
+    }
+
+    @Benchmark
+    public void transfer(BenchmarkState state) {
+        transactionService.transfer(state.bankWalletId, state.cashWalletId, amount, state.userId);
+    }
+}
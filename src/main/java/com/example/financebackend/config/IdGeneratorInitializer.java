@@ -0,0 +1,85 @@
+package com.example.financebackend.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Khởi tạo bảng id_generators cho các entity dùng pooled table generator
+ * (transactions, notifications, audit_logs).
+ *
+ * Các bảng này trước đây dùng AUTO_INCREMENT, nên khi khởi động phải đẩy next_val
+ * lên trên max(id) hiện có - nếu không Hibernate sẽ cấp lại id đã tồn tại.
+ * Chạy trong lúc khởi tạo context (sau khi Hibernate tạo schema), trước khi có request
+ * hay job nào insert.
+ */
+@Component
+public class IdGeneratorInitializer {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdGeneratorInitializer.class);
+
+    static final String TABLE = "id_generators";
+    // Phải khớp allocationSize trong @TableGenerator của entity
+    static final int ALLOCATION_SIZE = 50;
+    static final List<String> POOLED_TABLES = List.of("transactions", "notifications", "audit_logs");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // EntityManagerFactory chỉ để đảm bảo schema (kể cả bảng id_generators) đã được tạo
+    public IdGeneratorInitializer(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void alignGenerators() {
+        for (String table : POOLED_TABLES) {
+            try {
+                alignGenerator(table);
+            } catch (Exception e) {
+                logger.error("Could not align id generator for table {}: {}", table, e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Giữ trước count id liên tiếp cho insert hàng loạt bằng JDBC (bỏ qua Hibernate),
+     * trả về id đầu tiên. Khối id này không trùng với các khối Hibernate đã hoặc sẽ cấp.
+     */
+    @Transactional
+    public long reserveIds(String table, int count) {
+        if (!POOLED_TABLES.contains(table)) {
+            throw new IllegalArgumentException("Bảng không dùng pooled id: " + table);
+        }
+        alignGenerator(table);
+        Long current = jdbcTemplate.queryForObject(
+                "SELECT next_val FROM " + TABLE + " WHERE sequence_name = ? FOR UPDATE", Long.class, table);
+        // next_val = cận trên của khối kế tiếp => id đã cấp tối đa là next_val - allocationSize
+        long first = current - ALLOCATION_SIZE + 1;
+        long blocks = (count + ALLOCATION_SIZE - 1) / ALLOCATION_SIZE;
+        jdbcTemplate.update("UPDATE " + TABLE + " SET next_val = ? WHERE sequence_name = ?",
+                current + blocks * ALLOCATION_SIZE, table);
+        return first;
+    }
+
+    private void alignGenerator(String table) {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+        // Pooled optimizer: giá trị đọc được là cận trên của khối, id đầu tiên = next_val - allocationSize + 1
+        long required = (maxId != null ? maxId : 0L) + ALLOCATION_SIZE;
+
+        List<Long> current = jdbcTemplate.queryForList(
+                "SELECT next_val FROM " + TABLE + " WHERE sequence_name = ?", Long.class, table);
+        if (current.isEmpty()) {
+            jdbcTemplate.update("INSERT INTO " + TABLE + " (sequence_name, next_val) VALUES (?, ?)", table, required);
+            logger.info("Initialized id generator for {} at {}", table, required);
+        } else if (current.get(0) == null || current.get(0) < required) {
+            jdbcTemplate.update("UPDATE " + TABLE + " SET next_val = ? WHERE sequence_name = ?", required, table);
+            logger.info("Moved id generator for {} from {} to {}", table, current.get(0), required);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.financebackend.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Metrics: bật @Timed trên service, đếm SQL theo request và export Hibernate Statistics
+ * (cần hibernate.generate_statistics=true).
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer sqlStatementCounterCustomizer() {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, new SqlStatementCounter());
+    }
+
+    @Bean
+    public MeterBinder hibernateStatisticsMetrics(EntityManagerFactory entityManagerFactory) {
+        return registry -> {
+            Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+            if (!statistics.isStatisticsEnabled()) {
+                return;
+            }
+            counter(registry, statistics, "hibernate.statements.prepared", "JDBC statements prepared", Statistics::getPrepareStatementCount);
+            counter(registry, statistics, "hibernate.queries.executed", "HQL/SQL queries executed", Statistics::getQueryExecutionCount);
+            counter(registry, statistics, "hibernate.entities.loaded", "Entities loaded", Statistics::getEntityLoadCount);
+            counter(registry, statistics, "hibernate.entities.fetched", "Entities fetched lazily (N+1 candidates)", Statistics::getEntityFetchCount);
+            counter(registry, statistics, "hibernate.entities.inserted", "Entities inserted", Statistics::getEntityInsertCount);
+            counter(registry, statistics, "hibernate.entities.updated", "Entities updated", Statistics::getEntityUpdateCount);
+            counter(registry, statistics, "hibernate.entities.deleted", "Entities deleted", Statistics::getEntityDeleteCount);
+            counter(registry, statistics, "hibernate.collections.loaded", "Collections loaded", Statistics::getCollectionLoadCount);
+            counter(registry, statistics, "hibernate.collections.fetched", "Collections fetched lazily", Statistics::getCollectionFetchCount);
+            counter(registry, statistics, "hibernate.flushes", "Session flushes", Statistics::getFlushCount);
+            counter(registry, statistics, "hibernate.transactions", "Transactions completed", Statistics::getTransactionCount);
+            counter(registry, statistics, "hibernate.connections.obtained", "JDBC connections obtained", Statistics::getConnectCount);
+            counter(registry, statistics, "hibernate.optimistic.failures", "Optimistic lock failures", Statistics::getOptimisticFailureCount);
+            Gauge.builder("hibernate.query.execution.max", statistics, Statistics::getQueryExecutionMaxTime)
+                    .description("Slowest query execution time")
+                    .baseUnit("milliseconds")
+                    .register(registry);
+        };
+    }
+
+    private static void counter(MeterRegistry registry, Statistics statistics, String name, String description,
+                                ToDoubleFunction<Statistics> value) {
+        FunctionCounter.builder(name, statistics, value)
+                .description(description)
+                .register(registry);
+    }
+}
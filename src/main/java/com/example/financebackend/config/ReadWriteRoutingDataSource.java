@@ -0,0 +1,246 @@
+package com.example.financebackend.config;
+
+import com.example.financebackend.util.SecurityUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DataSource định tuyến đọc / ghi: transaction readOnly lấy connection từ replica, còn lại từ primary.
+ * Phải được bọc bởi LazyConnectionDataSourceProxy để connection chỉ được lấy khi đã biết transaction là readOnly.
+ *
+ * - Không lấy được connection replica => dùng primary và bỏ qua replica trong retry-ms.
+ * - User vừa ghi đọc từ primary trong sticky-ms để không thấy dữ liệu cũ do replication lag. Chỉ tính transaction
+ *   đã chạy câu DML (INSERT / UPDATE / DELETE...) và commit trên node này - transaction đọc / ghi chỉ có SELECT
+ *   (service @Transactional ở mức class) không làm user bị giữ ở primary.
+ */
+public class ReadWriteRoutingDataSource extends AbstractDataSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReadWriteRoutingDataSource.class);
+
+    @FunctionalInterface
+    private interface ConnectionSource {
+        Connection get(DataSource dataSource) throws SQLException;
+    }
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final long retryMs;
+    private final Cache<Long, Boolean> recentWriters;
+
+    private volatile long replicaDownUntil;
+
+    private Counter primaryConnections;
+    private Counter replicaConnections;
+    private Counter replicaFallbacks;
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, long retryMs, long stickyMs) {
+        this.primary = primary;
+        this.replica = replica;
+        this.retryMs = retryMs;
+        this.recentWriters = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(Math.max(1, stickyMs), TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    public void bindMetrics(MeterRegistry registry) {
+        primaryConnections = connectionCounter(registry, "primary");
+        replicaConnections = connectionCounter(registry, "replica");
+        replicaFallbacks = Counter.builder("finance.datasource.replica.fallbacks")
+                .description("Read-only connections served by the primary because the replica was unavailable")
+                .register(registry);
+        Gauge.builder("finance.datasource.replica.available", this, ds -> ds.isReplicaAvailable() ? 1 : 0)
+                .description("1 when read-only transactions are routed to the replica")
+                .register(registry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return route(DataSource::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return route(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    public boolean isReplicaAvailable() {
+        return System.currentTimeMillis() >= replicaDownUntil;
+    }
+
+    private Connection route(ConnectionSource source) throws SQLException {
+        boolean readOnly = TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        if (readOnly && isReplicaAvailable() && !isRecentWriter()) {
+            try {
+                Connection connection = source.get(replica);
+                increment(replicaConnections);
+                return connection;
+            } catch (SQLException e) {
+                replicaDownUntil = System.currentTimeMillis() + retryMs;
+                increment(replicaFallbacks);
+                logger.warn("Replica unavailable, routing reads to primary for {} ms: {}", retryMs, e.getMessage());
+            }
+        }
+        Connection connection = source.get(primary);
+        increment(primaryConnections);
+        if (readOnly) {
+            return connection;
+        }
+        Long userId = SecurityUtil.getCurrentUserId();
+        return userId != null ? trackWrites(connection, userId) : connection;
+    }
+
+    private boolean isRecentWriter() {
+        Long userId = SecurityUtil.getCurrentUserId();
+        return userId != null && recentWriters.getIfPresent(userId) != null;
+    }
+
+    private void rememberWriter(Long userId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            recentWriters.put(userId, Boolean.TRUE);
+            return;
+        }
+        // Tính từ lúc commit - replica chỉ bắt đầu nhận thay đổi sau thời điểm đó; rollback thì không đánh dấu
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                recentWriters.put(userId, Boolean.TRUE);
+            }
+        });
+    }
+
+    private Connection trackWrites(Connection connection, Long userId) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                new WriteTracker(connection, userId));
+    }
+
+    // Bỏ khoảng trắng và comment đầu câu (Hibernate có thể thêm comment) rồi xét từ khóa đầu tiên
+    static boolean isDml(String sql) {
+        int i = 0;
+        while (i < sql.length()) {
+            if (Character.isWhitespace(sql.charAt(i)) || sql.charAt(i) == '(') {
+                i++;
+            } else if (sql.startsWith("/*", i)) {
+                int end = sql.indexOf("*/", i + 2);
+                i = end < 0 ? sql.length() : end + 2;
+            } else if (sql.startsWith("--", i)) {
+                int end = sql.indexOf('\n', i);
+                i = end < 0 ? sql.length() : end + 1;
+            } else {
+                break;
+            }
+        }
+        int end = i;
+        while (end < sql.length() && Character.isLetter(sql.charAt(end))) {
+            end++;
+        }
+        return switch (sql.substring(i, end).toLowerCase(Locale.ROOT)) {
+            case "insert", "update", "delete", "merge", "replace", "upsert" -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * Connection primary của transaction đọc / ghi: lần đầu chạy câu DML thì đánh dấu user sau commit
+     */
+    private final class WriteTracker implements InvocationHandler {
+        private final Connection target;
+        private final Long userId;
+        private boolean wrote;
+
+        WriteTracker(Connection target, Long userId) {
+            this.target = target;
+            this.userId = userId;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "prepareStatement":
+                    onSql((String) args[0]);
+                    break;
+                case "prepareCall":
+                    onWrite(); // Stored procedure có thể ghi
+                    break;
+                default:
+                    break;
+            }
+            Object result = invokeTarget(method, target, args);
+            if (result instanceof Statement statement && method.getName().equals("createStatement")) {
+                return trackStatement(statement);
+            }
+            return result;
+        }
+
+        // Statement thường nhận câu SQL khi execute / addBatch
+        private Statement trackStatement(Statement statement) {
+            InvocationHandler handler = (proxy, method, args) -> {
+                String name = method.getName();
+                if ((name.startsWith("execute") || name.equals("addBatch"))
+                        && args != null && args.length > 0 && args[0] instanceof String sql) {
+                    onSql(sql);
+                }
+                return invokeTarget(method, statement, args);
+            };
+            return (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[]{Statement.class},
+                    handler);
+        }
+
+        private void onSql(String sql) {
+            if (!wrote && sql != null && isDml(sql)) {
+                onWrite();
+            }
+        }
+
+        private void onWrite() {
+            if (!wrote) {
+                wrote = true;
+                rememberWriter(userId);
+            }
+        }
+    }
+
+    private static Object invokeTarget(Method method, Object target, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    private static Counter connectionCounter(MeterRegistry registry, String pool) {
+        return Counter.builder("finance.datasource.connections")
+                .description("Connections handed out by the read/write router")
+                .tag("pool", pool)
+                .register(registry);
+    }
+
+    private static void increment(Counter counter) {
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+}
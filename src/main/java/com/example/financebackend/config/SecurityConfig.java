@@ -1,6 +1,7 @@
 package com.example.financebackend.config;
 
 import com.example.financebackend.filter.JwtAuthenticationFilter;
+import jakarta.servlet.DispatcherType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -78,6 +79,8 @@ public class SecurityConfig {
                 }
             })
             .authorizeHttpRequests(auth -> auth
+                // Async dispatch của SSE (/api/stream) - request gốc đã được xác thực
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                 .requestMatchers("/api/auth/**").permitAll()
                 .requestMatchers("/api/oauth2/**").permitAll()
                 .requestMatchers("/oauth2/**").permitAll()
@@ -87,6 +90,7 @@ public class SecurityConfig {
                 // Allow static resources (favicon, etc.)
                 .requestMatchers("/favicon.ico", "/error", "/*.ico", "/*.png", "/*.jpg").permitAll()
                 .requestMatchers("/api/admin/**").hasRole("ADMIN")
+                .requestMatchers("/actuator/metrics/**", "/actuator/metrics").hasRole("ADMIN")
                 .anyRequest().authenticated()
             )
             // Disable default login page - we handle OAuth2 login programmatically
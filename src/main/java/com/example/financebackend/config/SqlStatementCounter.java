@@ -0,0 +1,71 @@
+package com.example.financebackend.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Đếm số câu SQL Hibernate chuẩn bị trên thread hiện tại.
+ * Chỉ đếm khi đã gọi begin() (SqlStatementCountFilter gọi ở đầu mỗi request).
+ */
+public class SqlStatementCounter implements StatementInspector {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final ThreadLocal<int[]> COUNT = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        int[] count = COUNT.get();
+        if (count != null) {
+            count[0]++;
+        }
+        return sql;
+    }
+
+    public static void begin() {
+        COUNT.set(new int[1]);
+    }
+
+    public static int current() {
+        int[] count = COUNT.get();
+        return count != null ? count[0] : 0;
+    }
+
+    public static int end() {
+        int result = current();
+        COUNT.remove();
+        return result;
+    }
+
+    /**
+     * Bắt đầu đếm riêng trên thread hiện tại (ví dụ một mục dashboard chạy trên thread pool).
+     * Trả về bộ đếm đang có để khôi phục bằng endNested().
+     */
+    public static int[] beginNested() {
+        int[] outer = COUNT.get();
+        COUNT.set(new int[1]);
+        return outer;
+    }
+
+    /**
+     * Kết thúc đếm riêng, khôi phục bộ đếm cũ và trả về số câu SQL đã đếm (không cộng vào bộ đếm cũ)
+     */
+    public static int endNested(int[] outer) {
+        int result = current();
+        if (outer != null) {
+            COUNT.set(outer);
+        } else {
+            COUNT.remove();
+        }
+        return result;
+    }
+
+    /**
+     * Cộng số câu SQL chạy trên thread khác vào bộ đếm của request hiện tại
+     */
+    public static void add(int statements) {
+        int[] count = COUNT.get();
+        if (count != null) {
+            count[0] += statements;
+        }
+    }
+}
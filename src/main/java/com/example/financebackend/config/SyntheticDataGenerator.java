@@ -0,0 +1,602 @@
+package com.example.financebackend.config;
+
+import com.example.financebackend.entity.Budget;
+import com.example.financebackend.entity.Category;
+import com.example.financebackend.entity.RecurringTransaction;
+import com.example.financebackend.entity.Transaction;
+import com.example.financebackend.entity.User;
+import com.example.financebackend.entity.Wallet;
+import com.example.financebackend.entity.WalletShare;
+import com.example.financebackend.repository.BudgetRepository;
+import com.example.financebackend.repository.CategoryRepository;
+import com.example.financebackend.repository.RecurringTransactionRepository;
+import com.example.financebackend.repository.UserRepository;
+import com.example.financebackend.repository.WalletRepository;
+import com.example.financebackend.repository.WalletShareRepository;
+import com.example.financebackend.service.SyncSequenceService;
+import com.example.financebackend.util.JwtUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Sinh dữ liệu giả lập cho load test (chỉ chạy với profile "seed"):
+ * nhiều user, ví, danh mục, ví chia sẻ, ngân sách, giao dịch định kỳ và hàng triệu giao dịch.
+ *
+ * Phân phối gần thực tế: số giao dịch mỗi user lệch phải (lognormal), số tiền lognormal theo
+ * danh mục, lương đầu tháng, giờ giao dịch tập trung buổi trưa/tối.
+ * Giao dịch được insert bằng JDBC batch song song với id giữ trước từ id_generators;
+ * số dư ví và usedAmount ngân sách tháng hiện tại được tính trong bộ nhớ rồi ghi một lần.
+ *
+ * Sau khi xong ghi file token (userId, email, access token, ví, danh mục) cho load driver,
+ * vì đăng nhập qua API cần captcha.
+ *
+ * Chạy: mvn spring-boot:run -Dspring-boot.run.profiles=seed -Dspring-boot.run.arguments="--seed.users=2000"
+ */
+@Component
+@Profile("seed")
+@Order(100)
+public class SyntheticDataGenerator implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(SyntheticDataGenerator.class);
+
+    private static final String INSERT_TRANSACTION =
+            "INSERT INTO transactions (id, amount, type, wallet_id, category_id, user_id, note, occurred_at) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final int USER_CHUNK = 200;
+
+    // Danh mục chi: tên, trọng số tần suất, số tiền trung vị (VND), ghi chú mẫu
+    private static final CategorySpec[] EXPENSE_SPECS = {
+            new CategorySpec("Ăn uống", 30, 60_000, "Ăn trưa văn phòng", "Phở bò", "Cơm tấm", "Bún chả", "Trà sữa", "Cà phê sáng"),
+            new CategorySpec("Di chuyển", 15, 45_000, "Grab đi làm", "Đổ xăng", "Gửi xe", "Taxi sân bay"),
+            new CategorySpec("Mua sắm", 12, 350_000, "Shopee", "Lazada", "Siêu thị cuối tuần", "Quần áo"),
+            new CategorySpec("Giải trí", 8, 150_000, "Xem phim", "Netflix", "Karaoke", "Spotify"),
+            new CategorySpec("Hóa đơn", 6, 500_000, "Tiền điện tháng", "Tiền nước", "Internet FPT", "Điện thoại trả sau"),
+            new CategorySpec("Sức khỏe", 4, 250_000, "Mua thuốc", "Khám răng", "Phòng gym"),
+            new CategorySpec("Giáo dục", 3, 800_000, "Học phí tiếng Anh", "Sách", "Khóa học online"),
+            new CategorySpec("Nhà cửa", 4, 400_000, "Sửa ống nước", "Đồ gia dụng", "Dọn nhà"),
+            new CategorySpec("Quà tặng", 3, 300_000, "Quà sinh nhật", "Đám cưới", "Biếu bố mẹ")
+    };
+    private static final CategorySpec[] INCOME_SPECS = {
+            new CategorySpec("Lương", 0, 18_000_000, "Lương tháng"),
+            new CategorySpec("Thưởng", 1, 3_000_000, "Thưởng dự án", "Thưởng KPI"),
+            new CategorySpec("Thu nhập khác", 2, 800_000, "Bán đồ cũ", "Freelance", "Hoàn tiền")
+    };
+    // Phân bố giờ trong ngày: cao điểm sáng, trưa và tối
+    private static final int[] HOUR_WEIGHTS = {
+            1, 0, 0, 0, 0, 1, 3, 6, 8, 5, 4, 9, 12, 8, 4, 4, 5, 7, 10, 11, 9, 7, 4, 2
+    };
+
+    private final UserRepository userRepository;
+    private final WalletRepository walletRepository;
+    private final CategoryRepository categoryRepository;
+    private final BudgetRepository budgetRepository;
+    private final RecurringTransactionRepository recurringTransactionRepository;
+    private final WalletShareRepository walletShareRepository;
+    private final IdGeneratorInitializer idGeneratorInitializer;
+    private final SyncSequenceService syncSequenceService;
+    private final JdbcTemplate jdbcTemplate;
+    private final PasswordEncoder passwordEncoder;
+    private final JwtUtil jwtUtil;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationContext applicationContext;
+
+    @Value("${seed.users:1000}")
+    private int users;
+
+    @Value("${seed.transactions-per-user:1000}")
+    private int transactionsPerUser;
+
+    @Value("${seed.months:24}")
+    private int months;
+
+    @Value("${seed.shared-wallet-ratio:0.1}")
+    private double sharedWalletRatio;
+
+    @Value("${seed.random-seed:42}")
+    private long randomSeed;
+
+    @Value("${seed.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${seed.threads:4}")
+    private int threads;
+
+    @Value("${seed.email-prefix:seed}")
+    private String emailPrefix;
+
+    @Value("${seed.password:password123}")
+    private String password;
+
+    @Value("${seed.tokens-file:target/seed-tokens.csv}")
+    private String tokensFile;
+
+    @Value("${seed.exit-when-done:true}")
+    private boolean exitWhenDone;
+
+    public SyntheticDataGenerator(UserRepository userRepository,
+                                  WalletRepository walletRepository,
+                                  CategoryRepository categoryRepository,
+                                  BudgetRepository budgetRepository,
+                                  RecurringTransactionRepository recurringTransactionRepository,
+                                  WalletShareRepository walletShareRepository,
+                                  IdGeneratorInitializer idGeneratorInitializer,
+                                  SyncSequenceService syncSequenceService,
+                                  JdbcTemplate jdbcTemplate,
+                                  PasswordEncoder passwordEncoder,
+                                  JwtUtil jwtUtil,
+                                  PlatformTransactionManager transactionManager,
+                                  ApplicationContext applicationContext) {
+        this.userRepository = userRepository;
+        this.walletRepository = walletRepository;
+        this.categoryRepository = categoryRepository;
+        this.budgetRepository = budgetRepository;
+        this.recurringTransactionRepository = recurringTransactionRepository;
+        this.walletShareRepository = walletShareRepository;
+        this.idGeneratorInitializer = idGeneratorInitializer;
+        this.syncSequenceService = syncSequenceService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.passwordEncoder = passwordEncoder;
+        this.jwtUtil = jwtUtil;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.applicationContext = applicationContext;
+    }
+
+    @Override
+    public void run(String... args) throws Exception {
+        if (users <= 0) {
+            throw new IllegalArgumentException("seed.users phải lớn hơn 0");
+        }
+        long started = System.currentTimeMillis();
+        logger.info("Seeding {} users, ~{} transactions/user over {} months ({} threads, batch {})",
+                users, transactionsPerUser, months, threads, batchSize);
+
+        // BCrypt chậm có chủ đích - mã hóa một lần, dùng chung cho mọi user
+        String passwordHash = passwordEncoder.encode(password);
+        String runTag = Long.toString(System.currentTimeMillis(), 36);
+
+        List<SeedUser> seeded = new ArrayList<>(users);
+        for (int offset = 0; offset < users; offset += USER_CHUNK) {
+            int count = Math.min(USER_CHUNK, users - offset);
+            int base = offset;
+            seeded.addAll(transactionTemplate.execute(status -> createUsers(base, count, passwordHash, runTag)));
+            logger.info("Created {}/{} users with wallets, categories, budgets and recurring rules", seeded.size(), users);
+        }
+        transactionTemplate.executeWithoutResult(status -> shareWallets(seeded));
+
+        long transactionCount = insertTransactions(seeded);
+        // Giao dịch insert bằng JDBC không đi qua SyncChangeListener - gán số delta sync sau khi ghi xong
+        for (SeedUser user : seeded) {
+            syncSequenceService.assignPending(user.userId);
+        }
+        writeTokens(seeded);
+
+        long elapsed = System.currentTimeMillis() - started;
+        logger.info("Seeding finished: {} users, {} transactions in {} s ({} rows/s)",
+                users, transactionCount, elapsed / 1000, elapsed > 0 ? transactionCount * 1000 / elapsed : transactionCount);
+
+        if (exitWhenDone) {
+            System.exit(SpringApplication.exit(applicationContext, () -> 0));
+        }
+    }
+
+    private List<SeedUser> createUsers(int base, int count, String passwordHash, String runTag) {
+        List<SeedUser> result = new ArrayList<>(count);
+        LocalDate today = LocalDate.now();
+        YearMonth currentMonth = YearMonth.from(today);
+        for (int i = 0; i < count; i++) {
+            int index = base + i;
+            SplittableRandom random = new SplittableRandom(randomSeed * 31 + index);
+
+            User user = new User();
+            user.setEmail(emailPrefix + "-" + runTag + "-" + index + "@example.com");
+            user.setPasswordHash(passwordHash);
+            user.setFullName("Seed User " + index);
+            userRepository.save(user);
+
+            List<Wallet> wallets = new ArrayList<>();
+            wallets.add(wallet(user, "Tiền mặt", Wallet.WalletType.CASH, true));
+            if (random.nextDouble() < 0.85) {
+                wallets.add(wallet(user, "Ngân hàng", Wallet.WalletType.BANK, false));
+            }
+            if (random.nextDouble() < 0.5) {
+                wallets.add(wallet(user, "Ví MoMo", Wallet.WalletType.E_WALLET, false));
+            }
+            walletRepository.saveAll(wallets);
+
+            List<Category> expense = new ArrayList<>();
+            for (CategorySpec spec : EXPENSE_SPECS) {
+                expense.add(category(user, spec.name, Category.CategoryType.EXPENSE));
+            }
+            List<Category> income = new ArrayList<>();
+            for (CategorySpec spec : INCOME_SPECS) {
+                income.add(category(user, spec.name, Category.CategoryType.INCOME));
+            }
+            categoryRepository.saveAll(expense);
+            categoryRepository.saveAll(income);
+
+            // Mức chi tiêu của user: hệ số nhân lognormal quanh 1 cho mọi khoản chi
+            double spendFactor = Math.exp(random.nextGaussian() * 0.4);
+            Wallet salaryWallet = wallets.size() > 1 ? wallets.get(1) : wallets.get(0);
+            long salary = roundThousand(INCOME_SPECS[0].median * Math.exp(random.nextGaussian() * 0.35));
+
+            // Ngân sách tháng hiện tại cho vài danh mục chi tiêu nhiều nhất
+            List<Budget> budgets = new ArrayList<>();
+            int budgetCount = 2 + random.nextInt(4);
+            for (int b = 0; b < budgetCount; b++) {
+                Budget budget = new Budget();
+                budget.setUser(user);
+                budget.setCategory(expense.get(b));
+                budget.setPeriod(Budget.Period.MONTHLY);
+                budget.setStartDate(currentMonth.atDay(1));
+                budget.setEndDate(currentMonth.atEndOfMonth());
+                budget.setLimitAmount(BigDecimal.valueOf(roundThousand(expectedMonthlySpend(b, spendFactor) * 1.1)));
+                budget.setUsedAmount(BigDecimal.ZERO);
+                budgets.add(budget);
+            }
+            budgetRepository.saveAll(budgets);
+
+            List<RecurringTransaction> recurring = new ArrayList<>();
+            recurring.add(recurring(user, salaryWallet, income.get(0), Transaction.TransactionType.INCOME,
+                    salary, RecurringTransaction.Frequency.MONTHLY, "Lương tháng", today));
+            if (random.nextDouble() < 0.6) {
+                recurring.add(recurring(user, salaryWallet, expense.get(7), Transaction.TransactionType.EXPENSE,
+                        roundThousand(salary * (0.2 + random.nextDouble() * 0.15)),
+                        RecurringTransaction.Frequency.MONTHLY, "Tiền nhà", today));
+            }
+            if (random.nextDouble() < 0.4) {
+                recurring.add(recurring(user, wallets.get(wallets.size() - 1), expense.get(3),
+                        Transaction.TransactionType.EXPENSE, 260_000, RecurringTransaction.Frequency.MONTHLY, "Netflix", today));
+            }
+            if (random.nextDouble() < 0.3) {
+                recurring.add(recurring(user, wallets.get(0), expense.get(0), Transaction.TransactionType.EXPENSE,
+                        roundThousand(500_000 * spendFactor), RecurringTransaction.Frequency.WEEKLY, "Đi chợ", today));
+            }
+            recurringTransactionRepository.saveAll(recurring);
+
+            SeedUser seedUser = new SeedUser();
+            seedUser.index = index;
+            seedUser.userId = user.getId();
+            seedUser.email = user.getEmail();
+            seedUser.role = user.getRole().name();
+            seedUser.tokenVersion = user.getTokenVersion();
+            seedUser.walletIds = wallets.stream().map(Wallet::getId).mapToLong(Long::longValue).toArray();
+            seedUser.salaryWalletId = salaryWallet.getId();
+            seedUser.expenseCategoryIds = expense.stream().map(Category::getId).mapToLong(Long::longValue).toArray();
+            seedUser.incomeCategoryIds = income.stream().map(Category::getId).mapToLong(Long::longValue).toArray();
+            seedUser.salary = salary;
+            seedUser.spendFactor = spendFactor;
+            Map<Long, Long> budgetIds = new HashMap<>();
+            for (Budget budget : budgets) {
+                budgetIds.put(budget.getCategory().getId(), budget.getId());
+            }
+            seedUser.budgetIdByCategory = budgetIds;
+            result.add(seedUser);
+        }
+        return result;
+    }
+
+    /**
+     * Một tỷ lệ user chia sẻ ví của mình cho một user ngẫu nhiên khác (EDITOR hoặc VIEWER)
+     */
+    private void shareWallets(List<SeedUser> seeded) {
+        if (seeded.size() < 2 || sharedWalletRatio <= 0) {
+            return;
+        }
+        SplittableRandom random = new SplittableRandom(randomSeed);
+        List<WalletShare> shares = new ArrayList<>();
+        for (SeedUser owner : seeded) {
+            if (random.nextDouble() >= sharedWalletRatio) {
+                continue;
+            }
+            SeedUser target = seeded.get(random.nextInt(seeded.size()));
+            if (target == owner) {
+                continue;
+            }
+            WalletShare share = new WalletShare();
+            share.setWallet(walletRepository.getReferenceById(owner.walletIds[random.nextInt(owner.walletIds.length)]));
+            share.setSharedWithUser(userRepository.getReferenceById(target.userId));
+            share.setPermission(random.nextDouble() < 0.5 ? WalletShare.Permission.EDITOR : WalletShare.Permission.VIEWER);
+            shares.add(share);
+        }
+        walletShareRepository.saveAll(shares);
+        logger.info("Created {} wallet shares", shares.size());
+    }
+
+    private long insertTransactions(List<SeedUser> seeded) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        AtomicLong inserted = new AtomicLong();
+        try {
+            List<Future<?>> futures = new ArrayList<>(seeded.size());
+            for (SeedUser user : seeded) {
+                futures.add(executor.submit(() -> {
+                    long count = insertTransactionsFor(user);
+                    long total = inserted.addAndGet(count);
+                    if (total / 100_000 != (total - count) / 100_000) {
+                        logger.info("Inserted {} transactions", total);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        return inserted.get();
+    }
+
+    /**
+     * Sinh và insert toàn bộ giao dịch của một user, sau đó cập nhật số dư ví và ngân sách
+     */
+    private long insertTransactionsFor(SeedUser user) {
+        SplittableRandom random = new SplittableRandom(randomSeed * 131 + user.index);
+        LocalDateTime now = LocalDateTime.now();
+        LocalDate firstDay = now.toLocalDate().minusMonths(months).withDayOfMonth(1);
+        long spanDays = Math.max(1, now.toLocalDate().toEpochDay() - firstDay.toEpochDay());
+        YearMonth currentMonth = YearMonth.from(now);
+
+        // Số giao dịch lệch phải: đa số user ít giao dịch, một số ít rất nhiều
+        int count = (int) Math.min(transactionsPerUser * 20L,
+                Math.round(transactionsPerUser * Math.exp(random.nextGaussian() * 0.8 - 0.32)));
+
+        Map<Long, Long> balances = new HashMap<>();
+        Map<Long, Long> budgetUsed = new HashMap<>();
+        List<Object[]> batch = new ArrayList<>(batchSize);
+        long total = 0;
+
+        // Lương mỗi tháng vào ví ngân hàng, ngày 1-5
+        for (LocalDate month = firstDay; !month.isAfter(now.toLocalDate()); month = month.plusMonths(1)) {
+            LocalDateTime at = month.plusDays(random.nextInt(5)).atTime(9, random.nextInt(60));
+            if (at.isAfter(now)) {
+                break;
+            }
+            batch.add(row(user, user.salaryWalletId, user.incomeCategoryIds[0], Transaction.TransactionType.INCOME,
+                    user.salary, INCOME_SPECS[0].notes[0], at, balances, budgetUsed, currentMonth));
+            total += flushIfFull(batch);
+        }
+
+        int expenseWeightTotal = 0;
+        for (CategorySpec spec : EXPENSE_SPECS) {
+            expenseWeightTotal += spec.weight;
+        }
+        for (int i = 0; i < count; i++) {
+            LocalDateTime at = firstDay.plusDays(random.nextLong(spanDays + 1))
+                    .atTime(pickHour(random), random.nextInt(60), random.nextInt(60));
+            if (at.isAfter(now)) {
+                at = now.minusMinutes(random.nextInt(600));
+            }
+            long walletId = user.walletIds[pickWallet(random, user.walletIds.length)];
+            if (random.nextInt(25) == 0) {
+                int c = 1 + random.nextInt(INCOME_SPECS.length - 1);
+                CategorySpec spec = INCOME_SPECS[c];
+                batch.add(row(user, walletId, user.incomeCategoryIds[c], Transaction.TransactionType.INCOME,
+                        amount(random, spec.median, 0.7), spec.notes[random.nextInt(spec.notes.length)],
+                        at, balances, budgetUsed, currentMonth));
+            } else {
+                int c = pickCategory(random, expenseWeightTotal);
+                CategorySpec spec = EXPENSE_SPECS[c];
+                batch.add(row(user, walletId, user.expenseCategoryIds[c], Transaction.TransactionType.EXPENSE,
+                        amount(random, spec.median * user.spendFactor, 0.6), spec.notes[random.nextInt(spec.notes.length)],
+                        at, balances, budgetUsed, currentMonth));
+            }
+            total += flushIfFull(batch);
+        }
+        if (!batch.isEmpty()) {
+            total += flush(batch);
+        }
+
+        List<Object[]> walletUpdates = balances.entrySet().stream()
+                .map(e -> new Object[]{BigDecimal.valueOf(e.getValue()), e.getKey()})
+                .collect(Collectors.toList());
+        jdbcTemplate.batchUpdate("UPDATE wallets SET balance = ? WHERE id = ?", walletUpdates);
+        List<Object[]> budgetUpdates = budgetUsed.entrySet().stream()
+                .filter(e -> user.budgetIdByCategory.containsKey(e.getKey()))
+                .map(e -> new Object[]{BigDecimal.valueOf(e.getValue()), user.budgetIdByCategory.get(e.getKey())})
+                .collect(Collectors.toList());
+        if (!budgetUpdates.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE budgets SET used_amount = ? WHERE id = ?", budgetUpdates);
+        }
+        return total;
+    }
+
+    private Object[] row(SeedUser user, long walletId, long categoryId, Transaction.TransactionType type, long amount,
+                         String note, LocalDateTime at, Map<Long, Long> balances, Map<Long, Long> budgetUsed,
+                         YearMonth currentMonth) {
+        balances.merge(walletId, type == Transaction.TransactionType.INCOME ? amount : -amount, Long::sum);
+        if (type == Transaction.TransactionType.EXPENSE && YearMonth.from(at).equals(currentMonth)) {
+            budgetUsed.merge(categoryId, amount, Long::sum);
+        }
+        // id được gán lúc flush
+        return new Object[]{null, BigDecimal.valueOf(amount), type.name(), walletId, categoryId, user.userId,
+                note, Timestamp.valueOf(at)};
+    }
+
+    private int flushIfFull(List<Object[]> batch) {
+        return batch.size() >= batchSize ? flush(batch) : 0;
+    }
+
+    private int flush(List<Object[]> batch) {
+        long firstId = idGeneratorInitializer.reserveIds("transactions", batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i)[0] = firstId + i;
+        }
+        jdbcTemplate.batchUpdate(INSERT_TRANSACTION, batch);
+        int size = batch.size();
+        batch.clear();
+        return size;
+    }
+
+    private void writeTokens(List<SeedUser> seeded) throws IOException {
+        Path path = Path.of(tokensFile);
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(path, StandardCharsets.UTF_8))) {
+            writer.println("userId,email,accessToken,walletIds,expenseCategoryIds");
+            for (SeedUser user : seeded) {
+                String token = jwtUtil.generateAccessToken(user.userId, user.email, user.role, user.tokenVersion);
+                writer.println(user.userId + "," + user.email + "," + token + ","
+                        + join(user.walletIds) + "," + join(user.expenseCategoryIds));
+            }
+        }
+        logger.info("Wrote {} access tokens to {}", seeded.size(), path.toAbsolutePath());
+    }
+
+    private static String join(long[] ids) {
+        StringBuilder sb = new StringBuilder();
+        for (long id : ids) {
+            if (sb.length() > 0) {
+                sb.append(';');
+            }
+            sb.append(id);
+        }
+        return sb.toString();
+    }
+
+    private static double expectedMonthlySpend(int categoryIndex, double spendFactor) {
+        int weightTotal = 0;
+        for (CategorySpec spec : EXPENSE_SPECS) {
+            weightTotal += spec.weight;
+        }
+        // Ước lượng thô: 30 giao dịch chi/tháng phân theo trọng số, trung bình lognormal ~ 1.2 x trung vị
+        CategorySpec spec = EXPENSE_SPECS[categoryIndex];
+        return 30.0 * spec.weight / weightTotal * spec.median * 1.2 * spendFactor;
+    }
+
+    private static long amount(SplittableRandom random, double median, double sigma) {
+        return Math.max(1_000, roundThousand(median * Math.exp(random.nextGaussian() * sigma)));
+    }
+
+    private static long roundThousand(double value) {
+        return Math.round(value / 1000.0) * 1000L;
+    }
+
+    private static int pickHour(SplittableRandom random) {
+        int total = 0;
+        for (int w : HOUR_WEIGHTS) {
+            total += w;
+        }
+        int r = random.nextInt(total);
+        for (int h = 0; h < HOUR_WEIGHTS.length; h++) {
+            r -= HOUR_WEIGHTS[h];
+            if (r < 0) {
+                return h;
+            }
+        }
+        return 12;
+    }
+
+    private static int pickCategory(SplittableRandom random, int weightTotal) {
+        int r = random.nextInt(weightTotal);
+        for (int c = 0; c < EXPENSE_SPECS.length; c++) {
+            r -= EXPENSE_SPECS[c].weight;
+            if (r < 0) {
+                return c;
+            }
+        }
+        return 0;
+    }
+
+    // Ví đầu tiên (tiền mặt) được dùng nhiều nhất
+    private static int pickWallet(SplittableRandom random, int walletCount) {
+        return random.nextDouble() < 0.6 ? 0 : random.nextInt(walletCount);
+    }
+
+    private static Wallet wallet(User user, String name, Wallet.WalletType type, boolean isDefault) {
+        Wallet wallet = new Wallet();
+        wallet.setUser(user);
+        wallet.setName(name);
+        wallet.setType(type);
+        wallet.setBalance(BigDecimal.ZERO);
+        wallet.setDefault(isDefault);
+        return wallet;
+    }
+
+    private static Category category(User user, String name, Category.CategoryType type) {
+        Category category = new Category();
+        category.setUser(user);
+        category.setName(name);
+        category.setType(type);
+        return category;
+    }
+
+    private static RecurringTransaction recurring(User user, Wallet wallet, Category category,
+                                                  Transaction.TransactionType type, long amount,
+                                                  RecurringTransaction.Frequency frequency, String note, LocalDate today) {
+        RecurringTransaction recurring = new RecurringTransaction();
+        recurring.setUser(user);
+        recurring.setWallet(wallet);
+        recurring.setCategory(category);
+        recurring.setType(type);
+        recurring.setAmount(BigDecimal.valueOf(amount));
+        recurring.setFrequency(frequency);
+        recurring.setStartDate(today.minusMonths(6));
+        recurring.setNextRunDate(frequency == RecurringTransaction.Frequency.WEEKLY
+                ? today.plusDays(1 + (today.getDayOfYear() % 7))
+                : today.plusMonths(1).withDayOfMonth(1));
+        recurring.setActive(true);
+        recurring.setNote(note);
+        return recurring;
+    }
+
+    private static final class CategorySpec {
+        final String name;
+        final int weight;
+        final double median;
+        final String[] notes;
+
+        CategorySpec(String name, int weight, double median, String... notes) {
+            this.name = name;
+            this.weight = weight;
+            this.median = median;
+            this.notes = notes;
+        }
+    }
+
+    private static final class SeedUser {
+        int index;
+        Long userId;
+        String email;
+        String role;
+        Long tokenVersion;
+        long[] walletIds;
+        Long salaryWalletId;
+        long[] expenseCategoryIds;
+        long[] incomeCategoryIds;
+        long salary;
+        double spendFactor;
+        Map<Long, Long> budgetIdByCategory;
+    }
+}
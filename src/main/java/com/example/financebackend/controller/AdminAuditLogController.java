@@ -1,13 +1,18 @@
 package com.example.financebackend.controller;
 
 import com.example.financebackend.dto.AuditLogDto;
+import com.example.financebackend.dto.CursorPageDto;
+import com.example.financebackend.entity.AuditLog;
 import com.example.financebackend.service.AuditLogService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
+
 @RestController
 @RequestMapping("/api/admin/audit-logs")
 public class AdminAuditLogController {
@@ -26,6 +31,23 @@ public class AdminAuditLogController {
         return auditLogService.getAllLogs(pageable);
     }
 
+    /**
+     * Duyệt audit log theo keyset (không chậm dần ở các trang sâu).
+     * Truyền nextCursor của trang trước qua tham số cursor.
+     */
+    @GetMapping("/search")
+    public CursorPageDto<AuditLogDto> searchLogs(
+            @RequestParam(required = false) AuditLog.Action action,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) String entity,
+            @RequestParam(required = false) Long entityId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        return auditLogService.searchLogs(action, userId, entity, entityId, from, to, cursor, size);
+    }
+
     @GetMapping("/user/{userId}")
     public Page<AuditLogDto> getUserLogs(
             @PathVariable Long userId,
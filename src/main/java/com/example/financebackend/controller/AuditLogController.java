@@ -1,6 +1,7 @@
 package com.example.financebackend.controller;
 
 import com.example.financebackend.dto.AuditLogDto;
+import com.example.financebackend.dto.CursorPageDto;
 import com.example.financebackend.service.AuditLogService;
 import com.example.financebackend.util.AuthUtil;
 import org.springframework.data.domain.Page;
@@ -27,5 +28,13 @@ public class AuditLogController {
         Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt"));
         return auditLogService.getUserLogs(userId, pageable);
     }
+
+    @GetMapping("/page")
+    public CursorPageDto<AuditLogDto> getUserLogsPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        Long userId = AuthUtil.getCurrentUserId();
+        return auditLogService.searchLogs(null, userId, null, null, null, null, cursor, size);
+    }
 }
 
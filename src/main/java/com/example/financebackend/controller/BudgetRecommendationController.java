@@ -2,9 +2,12 @@ package com.example.financebackend.controller;
 
 import com.example.financebackend.service.BudgetRecommendationService;
 import com.example.financebackend.service.BudgetRecommendationService.BudgetRecommendationDto;
+import com.example.financebackend.service.ReportCacheService;
 import com.example.financebackend.util.AuthUtil;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -12,9 +15,12 @@ import java.util.List;
 public class BudgetRecommendationController {
 
     private final BudgetRecommendationService budgetRecommendationService;
+    private final ReportCacheService reportCacheService;
 
-    public BudgetRecommendationController(BudgetRecommendationService budgetRecommendationService) {
+    public BudgetRecommendationController(BudgetRecommendationService budgetRecommendationService,
+                                          ReportCacheService reportCacheService) {
         this.budgetRecommendationService = budgetRecommendationService;
+        this.reportCacheService = reportCacheService;
     }
 
     @GetMapping("/category/{categoryId}")
@@ -22,14 +28,21 @@ public class BudgetRecommendationController {
             @PathVariable Long categoryId,
             @RequestParam(defaultValue = "3") int months) {
         Long userId = AuthUtil.getCurrentUserId();
-        return budgetRecommendationService.recommendBudget(categoryId, userId, months);
+        // Khoảng mở về phía sau: giao dịch tháng hiện tại đổi currentUsage nên cũng phải xóa cache
+        LocalDateTime from = BudgetRecommendationService.windowStart(LocalDate.now(), months);
+        return reportCacheService.get(userId, ReportCacheService.Endpoint.BUDGET_RECOMMENDATIONS, from, null,
+                months + ":" + categoryId,
+                () -> budgetRecommendationService.recommendBudget(categoryId, userId, months));
     }
 
     @GetMapping("/all")
     public List<BudgetRecommendationDto> getAllRecommendations(
             @RequestParam(defaultValue = "3") int months) {
         Long userId = AuthUtil.getCurrentUserId();
-        return budgetRecommendationService.recommendBudgetsForAllCategories(userId, months);
+        LocalDateTime from = BudgetRecommendationService.windowStart(LocalDate.now(), months);
+        return reportCacheService.get(userId, ReportCacheService.Endpoint.BUDGET_RECOMMENDATIONS, from, null,
+                months + ":all",
+                () -> budgetRecommendationService.recommendBudgetsForAllCategories(userId, months));
     }
 }
 
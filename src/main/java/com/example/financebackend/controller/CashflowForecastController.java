@@ -1,10 +1,13 @@
 package com.example.financebackend.controller;
 
+import com.example.financebackend.dto.CashflowForecastDto;
 import com.example.financebackend.service.CashflowForecastService;
+import com.example.financebackend.service.ReportCacheService;
 import com.example.financebackend.util.AuthUtil;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.Map;
+import java.time.LocalDate;
+import java.util.Arrays;
 
 /**
  * Cashflow Forecast Controller
@@ -15,19 +18,36 @@ import java.util.Map;
 public class CashflowForecastController {
 
     private final CashflowForecastService forecastService;
+    private final ReportCacheService reportCacheService;
 
-    public CashflowForecastController(CashflowForecastService forecastService) {
+    public CashflowForecastController(CashflowForecastService forecastService,
+                                      ReportCacheService reportCacheService) {
         this.forecastService = forecastService;
+        this.reportCacheService = reportCacheService;
     }
 
     /**
      * Get cashflow forecast for next N days
      * Default: 30 days
+     * mode=probabilistic: kèm mô phỏng Monte Carlo (P10/P50/P90 và xác suất số dư xuống dưới ngưỡng)
      */
     @GetMapping
-    public Map<String, Object> getForecast(@RequestParam(required = false) Integer days) {
+    public CashflowForecastDto getForecast(@RequestParam(required = false) Integer days,
+                                           @RequestParam(defaultValue = "deterministic") String mode,
+                                           @RequestParam(required = false) Integer paths) {
+        boolean probabilistic;
+        if ("probabilistic".equalsIgnoreCase(mode)) {
+            probabilistic = true;
+        } else if ("deterministic".equalsIgnoreCase(mode)) {
+            probabilistic = false;
+        } else {
+            throw new IllegalArgumentException("Chế độ dự báo không hợp lệ: " + mode);
+        }
         Long userId = AuthUtil.getCurrentUserId();
-        return forecastService.getForecast(userId, days);
+        // Forecast phụ thuộc số dư ví nên dùng khoảng mở (mọi thay đổi đều invalidate)
+        return reportCacheService.get(userId, ReportCacheService.Endpoint.CASHFLOW_FORECAST, null, null,
+                Arrays.asList(days, LocalDate.now(), probabilistic, probabilistic ? paths : null),
+                () -> forecastService.getForecast(userId, days, probabilistic, paths));
     }
 }
 
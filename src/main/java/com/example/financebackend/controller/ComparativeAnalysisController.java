@@ -1,9 +1,12 @@
 package com.example.financebackend.controller;
 
 import com.example.financebackend.service.ComparativeAnalysisService;
+import com.example.financebackend.service.ReportCacheService;
 import com.example.financebackend.util.AuthUtil;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.Map;
 
 /**
@@ -15,9 +18,12 @@ import java.util.Map;
 public class ComparativeAnalysisController {
 
     private final ComparativeAnalysisService analysisService;
+    private final ReportCacheService reportCacheService;
 
-    public ComparativeAnalysisController(ComparativeAnalysisService analysisService) {
+    public ComparativeAnalysisController(ComparativeAnalysisService analysisService,
+                                         ReportCacheService reportCacheService) {
         this.analysisService = analysisService;
+        this.reportCacheService = reportCacheService;
     }
 
     /**
@@ -26,7 +32,10 @@ public class ComparativeAnalysisController {
     @GetMapping("/month-over-month")
     public Map<String, Object> compareMonthOverMonth() {
         Long userId = AuthUtil.getCurrentUserId();
-        return analysisService.compareMonthOverMonth(userId);
+        LocalDate today = LocalDate.now();
+        LocalDateTime from = today.withDayOfMonth(1).minusMonths(1).atStartOfDay();
+        return reportCacheService.get(userId, ReportCacheService.Endpoint.MONTH_OVER_MONTH, from, null, today,
+                () -> analysisService.compareMonthOverMonth(userId));
     }
 
     /**
@@ -35,7 +44,10 @@ public class ComparativeAnalysisController {
     @GetMapping("/vs-average")
     public Map<String, Object> compareWithAverage() {
         Long userId = AuthUtil.getCurrentUserId();
-        return analysisService.compareWithAverage(userId);
+        LocalDate today = LocalDate.now();
+        LocalDateTime from = today.withDayOfMonth(1).minusMonths(3).atStartOfDay();
+        return reportCacheService.get(userId, ReportCacheService.Endpoint.VS_AVERAGE, from, null, today,
+                () -> analysisService.compareWithAverage(userId));
     }
 
     /**
@@ -44,7 +56,10 @@ public class ComparativeAnalysisController {
     @GetMapping("/year-over-year")
     public Map<String, Object> compareYearOverYear() {
         Long userId = AuthUtil.getCurrentUserId();
-        return analysisService.compareYearOverYear(userId);
+        LocalDate today = LocalDate.now();
+        LocalDateTime from = today.withDayOfYear(1).minusYears(1).atStartOfDay();
+        return reportCacheService.get(userId, ReportCacheService.Endpoint.YEAR_OVER_YEAR, from, null, today,
+                () -> analysisService.compareYearOverYear(userId));
     }
 }
 
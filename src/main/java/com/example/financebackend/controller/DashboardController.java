@@ -0,0 +1,36 @@
+package com.example.financebackend.controller;
+
+import com.example.financebackend.dto.DashboardDto;
+import com.example.financebackend.service.DashboardService;
+import com.example.financebackend.util.AuthUtil;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Dashboard Controller
+ * Một request cho toàn bộ màn hình dashboard thay vì gọi lẻ từng endpoint.
+ * sections: danh sách mục cách nhau bởi dấu phẩy (wallets, summary, cashflow, budgetAlerts, unreadCount,
+ * healthScore, forecast); bỏ trống = tất cả.
+ */
+@RestController
+@RequestMapping("/api/dashboard")
+public class DashboardController {
+
+    private final DashboardService dashboardService;
+
+    public DashboardController(DashboardService dashboardService) {
+        this.dashboardService = dashboardService;
+    }
+
+    @GetMapping
+    public DashboardDto getDashboard(
+            @RequestParam(required = false) String sections,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Integer forecastDays) {
+        Long userId = AuthUtil.getCurrentUserId();
+        return dashboardService.load(userId, DashboardService.parseSections(sections), from, to, forecastDays);
+    }
+}
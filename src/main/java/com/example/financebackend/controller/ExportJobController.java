@@ -0,0 +1,99 @@
+package com.example.financebackend.controller;
+
+import com.example.financebackend.dto.ExportJobDto;
+import com.example.financebackend.entity.ExportJob;
+import com.example.financebackend.service.ExportJobService;
+import com.example.financebackend.util.AuthUtil;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Export Job Controller
+ * Xuất file chạy nền: POST trả job QUEUED ngay, client hỏi GET /api/exports/{id} (hoặc nhận thông báo) rồi tải
+ * qua /download. File nén gzip được gửi nguyên với Content-Encoding: gzip cho client hỗ trợ, client khác nhận
+ * bản giải nén đã ghi ra file; cả hai đều có Content-Length và Range để tải tiếp.
+ * Các endpoint đồng bộ /api/export/* và /api/users/export-data vẫn giữ nguyên.
+ */
+@RestController
+@RequestMapping("/api/exports")
+public class ExportJobController {
+
+    private final ExportJobService exportJobService;
+
+    public ExportJobController(ExportJobService exportJobService) {
+        this.exportJobService = exportJobService;
+    }
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public ExportJobDto submit(@RequestParam ExportJob.Type type,
+                               @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                               @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        Long userId = AuthUtil.getCurrentUserId();
+        return exportJobService.submit(userId, type, from, to);
+    }
+
+    @GetMapping
+    public List<ExportJobDto> list() {
+        Long userId = AuthUtil.getCurrentUserId();
+        return exportJobService.getRecentJobs(userId);
+    }
+
+    @GetMapping("/{id}")
+    public ExportJobDto get(@PathVariable Long id) {
+        Long userId = AuthUtil.getCurrentUserId();
+        return exportJobService.getJob(id, userId);
+    }
+
+    @GetMapping("/{id}/download")
+    public ResponseEntity<Resource> download(@PathVariable Long id,
+                                             @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        Long userId = AuthUtil.getCurrentUserId();
+        ExportJobService.Artifact artifact = exportJobService.getArtifact(id, userId);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(artifact.contentType());
+        headers.setContentDisposition(ContentDisposition.attachment().filename(artifact.fileName()).build());
+
+        if (artifact.compressed()) {
+            headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if (acceptsGzip(acceptEncoding)) {
+                headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+            } else {
+                artifact = exportJobService.decompressed(artifact);
+            }
+        }
+        // Resource có độ dài: Spring trả Content-Length, Accept-Ranges và 206 cho request có Range
+        Resource resource = new FileSystemResource(artifact.path());
+        return ResponseEntity.ok().headers(headers).body(resource);
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (!parts[0].trim().equalsIgnoreCase("gzip")) {
+                continue;
+            }
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim().replace(" ", "");
+                if (param.equals("q=0") || param.matches("q=0\\.0{0,3}")) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+}
@@ -1,9 +1,11 @@
 package com.example.financebackend.controller;
 
 import com.example.financebackend.service.FinancialHealthScoreService;
+import com.example.financebackend.service.ReportCacheService;
 import com.example.financebackend.util.AuthUtil;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.Map;
 
 /**
@@ -15,9 +17,12 @@ import java.util.Map;
 public class FinancialHealthController {
 
     private final FinancialHealthScoreService healthScoreService;
+    private final ReportCacheService reportCacheService;
 
-    public FinancialHealthController(FinancialHealthScoreService healthScoreService) {
+    public FinancialHealthController(FinancialHealthScoreService healthScoreService,
+                                     ReportCacheService reportCacheService) {
         this.healthScoreService = healthScoreService;
+        this.reportCacheService = reportCacheService;
     }
 
     /**
@@ -27,7 +32,8 @@ public class FinancialHealthController {
     @GetMapping("/score")
     public Map<String, Object> getHealthScore() {
         Long userId = AuthUtil.getCurrentUserId();
-        return healthScoreService.calculateHealthScore(userId);
+        return reportCacheService.get(userId, ReportCacheService.Endpoint.FINANCIAL_HEALTH, null, null, LocalDate.now(),
+                () -> healthScoreService.calculateHealthScore(userId));
     }
 }
 
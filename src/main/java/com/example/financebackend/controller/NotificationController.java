@@ -1,10 +1,14 @@
 package com.example.financebackend.controller;
 
 import com.example.financebackend.dto.NotificationDto;
+import com.example.financebackend.dto.NotificationPageDto;
 import com.example.financebackend.service.NotificationService;
 import com.example.financebackend.util.AuthUtil;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import java.util.List;
 
@@ -18,10 +22,35 @@ public class NotificationController {
         this.notificationService = notificationService;
     }
 
+    /**
+     * API cũ: tối đa notification.inbox.legacy-max-size thông báo mới nhất. Khi bị cắt, header
+     * Link rel="next" trỏ tới phần còn lại trong /api/notifications/page và X-Result-Truncated: true.
+     */
     @GetMapping
-    public List<NotificationDto> list() {
+    public ResponseEntity<List<NotificationDto>> list() {
+        Long userId = AuthUtil.getCurrentUserId();
+        NotificationPageDto page = notificationService.getUserNotifications(userId);
+        if (!page.isHasMore()) {
+            return ResponseEntity.ok(page.getItems());
+        }
+        String next = UriComponentsBuilder.fromPath("/api/notifications/page")
+                .queryParam("cursor", page.getNextCursor())
+                .encode()
+                .toUriString();
+        return ResponseEntity.ok()
+                .header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"")
+                .header("X-Result-Truncated", "true")
+                .body(page.getItems());
+    }
+
+    /**
+     * Inbox phân trang theo keyset. Truyền nextCursor của trang trước để lấy trang tiếp theo.
+     */
+    @GetMapping("/page")
+    public NotificationPageDto page(@RequestParam(required = false) String cursor,
+                                    @RequestParam(required = false) Integer size) {
         Long userId = AuthUtil.getCurrentUserId();
-        return notificationService.getUserNotifications(userId);
+        return notificationService.getInboxPage(userId, cursor, size);
     }
 
     @GetMapping("/unread")
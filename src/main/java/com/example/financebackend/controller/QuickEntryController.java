@@ -6,6 +6,7 @@ import com.example.financebackend.dto.WalletDto;
 import com.example.financebackend.entity.Category;
 import com.example.financebackend.entity.Transaction;
 import com.example.financebackend.service.CategoryService;
+import com.example.financebackend.service.IdempotencyService;
 import com.example.financebackend.service.TransactionService;
 import com.example.financebackend.service.WalletService;
 import com.example.financebackend.util.AuthUtil;
@@ -17,9 +18,12 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Quick Entry Controller
@@ -32,13 +36,16 @@ public class QuickEntryController {
     private final TransactionService transactionService;
     private final WalletService walletService;
     private final CategoryService categoryService;
+    private final IdempotencyService idempotencyService;
 
     public QuickEntryController(TransactionService transactionService,
                                WalletService walletService,
-                               CategoryService categoryService) {
+                               CategoryService categoryService,
+                               IdempotencyService idempotencyService) {
         this.transactionService = transactionService;
         this.walletService = walletService;
         this.categoryService = categoryService;
+        this.idempotencyService = idempotencyService;
     }
 
     /**
@@ -56,28 +63,33 @@ public class QuickEntryController {
             .findFirst()
             .orElse(wallets.isEmpty() ? null : wallets.get(0));
 
+        // Load tất cả categories một lần, chia theo type và tra cứu recent categories từ map (không N+1)
+        List<CategoryDto> allCategories = categoryService.findAllByUserId(userId);
+        Map<Long, CategoryDto> categoriesById = new HashMap<>();
+        List<CategoryDto> expenseCategories = new ArrayList<>();
+        List<CategoryDto> incomeCategories = new ArrayList<>();
+        for (CategoryDto category : allCategories) {
+            categoriesById.put(category.getId(), category);
+            if (category.getType() == Category.CategoryType.EXPENSE) {
+                expenseCategories.add(category);
+            } else if (category.getType() == Category.CategoryType.INCOME) {
+                incomeCategories.add(category);
+            }
+        }
+
         // Get recently used categories (last 10 transactions)
         List<TransactionDto> recentTransactions = transactionService.findRecentTransactions(userId, 10);
-        List<Long> recentCategoryIds = recentTransactions.stream()
-            .map(TransactionDto::getCategoryId)
-            .distinct()
-            .limit(5)
-            .collect(java.util.stream.Collectors.toList());
-
-        List<CategoryDto> recentCategories = recentCategoryIds.stream()
-            .map(id -> {
-                try {
-                    return categoryService.findByIdAndUserId(id, userId);
-                } catch (Exception e) {
-                    return null;
+        Set<Long> seenCategoryIds = new HashSet<>();
+        List<CategoryDto> recentCategories = new ArrayList<>();
+        for (TransactionDto transaction : recentTransactions) {
+            CategoryDto category = categoriesById.get(transaction.getCategoryId());
+            if (category != null && seenCategoryIds.add(category.getId())) {
+                recentCategories.add(category);
+                if (recentCategories.size() == 5) {
+                    break;
                 }
-            })
-            .filter(c -> c != null)
-            .collect(java.util.stream.Collectors.toList());
-
-        // Get all categories grouped by type
-        List<CategoryDto> expenseCategories = categoryService.findByUserIdAndType(userId, Category.CategoryType.EXPENSE);
-        List<CategoryDto> incomeCategories = categoryService.findByUserIdAndType(userId, Category.CategoryType.INCOME);
+            }
+        }
 
         Map<String, Object> result = new HashMap<>();
         result.put("defaultWallet", defaultWallet);
@@ -137,9 +149,17 @@ public class QuickEntryController {
     @PostMapping("/batch")
     @ResponseStatus(HttpStatus.CREATED)
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
-    public Map<String, Object> batchEntry(@Valid @RequestBody List<SuperQuickRequest> requests) {
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> batchEntry(@Valid @RequestBody List<SuperQuickRequest> requests,
+                                          @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
         Long userId = AuthUtil.getCurrentUserId();
-        
+        // Cả batch là một đơn vị: gửi lại cùng key nhận lại kết quả cũ (kể cả các dòng lỗi).
+        // Mỗi dòng commit riêng nên kết quả được lưu sau khi batch xong
+        return idempotencyService.executeInOwnTransactions(userId, idempotencyKey, "quick-entry.batch", requests,
+                Map.class, () -> createBatch(requests, userId));
+    }
+
+    private Map<String, Object> createBatch(List<SuperQuickRequest> requests, Long userId) {
         List<TransactionDto> created = new java.util.ArrayList<>();
         List<String> errors = new java.util.ArrayList<>();
         
@@ -3,6 +3,7 @@ package com.example.financebackend.controller;
 import com.example.financebackend.dto.CashflowDto;
 import com.example.financebackend.dto.ReportSummaryDto;
 import com.example.financebackend.dto.WalletSummaryDto;
+import com.example.financebackend.service.ReportCacheService;
 import com.example.financebackend.service.ReportService;
 import com.example.financebackend.util.AuthUtil;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -16,9 +17,11 @@ import java.time.LocalDateTime;
 public class ReportController {
 
     private final ReportService reportService;
+    private final ReportCacheService reportCacheService;
 
-    public ReportController(ReportService reportService) {
+    public ReportController(ReportService reportService, ReportCacheService reportCacheService) {
         this.reportService = reportService;
+        this.reportCacheService = reportCacheService;
     }
 
     @GetMapping("/summary")
@@ -26,7 +29,8 @@ public class ReportController {
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
         Long userId = AuthUtil.getCurrentUserId();
-        return reportService.getSummary(userId, from, to);
+        return reportCacheService.get(userId, ReportCacheService.Endpoint.REPORT_SUMMARY, from, to, null,
+                () -> reportService.getSummary(userId, from, to));
     }
 
     @GetMapping("/cashflow")
@@ -34,7 +38,8 @@ public class ReportController {
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
         Long userId = AuthUtil.getCurrentUserId();
-        return reportService.getCashflow(userId, from, to);
+        return reportCacheService.get(userId, ReportCacheService.Endpoint.REPORT_CASHFLOW, from, to, null,
+                () -> reportService.getCashflow(userId, from, to));
     }
 
     @GetMapping("/wallet-summary")
@@ -42,6 +47,7 @@ public class ReportController {
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
         Long userId = AuthUtil.getCurrentUserId();
-        return reportService.getWalletSummary(userId, from, to);
+        return reportCacheService.get(userId, ReportCacheService.Endpoint.REPORT_WALLET_SUMMARY, from, to, null,
+                () -> reportService.getWalletSummary(userId, from, to));
     }
 }
\ No newline at end of file
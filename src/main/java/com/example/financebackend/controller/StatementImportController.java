@@ -0,0 +1,47 @@
+package com.example.financebackend.controller;
+
+import com.example.financebackend.dto.StatementImportDto;
+import com.example.financebackend.service.StatementImportService;
+import com.example.financebackend.util.AuthUtil;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.List;
+
+/**
+ * Statement Import Controller
+ * Nhập sao kê ngân hàng (CSV/OFX): POST trả job ở trạng thái QUEUED ngay, client hỏi GET /api/imports/{id}
+ * để xem tiến độ.
+ */
+@RestController
+@RequestMapping("/api/imports")
+public class StatementImportController {
+
+    private final StatementImportService statementImportService;
+
+    public StatementImportController(StatementImportService statementImportService) {
+        this.statementImportService = statementImportService;
+    }
+
+    @PostMapping(consumes = "multipart/form-data")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public StatementImportDto upload(@RequestParam("file") MultipartFile file,
+                                     @RequestParam Long walletId,
+                                     @RequestParam(required = false) String format) {
+        Long userId = AuthUtil.getCurrentUserId();
+        return statementImportService.submit(userId, walletId, file, format);
+    }
+
+    @GetMapping
+    public List<StatementImportDto> list() {
+        Long userId = AuthUtil.getCurrentUserId();
+        return statementImportService.getRecentJobs(userId);
+    }
+
+    @GetMapping("/{id}")
+    public StatementImportDto get(@PathVariable Long id) {
+        Long userId = AuthUtil.getCurrentUserId();
+        return statementImportService.getJob(id, userId);
+    }
+}
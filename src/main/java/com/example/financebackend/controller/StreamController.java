@@ -0,0 +1,29 @@
+package com.example.financebackend.controller;
+
+import com.example.financebackend.service.EventStreamService;
+import com.example.financebackend.util.AuthUtil;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Stream Controller
+ * Kênh Server-Sent Events: "notification" và "wallet-balance".
+ * Client thay việc poll /api/notifications/unread/count và /api/wallets bằng kết nối này.
+ */
+@RestController
+@RequestMapping("/api/stream")
+public class StreamController {
+
+    private final EventStreamService eventStreamService;
+
+    public StreamController(EventStreamService eventStreamService) {
+        this.eventStreamService = eventStreamService;
+    }
+
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream() {
+        Long userId = AuthUtil.getCurrentUserId();
+        return eventStreamService.subscribe(userId);
+    }
+}
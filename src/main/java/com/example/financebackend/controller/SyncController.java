@@ -0,0 +1,29 @@
+package com.example.financebackend.controller;
+
+import com.example.financebackend.dto.SyncDto;
+import com.example.financebackend.service.SyncService;
+import com.example.financebackend.util.AuthUtil;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Sync Controller
+ * Delta sync cho client offline/mobile: lần đầu gọi since=0, các lần sau truyền nextSince của lần trước;
+ * hasMore = true thì gọi tiếp với nextSince mới.
+ */
+@RestController
+@RequestMapping("/api/sync")
+public class SyncController {
+
+    private final SyncService syncService;
+
+    public SyncController(SyncService syncService) {
+        this.syncService = syncService;
+    }
+
+    @GetMapping
+    public SyncDto getChanges(@RequestParam(defaultValue = "0") long since,
+                              @RequestParam(required = false) Integer limit) {
+        Long userId = AuthUtil.getCurrentUserId();
+        return syncService.changes(userId, since, limit);
+    }
+}
@@ -3,6 +3,7 @@ package com.example.financebackend.controller;
 import com.example.financebackend.dto.TransactionDto;
 import com.example.financebackend.entity.Transaction;
 import com.example.financebackend.service.CategorySuggestionService;
+import com.example.financebackend.service.IdempotencyService;
 import com.example.financebackend.service.TransactionService;
 import com.example.financebackend.util.AuthUtil;
 import jakarta.validation.Valid;
@@ -23,11 +24,14 @@ public class TransactionController {
 
     private final TransactionService transactionService;
     private final CategorySuggestionService categorySuggestionService;
+    private final IdempotencyService idempotencyService;
 
     public TransactionController(TransactionService transactionService,
-                                CategorySuggestionService categorySuggestionService) {
+                                CategorySuggestionService categorySuggestionService,
+                                IdempotencyService idempotencyService) {
         this.transactionService = transactionService;
         this.categorySuggestionService = categorySuggestionService;
+        this.idempotencyService = idempotencyService;
     }
 
     @GetMapping
@@ -164,17 +168,21 @@ public class TransactionController {
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
-    public TransactionDto create(@Valid @RequestBody TransactionDto dto) {
+    public TransactionDto create(@Valid @RequestBody TransactionDto dto,
+                                 @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
         Long userId = AuthUtil.getCurrentUserId();
-        return transactionService.create(dto, userId);
+        return idempotencyService.execute(userId, idempotencyKey, "transactions.create", dto, TransactionDto.class,
+                () -> transactionService.create(dto, userId));
     }
 
     @PostMapping("/quick")
     @ResponseStatus(HttpStatus.CREATED)
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
-    public TransactionDto createQuick(@RequestBody com.example.financebackend.service.TransactionService.QuickTransactionRequest request) {
+    public TransactionDto createQuick(@RequestBody com.example.financebackend.service.TransactionService.QuickTransactionRequest request,
+                                      @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
         Long userId = AuthUtil.getCurrentUserId();
-        return transactionService.createQuick(request, userId);
+        return idempotencyService.execute(userId, idempotencyKey, "transactions.quick", request, TransactionDto.class,
+                () -> transactionService.createQuick(request, userId));
     }
 
     @PutMapping("/{id}")
@@ -195,14 +203,18 @@ public class TransactionController {
     @PostMapping("/transfer")
     @ResponseStatus(HttpStatus.CREATED)
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
-    public void transfer(@Valid @RequestBody TransferRequest request) {
+    public void transfer(@Valid @RequestBody TransferRequest request,
+                         @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
         Long userId = AuthUtil.getCurrentUserId();
-        transactionService.transfer(
-                request.getFromWalletId(),
-                request.getToWalletId(),
-                request.getAmount(),
-                userId
-        );
+        idempotencyService.execute(userId, idempotencyKey, "transactions.transfer", request, Void.class, () -> {
+            transactionService.transfer(
+                    request.getFromWalletId(),
+                    request.getToWalletId(),
+                    request.getAmount(),
+                    userId
+            );
+            return null;
+        });
     }
 
     public static class TransferRequest {
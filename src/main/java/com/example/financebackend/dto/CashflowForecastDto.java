@@ -0,0 +1,56 @@
+package com.example.financebackend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Kết quả dự báo cashflow. simulation chỉ có khi gọi ở chế độ probabilistic.
+ */
+public record CashflowForecastDto(
+        BigDecimal currentBalance,
+        int forecastDays,
+        List<DayForecast> dailyForecast,
+        BigDecimal minPredictedBalance,
+        List<LocalDate> warningDays,
+        boolean hasWarnings,
+        BigDecimal avgDailySpending,
+        @JsonInclude(JsonInclude.Include.NON_NULL) Simulation simulation) {
+
+    /**
+     * Dự báo tất định cho một ngày
+     */
+    public record DayForecast(
+            LocalDate date,
+            BigDecimal expectedIncome,
+            BigDecimal expectedExpense,
+            BigDecimal netChange,
+            BigDecimal predictedBalance,
+            String zone) {
+    }
+
+    /**
+     * Kết quả mô phỏng Monte Carlo
+     * probabilityBelowThreshold: tỉ lệ đường mô phỏng có ít nhất một ngày số dư dưới ngưỡng cảnh báo
+     */
+    public record Simulation(
+            int paths,
+            int historyDays,
+            BigDecimal warningThreshold,
+            double probabilityBelowThreshold,
+            List<BalanceBand> bands) {
+    }
+
+    /**
+     * Phân vị số dư cuối ngày trên tất cả đường mô phỏng
+     */
+    public record BalanceBand(
+            LocalDate date,
+            BigDecimal p10,
+            BigDecimal p50,
+            BigDecimal p90,
+            double probabilityBelowThreshold) {
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.financebackend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Kết quả /api/dashboard: các mục theo thứ tự client yêu cầu, mỗi mục kèm trạng thái và thời gian tính riêng.
+ * Một mục lỗi hoặc quá thời gian không làm hỏng các mục còn lại.
+ */
+public record DashboardDto(
+        LocalDateTime generatedAt,
+        long totalMs,
+        Map<String, Section> sections) {
+
+    public static final String STATUS_OK = "OK";
+    public static final String STATUS_ERROR = "ERROR";
+    public static final String STATUS_TIMEOUT = "TIMEOUT";
+
+    /**
+     * Một mục của dashboard; data là payload giống endpoint riêng của mục đó
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Section(
+            String status,
+            long durationMs,
+            int sqlStatements,
+            Object data,
+            String error) {
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.financebackend.dto;
+
+import com.example.financebackend.entity.ExportJob;
+
+import java.time.LocalDateTime;
+
+/**
+ * Trạng thái một job xuất; reused = true khi yêu cầu được trả lại job/file đã có thay vì tạo mới
+ */
+public record ExportJobDto(
+        Long id,
+        ExportJob.Type type,
+        LocalDateTime from,
+        LocalDateTime to,
+        ExportJob.Status status,
+        boolean reused,
+        String fileName,
+        Long sizeBytes,
+        String errorMessage,
+        LocalDateTime createdAt,
+        LocalDateTime finishedAt,
+        LocalDateTime expiresAt) {
+}
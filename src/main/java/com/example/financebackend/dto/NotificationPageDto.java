@@ -0,0 +1,16 @@
+package com.example.financebackend.dto;
+
+import java.util.List;
+
+/**
+ * Một trang inbox thông báo (keyset pagination).
+ */
+public class NotificationPageDto extends CursorPageDto<NotificationDto> {
+
+    public NotificationPageDto() {
+    }
+
+    public NotificationPageDto(List<NotificationDto> items, String nextCursor, boolean hasMore) {
+        super(items, nextCursor, hasMore);
+    }
+}
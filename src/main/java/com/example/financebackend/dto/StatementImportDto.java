@@ -0,0 +1,25 @@
+package com.example.financebackend.dto;
+
+import com.example.financebackend.entity.StatementImportJob;
+
+import java.time.LocalDateTime;
+
+/**
+ * Trạng thái một lần nhập sao kê: processedRows = importedRows + duplicateRows + errorRows,
+ * errorMessage là lỗi của job hoặc vài dòng lỗi đầu tiên
+ */
+public record StatementImportDto(
+        Long id,
+        Long walletId,
+        StatementImportJob.Format format,
+        String fileName,
+        StatementImportJob.Status status,
+        long processedRows,
+        long importedRows,
+        long duplicateRows,
+        long errorRows,
+        String errorMessage,
+        LocalDateTime createdAt,
+        LocalDateTime startedAt,
+        LocalDateTime finishedAt) {
+}
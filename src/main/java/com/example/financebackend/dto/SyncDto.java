@@ -0,0 +1,26 @@
+package com.example.financebackend.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Kết quả /api/sync: các bản ghi đã thay đổi (trạng thái mới nhất) và đã xóa có syncSeq > since.
+ *
+ * - nextSince: truyền vào lần gọi sau; hasMore = true thì gọi tiếp ngay
+ * - fullResync = true: các dấu xóa sau since đã bị dọn theo retention, client phải tải lại từ since = 0
+ */
+public record SyncDto(
+        long since,
+        long nextSince,
+        boolean hasMore,
+        boolean fullResync,
+        List<TransactionDto> transactions,
+        List<WalletDto> wallets,
+        List<CategoryDto> categories,
+        List<BudgetDto> budgets,
+        List<Deletion> deleted) {
+
+    /** entity: TRANSACTION, WALLET, CATEGORY, BUDGET */
+    public record Deletion(String entity, Long id, long seq, LocalDateTime deletedAt) {
+    }
+}
@@ -4,15 +4,26 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "audit_logs")
+@Table(name = "audit_logs", indexes = {
+        // Keyset pagination: ORDER BY created_at DESC, id DESC (kèm các filter)
+        @Index(name = "idx_audit_logs_created", columnList = "created_at, id"),
+        @Index(name = "idx_audit_logs_user_created", columnList = "user_id, created_at, id"),
+        @Index(name = "idx_audit_logs_action_created", columnList = "action, created_at, id"),
+        @Index(name = "idx_audit_logs_entity", columnList = "entity, entity_id, created_at")
+})
 public class AuditLog {
 
     public enum Action {
         CREATE, UPDATE, DELETE, LOGIN, LOGOUT, PASSWORD_RESET, ROLE_CHANGE
     }
 
+    // Cấp id theo khối 50 từ bảng id_generators (pooled hi/lo) thay cho IDENTITY,
+    // để Hibernate có thể gom INSERT thành JDBC batch
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "audit_log_id")
+    @TableGenerator(name = "audit_log_id", table = "id_generators",
+            pkColumnName = "sequence_name", valueColumnName = "next_val",
+            pkColumnValue = "audit_logs", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -26,12 +37,13 @@ public class AuditLog {
     @Column(nullable = false, length = 100)
     private String entity;
 
+    @Column(name = "entity_id")
     private Long entityId;
 
     @Column(columnDefinition = "TEXT")
     private String metadata;
 
-    @Column(nullable = false)
+    @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt;
 
     private String ipAddress;
@@ -1,12 +1,17 @@
 package com.example.financebackend.entity;
 
+import com.example.financebackend.service.SyncChangeListener;
 import jakarta.persistence.*;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "budgets")
-public class Budget {
+@EntityListeners(SyncChangeListener.class)
+@Table(name = "budgets", indexes = {
+        @Index(name = "idx_budgets_user_sync", columnList = "user_id, sync_seq")
+})
+public class Budget implements SyncTracked {
 
     public enum Period { MONTHLY, WEEKLY, CUSTOM }
 
@@ -53,6 +58,13 @@ public class Budget {
     @Column(nullable = false)
     private Boolean alertSent100 = false; // Alert at 100%+
 
+    // Delta sync (xem SyncTracked)
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "sync_seq")
+    private Long syncSeq;
+
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
 
@@ -91,4 +103,13 @@ public class Budget {
     
     public Boolean getAlertSent100() { return alertSent100; }
     public void setAlertSent100(Boolean alertSent100) { this.alertSent100 = alertSent100; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+
+    public Long getSyncSeq() { return syncSeq; }
+    public void setSyncSeq(Long syncSeq) { this.syncSeq = syncSeq; }
+
+    @Override
+    public SyncTombstone.EntityType getSyncEntityType() { return SyncTombstone.EntityType.BUDGET; }
 }
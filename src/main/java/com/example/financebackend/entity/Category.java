@@ -1,10 +1,16 @@
 package com.example.financebackend.entity;
 
+import com.example.financebackend.service.SyncChangeListener;
 import jakarta.persistence.*;
 
+import java.time.LocalDateTime;
+
 @Entity
-@Table(name = "categories")
-public class Category {
+@EntityListeners(SyncChangeListener.class)
+@Table(name = "categories", indexes = {
+        @Index(name = "idx_categories_user_sync", columnList = "user_id, sync_seq")
+})
+public class Category implements SyncTracked {
 
     public enum CategoryType { INCOME, EXPENSE }
 
@@ -26,6 +32,13 @@ public class Category {
     @JoinColumn(name = "user_id")
     private User user;
 
+    // Delta sync (xem SyncTracked)
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "sync_seq")
+    private Long syncSeq;
+
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
 
@@ -40,4 +53,13 @@ public class Category {
 
     public User getUser() { return user; }
     public void setUser(User user) { this.user = user; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+
+    public Long getSyncSeq() { return syncSeq; }
+    public void setSyncSeq(Long syncSeq) { this.syncSeq = syncSeq; }
+
+    @Override
+    public SyncTombstone.EntityType getSyncEntityType() { return SyncTombstone.EntityType.CATEGORY; }
 }
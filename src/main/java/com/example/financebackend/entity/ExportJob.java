@@ -0,0 +1,132 @@
+package com.example.financebackend.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Một yêu cầu xuất báo cáo (Excel/PDF) hoặc dữ liệu (JSON), chạy nền bởi ExportJobService.
+ * File kết quả nằm trong export.storage-dir (artifactName) tới expiresAt rồi bị dọn.
+ *
+ * requestHash + dataVersion dùng để trả lại job cũ cho yêu cầu giống hệt: cùng loại, cùng khoảng thời gian
+ * và dữ liệu của user chưa đổi (users.sync_seq lúc tạo job).
+ */
+@Entity
+@Table(name = "export_jobs", indexes = {
+        @Index(name = "idx_export_jobs_user_request", columnList = "user_id, request_hash, created_at"),
+        @Index(name = "idx_export_jobs_expires", columnList = "expires_at")
+})
+public class ExportJob {
+
+    public enum Type { EXCEL, PDF, DATA }
+
+    public enum Status { QUEUED, RUNNING, COMPLETED, FAILED }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private Type type;
+
+    @Column(name = "from_date")
+    private LocalDateTime fromDate;
+
+    @Column(name = "to_date")
+    private LocalDateTime toDate;
+
+    // SHA-256 (hex) của loại + tham số
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    // users.sync_seq lúc tạo job (null = user chưa có thay đổi nào được đánh số)
+    @Column(name = "data_version")
+    private Long dataVersion;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Status status = Status.QUEUED;
+
+    @Column(name = "artifact_name", length = 100)
+    private String artifactName;
+
+    // File được lưu nén gzip (trả về với Content-Encoding: gzip)
+    @Column(nullable = false)
+    private boolean compressed;
+
+    @Column(name = "size_bytes")
+    private Long sizeBytes;
+
+    @Column(name = "error_message", length = 500)
+    private String errorMessage;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @PrePersist
+    public void prePersist() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+
+    public Type getType() { return type; }
+    public void setType(Type type) { this.type = type; }
+
+    public LocalDateTime getFromDate() { return fromDate; }
+    public void setFromDate(LocalDateTime fromDate) { this.fromDate = fromDate; }
+
+    public LocalDateTime getToDate() { return toDate; }
+    public void setToDate(LocalDateTime toDate) { this.toDate = toDate; }
+
+    public String getRequestHash() { return requestHash; }
+    public void setRequestHash(String requestHash) { this.requestHash = requestHash; }
+
+    public Long getDataVersion() { return dataVersion; }
+    public void setDataVersion(Long dataVersion) { this.dataVersion = dataVersion; }
+
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) { this.status = status; }
+
+    public String getArtifactName() { return artifactName; }
+    public void setArtifactName(String artifactName) { this.artifactName = artifactName; }
+
+    public boolean isCompressed() { return compressed; }
+    public void setCompressed(boolean compressed) { this.compressed = compressed; }
+
+    public Long getSizeBytes() { return sizeBytes; }
+    public void setSizeBytes(Long sizeBytes) { this.sizeBytes = sizeBytes; }
+
+    public String getErrorMessage() { return errorMessage; }
+    public void setErrorMessage(String errorMessage) { this.errorMessage = errorMessage; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getStartedAt() { return startedAt; }
+    public void setStartedAt(LocalDateTime startedAt) { this.startedAt = startedAt; }
+
+    public LocalDateTime getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(LocalDateTime finishedAt) { this.finishedAt = finishedAt; }
+
+    public LocalDateTime getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(LocalDateTime expiresAt) { this.expiresAt = expiresAt; }
+}
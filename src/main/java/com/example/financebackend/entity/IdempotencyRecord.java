@@ -0,0 +1,60 @@
+package com.example.financebackend.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Kết quả của một request ghi có header Idempotency-Key, để request gửi lại (retry) nhận lại đúng response
+ * mà không thực hiện lần nữa.
+ *
+ * Khóa chính "userId:key" nên insert trùng (hai node nhận cùng request) bị DB từ chối. Dòng IN_PROGRESS là
+ * request đang chạy, giữ key tới expiresAt (idempotency.lease-ms) và createdAt là mốc của lần giữ; COMPLETED giữ
+ * response dạng JSON tới expiresAt (ttl-hours) rồi bị dọn.
+ */
+@Entity
+@Table(name = "idempotency_keys", indexes = {
+        @Index(name = "idx_idempotency_keys_expires", columnList = "expires_at")
+})
+public class IdempotencyRecord {
+
+    public enum Status { IN_PROGRESS, COMPLETED }
+
+    @Id
+    @Column(name = "record_key", length = 150)
+    private String recordKey;
+
+    // SHA-256 (hex) của thao tác + nội dung request: cùng key nhưng khác nội dung bị từ chối
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Status status = Status.IN_PROGRESS;
+
+    @Column(name = "response_body", columnDefinition = "TEXT")
+    private String responseBody;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    public String getRecordKey() { return recordKey; }
+    public void setRecordKey(String recordKey) { this.recordKey = recordKey; }
+
+    public String getRequestHash() { return requestHash; }
+    public void setRequestHash(String requestHash) { this.requestHash = requestHash; }
+
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) { this.status = status; }
+
+    public String getResponseBody() { return responseBody; }
+    public void setResponseBody(String responseBody) { this.responseBody = responseBody; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(LocalDateTime expiresAt) { this.expiresAt = expiresAt; }
+}
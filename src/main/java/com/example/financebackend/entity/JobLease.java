@@ -0,0 +1,90 @@
+package com.example.financebackend.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Lease của một partition (khoảng user id) của một job.
+ *
+ * Mỗi lần chạy (runKey, ví dụ ngày "2026-10-19") các partition được đặt PENDING với khoảng
+ * [userIdFrom, userIdTo]; node nào claim được (UPDATE có điều kiện) thì xử lý và gia hạn lease
+ * sau mỗi chunk, lưu checkpointUserId. Lease hết hạn khi node chết => node khác tiếp quản
+ * từ checkpoint. Dòng partitionIndex = -1 là dòng điều phối, giữ runKey mới nhất của job.
+ */
+@Entity
+@Table(name = "job_leases", indexes = {
+        @Index(name = "idx_job_leases_status", columnList = "status, lease_until")
+})
+public class JobLease {
+
+    public static final int HEADER_PARTITION = -1;
+
+    public enum Status { PENDING, RUNNING, COMPLETED, FAILED }
+
+    @Id
+    @Column(name = "lease_key", length = 100)
+    private String leaseKey;
+
+    @Column(name = "job_name", nullable = false, length = 50)
+    private String jobName;
+
+    @Column(name = "partition_index", nullable = false)
+    private Integer partitionIndex;
+
+    @Column(name = "run_key", length = 50)
+    private String runKey;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Status status = Status.COMPLETED;
+
+    @Column(name = "owner_node", length = 100)
+    private String ownerNode;
+
+    @Column(name = "lease_until")
+    private LocalDateTime leaseUntil;
+
+    @Column(name = "user_id_from")
+    private Long userIdFrom;
+
+    @Column(name = "user_id_to")
+    private Long userIdTo;
+
+    // User id cuối cùng đã xử lý xong - tiếp quản sẽ chạy tiếp từ checkpointUserId + 1
+    @Column(name = "checkpoint_user_id")
+    private Long checkpointUserId;
+
+    public static String key(String jobName, int partitionIndex) {
+        return jobName + "#" + partitionIndex;
+    }
+
+    public String getLeaseKey() { return leaseKey; }
+    public void setLeaseKey(String leaseKey) { this.leaseKey = leaseKey; }
+
+    public String getJobName() { return jobName; }
+    public void setJobName(String jobName) { this.jobName = jobName; }
+
+    public Integer getPartitionIndex() { return partitionIndex; }
+    public void setPartitionIndex(Integer partitionIndex) { this.partitionIndex = partitionIndex; }
+
+    public String getRunKey() { return runKey; }
+    public void setRunKey(String runKey) { this.runKey = runKey; }
+
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) { this.status = status; }
+
+    public String getOwnerNode() { return ownerNode; }
+    public void setOwnerNode(String ownerNode) { this.ownerNode = ownerNode; }
+
+    public LocalDateTime getLeaseUntil() { return leaseUntil; }
+    public void setLeaseUntil(LocalDateTime leaseUntil) { this.leaseUntil = leaseUntil; }
+
+    public Long getUserIdFrom() { return userIdFrom; }
+    public void setUserIdFrom(Long userIdFrom) { this.userIdFrom = userIdFrom; }
+
+    public Long getUserIdTo() { return userIdTo; }
+    public void setUserIdTo(Long userIdTo) { this.userIdTo = userIdTo; }
+
+    public Long getCheckpointUserId() { return checkpointUserId; }
+    public void setCheckpointUserId(Long checkpointUserId) { this.checkpointUserId = checkpointUserId; }
+}
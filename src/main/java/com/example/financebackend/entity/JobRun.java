@@ -0,0 +1,123 @@
+package com.example.financebackend.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Bản ghi tiến độ của một lần xử lý partition (mỗi lần claim/tiếp quản là một bản ghi).
+ */
+@Entity
+@Table(name = "job_runs", indexes = {
+        @Index(name = "idx_job_runs_job_started", columnList = "job_name, started_at")
+})
+public class JobRun {
+
+    public enum Status { RUNNING, COMPLETED, FAILED, ABANDONED }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "job_name", nullable = false, length = 50)
+    private String jobName;
+
+    @Column(name = "run_key", nullable = false, length = 50)
+    private String runKey;
+
+    @Column(name = "partition_index", nullable = false)
+    private Integer partitionIndex;
+
+    @Column(name = "node_id", nullable = false, length = 100)
+    private String nodeId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Status status = Status.RUNNING;
+
+    @Column(name = "user_id_from")
+    private Long userIdFrom;
+
+    @Column(name = "user_id_to")
+    private Long userIdTo;
+
+    // Tiếp quản từ node khác: bắt đầu từ user id này thay vì userIdFrom
+    @Column(name = "resumed_from_user_id")
+    private Long resumedFromUserId;
+
+    @Column(name = "last_user_id")
+    private Long lastUserId;
+
+    @Column(name = "processed_count", nullable = false)
+    private Long processedCount = 0L;
+
+    // User lỗi bị bỏ qua (transaction của user đó rollback, các user khác vẫn commit)
+    @Column(name = "failed_user_count")
+    private Integer failedUserCount = 0;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    @Column(name = "error_message", length = 500)
+    private String errorMessage;
+
+    @PrePersist
+    public void prePersist() {
+        if (startedAt == null) {
+            startedAt = LocalDateTime.now();
+        }
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getJobName() { return jobName; }
+    public void setJobName(String jobName) { this.jobName = jobName; }
+
+    public String getRunKey() { return runKey; }
+    public void setRunKey(String runKey) { this.runKey = runKey; }
+
+    public Integer getPartitionIndex() { return partitionIndex; }
+    public void setPartitionIndex(Integer partitionIndex) { this.partitionIndex = partitionIndex; }
+
+    public String getNodeId() { return nodeId; }
+    public void setNodeId(String nodeId) { this.nodeId = nodeId; }
+
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) { this.status = status; }
+
+    public Long getUserIdFrom() { return userIdFrom; }
+    public void setUserIdFrom(Long userIdFrom) { this.userIdFrom = userIdFrom; }
+
+    public Long getUserIdTo() { return userIdTo; }
+    public void setUserIdTo(Long userIdTo) { this.userIdTo = userIdTo; }
+
+    public Long getResumedFromUserId() { return resumedFromUserId; }
+    public void setResumedFromUserId(Long resumedFromUserId) { this.resumedFromUserId = resumedFromUserId; }
+
+    public Long getLastUserId() { return lastUserId; }
+    public void setLastUserId(Long lastUserId) { this.lastUserId = lastUserId; }
+
+    public Long getProcessedCount() { return processedCount; }
+    public void setProcessedCount(Long processedCount) { this.processedCount = processedCount; }
+
+    public Integer getFailedUserCount() { return failedUserCount; }
+    public void setFailedUserCount(Integer failedUserCount) { this.failedUserCount = failedUserCount; }
+
+    public LocalDateTime getStartedAt() { return startedAt; }
+    public void setStartedAt(LocalDateTime startedAt) { this.startedAt = startedAt; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+
+    public LocalDateTime getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(LocalDateTime finishedAt) { this.finishedAt = finishedAt; }
+
+    public String getErrorMessage() { return errorMessage; }
+    public void setErrorMessage(String errorMessage) { this.errorMessage = errorMessage; }
+}
@@ -4,7 +4,12 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "notifications")
+@Table(name = "notifications", indexes = {
+        // Keyset pagination cho inbox: WHERE user_id = ? ORDER BY created_at DESC, id DESC
+        @Index(name = "idx_notifications_user_created", columnList = "user_id, created_at, id"),
+        // Retention job: WHERE is_read = ? AND created_at < ?
+        @Index(name = "idx_notifications_read_created", columnList = "is_read, created_at")
+})
 public class Notification {
 
     public enum NotificationType {
@@ -14,8 +19,13 @@ public class Notification {
         SYSTEM              // Thông báo hệ thống
     }
 
+    // Cấp id theo khối 50 từ bảng id_generators (pooled hi/lo) thay cho IDENTITY,
+    // để Hibernate có thể gom INSERT thành JDBC batch
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "notification_id")
+    @TableGenerator(name = "notification_id", table = "id_generators",
+            pkColumnName = "sequence_name", valueColumnName = "next_val",
+            pkColumnValue = "notifications", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
@@ -35,7 +45,7 @@ public class Notification {
     @Column(name = "is_read", nullable = false)
     private Boolean read = false;
 
-    @Column(nullable = false)
+    @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt;
 
     private Long relatedEntityId; // ID của budget, goal, etc.
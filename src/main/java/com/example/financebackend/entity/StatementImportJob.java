@@ -0,0 +1,125 @@
+package com.example.financebackend.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Một lần nhập sao kê ngân hàng (CSV/OFX) vào ví, chạy nền bởi StatementImportService.
+ * Tiến độ được cập nhật cùng transaction với từng batch giao dịch nên số đã nhập luôn khớp với dữ liệu đã commit.
+ */
+@Entity
+@Table(name = "statement_import_jobs", indexes = {
+        @Index(name = "idx_statement_import_jobs_user_created", columnList = "user_id, created_at"),
+        // Mỗi ví chỉ một lần nhập đang chạy: WHERE wallet_id = ? AND status IN (...)
+        @Index(name = "idx_statement_import_jobs_wallet_status", columnList = "wallet_id, status")
+})
+public class StatementImportJob {
+
+    public enum Format { CSV, OFX }
+
+    public enum Status { QUEUED, RUNNING, COMPLETED, FAILED }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "wallet_id", nullable = false)
+    private Long walletId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private Format format;
+
+    @Column(name = "file_name", length = 255)
+    private String fileName;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Status status = Status.QUEUED;
+
+    // Số dòng đã đọc (kể cả dòng trùng và dòng lỗi)
+    @Column(name = "processed_rows", nullable = false)
+    private long processedRows;
+
+    @Column(name = "imported_rows", nullable = false)
+    private long importedRows;
+
+    @Column(name = "duplicate_rows", nullable = false)
+    private long duplicateRows;
+
+    @Column(name = "error_rows", nullable = false)
+    private long errorRows;
+
+    // Lỗi của job hoặc vài dòng lỗi đầu tiên
+    @Column(name = "error_message", columnDefinition = "TEXT")
+    private String errorMessage;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    // Lần cập nhật tiến độ gần nhất; job RUNNING lâu không cập nhật là job bị gián đoạn (node dừng)
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    public void prePersist() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+        updatedAt = createdAt;
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+
+    public Long getWalletId() { return walletId; }
+    public void setWalletId(Long walletId) { this.walletId = walletId; }
+
+    public Format getFormat() { return format; }
+    public void setFormat(Format format) { this.format = format; }
+
+    public String getFileName() { return fileName; }
+    public void setFileName(String fileName) { this.fileName = fileName; }
+
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) { this.status = status; }
+
+    public long getProcessedRows() { return processedRows; }
+    public void setProcessedRows(long processedRows) { this.processedRows = processedRows; }
+
+    public long getImportedRows() { return importedRows; }
+    public void setImportedRows(long importedRows) { this.importedRows = importedRows; }
+
+    public long getDuplicateRows() { return duplicateRows; }
+    public void setDuplicateRows(long duplicateRows) { this.duplicateRows = duplicateRows; }
+
+    public long getErrorRows() { return errorRows; }
+    public void setErrorRows(long errorRows) { this.errorRows = errorRows; }
+
+    public String getErrorMessage() { return errorMessage; }
+    public void setErrorMessage(String errorMessage) { this.errorMessage = errorMessage; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getStartedAt() { return startedAt; }
+    public void setStartedAt(LocalDateTime startedAt) { this.startedAt = startedAt; }
+
+    public LocalDateTime getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(LocalDateTime finishedAt) { this.finishedAt = finishedAt; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
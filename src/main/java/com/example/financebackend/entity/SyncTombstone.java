@@ -0,0 +1,57 @@
+package com.example.financebackend.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Dấu xóa cho delta sync: khi giao dịch, ví, danh mục hoặc budget bị xóa, một dòng được thêm với số thứ tự
+ * thay đổi (syncSeq) của user, để client offline biết cần xóa bản ghi nào.
+ * Ghi bằng JDBC trong SyncChangeListener; user_id không có khóa ngoại để dấu xóa không chặn việc xóa user.
+ */
+@Entity
+@Table(name = "sync_tombstones", indexes = {
+        @Index(name = "idx_sync_tombstones_user_seq", columnList = "user_id, sync_seq"),
+        @Index(name = "idx_sync_tombstones_deleted", columnList = "deleted_at")
+})
+public class SyncTombstone {
+
+    public enum EntityType { TRANSACTION, WALLET, CATEGORY, BUDGET }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entity_type", nullable = false, length = 20)
+    private EntityType entityType;
+
+    @Column(name = "entity_id", nullable = false)
+    private Long entityId;
+
+    @Column(name = "sync_seq", nullable = false)
+    private Long syncSeq;
+
+    @Column(name = "deleted_at", nullable = false)
+    private LocalDateTime deletedAt;
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+
+    public EntityType getEntityType() { return entityType; }
+    public void setEntityType(EntityType entityType) { this.entityType = entityType; }
+
+    public Long getEntityId() { return entityId; }
+    public void setEntityId(Long entityId) { this.entityId = entityId; }
+
+    public Long getSyncSeq() { return syncSeq; }
+    public void setSyncSeq(Long syncSeq) { this.syncSeq = syncSeq; }
+
+    public LocalDateTime getDeletedAt() { return deletedAt; }
+    public void setDeletedAt(LocalDateTime deletedAt) { this.deletedAt = deletedAt; }
+}
@@ -0,0 +1,23 @@
+package com.example.financebackend.entity;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity được theo dõi thay đổi cho delta sync (/api/sync).
+ * updatedAt và syncSeq được SyncChangeListener gán mỗi lần insert/update; syncSeq tăng dần theo từng user.
+ */
+public interface SyncTracked {
+
+    Long getId();
+
+    /** User sở hữu bản ghi; null = không thuộc user nào (không đồng bộ) */
+    User getUser();
+
+    SyncTombstone.EntityType getSyncEntityType();
+
+    LocalDateTime getUpdatedAt();
+    void setUpdatedAt(LocalDateTime updatedAt);
+
+    Long getSyncSeq();
+    void setSyncSeq(Long syncSeq);
+}
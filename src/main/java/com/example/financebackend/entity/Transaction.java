@@ -1,17 +1,32 @@
 package com.example.financebackend.entity;
 
+import com.example.financebackend.service.SyncChangeListener;
 import jakarta.persistence.*;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "transactions")
-public class Transaction {
+@EntityListeners(SyncChangeListener.class)
+@Table(name = "transactions", indexes = {
+        // Top-N giao dịch gần đây: WHERE user_id = ? ORDER BY occurred_at DESC
+        @Index(name = "idx_transactions_user_occurred", columnList = "user_id, occurred_at"),
+        // Delta sync: WHERE user_id = ? AND sync_seq > ? ORDER BY sync_seq
+        @Index(name = "idx_transactions_user_sync", columnList = "user_id, sync_seq"),
+        // Chống nhập trùng sao kê: WHERE wallet_id = ? AND import_hash IN (...); unique để hai lần nhập
+        // chạy song song không ghi cùng một dòng (giao dịch nhập tay có import_hash NULL)
+        @Index(name = "ux_transactions_wallet_import", columnList = "wallet_id, import_hash", unique = true)
+})
+public class Transaction implements SyncTracked {
 
     public enum TransactionType { INCOME, EXPENSE }
 
+    // Cấp id theo khối 50 từ bảng id_generators (pooled hi/lo) thay cho IDENTITY,
+    // để Hibernate có thể gom INSERT thành JDBC batch
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "transaction_id")
+    @TableGenerator(name = "transaction_id", table = "id_generators",
+            pkColumnName = "sequence_name", valueColumnName = "next_val",
+            pkColumnValue = "transactions", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, precision = 19, scale = 2)
@@ -36,11 +51,23 @@ public class Transaction {
     @Column(length = 255)
     private String note;
 
-    @Column(nullable = false)
+    @Column(name = "occurred_at", nullable = false)
     private LocalDateTime occurredAt;
 
     private String attachmentUrl;
 
+    // Thay đổi gần nhất, gán bởi SyncChangeListener (null với dữ liệu có trước delta sync)
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    // Số thứ tự thay đổi theo user, tăng dần theo thứ tự commit
+    @Column(name = "sync_seq")
+    private Long syncSeq;
+
+    // Hash của dòng sao kê đã nhập (StatementImportService), null với giao dịch nhập tay
+    @Column(name = "import_hash", length = 64)
+    private String importHash;
+
     @PrePersist
     public void prePersist() {
         if (occurredAt == null) {
@@ -74,4 +101,16 @@ public class Transaction {
 
     public String getAttachmentUrl() { return attachmentUrl; }
     public void setAttachmentUrl(String attachmentUrl) { this.attachmentUrl = attachmentUrl; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+
+    public Long getSyncSeq() { return syncSeq; }
+    public void setSyncSeq(Long syncSeq) { this.syncSeq = syncSeq; }
+
+    public String getImportHash() { return importHash; }
+    public void setImportHash(String importHash) { this.importHash = importHash; }
+
+    @Override
+    public SyncTombstone.EntityType getSyncEntityType() { return SyncTombstone.EntityType.TRANSACTION; }
 }
@@ -65,6 +65,16 @@ public class User {
     @Column(nullable = false)
     private LocalDateTime createdAt;
 
+    // Bộ đếm delta sync, chỉ SyncSequenceService ghi (bằng JDBC, dưới row lock) - không ghi qua entity
+    @JsonIgnore
+    @Column(name = "sync_seq", insertable = false, updatable = false)
+    private Long syncSeq;
+
+    // syncSeq lớn nhất của các dấu xóa đã dọn theo retention
+    @JsonIgnore
+    @Column(name = "sync_pruned_seq", insertable = false, updatable = false)
+    private Long syncPrunedSeq;
+
     @PrePersist
     public void prePersist() {
         if (createdAt == null) {
@@ -183,4 +193,12 @@ public class User {
     public void setCreatedAt(LocalDateTime createdAt) {
         this.createdAt = createdAt;
     }
+
+    public Long getSyncSeq() {
+        return syncSeq;
+    }
+
+    public Long getSyncPrunedSeq() {
+        return syncPrunedSeq;
+    }
 }
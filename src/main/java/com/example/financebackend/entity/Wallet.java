@@ -1,12 +1,16 @@
 package com.example.financebackend.entity;
 
+import com.example.financebackend.service.SyncChangeListener;
 import jakarta.persistence.*;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "wallets")
-public class Wallet {
+@EntityListeners(SyncChangeListener.class)
+@Table(name = "wallets", indexes = {
+        @Index(name = "idx_wallets_user_sync", columnList = "user_id, sync_seq")
+})
+public class Wallet implements SyncTracked {
 
     public enum WalletType { CASH, BANK, E_WALLET }
 
@@ -37,6 +41,13 @@ public class Wallet {
     @Column(nullable = false)
     private LocalDateTime createdAt;
 
+    // Delta sync (xem SyncTracked)
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "sync_seq")
+    private Long syncSeq;
+
     @PrePersist
     public void prePersist() {
         if (createdAt == null) {
@@ -67,4 +78,13 @@ public class Wallet {
 
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+
+    public Long getSyncSeq() { return syncSeq; }
+    public void setSyncSeq(Long syncSeq) { this.syncSeq = syncSeq; }
+
+    @Override
+    public SyncTombstone.EntityType getSyncEntityType() { return SyncTombstone.EntityType.WALLET; }
 }
@@ -2,6 +2,8 @@ package com.example.financebackend.filter;
 
 import com.example.financebackend.repository.UserRepository;
 import com.example.financebackend.util.JwtUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -18,6 +20,7 @@ import org.springframework.web.filter.OncePerRequestFilter;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
@@ -26,15 +29,48 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     
     private final JwtUtil jwtUtil;
     private final UserRepository userRepository;
+    private Timer authTimer;
 
     public JwtAuthenticationFilter(JwtUtil jwtUtil, UserRepository userRepository) {
         this.jwtUtil = jwtUtil;
         this.userRepository = userRepository;
     }
 
+    @org.springframework.beans.factory.annotation.Autowired(required = false)
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.authTimer = Timer.builder("finance.auth.filter")
+                .description("JWT authentication time, excluding the rest of the filter chain")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
+        Timer timer = authTimer;
+        if (timer == null) {
+            authenticate(request, response, filterChain);
+            return;
+        }
+        // Chỉ đo phần xác thực: dừng khi chuyển tiếp sang filter tiếp theo hoặc khi trả về 401
+        long start = System.nanoTime();
+        boolean[] recorded = new boolean[1];
+        FilterChain timedChain = (req, res) -> {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            recorded[0] = true;
+            filterChain.doFilter(req, res);
+        };
+        try {
+            authenticate(request, response, timedChain);
+        } finally {
+            if (!recorded[0]) {
+                timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private void authenticate(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
 
         // Skip JWT filter for OAuth2 endpoints - OAuth2 flow handles authentication differently
         String requestPath = request.getRequestURI();
@@ -0,0 +1,78 @@
+package com.example.financebackend.filter;
+
+import com.example.financebackend.config.SqlStatementCounter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.web.util.OnCommittedResponseWrapper;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Đếm số câu SQL mỗi request:
+ * - ghi vào header X-Sql-Count (nếu bật), thêm ngay trước khi response được commit
+ * - ghi log WARN khi vượt ngưỡng (thường là dấu hiệu N+1)
+ * - ghi distribution summary theo URI pattern để xem trên dashboard
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class SqlStatementCountFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(SqlStatementCountFilter.class);
+
+    public static final String HEADER = "X-Sql-Count";
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${metrics.sql.debug-header:false}")
+    private boolean debugHeader;
+
+    @Value("${metrics.sql.warn-threshold:30}")
+    private int warnThreshold = 30;
+
+    public SqlStatementCountFilter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        SqlStatementCounter.begin();
+        HttpServletResponse target = debugHeader ? new OnCommittedResponseWrapper(response) {
+            @Override
+            protected void onResponseCommitted() {
+                setHeader(HEADER, String.valueOf(SqlStatementCounter.current()));
+            }
+        } : response;
+
+        try {
+            filterChain.doFilter(request, target);
+        } finally {
+            int count = SqlStatementCounter.end();
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+            DistributionSummary.builder("http.server.sql.statements")
+                    .description("SQL statements executed per request")
+                    .tag("method", request.getMethod())
+                    .tag("uri", uri)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(count);
+            if (count > warnThreshold) {
+                logger.warn("{} {} executed {} SQL statements (threshold {})",
+                        request.getMethod(), request.getRequestURI(), count, warnThreshold);
+            }
+        }
+    }
+}
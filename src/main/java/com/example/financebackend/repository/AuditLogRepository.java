@@ -4,8 +4,13 @@ import com.example.financebackend.entity.AuditLog;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
 
 public interface AuditLogRepository extends JpaRepository<AuditLog, Long> {
     @Query("SELECT a FROM AuditLog a WHERE a.user.id = :userId ORDER BY a.createdAt DESC")
@@ -13,4 +18,35 @@ public interface AuditLogRepository extends JpaRepository<AuditLog, Long> {
     
     @Query("SELECT a FROM AuditLog a ORDER BY a.createdAt DESC")
     Page<AuditLog> findAllByOrderByCreatedAtDesc(Pageable pageable);
+
+    // Keyset pagination theo (createdAt, id) với filter tùy chọn - không dùng OFFSET / COUNT
+    @Query("SELECT a FROM AuditLog a LEFT JOIN FETCH a.user " +
+           "WHERE (:action IS NULL OR a.action = :action) " +
+           "AND (:userId IS NULL OR a.user.id = :userId) " +
+           "AND (:entity IS NULL OR a.entity = :entity) " +
+           "AND (:entityId IS NULL OR a.entityId = :entityId) " +
+           "AND (:from IS NULL OR a.createdAt >= :from) " +
+           "AND (:to IS NULL OR a.createdAt <= :to) " +
+           "AND (:cursorCreatedAt IS NULL OR a.createdAt < :cursorCreatedAt " +
+           "     OR (a.createdAt = :cursorCreatedAt AND a.id < :cursorId)) " +
+           "ORDER BY a.createdAt DESC, a.id DESC")
+    List<AuditLog> findPageWithFilters(
+            @Param("action") AuditLog.Action action,
+            @Param("userId") Long userId,
+            @Param("entity") String entity,
+            @Param("entityId") Long entityId,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to,
+            @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+            @Param("cursorId") Long cursorId,
+            Pageable pageable);
+
+    // Archival: lấy từng chunk bản ghi cũ theo id
+    @Query("SELECT a FROM AuditLog a LEFT JOIN FETCH a.user WHERE a.createdAt < :before ORDER BY a.id")
+    List<AuditLog> findArchiveChunk(@Param("before") LocalDateTime before, Pageable pageable);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("DELETE FROM AuditLog a WHERE a.id IN :ids")
+    int deleteByIdIn(@Param("ids") List<Long> ids);
 }
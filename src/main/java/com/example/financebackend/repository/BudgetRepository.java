@@ -1,10 +1,12 @@
 package com.example.financebackend.repository;
 
 import com.example.financebackend.entity.Budget;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,5 +19,14 @@ public interface BudgetRepository extends JpaRepository<Budget, Long> {
 
     @Query("SELECT COUNT(b) FROM Budget b WHERE b.category.id = :categoryId")
     long countByCategoryId(@Param("categoryId") Long categoryId);
-}
 
+    // Ngân sách đang trong kỳ của một khoảng user (một partition của job cảnh báo)
+    @Query("SELECT b FROM Budget b WHERE b.startDate <= :date AND b.endDate >= :date " +
+           "AND b.user.id BETWEEN :fromUserId AND :toUserId ORDER BY b.user.id, b.id")
+    List<Budget> findActiveForUserRange(@Param("date") LocalDate date,
+                                        @Param("fromUserId") Long fromUserId,
+                                        @Param("toUserId") Long toUserId);
+
+    @Query("SELECT b FROM Budget b WHERE b.user.id = :userId AND b.syncSeq > :since ORDER BY b.syncSeq")
+    List<Budget> findChangedSince(@Param("userId") Long userId, @Param("since") long since, Pageable pageable);
+}
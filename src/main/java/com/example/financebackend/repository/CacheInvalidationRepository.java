@@ -0,0 +1,29 @@
+package com.example.financebackend.repository;
+
+import com.example.financebackend.entity.CacheInvalidation;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface CacheInvalidationRepository extends JpaRepository<CacheInvalidation, Long> {
+    @Query("SELECT c FROM CacheInvalidation c WHERE c.id > :afterId ORDER BY c.id")
+    List<CacheInvalidation> findAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT c FROM CacheInvalidation c WHERE c.id IN :ids")
+    List<CacheInvalidation> findByIds(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT COALESCE(MAX(c.id), 0) FROM CacheInvalidation c")
+    long findMaxId();
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM CacheInvalidation c WHERE c.createdAt < :before")
+    int deleteCreatedBefore(@Param("before") LocalDateTime before);
+}
@@ -2,6 +2,7 @@ package com.example.financebackend.repository;
 
 import com.example.financebackend.entity.Category;
 import com.example.financebackend.entity.Category.CategoryType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -21,5 +22,7 @@ public interface CategoryRepository extends JpaRepository<Category, Long> {
     
     @Query("SELECT COUNT(c) > 0 FROM Category c WHERE c.user.id = :userId AND LOWER(c.name) = LOWER(:name) AND c.type = :type")
     boolean existsByUserIdAndNameIgnoreCaseAndType(@Param("userId") Long userId, @Param("name") String name, @Param("type") CategoryType type);
-}
 
+    @Query("SELECT c FROM Category c WHERE c.user.id = :userId AND c.syncSeq > :since ORDER BY c.syncSeq")
+    List<Category> findChangedSince(@Param("userId") Long userId, @Param("since") long since, Pageable pageable);
+}
@@ -0,0 +1,40 @@
+package com.example.financebackend.repository;
+
+import com.example.financebackend.entity.ExportJob;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface ExportJobRepository extends JpaRepository<ExportJob, Long> {
+    @Query("SELECT j FROM ExportJob j WHERE j.id = :id AND j.userId = :userId")
+    Optional<ExportJob> findByIdAndUserId(@Param("id") Long id, @Param("userId") Long userId);
+
+    @Query("SELECT j FROM ExportJob j WHERE j.userId = :userId ORDER BY j.createdAt DESC, j.id DESC")
+    List<ExportJob> findRecentByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    // Job gần đây của cùng yêu cầu, mới nhất trước (index user_id, request_hash, created_at)
+    @Query("SELECT j FROM ExportJob j WHERE j.userId = :userId AND j.requestHash = :requestHash " +
+           "AND j.status IN :statuses AND j.createdAt >= :since ORDER BY j.createdAt DESC, j.id DESC")
+    List<ExportJob> findReusable(@Param("userId") Long userId,
+                                 @Param("requestHash") String requestHash,
+                                 @Param("statuses") Collection<ExportJob.Status> statuses,
+                                 @Param("since") LocalDateTime since,
+                                 Pageable pageable);
+
+    // Dọn theo TTL: {id, artifactName} theo từng chunk
+    @Query("SELECT j.id, j.artifactName FROM ExportJob j WHERE j.expiresAt < :before")
+    List<Object[]> findExpired(@Param("before") LocalDateTime before, Pageable pageable);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("DELETE FROM ExportJob j WHERE j.id IN :ids")
+    int deleteByIdIn(@Param("ids") List<Long> ids);
+}
@@ -0,0 +1,23 @@
+package com.example.financebackend.repository;
+
+import com.example.financebackend.entity.IdempotencyRecord;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+    // Dọn theo TTL: lấy khóa theo từng chunk để xóa
+    @Query("SELECT r.recordKey FROM IdempotencyRecord r WHERE r.expiresAt < :before")
+    List<String> findExpiredKeys(@Param("before") LocalDateTime before, Pageable pageable);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.recordKey IN :keys")
+    int deleteByRecordKeyIn(@Param("keys") List<String> keys);
+}
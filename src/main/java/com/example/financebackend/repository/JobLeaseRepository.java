@@ -0,0 +1,69 @@
+package com.example.financebackend.repository;
+
+import com.example.financebackend.entity.JobLease;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface JobLeaseRepository extends JpaRepository<JobLease, String> {
+    // Khóa dòng điều phối khi khởi tạo lần chạy mới (chỉ một node tạo partition cho runKey)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT l FROM JobLease l WHERE l.leaseKey = :leaseKey")
+    Optional<JobLease> findForUpdate(@Param("leaseKey") String leaseKey);
+
+    @Query("SELECT l FROM JobLease l WHERE l.jobName = :jobName AND l.partitionIndex >= 0 ORDER BY l.partitionIndex")
+    List<JobLease> findPartitions(@Param("jobName") String jobName);
+
+    // Claim partition: chỉ thành công nếu partition đang chờ, đang chạy nhưng lease đã hết hạn (node chết),
+    // hoặc đã lỗi và tới giờ thử lại (leaseUntil)
+    @Modifying
+    @Transactional
+    @Query("UPDATE JobLease l SET l.ownerNode = :nodeId, l.leaseUntil = :leaseUntil, l.status = RUNNING " +
+           "WHERE l.leaseKey = :leaseKey AND l.runKey = :runKey " +
+           "AND (l.status = PENDING OR (l.status IN (RUNNING, FAILED) AND l.leaseUntil < :now))")
+    int claim(@Param("leaseKey") String leaseKey,
+              @Param("runKey") String runKey,
+              @Param("nodeId") String nodeId,
+              @Param("now") LocalDateTime now,
+              @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    // Gia hạn lease kèm checkpoint; trả về 0 nếu node đã mất lease
+    @Modifying
+    @Transactional
+    @Query("UPDATE JobLease l SET l.leaseUntil = :leaseUntil, l.checkpointUserId = :checkpoint " +
+           "WHERE l.leaseKey = :leaseKey AND l.ownerNode = :nodeId AND l.status = RUNNING")
+    int renew(@Param("leaseKey") String leaseKey,
+              @Param("nodeId") String nodeId,
+              @Param("checkpoint") Long checkpoint,
+              @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE JobLease l SET l.status = :status, l.ownerNode = NULL, l.leaseUntil = NULL " +
+           "WHERE l.leaseKey = :leaseKey AND l.ownerNode = :nodeId")
+    int release(@Param("leaseKey") String leaseKey,
+                @Param("nodeId") String nodeId,
+                @Param("status") JobLease.Status status);
+
+    // Partition lỗi: node bất kỳ claim lại từ checkpoint sau retryAt
+    @Modifying
+    @Transactional
+    @Query("UPDATE JobLease l SET l.status = FAILED, l.ownerNode = NULL, l.leaseUntil = :retryAt " +
+           "WHERE l.leaseKey = :leaseKey AND l.ownerNode = :nodeId")
+    int fail(@Param("leaseKey") String leaseKey,
+             @Param("nodeId") String nodeId,
+             @Param("retryAt") LocalDateTime retryAt);
+
+    // Partition còn việc: chờ claim, lease hết hạn (node xử lý đã chết), hoặc lỗi và tới giờ thử lại
+    @Query("SELECT l FROM JobLease l WHERE l.partitionIndex >= 0 " +
+           "AND (l.status = PENDING OR (l.status IN (RUNNING, FAILED) AND l.leaseUntil < :now))")
+    List<JobLease> findClaimable(@Param("now") LocalDateTime now);
+}
@@ -0,0 +1,17 @@
+package com.example.financebackend.repository;
+
+import com.example.financebackend.entity.JobRun;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface JobRunRepository extends JpaRepository<JobRun, Long> {
+    @Query("SELECT r FROM JobRun r ORDER BY r.startedAt DESC, r.id DESC")
+    List<JobRun> findRecent(Pageable pageable);
+
+    @Query("SELECT r FROM JobRun r WHERE r.jobName = :jobName ORDER BY r.startedAt DESC, r.id DESC")
+    List<JobRun> findRecentByJobName(@Param("jobName") String jobName, Pageable pageable);
+}
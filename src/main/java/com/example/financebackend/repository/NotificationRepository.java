@@ -1,10 +1,14 @@
 package com.example.financebackend.repository;
 
 import com.example.financebackend.entity.Notification;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface NotificationRepository extends JpaRepository<Notification, Long> {
@@ -16,5 +20,52 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
 
     @Query("SELECT COUNT(n) FROM Notification n WHERE n.user.id = :userId AND n.read = false")
     Long countUnreadByUserId(@Param("userId") Long userId);
-}
 
+    // Keyset pagination: trang đầu tiên
+    @Query("SELECT n FROM Notification n WHERE n.user.id = :userId ORDER BY n.createdAt DESC, n.id DESC")
+    List<Notification> findInboxFirstPage(@Param("userId") Long userId, Pageable pageable);
+
+    // Keyset pagination: các trang sau cursor (createdAt, id)
+    @Query("SELECT n FROM Notification n WHERE n.user.id = :userId " +
+           "AND (n.createdAt < :cursorCreatedAt OR (n.createdAt = :cursorCreatedAt AND n.id < :cursorId)) " +
+           "ORDER BY n.createdAt DESC, n.id DESC")
+    List<Notification> findInboxPageAfter(@Param("userId") Long userId,
+                                          @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                                          @Param("cursorId") Long cursorId,
+                                          Pageable pageable);
+
+    @Query("SELECT COUNT(n) > 0 FROM Notification n WHERE n.user.id = :userId " +
+           "AND n.relatedEntityType = :relatedEntityType AND n.relatedEntityId = :relatedEntityId " +
+           "AND n.createdAt > :since")
+    boolean existsForRelatedEntitySince(@Param("userId") Long userId,
+                                        @Param("relatedEntityType") String relatedEntityType,
+                                        @Param("relatedEntityId") Long relatedEntityId,
+                                        @Param("since") LocalDateTime since);
+
+    @Query("SELECT COUNT(n) > 0 FROM Notification n WHERE n.user.id = :userId " +
+           "AND n.type = :type AND n.createdAt > :since")
+    boolean existsByTypeSince(@Param("userId") Long userId,
+                              @Param("type") Notification.NotificationType type,
+                              @Param("since") LocalDateTime since);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Notification n SET n.read = true WHERE n.user.id = :userId AND n.read = false")
+    int markAllAsReadByUserId(@Param("userId") Long userId);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Notification n SET n.read = true WHERE n.id = :id AND n.user.id = :userId AND n.read = false")
+    int markAsReadByIdAndUserId(@Param("id") Long id, @Param("userId") Long userId);
+
+    // Retention: lấy id theo từng chunk để xóa
+    @Query("SELECT n.id FROM Notification n WHERE n.read = :read AND n.createdAt < :before ORDER BY n.id")
+    List<Long> findIdsForRetention(@Param("read") boolean read,
+                                   @Param("before") LocalDateTime before,
+                                   Pageable pageable);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("DELETE FROM Notification n WHERE n.id IN :ids")
+    int deleteByIdIn(@Param("ids") List<Long> ids);
+}
@@ -2,6 +2,7 @@ package com.example.financebackend.repository;
 
 import com.example.financebackend.entity.RecurringTransaction;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
@@ -15,6 +16,17 @@ public interface RecurringTransactionRepository extends JpaRepository<RecurringT
     @Query("SELECT r FROM RecurringTransaction r WHERE r.id = :id AND r.user.id = :userId")
     java.util.Optional<RecurringTransaction> findByIdAndUserId(@Param("id") Long id, @Param("userId") Long userId);
     
-    @Query("SELECT r FROM RecurringTransaction r WHERE r.active = true AND r.nextRunDate <= :date")
-    List<RecurringTransaction> findByActiveTrueAndNextRunDateLessThanEqual(@Param("date") LocalDate date);
+    // Giao dịch định kỳ đến hạn của một khoảng user (một partition của job)
+    @Query("SELECT r FROM RecurringTransaction r JOIN FETCH r.wallet WHERE r.active = true AND r.nextRunDate <= :date " +
+           "AND r.user.id BETWEEN :fromUserId AND :toUserId ORDER BY r.user.id, r.id")
+    List<RecurringTransaction> findDueForUserRange(@Param("date") LocalDate date,
+                                                   @Param("fromUserId") Long fromUserId,
+                                                   @Param("toUserId") Long toUserId);
+
+    // Chiếm một lần chạy: chỉ thành công nếu nextRunDate chưa bị node / lần chạy khác đổi
+    @Modifying
+    @Query("UPDATE RecurringTransaction r SET r.nextRunDate = :next WHERE r.id = :id AND r.nextRunDate = :expected")
+    int advanceNextRunDate(@Param("id") Long id,
+                           @Param("expected") LocalDate expected,
+                           @Param("next") LocalDate next);
 }
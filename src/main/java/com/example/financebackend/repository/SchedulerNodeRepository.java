@@ -0,0 +1,27 @@
+package com.example.financebackend.repository;
+
+import com.example.financebackend.entity.SchedulerNode;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface SchedulerNodeRepository extends JpaRepository<SchedulerNode, String> {
+    @Modifying
+    @Transactional
+    @Query("UPDATE SchedulerNode n SET n.heartbeatAt = :now WHERE n.nodeId = :nodeId")
+    int heartbeat(@Param("nodeId") String nodeId, @Param("now") LocalDateTime now);
+
+    // Node còn sống, sắp theo nodeId để mọi node tính cùng một thứ hạng
+    @Query("SELECT n.nodeId FROM SchedulerNode n WHERE n.heartbeatAt > :since ORDER BY n.nodeId")
+    List<String> findLiveNodeIds(@Param("since") LocalDateTime since);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM SchedulerNode n WHERE n.heartbeatAt < :before")
+    int deleteStale(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,41 @@
+package com.example.financebackend.repository;
+
+import com.example.financebackend.entity.StatementImportJob;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface StatementImportJobRepository extends JpaRepository<StatementImportJob, Long> {
+    @Query("SELECT j FROM StatementImportJob j WHERE j.id = :id AND j.userId = :userId")
+    Optional<StatementImportJob> findByIdAndUserId(@Param("id") Long id, @Param("userId") Long userId);
+
+    @Query("SELECT j FROM StatementImportJob j WHERE j.userId = :userId ORDER BY j.createdAt DESC, j.id DESC")
+    List<StatementImportJob> findRecentByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    // Lần nhập đang chạy vào ví, của bất kỳ ai (chủ ví hoặc người được chia sẻ)
+    @Query("SELECT COUNT(j) > 0 FROM StatementImportJob j WHERE j.walletId = :walletId AND j.status IN :statuses " +
+           "AND j.updatedAt >= :activeSince")
+    boolean existsActiveForWallet(@Param("walletId") Long walletId,
+                                  @Param("statuses") Collection<StatementImportJob.Status> statuses,
+                                  @Param("activeSince") LocalDateTime activeSince);
+
+    // Tiến độ sau mỗi batch, chạy trong transaction của batch
+    @Transactional
+    @Modifying
+    @Query("UPDATE StatementImportJob j SET j.processedRows = :processed, j.importedRows = :imported, " +
+           "j.duplicateRows = :duplicates, j.errorRows = :errors, j.updatedAt = :updatedAt WHERE j.id = :id")
+    int updateProgress(@Param("id") Long id,
+                       @Param("processed") long processed,
+                       @Param("imported") long imported,
+                       @Param("duplicates") long duplicates,
+                       @Param("errors") long errors,
+                       @Param("updatedAt") LocalDateTime updatedAt);
+}
@@ -0,0 +1,26 @@
+package com.example.financebackend.repository;
+
+import com.example.financebackend.entity.SyncTombstone;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface SyncTombstoneRepository extends JpaRepository<SyncTombstone, Long> {
+    @Query("SELECT s FROM SyncTombstone s WHERE s.userId = :userId AND s.syncSeq > :since ORDER BY s.syncSeq")
+    List<SyncTombstone> findChangedSince(@Param("userId") Long userId, @Param("since") long since, Pageable pageable);
+
+    // Retention: {id, userId, syncSeq} theo từng chunk
+    @Query("SELECT s.id, s.userId, s.syncSeq FROM SyncTombstone s WHERE s.deletedAt < :before ORDER BY s.id")
+    List<Object[]> findForRetention(@Param("before") LocalDateTime before, Pageable pageable);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("DELETE FROM SyncTombstone s WHERE s.id IN :ids")
+    int deleteByIdIn(@Param("ids") List<Long> ids);
+}
@@ -1,11 +1,14 @@
 package com.example.financebackend.repository;
 
 import com.example.financebackend.entity.Transaction;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,6 +16,20 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
     @Query("SELECT t FROM Transaction t WHERE t.user.id = :userId")
     List<Transaction> findByUserId(@Param("userId") Long userId);
     
+    // Fetch category cùng lúc để báo cáo không phát sinh N+1 khi đọc tên danh mục
+    @Query("SELECT t FROM Transaction t LEFT JOIN FETCH t.category WHERE t.user.id = :userId " +
+           "AND (:from IS NULL OR t.occurredAt >= :from) " +
+           "AND (:to IS NULL OR t.occurredAt <= :to)")
+    List<Transaction> findByUserIdInRangeWithCategory(
+            @Param("userId") Long userId,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to
+    );
+
+    // Top-N theo index (user_id, occurred_at) - truyền PageRequest.of(0, n)
+    @Query("SELECT t FROM Transaction t WHERE t.user.id = :userId ORDER BY t.occurredAt DESC, t.id DESC")
+    List<Transaction> findRecentByUserId(@Param("userId") Long userId, Pageable pageable);
+    
     @Query("SELECT t FROM Transaction t WHERE t.id = :id AND t.user.id = :userId")
     Optional<Transaction> findByIdAndUserId(@Param("id") Long id, @Param("userId") Long userId);
     
@@ -37,6 +54,27 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
             @Param("keyword") String keyword
     );
 
+    // Giống findByUserIdWithFilters nhưng keyword đã được giải bằng note index thành danh sách id
+    @Query("SELECT t FROM Transaction t WHERE t.user.id = :userId AND t.id IN :ids " +
+           "AND (:categoryId IS NULL OR t.category.id = :categoryId) " +
+           "AND (:walletId IS NULL OR t.wallet.id = :walletId) " +
+           "AND (:type IS NULL OR t.type = :type) " +
+           "AND (:startDate IS NULL OR t.occurredAt >= :startDate) " +
+           "AND (:endDate IS NULL OR t.occurredAt <= :endDate)")
+    List<Transaction> findByUserIdAndIdInWithFilters(
+            @Param("userId") Long userId,
+            @Param("ids") List<Long> ids,
+            @Param("categoryId") Long categoryId,
+            @Param("walletId") Long walletId,
+            @Param("type") Transaction.TransactionType type,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate
+    );
+
+    // Nạp note index: chỉ id + note, không load entity
+    @Query("SELECT t.id, t.note FROM Transaction t WHERE t.user.id = :userId AND t.note IS NOT NULL")
+    List<Object[]> findNotesByUserId(@Param("userId") Long userId);
+
     @Query("SELECT t FROM Transaction t WHERE t.user.id = :userId " +
            "AND t.category.id = :categoryId " +
            "AND t.occurredAt >= :startDate AND t.occurredAt <= :endDate " +
@@ -48,9 +86,52 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
             @Param("endDate") LocalDateTime endDate
     );
 
+    // Tổng số tiền theo loại của một danh mục trong khoảng thời gian (số đã chi của budget)
+    @Query("SELECT COALESCE(SUM(t.amount), 0) FROM Transaction t WHERE t.user.id = :userId " +
+           "AND t.category.id = :categoryId AND t.type = :type " +
+           "AND t.occurredAt >= :startDate AND t.occurredAt <= :endDate")
+    BigDecimal sumByCategoryAndType(@Param("userId") Long userId,
+                                    @Param("categoryId") Long categoryId,
+                                    @Param("type") Transaction.TransactionType type,
+                                    @Param("startDate") LocalDateTime startDate,
+                                    @Param("endDate") LocalDateTime endDate);
+
+    @Query("SELECT COUNT(t) > 0 FROM Transaction t WHERE t.user.id = :userId " +
+           "AND t.occurredAt >= :from AND t.occurredAt <= :to")
+    boolean existsByUserIdAndOccurredAtBetween(@Param("userId") Long userId,
+                                               @Param("from") LocalDateTime from,
+                                               @Param("to") LocalDateTime to);
+
+    // Nạp TransactionSnapshot: chỉ các cột dùng cho phân tích, không load entity
+    @Query("SELECT t.id, t.occurredAt, t.amount, t.category.id, t.wallet.id, t.type FROM Transaction t " +
+           "WHERE t.user.id = :userId ORDER BY t.id")
+    List<Object[]> findSnapshotRowsByUserId(@Param("userId") Long userId);
+
+    // Chỉ lấy thời điểm và số tiền (không load entity) - dùng cho dự báo cashflow
+    @Query("SELECT t.occurredAt, t.amount FROM Transaction t WHERE t.user.id = :userId AND t.type = :type " +
+           "AND t.occurredAt >= :from")
+    List<Object[]> findAmountsByTypeFrom(@Param("userId") Long userId,
+                                         @Param("type") Transaction.TransactionType type,
+                                         @Param("from") LocalDateTime from);
+
     @Query("SELECT COUNT(t) FROM Transaction t WHERE t.category.id = :categoryId")
     long countByCategoryId(@Param("categoryId") Long categoryId);
 
     @Query("SELECT COUNT(t) FROM Transaction t WHERE t.wallet.id = :walletId")
     long countByWalletId(@Param("walletId") Long walletId);
+
+    // Delta sync: thay đổi sau since theo thứ tự syncSeq (index user_id, sync_seq)
+    @Query("SELECT t FROM Transaction t WHERE t.user.id = :userId AND t.syncSeq > :since ORDER BY t.syncSeq")
+    List<Transaction> findChangedSince(@Param("userId") Long userId, @Param("since") long since, Pageable pageable);
+
+    // Nhập sao kê: hash nào trong batch đã được nhập vào ví (index wallet_id, import_hash)
+    @Query("SELECT t.importHash FROM Transaction t WHERE t.wallet.id = :walletId AND t.importHash IN :hashes")
+    List<String> findImportHashes(@Param("walletId") Long walletId, @Param("hashes") Collection<String> hashes);
+
+    // Nhập sao kê: giao dịch nhập tay của ví trong khoảng ngày, dạng {id, occurredAt, amount, type}
+    @Query("SELECT t.id, t.occurredAt, t.amount, t.type FROM Transaction t WHERE t.wallet.id = :walletId " +
+           "AND t.importHash IS NULL AND t.occurredAt >= :from AND t.occurredAt < :to")
+    List<Object[]> findManualEntries(@Param("walletId") Long walletId,
+                                     @Param("from") LocalDateTime from,
+                                     @Param("to") LocalDateTime to);
 }
@@ -1,11 +1,29 @@
 package com.example.financebackend.repository;
 
 import com.example.financebackend.entity.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
     boolean existsByEmail(String email);
+
+    @Query("SELECT COALESCE(MAX(u.id), 0) FROM User u")
+    long findMaxId();
+
+    // Keyset theo id cho job chia partition: các user id > afterId và <= toId
+    @Query("SELECT u.id FROM User u WHERE u.id > :afterId AND u.id <= :toId ORDER BY u.id")
+    List<Long> findIdsInRange(@Param("afterId") long afterId, @Param("toId") long toId, Pageable pageable);
+
+    @Query("SELECT u FROM User u WHERE u.enabled = true AND u.id BETWEEN :fromId AND :toId ORDER BY u.id")
+    List<User> findEnabledInRange(@Param("fromId") long fromId, @Param("toId") long toId);
+
+    // Trạng thái delta sync: {syncSeq, syncPrunedSeq}
+    @Query("SELECT u.syncSeq, u.syncPrunedSeq FROM User u WHERE u.id = :id")
+    List<Object[]> findSyncState(@Param("id") Long id);
 }
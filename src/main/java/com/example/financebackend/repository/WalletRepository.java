@@ -1,6 +1,7 @@
 package com.example.financebackend.repository;
 
 import com.example.financebackend.entity.Wallet;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -17,4 +18,7 @@ public interface WalletRepository extends JpaRepository<Wallet, Long> {
     
     @Query("SELECT COUNT(w) > 0 FROM Wallet w WHERE w.user.id = :userId AND LOWER(w.name) = LOWER(:name)")
     boolean existsByUserIdAndNameIgnoreCase(@Param("userId") Long userId, @Param("name") String name);
+
+    @Query("SELECT w FROM Wallet w WHERE w.user.id = :userId AND w.syncSeq > :since ORDER BY w.syncSeq")
+    List<Wallet> findChangedSince(@Param("userId") Long userId, @Param("since") long since, Pageable pageable);
 }
@@ -12,7 +12,8 @@ public interface WalletShareRepository extends JpaRepository<WalletShare, Long>
     @Query("SELECT ws FROM WalletShare ws WHERE ws.wallet.id = :walletId")
     List<WalletShare> findByWalletId(@Param("walletId") Long walletId);
 
-    @Query("SELECT ws FROM WalletShare ws WHERE ws.sharedWithUser.id = :userId")
+    // Fetch wallet luôn - danh sách ví của user đọc thông tin ví được chia sẻ (tránh N+1)
+    @Query("SELECT ws FROM WalletShare ws JOIN FETCH ws.wallet WHERE ws.sharedWithUser.id = :userId")
     List<WalletShare> findBySharedWithUserId(@Param("userId") Long userId);
 
     @Query("SELECT ws FROM WalletShare ws WHERE ws.wallet.id = :walletId AND ws.sharedWithUser.id = :userId")
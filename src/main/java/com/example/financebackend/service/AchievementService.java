@@ -33,6 +33,7 @@ public class AchievementService {
     private final WalletRepository walletRepository;
     private final FinancialGoalRepository financialGoalRepository;
     private final NotificationRepository notificationRepository;
+    private NotificationService notificationService; // Lazy init to avoid circular dependency
 
     public AchievementService(AchievementRepository achievementRepository,
                             UserAchievementRepository userAchievementRepository,
@@ -54,6 +55,13 @@ public class AchievementService {
         this.notificationRepository = notificationRepository;
     }
 
+    // Setter injection with @Lazy to break circular dependency
+    @org.springframework.beans.factory.annotation.Autowired(required = false)
+    @org.springframework.context.annotation.Lazy
+    public void setNotificationService(NotificationService notificationService) {
+        this.notificationService = notificationService;
+    }
+
     /**
      * Get all user achievements
      */
@@ -229,7 +237,11 @@ public class AchievementService {
         ));
         notification.setRelatedEntityId(achievement.getId());
         notification.setRelatedEntityType("achievement");
-        notificationRepository.save(notification);
+        if (notificationService != null) {
+            notificationService.saveNew(notification);
+        } else {
+            notificationRepository.save(notification);
+        }
 
         logger.info("Unlocked achievement {} for user {}", type, userId);
     }
@@ -0,0 +1,116 @@
+package com.example.financebackend.service;
+
+import com.example.financebackend.entity.AuditLog;
+import com.example.financebackend.repository.AuditLogRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Audit Log Archive Service
+ * Chuyển audit log cũ ra file nén theo tháng (audit_logs-YYYY-MM.jsonl.gz) rồi xóa khỏi bảng,
+ * để bảng audit_logs chỉ giữ dữ liệu "nóng".
+ *
+ * Mỗi chunk được ghi thêm vào file dưới dạng một gzip member mới (file nhiều member vẫn đọc
+ * được bằng gunzip / GZIPInputStream), sau đó mới xóa trong DB. Nếu lỗi giữa hai bước,
+ * lần chạy sau có thể ghi trùng vài bản ghi nhưng không mất dữ liệu.
+ */
+@Service
+public class AuditLogArchiveService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditLogArchiveService.class);
+
+    private final AuditLogRepository auditLogRepository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${audit.archive.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${audit.archive.retention-days:180}")
+    private int retentionDays = 180;
+
+    @Value("${audit.archive.chunk-size:1000}")
+    private int chunkSize = 1000;
+
+    @Value("${audit.archive.dir:archives/audit}")
+    private String archiveDir = "archives/audit";
+
+    public AuditLogArchiveService(AuditLogRepository auditLogRepository,
+                                  ObjectMapper objectMapper) {
+        this.auditLogRepository = auditLogRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    // Run daily at 4 AM
+    @Timed(value = "finance.scheduler", extraTags = {"job", "audit-archive"})
+    @Scheduled(cron = "${audit.archive.cron:0 0 4 * * ?}")
+    public void archiveOldLogs() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime before = LocalDateTime.now().minusDays(retentionDays);
+        int total = 0;
+        try {
+            while (true) {
+                List<AuditLog> chunk = auditLogRepository.findArchiveChunk(before, PageRequest.of(0, chunkSize));
+                if (chunk.isEmpty()) {
+                    break;
+                }
+                writeChunk(chunk);
+                List<Long> ids = chunk.stream().map(AuditLog::getId).collect(Collectors.toList());
+                total += auditLogRepository.deleteByIdIn(ids);
+                if (chunk.size() < chunkSize) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Audit log archival stopped after {} rows: {}", total, e.getMessage(), e);
+            return;
+        }
+        if (total > 0) {
+            logger.info("Archived {} audit logs older than {} to {}", total, before.toLocalDate(), archiveDir);
+        }
+    }
+
+    private void writeChunk(List<AuditLog> chunk) throws IOException {
+        Path dir = Paths.get(archiveDir);
+        Files.createDirectories(dir);
+
+        // Nhóm theo tháng của createdAt
+        Map<YearMonth, List<AuditLog>> byMonth = new LinkedHashMap<>();
+        for (AuditLog log : chunk) {
+            byMonth.computeIfAbsent(YearMonth.from(log.getCreatedAt()), month -> new ArrayList<>()).add(log);
+        }
+
+        for (Map.Entry<YearMonth, List<AuditLog>> entry : byMonth.entrySet()) {
+            Path file = dir.resolve("audit_logs-" + entry.getKey() + ".jsonl.gz");
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND))) {
+                for (AuditLog log : entry.getValue()) {
+                    out.write(objectMapper.writeValueAsBytes(AuditLogService.toDto(log)));
+                    out.write('\n');
+                }
+            }
+        }
+    }
+}
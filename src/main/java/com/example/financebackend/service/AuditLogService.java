@@ -1,16 +1,20 @@
 package com.example.financebackend.service;
 
 import com.example.financebackend.dto.AuditLogDto;
+import com.example.financebackend.dto.CursorPageDto;
 import com.example.financebackend.entity.AuditLog;
-import com.example.financebackend.entity.User;
 import com.example.financebackend.repository.AuditLogRepository;
-import com.example.financebackend.repository.UserRepository;
+import com.example.financebackend.util.KeysetCursor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.stream.Collectors;
 
 @Service
@@ -18,37 +22,27 @@ import java.util.stream.Collectors;
 public class AuditLogService {
 
     private final AuditLogRepository auditLogRepository;
-    private final UserRepository userRepository;
+    private final AuditLogWriter auditLogWriter;
 
-    public AuditLogService(AuditLogRepository auditLogRepository, UserRepository userRepository) {
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 200;
+
+    public AuditLogService(AuditLogRepository auditLogRepository, AuditLogWriter auditLogWriter) {
         this.auditLogRepository = auditLogRepository;
-        this.userRepository = userRepository;
+        this.auditLogWriter = auditLogWriter;
     }
 
+    /**
+     * Ghi audit log bất đồng bộ qua AuditLogWriter (không chờ DB)
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
     public void log(AuditLog.Action action, Long userId, String entity, Long entityId, String metadata) {
-        AuditLog log = new AuditLog();
-        log.setAction(action);
-        log.setEntity(entity);
-        log.setEntityId(entityId);
-        log.setMetadata(metadata);
-        if (userId != null) {
-            userRepository.findById(userId).ifPresent(log::setUser);
-        }
-        auditLogRepository.save(log);
+        log(action, userId, entity, entityId, metadata, null, null);
     }
 
+    @Transactional(propagation = Propagation.SUPPORTS)
     public void log(AuditLog.Action action, Long userId, String entity, Long entityId, String metadata, String ipAddress, String userAgent) {
-        AuditLog log = new AuditLog();
-        log.setAction(action);
-        log.setEntity(entity);
-        log.setEntityId(entityId);
-        log.setMetadata(metadata);
-        log.setIpAddress(ipAddress);
-        log.setUserAgent(userAgent);
-        if (userId != null) {
-            userRepository.findById(userId).ifPresent(log::setUser);
-        }
-        auditLogRepository.save(log);
+        auditLogWriter.enqueue(new AuditLogWriter.AuditEvent(action, userId, entity, entityId, metadata, ipAddress, userAgent));
     }
 
     @Transactional(readOnly = true)
@@ -56,7 +50,7 @@ public class AuditLogService {
         Page<AuditLog> logs = auditLogRepository.findByUserIdOrderByCreatedAtDesc(userId, pageable);
         return new PageImpl<>(
                 logs.getContent().stream()
-                        .map(this::toDto)
+                        .map(AuditLogService::toDto)
                         .collect(Collectors.toList()),
                 pageable,
                 logs.getTotalElements()
@@ -68,14 +62,43 @@ public class AuditLogService {
         Page<AuditLog> logs = auditLogRepository.findAllByOrderByCreatedAtDesc(pageable);
         return new PageImpl<>(
                 logs.getContent().stream()
-                        .map(this::toDto)
+                        .map(AuditLogService::toDto)
                         .collect(Collectors.toList()),
                 pageable,
                 logs.getTotalElements()
         );
     }
 
-    private AuditLogDto toDto(AuditLog log) {
+    /**
+     * Duyệt audit log theo keyset (createdAt, id) với filter tùy chọn.
+     * cursor là nextCursor của trang trước, null cho trang đầu.
+     */
+    @Transactional(readOnly = true)
+    public CursorPageDto<AuditLogDto> searchLogs(AuditLog.Action action, Long userId, String entity, Long entityId,
+                                                 LocalDateTime from, LocalDateTime to, String cursor, Integer size) {
+        int pageSize = size == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        KeysetCursor decoded = KeysetCursor.parse(cursor);
+
+        // Lấy dư 1 bản ghi để biết còn trang sau
+        List<AuditLog> rows = auditLogRepository.findPageWithFilters(action, userId,
+                entity != null && !entity.isBlank() ? entity : null, entityId, from, to,
+                decoded != null ? decoded.getCreatedAt() : null,
+                decoded != null ? decoded.getId() : null,
+                PageRequest.of(0, pageSize + 1));
+
+        boolean hasMore = rows.size() > pageSize;
+        if (hasMore) {
+            rows = rows.subList(0, pageSize);
+        }
+        String nextCursor = null;
+        if (hasMore) {
+            AuditLog last = rows.get(rows.size() - 1);
+            nextCursor = KeysetCursor.encode(last.getCreatedAt(), last.getId());
+        }
+        return new CursorPageDto<>(rows.stream().map(AuditLogService::toDto).collect(Collectors.toList()), nextCursor, hasMore);
+    }
+
+    static AuditLogDto toDto(AuditLog log) {
         AuditLogDto dto = new AuditLogDto();
         dto.setId(log.getId());
         if (log.getUser() != null) {
@@ -0,0 +1,248 @@
+package com.example.financebackend.service;
+
+import com.example.financebackend.entity.AuditLog;
+import com.example.financebackend.repository.AuditLogRepository;
+import com.example.financebackend.repository.UserRepository;
+import com.example.financebackend.util.BoundedRingBuffer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Audit Log Writer
+ * Ghi audit log bất đồng bộ: caller chỉ đẩy event vào ring buffer (lock-free),
+ * một thread nền gom event và insert theo batch.
+ *
+ * Khi buffer đầy: DROP (mặc định - bỏ event, tăng counter, request không bao giờ phải chờ audit)
+ * hoặc BLOCK (chờ writer giải phóng chỗ - DB chậm sẽ làm chậm cả request ghi).
+ * Khi shutdown, các event còn lại được flush trước khi đóng.
+ */
+@Service
+public class AuditLogWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditLogWriter.class);
+
+    public enum OverflowPolicy {
+        BLOCK, DROP
+    }
+
+    private final AuditLogRepository auditLogRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final BoundedRingBuffer<AuditEvent> buffer;
+    private final OverflowPolicy overflowPolicy;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong writtenCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+
+    private volatile boolean running;
+    private volatile Thread writerThread;
+
+    public AuditLogWriter(AuditLogRepository auditLogRepository,
+                          UserRepository userRepository,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${audit.writer.buffer-size:8192}") int bufferSize,
+                          @Value("${audit.writer.batch-size:200}") int batchSize,
+                          @Value("${audit.writer.flush-interval-ms:200}") long flushIntervalMs,
+                          @Value("${audit.writer.overflow-policy:DROP}") OverflowPolicy overflowPolicy) {
+        this.auditLogRepository = auditLogRepository;
+        this.userRepository = userRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.buffer = new BoundedRingBuffer<>(bufferSize);
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, flushIntervalMs));
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        Thread thread = new Thread(this::runLoop, "audit-log-writer");
+        thread.setDaemon(true);
+        writerThread = thread;
+        thread.start();
+    }
+
+    /**
+     * Đẩy event vào buffer. Không chạm DB trên thread của caller.
+     */
+    public void enqueue(AuditEvent event) {
+        if (buffer.offer(event)) {
+            if (buffer.size() >= batchSize) {
+                LockSupport.unpark(writerThread);
+            }
+            return;
+        }
+
+        if (overflowPolicy == OverflowPolicy.DROP || !running) {
+            long dropped = droppedCount.incrementAndGet();
+            if (dropped == 1 || dropped % 1000 == 0) {
+                logger.warn("Audit buffer full, dropped {} audit events so far", dropped);
+            }
+            return;
+        }
+
+        // BLOCK: chờ writer drain bớt
+        while (!buffer.offer(event)) {
+            LockSupport.unpark(writerThread);
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+            if (!running) {
+                droppedCount.incrementAndGet();
+                return;
+            }
+        }
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    public long getWrittenCount() {
+        return writtenCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    public int getPendingCount() {
+        return buffer.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        Thread thread = writerThread;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // Flush phần còn lại (nếu writer chưa kịp)
+        flushAll();
+        logger.info("Audit log writer stopped: written={}, dropped={}, failed={}",
+                writtenCount.get(), droppedCount.get(), failedCount.get());
+    }
+
+    private void runLoop() {
+        List<AuditEvent> batch = new ArrayList<>(batchSize);
+        while (running) {
+            if (buffer.drainTo(batch, batchSize) == 0) {
+                LockSupport.parkNanos(this, flushIntervalNanos);
+                continue;
+            }
+            writeBatch(batch);
+            batch.clear();
+        }
+        flushAll();
+    }
+
+    private synchronized void flushAll() {
+        List<AuditEvent> batch = new ArrayList<>(batchSize);
+        while (buffer.drainTo(batch, batchSize) > 0) {
+            writeBatch(batch);
+            batch.clear();
+        }
+    }
+
+    private void writeBatch(List<AuditEvent> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    auditLogRepository.saveAll(toEntities(batch, true)));
+            writtenCount.addAndGet(batch.size());
+        } catch (Exception e) {
+            logger.warn("Audit batch insert failed ({} events), retrying one by one: {}", batch.size(), e.getMessage());
+            for (AuditEvent event : batch) {
+                writeSingle(event);
+            }
+        }
+    }
+
+    private void writeSingle(AuditEvent event) {
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    auditLogRepository.save(toEntity(event, true)));
+            writtenCount.incrementAndGet();
+        } catch (Exception e) {
+            // Thường do userId không còn tồn tại (FK) - ghi lại không kèm user
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                        auditLogRepository.save(toEntity(event, false)));
+                writtenCount.incrementAndGet();
+            } catch (Exception retryError) {
+                failedCount.incrementAndGet();
+                logger.error("Failed to write audit log: action={}, userId={}", event.action, event.userId, retryError);
+            }
+        }
+    }
+
+    private List<AuditLog> toEntities(List<AuditEvent> events, boolean withUser) {
+        List<AuditLog> logs = new ArrayList<>(events.size());
+        for (AuditEvent event : events) {
+            logs.add(toEntity(event, withUser));
+        }
+        return logs;
+    }
+
+    private AuditLog toEntity(AuditEvent event, boolean withUser) {
+        AuditLog log = new AuditLog();
+        log.setAction(event.action);
+        log.setEntity(event.entity);
+        log.setEntityId(event.entityId);
+        log.setMetadata(event.metadata);
+        log.setIpAddress(event.ipAddress);
+        log.setUserAgent(event.userAgent);
+        log.setCreatedAt(event.createdAt);
+        if (withUser && event.userId != null) {
+            // Proxy theo id, không SELECT bảng users
+            log.setUser(userRepository.getReferenceById(event.userId));
+        }
+        return log;
+    }
+
+    /**
+     * Audit event trong buffer (bất biến, thời điểm lấy lúc enqueue)
+     */
+    public static final class AuditEvent {
+        private final AuditLog.Action action;
+        private final Long userId;
+        private final String entity;
+        private final Long entityId;
+        private final String metadata;
+        private final String ipAddress;
+        private final String userAgent;
+        private final LocalDateTime createdAt;
+
+        public AuditEvent(AuditLog.Action action, Long userId, String entity, Long entityId,
+                          String metadata, String ipAddress, String userAgent) {
+            this.action = action;
+            this.userId = userId;
+            this.entity = entity;
+            this.entityId = entityId;
+            this.metadata = metadata;
+            this.ipAddress = ipAddress;
+            this.userAgent = userAgent;
+            this.createdAt = LocalDateTime.now();
+        }
+    }
+}
@@ -2,10 +2,9 @@ package com.example.financebackend.service;
 
 import com.example.financebackend.entity.Budget;
 import com.example.financebackend.entity.Category;
-import com.example.financebackend.entity.Transaction;
 import com.example.financebackend.repository.BudgetRepository;
 import com.example.financebackend.repository.CategoryRepository;
-import com.example.financebackend.repository.TransactionRepository;
+import com.example.financebackend.util.Money;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -13,33 +12,53 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
+import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
+/**
+ * Đề xuất budget theo lịch sử chi tiêu của N tháng trọn vẹn gần nhất (không tính tháng hiện tại).
+ *
+ * Gom chi tiêu theo (danh mục, tháng) cho mọi danh mục trong một lượt duyệt TransactionSnapshot;
+ * đề xuất = p80 chi tiêu hàng tháng (đủ cho 80% số tháng), kèm trung vị p50. Tháng không chi tiêu tính là 0.
+ */
 @Service
 @Transactional(readOnly = true)
 public class BudgetRecommendationService {
 
-    private final TransactionRepository transactionRepository;
+    public static final int MAX_MONTHS = 36;
+
+    private static final BigDecimal P50 = new BigDecimal("0.50");
+    private static final BigDecimal P80 = new BigDecimal("0.80");
+
+    private final TransactionSnapshotCache snapshotCache;
     private final CategoryRepository categoryRepository;
     private final BudgetRepository budgetRepository;
 
-    public BudgetRecommendationService(TransactionRepository transactionRepository,
+    public BudgetRecommendationService(TransactionSnapshotCache snapshotCache,
                                       CategoryRepository categoryRepository,
                                       BudgetRepository budgetRepository) {
-        this.transactionRepository = transactionRepository;
+        this.snapshotCache = snapshotCache;
         this.categoryRepository = categoryRepository;
         this.budgetRepository = budgetRepository;
     }
 
+    /**
+     * Ngày bắt đầu khoảng phân tích (dùng làm khóa cache)
+     */
+    public static LocalDateTime windowStart(LocalDate today, int months) {
+        return today.withDayOfMonth(1).minusMonths(months).atStartOfDay();
+    }
+
     /**
      * Suggest budget cho category dựa trên spending history
      */
     public BudgetRecommendationDto recommendBudget(Long categoryId, Long userId, int months) {
+        validateMonths(months);
         Category category = categoryRepository.findByIdAndUserId(categoryId, userId)
                 .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy danh mục"));
 
@@ -47,66 +66,126 @@ public class BudgetRecommendationService {
             throw new IllegalArgumentException("Chỉ có thể đề xuất budget cho danh mục chi tiêu");
         }
 
-        LocalDateTime endDate = LocalDateTime.now();
-        LocalDateTime startDate = endDate.minusMonths(months);
+        YearMonth firstMonth = YearMonth.now().minusMonths(months);
+        Map<Long, SpendingStats> stats = aggregate(userId, categoryId, firstMonth, months);
+        return toDto(category, stats.get(categoryId), currentBudgets(userId).get(categoryId), months);
+    }
 
-        // Get all transactions cho category trong khoảng thời gian
-        List<Transaction> transactions = transactionRepository.findByUserId(userId).stream()
-                .filter(t -> t.getCategory() != null && t.getCategory().getId().equals(categoryId))
-                .filter(t -> t.getType() == Transaction.TransactionType.EXPENSE)
-                .filter(t -> !t.getOccurredAt().isBefore(startDate) && !t.getOccurredAt().isAfter(endDate))
-                .collect(Collectors.toList());
+    /**
+     * Recommend budgets cho tất cả expense categories
+     */
+    public List<BudgetRecommendationDto> recommendBudgetsForAllCategories(Long userId, int months) {
+        validateMonths(months);
+        List<Category> expenseCategories = categoryRepository.findByUserIdAndType(userId, Category.CategoryType.EXPENSE);
+        if (expenseCategories.isEmpty()) {
+            return new ArrayList<>();
+        }
 
-        if (transactions.isEmpty()) {
-            BudgetRecommendationDto dto = new BudgetRecommendationDto();
-            dto.setCategoryId(categoryId);
-            dto.setCategoryName(category.getName());
-            dto.setRecommendedAmount(BigDecimal.ZERO);
-            dto.setAverageSpending(BigDecimal.ZERO);
-            dto.setMaxSpending(BigDecimal.ZERO);
-            dto.setMinSpending(BigDecimal.ZERO);
-            dto.setTransactionCount(0);
-            dto.setMessage("Không có dữ liệu chi tiêu trong " + months + " tháng qua");
-            return dto;
+        YearMonth firstMonth = YearMonth.now().minusMonths(months);
+        Map<Long, SpendingStats> stats = aggregate(userId, null, firstMonth, months);
+        Map<Long, Budget> budgets = currentBudgets(userId);
+
+        List<BudgetRecommendationDto> recommendations = new ArrayList<>(expenseCategories.size());
+        for (Category category : expenseCategories) {
+            recommendations.add(toDto(category, stats.get(category.getId()), budgets.get(category.getId()), months));
         }
 
-        // Calculate statistics
-        BigDecimal totalSpending = transactions.stream()
-                .map(Transaction::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        // Sort by recommended amount (descending)
+        recommendations.sort((a, b) -> b.getRecommendedAmount().compareTo(a.getRecommendedAmount()));
 
-        BigDecimal averageSpending = totalSpending.divide(BigDecimal.valueOf(transactions.size()), 2, RoundingMode.HALF_UP);
+        return recommendations;
+    }
 
-        BigDecimal maxSpending = transactions.stream()
-                .map(Transaction::getAmount)
-                .max(BigDecimal::compareTo)
-                .orElse(BigDecimal.ZERO);
+    private Map<Long, SpendingStats> aggregate(Long userId, Long categoryId, YearMonth firstMonth, int months) {
+        TransactionSnapshot snapshot = snapshotCache.get(userId);
+        // monthStarts[i] = epochDay ngày đầu tháng thứ i, phần tử cuối là ngày đầu tháng ngay sau khoảng phân tích
+        int[] monthStarts = new int[months + 1];
+        for (int i = 0; i <= months; i++) {
+            monthStarts[i] = (int) firstMonth.plusMonths(i).atDay(1).toEpochDay();
+        }
+        int onlyCategory = categoryId != null ? snapshot.categoryIndex(categoryId) : TransactionSnapshot.NONE;
+        if (categoryId != null && onlyCategory == TransactionSnapshot.NONE) {
+            return new HashMap<>();
+        }
 
-        BigDecimal minSpending = transactions.stream()
-                .map(Transaction::getAmount)
-                .min(BigDecimal::compareTo)
-                .orElse(BigDecimal.ZERO);
+        SpendingStats[] byCategory = new SpendingStats[snapshot.categoryCount()];
+        int from = monthStarts[0];
+        int to = monthStarts[months];
+        for (int row = 0, size = snapshot.size(); row < size; row++) {
+            int day = snapshot.epochDay(row);
+            int category = snapshot.category(row);
+            if (day < from || day >= to || snapshot.type(row) != TransactionSnapshot.EXPENSE
+                    || category == TransactionSnapshot.NONE
+                    || (onlyCategory != TransactionSnapshot.NONE && category != onlyCategory)) {
+                continue;
+            }
+            int month = 0;
+            while (day >= monthStarts[month + 1]) {
+                month++;
+            }
+            SpendingStats stats = byCategory[category];
+            if (stats == null) {
+                stats = byCategory[category] = new SpendingStats(months);
+            }
+            stats.add(month, snapshot.amount(row));
+        }
 
-        // Recommended budget: average + 10% buffer
-        BigDecimal recommendedAmount = averageSpending.multiply(new BigDecimal("1.10")).setScale(0, RoundingMode.HALF_UP);
+        Map<Long, SpendingStats> stats = new HashMap<>();
+        for (int category = 0; category < byCategory.length; category++) {
+            if (byCategory[category] != null) {
+                stats.put(snapshot.categoryId(category), byCategory[category]);
+            }
+        }
+        return stats;
+    }
 
-        // Check existing budget
-        List<Budget> existingBudgets = budgetRepository.findByUserId(userId).stream()
-                .filter(b -> b.getCategory() != null && b.getCategory().getId().equals(categoryId))
-                .collect(Collectors.toList());
+    // Budget đầu tiên của mỗi danh mục
+    private Map<Long, Budget> currentBudgets(Long userId) {
+        Map<Long, Budget> budgets = new HashMap<>();
+        for (Budget budget : budgetRepository.findByUserId(userId)) {
+            if (budget.getCategory() != null) {
+                budgets.putIfAbsent(budget.getCategory().getId(), budget);
+            }
+        }
+        return budgets;
+    }
 
+    private BudgetRecommendationDto toDto(Category category, SpendingStats stats, Budget currentBudget, int months) {
         BudgetRecommendationDto dto = new BudgetRecommendationDto();
-        dto.setCategoryId(categoryId);
+        dto.setCategoryId(category.getId());
         dto.setCategoryName(category.getName());
-        dto.setRecommendedAmount(recommendedAmount);
-        dto.setAverageSpending(averageSpending);
-        dto.setMaxSpending(maxSpending);
-        dto.setMinSpending(minSpending);
-        dto.setTransactionCount(transactions.size());
         dto.setMonthsAnalyzed(months);
-        
-        if (!existingBudgets.isEmpty()) {
-            Budget currentBudget = existingBudgets.get(0);
+
+        if (stats == null) {
+            dto.setRecommendedAmount(BigDecimal.ZERO);
+            dto.setAverageSpending(BigDecimal.ZERO);
+            dto.setMaxSpending(BigDecimal.ZERO);
+            dto.setMinSpending(BigDecimal.ZERO);
+            dto.setMedianMonthlySpending(BigDecimal.ZERO);
+            dto.setP80MonthlySpending(BigDecimal.ZERO);
+            dto.setMonthlySpending(new ArrayList<>(Collections.nCopies(months, BigDecimal.ZERO)));
+            dto.setTransactionCount(0);
+            dto.setMessage("Không có dữ liệu chi tiêu trong " + months + " tháng qua");
+            return dto;
+        }
+
+        BigDecimal[] monthly = stats.monthlyAmounts();
+        BigDecimal[] sorted = monthly.clone();
+        Arrays.sort(sorted);
+        BigDecimal median = percentile(sorted, P50);
+        BigDecimal p80 = percentile(sorted, P80);
+        BigDecimal recommendedAmount = p80.setScale(0, RoundingMode.HALF_UP);
+
+        dto.setRecommendedAmount(recommendedAmount);
+        dto.setAverageSpending(stats.total.average(RoundingMode.HALF_UP));
+        dto.setMaxSpending(stats.total.max());
+        dto.setMinSpending(stats.total.min());
+        dto.setMedianMonthlySpending(median);
+        dto.setP80MonthlySpending(p80);
+        dto.setMonthlySpending(Arrays.asList(monthly));
+        dto.setTransactionCount((int) stats.total.count());
+
+        if (currentBudget != null) {
             dto.setCurrentBudget(currentBudget.getLimitAmount());
             dto.setCurrentUsage(currentBudget.getUsedAmount());
             BigDecimal difference = recommendedAmount.subtract(currentBudget.getLimitAmount());
@@ -120,33 +199,57 @@ public class BudgetRecommendationService {
                 dto.setMessage("Budget hiện tại phù hợp với chi tiêu thực tế");
             }
         } else {
-            dto.setMessage(String.format("Bạn thường chi trung bình %,.0f/tháng cho '%s', đề xuất budget %,.0f/tháng", 
-                    averageSpending, category.getName(), recommendedAmount));
+            dto.setMessage(String.format("Bạn thường chi khoảng %,.0f/tháng cho '%s', đề xuất budget %,.0f/tháng (đủ cho 80%% số tháng)", 
+                    median, category.getName(), recommendedAmount));
         }
 
         return dto;
     }
 
     /**
-     * Recommend budgets cho tất cả expense categories
+     * Percentile nội suy tuyến tính trên mảng đã sắp xếp tăng dần
      */
-    public List<BudgetRecommendationDto> recommendBudgetsForAllCategories(Long userId, int months) {
-        List<Category> expenseCategories = categoryRepository.findByUserIdAndType(userId, Category.CategoryType.EXPENSE);
-        List<BudgetRecommendationDto> recommendations = new ArrayList<>();
+    static BigDecimal percentile(BigDecimal[] sorted, BigDecimal p) {
+        if (sorted.length == 0) {
+            return BigDecimal.ZERO;
+        }
+        BigDecimal rank = p.multiply(BigDecimal.valueOf(sorted.length - 1));
+        int lower = rank.intValue();
+        int upper = Math.min(lower + 1, sorted.length - 1);
+        BigDecimal fraction = rank.subtract(BigDecimal.valueOf(lower));
+        return sorted[lower].add(sorted[upper].subtract(sorted[lower]).multiply(fraction))
+                .setScale(2, RoundingMode.HALF_UP);
+    }
 
-        for (Category category : expenseCategories) {
-            try {
-                BudgetRecommendationDto recommendation = recommendBudget(category.getId(), userId, months);
-                recommendations.add(recommendation);
-            } catch (Exception e) {
-                // Skip categories that fail (e.g., no transactions)
-            }
+    private static void validateMonths(int months) {
+        if (months < 1 || months > MAX_MONTHS) {
+            throw new IllegalArgumentException("Số tháng phân tích phải từ 1 đến " + MAX_MONTHS);
         }
+    }
 
-        // Sort by recommended amount (descending)
-        recommendations.sort((a, b) -> b.getRecommendedAmount().compareTo(a.getRecommendedAmount()));
+    /**
+     * Thống kê chi tiêu của một danh mục: tổng hợp theo giao dịch và chuỗi tổng theo tháng (minor unit)
+     */
+    private static final class SpendingStats {
+        private final long[] monthly;
+        private final Money.Accumulator total = new Money.Accumulator();
 
-        return recommendations;
+        SpendingStats(int months) {
+            monthly = new long[months];
+        }
+
+        void add(int monthIndex, long amount) {
+            monthly[monthIndex] = Math.addExact(monthly[monthIndex], amount);
+            total.addMinor(amount);
+        }
+
+        BigDecimal[] monthlyAmounts() {
+            BigDecimal[] amounts = new BigDecimal[monthly.length];
+            for (int i = 0; i < monthly.length; i++) {
+                amounts[i] = Money.toBigDecimal(monthly[i], Money.STORAGE_SCALE);
+            }
+            return amounts;
+        }
     }
 
     public static class BudgetRecommendationDto {
@@ -158,6 +261,10 @@ public class BudgetRecommendationService {
         private BigDecimal minSpending;
         private Integer transactionCount;
         private Integer monthsAnalyzed;
+        // Trung vị / p80 của tổng chi theo tháng và chuỗi tổng chi từng tháng (cũ nhất trước)
+        private BigDecimal medianMonthlySpending;
+        private BigDecimal p80MonthlySpending;
+        private List<BigDecimal> monthlySpending;
         private BigDecimal currentBudget;
         private BigDecimal currentUsage;
         private String message;
@@ -226,6 +333,30 @@ public class BudgetRecommendationService {
             this.monthsAnalyzed = monthsAnalyzed;
         }
 
+        public BigDecimal getMedianMonthlySpending() {
+            return medianMonthlySpending;
+        }
+
+        public void setMedianMonthlySpending(BigDecimal medianMonthlySpending) {
+            this.medianMonthlySpending = medianMonthlySpending;
+        }
+
+        public BigDecimal getP80MonthlySpending() {
+            return p80MonthlySpending;
+        }
+
+        public void setP80MonthlySpending(BigDecimal p80MonthlySpending) {
+            this.p80MonthlySpending = p80MonthlySpending;
+        }
+
+        public List<BigDecimal> getMonthlySpending() {
+            return monthlySpending;
+        }
+
+        public void setMonthlySpending(List<BigDecimal> monthlySpending) {
+            this.monthlySpending = monthlySpending;
+        }
+
         public BigDecimal getCurrentBudget() {
             return currentBudget;
         }
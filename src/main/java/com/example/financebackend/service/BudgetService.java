@@ -10,6 +10,7 @@ import com.example.financebackend.repository.BudgetRepository;
 import com.example.financebackend.repository.CategoryRepository;
 import com.example.financebackend.repository.TransactionRepository;
 import com.example.financebackend.repository.UserRepository;
+import com.example.financebackend.util.Money;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -30,6 +31,7 @@ public class BudgetService {
     private final UserRepository userRepository;
     private final SmartBudgetAlertService smartBudgetAlertService;
     private NotificationService notificationService; // Lazy init
+    private ReportCacheService reportCacheService;
 
     public BudgetService(BudgetRepository budgetRepository,
                         CategoryRepository categoryRepository,
@@ -49,9 +51,14 @@ public class BudgetService {
         this.notificationService = notificationService;
     }
 
+    @org.springframework.beans.factory.annotation.Autowired(required = false)
+    public void setReportCacheService(ReportCacheService reportCacheService) {
+        this.reportCacheService = reportCacheService;
+    }
+
     public List<BudgetDto> findAllByUserId(Long userId) {
         return budgetRepository.findByUserId(userId).stream()
-                .map(this::toDto)
+                .map(BudgetService::toDto)
                 .collect(Collectors.toList());
     }
 
@@ -105,6 +112,7 @@ public class BudgetService {
 
         Budget saved = budgetRepository.save(budget);
         updateUsedAmount(saved);
+        evictReportCache(userId);
         
         // Create notification
         createBudgetCreatedNotification(saved);
@@ -134,6 +142,7 @@ public class BudgetService {
 
         Budget saved = budgetRepository.save(budget);
         updateUsedAmount(saved);
+        evictReportCache(userId);
         return toDto(saved);
     }
 
@@ -141,6 +150,7 @@ public class BudgetService {
         Budget budget = budgetRepository.findByIdAndUserId(id, userId)
                 .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy ngân sách"));
         budgetRepository.delete(budget);
+        evictReportCache(userId);
     }
 
     public List<TransactionDto> getTransactionsByBudget(Long budgetId, Long userId) {
@@ -182,7 +192,7 @@ public class BudgetService {
                     BigDecimal ratio = budget.getUsedAmount().divide(budget.getLimitAmount(), 2, RoundingMode.HALF_UP);
                     return ratio.compareTo(budget.getAlertThreshold()) >= 0;
                 })
-                .map(this::toDto)
+                .map(BudgetService::toDto)
                 .collect(Collectors.toList());
     }
 
@@ -191,20 +201,15 @@ public class BudgetService {
         LocalDateTime startDateTime = budget.getStartDate().atStartOfDay();
         LocalDateTime endDateTime = budget.getEndDate().atTime(23, 59, 59);
 
-        List<Transaction> transactions = transactionRepository.findByUserId(budget.getUser().getId()).stream()
-                .filter(tx -> tx.getCategory().getId().equals(budget.getCategory().getId()))
-                .filter(tx -> tx.getType() == Transaction.TransactionType.EXPENSE)
-                .filter(tx -> {
-                    LocalDateTime occurredAt = tx.getOccurredAt();
-                    return !occurredAt.isBefore(startDateTime) && !occurredAt.isAfter(endDateTime);
-                })
-                .collect(Collectors.toList());
-
-        BigDecimal usedAmount = transactions.stream()
-                .map(Transaction::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal usedAmount = transactionRepository.sumByCategoryAndType(
+                budget.getUser().getId(),
+                budget.getCategory().getId(),
+                Transaction.TransactionType.EXPENSE,
+                startDateTime,
+                endDateTime
+        );
 
-        budget.setUsedAmount(usedAmount);
+        budget.setUsedAmount(usedAmount.setScale(Money.STORAGE_SCALE, RoundingMode.UNNECESSARY));
         budgetRepository.save(budget);
         
         // Check and send smart alerts
@@ -213,7 +218,7 @@ public class BudgetService {
         return budget;
     }
 
-    private BudgetDto toDto(Budget budget) {
+    static BudgetDto toDto(Budget budget) {
         BudgetDto dto = new BudgetDto();
         dto.setId(budget.getId());
         if (budget.getCategory() != null) {
@@ -246,4 +251,10 @@ public class BudgetService {
             // Log but don't fail
         }
     }
-}
\ No newline at end of file
+
+    private void evictReportCache(Long userId) {
+        if (reportCacheService != null) {
+            reportCacheService.evictUser(userId);
+        }
+    }
+}
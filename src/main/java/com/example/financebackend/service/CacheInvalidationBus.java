@@ -0,0 +1,402 @@
+package com.example.financebackend.service;
+
+import com.example.financebackend.entity.CacheInvalidation;
+import com.example.financebackend.repository.CacheInvalidationRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Cache Invalidation Bus
+ * Đồng bộ invalidation của các cache trong JVM (Caffeine) giữa nhiều node, không cần Redis / broker.
+ *
+ * - Cache đăng ký listener theo tên và gọi publish(cacheName, key) khi dữ liệu thay đổi.
+ * - mode=database: các publish trong một DB transaction được gộp lại và ghi vào bảng cache_invalidations
+ *   bằng một batch insert ngay trước commit (rollback thì không ghi gì).
+ *   Mỗi node đọc tiếp bảng theo id sau mỗi cache.invalidation.poll-ms và gọi listener với dòng của node khác.
+ * - mode=local: change log nằm trong bộ nhớ của node này nên không bao giờ đến node khác - chỉ dùng cho một node
+ *   hoặc test (khởi động sẽ log cảnh báo).
+ *
+ * Transaction không commit theo thứ tự id nên id bị nhảy qua (gap) được đọc lại đến khi xuất hiện
+ * hoặc quá cache.invalidation.gap-timeout-ms (coi như transaction đã rollback).
+ */
+@Service
+public class CacheInvalidationBus {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheInvalidationBus.class);
+
+    // Bước nhảy id lớn hơn mức này (auto_increment nhảy sau restart...) không được theo dõi như gap
+    private static final int MAX_TRACKED_GAP = 1000;
+    private static final int MAX_GAPS = 10_000;
+
+    public record Invalidation(long id, String cacheName, String key, long version,
+                               String originNode, LocalDateTime createdAt) {
+    }
+
+    /**
+     * Nơi lưu change log - bảng DB hoặc bộ nhớ
+     */
+    interface ChangeLog {
+        // id của entry truyền vào bị bỏ qua, change log tự cấp id tăng dần
+        void append(List<Invalidation> entries);
+
+        List<Invalidation> readAfter(long afterId, int limit);
+
+        List<Invalidation> readIds(Collection<Long> ids);
+
+        long maxId();
+
+        int purgeBefore(LocalDateTime before);
+    }
+
+    private final ChangeLog changeLog;
+    private final String nodeId;
+    private final int batchSize;
+    private final long gapTimeoutMs;
+    private final Map<String, List<Consumer<Invalidation>>> listeners = new ConcurrentHashMap<>();
+
+    // Chỉ truy cập trong poll() (synchronized)
+    private final LinkedHashMap<Long, Long> gaps = new LinkedHashMap<>();
+    private long highWater;
+
+    private volatile int gapCount;
+    private volatile long lastPollAt = System.currentTimeMillis();
+
+    @Value("${cache.invalidation.retention-minutes:10}")
+    private long retentionMinutes = 10;
+
+    private MeterRegistry meterRegistry;
+    private Timer lagTimer;
+
+    @Autowired
+    public CacheInvalidationBus(CacheInvalidationRepository repository,
+                                JdbcTemplate jdbcTemplate,
+                                @Value("${cache.invalidation.mode:database}") String mode,
+                                @Value("${cache.invalidation.batch-size:500}") int batchSize,
+                                @Value("${cache.invalidation.gap-timeout-ms:10000}") long gapTimeoutMs,
+                                @Value("${cache.invalidation.local-capacity:10000}") int localCapacity) {
+        this(changeLog(mode, repository, jdbcTemplate, localCapacity),
+                UUID.randomUUID().toString(), batchSize, gapTimeoutMs);
+    }
+
+    CacheInvalidationBus(ChangeLog changeLog, String nodeId, int batchSize, long gapTimeoutMs) {
+        this.changeLog = changeLog;
+        this.nodeId = nodeId;
+        this.batchSize = Math.max(1, batchSize);
+        this.gapTimeoutMs = gapTimeoutMs;
+    }
+
+    private static ChangeLog changeLog(String mode, CacheInvalidationRepository repository,
+                                       JdbcTemplate jdbcTemplate, int localCapacity) {
+        if ("database".equalsIgnoreCase(mode)) {
+            return new DatabaseChangeLog(repository, jdbcTemplate);
+        }
+        if ("local".equalsIgnoreCase(mode)) {
+            logger.warn("cache.invalidation.mode=local: invalidations stay in this JVM and are not delivered to other nodes");
+            return new InMemoryChangeLog(localCapacity);
+        }
+        throw new IllegalArgumentException("cache.invalidation.mode không hợp lệ: " + mode);
+    }
+
+    @PostConstruct
+    public void init() {
+        // Node mới khởi động có cache rỗng - chỉ cần đọc từ các thay đổi sau thời điểm này
+        synchronized (this) {
+            highWater = changeLog.maxId();
+        }
+    }
+
+    @Autowired(required = false)
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.lagTimer = Timer.builder("finance.cache.invalidation.lag")
+                .description("Time from publishing an invalidation to applying it on this node")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Gauge.builder("finance.cache.invalidation.pending-gaps", this, bus -> bus.gapCount)
+                .description("Change log ids skipped by the poller and still awaited")
+                .register(meterRegistry);
+        Gauge.builder("finance.cache.invalidation.poll-age", this,
+                        bus -> (System.currentTimeMillis() - bus.lastPollAt) / 1000.0)
+                .description("Seconds since the last successful change log poll")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Đăng ký listener cho cache; listener chỉ nhận invalidation phát từ node khác
+     */
+    public void register(String cacheName, Consumer<Invalidation> listener) {
+        listeners.computeIfAbsent(cacheName, name -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    public void publish(String cacheName, Object key) {
+        publish(cacheName, key, System.currentTimeMillis());
+    }
+
+    /**
+     * Phát invalidation cho các node khác. Trong DB transaction thì ghi cùng transaction đó.
+     */
+    public void publish(String cacheName, Object key, long version) {
+        Invalidation entry = new Invalidation(0, cacheName, String.valueOf(key), version, nodeId, LocalDateTime.now());
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            append(List.of(entry));
+            return;
+        }
+        PendingBatch batch = null;
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingBatch pending && pending.owner() == this) {
+                batch = pending;
+                break;
+            }
+        }
+        if (batch == null) {
+            batch = new PendingBatch();
+            TransactionSynchronizationManager.registerSynchronization(batch);
+        }
+        batch.add(entry);
+    }
+
+    /**
+     * Đọc các dòng mới của change log và áp dụng dòng của node khác
+     */
+    @Scheduled(fixedDelayString = "${cache.invalidation.poll-ms:500}")
+    public synchronized void poll() {
+        long now = System.currentTimeMillis();
+        try {
+            if (!gaps.isEmpty()) {
+                List<Long> awaited = new ArrayList<>(gaps.keySet());
+                for (Invalidation entry : changeLog.readIds(awaited.subList(0, Math.min(awaited.size(), batchSize)))) {
+                    gaps.remove(entry.id());
+                    deliver(entry);
+                }
+                gaps.values().removeIf(firstSeen -> now - firstSeen >= gapTimeoutMs);
+            }
+
+            List<Invalidation> entries;
+            do {
+                entries = changeLog.readAfter(highWater, batchSize);
+                for (Invalidation entry : entries) {
+                    if (entry.id() - highWater - 1 <= MAX_TRACKED_GAP) {
+                        for (long id = highWater + 1; id < entry.id(); id++) {
+                            gaps.putIfAbsent(id, now);
+                        }
+                    }
+                    highWater = entry.id();
+                    deliver(entry);
+                }
+            } while (entries.size() == batchSize);
+
+            Iterator<Long> oldest = gaps.keySet().iterator();
+            while (gaps.size() > MAX_GAPS && oldest.hasNext()) {
+                oldest.next();
+                oldest.remove();
+            }
+            gapCount = gaps.size();
+            lastPollAt = now;
+        } catch (RuntimeException e) {
+            logger.warn("Cache invalidation poll failed on node {}: {}", nodeId, e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${cache.invalidation.purge-ms:60000}")
+    public void purge() {
+        try {
+            int deleted = changeLog.purgeBefore(LocalDateTime.now().minusMinutes(retentionMinutes));
+            if (deleted > 0) {
+                logger.debug("Purged {} cache invalidations", deleted);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Cache invalidation purge failed: {}", e.getMessage());
+        }
+    }
+
+    private void append(List<Invalidation> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        changeLog.append(entries);
+        if (meterRegistry != null) {
+            for (Invalidation entry : entries) {
+                meterRegistry.counter("finance.cache.invalidation.published", "cache", entry.cacheName()).increment();
+            }
+        }
+    }
+
+    private void deliver(Invalidation entry) {
+        if (nodeId.equals(entry.originNode())) {
+            return;
+        }
+        for (Consumer<Invalidation> listener : listeners.getOrDefault(entry.cacheName(), List.of())) {
+            try {
+                listener.accept(entry);
+            } catch (RuntimeException e) {
+                logger.warn("Cache invalidation listener for {} failed on key {}: {}",
+                        entry.cacheName(), entry.key(), e.getMessage());
+            }
+        }
+        if (meterRegistry != null) {
+            meterRegistry.counter("finance.cache.invalidation.applied", "cache", entry.cacheName()).increment();
+            Duration lag = Duration.between(entry.createdAt(), LocalDateTime.now());
+            lagTimer.record(lag.isNegative() ? Duration.ZERO : lag);
+        }
+    }
+
+    /**
+     * Các invalidation của một transaction, gộp theo (cache, key) và ghi một lần trước commit
+     */
+    private final class PendingBatch implements TransactionSynchronization {
+        private final Map<String, Invalidation> entries = new LinkedHashMap<>();
+
+        CacheInvalidationBus owner() {
+            return CacheInvalidationBus.this;
+        }
+
+        void add(Invalidation entry) {
+            entries.put(entry.cacheName() + '\u0000' + entry.key(), entry);
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            append(new ArrayList<>(entries.values()));
+        }
+    }
+
+    static final class DatabaseChangeLog implements ChangeLog {
+        private static final String INSERT_SQL = "INSERT INTO cache_invalidations "
+                + "(cache_name, cache_key, version, origin_node, created_at) VALUES (?, ?, ?, ?, ?)";
+
+        private final CacheInvalidationRepository repository;
+        private final JdbcTemplate jdbcTemplate;
+
+        DatabaseChangeLog(CacheInvalidationRepository repository, JdbcTemplate jdbcTemplate) {
+            this.repository = repository;
+            this.jdbcTemplate = jdbcTemplate;
+        }
+
+        @Override
+        public void append(List<Invalidation> entries) {
+            // JdbcTemplate dùng connection của transaction hiện tại (nếu có)
+            jdbcTemplate.batchUpdate(INSERT_SQL, entries, entries.size(), (ps, entry) -> {
+                ps.setString(1, entry.cacheName());
+                ps.setString(2, entry.key());
+                ps.setLong(3, entry.version());
+                ps.setString(4, entry.originNode());
+                ps.setTimestamp(5, Timestamp.valueOf(entry.createdAt()));
+            });
+        }
+
+        @Override
+        public List<Invalidation> readAfter(long afterId, int limit) {
+            return repository.findAfter(afterId, PageRequest.of(0, limit)).stream().map(DatabaseChangeLog::toEntry).toList();
+        }
+
+        @Override
+        public List<Invalidation> readIds(Collection<Long> ids) {
+            return repository.findByIds(ids).stream().map(DatabaseChangeLog::toEntry).toList();
+        }
+
+        @Override
+        public long maxId() {
+            return repository.findMaxId();
+        }
+
+        @Override
+        public int purgeBefore(LocalDateTime before) {
+            return repository.deleteCreatedBefore(before);
+        }
+
+        private static Invalidation toEntry(CacheInvalidation row) {
+            return new Invalidation(row.getId(), row.getCacheName(), row.getCacheKey(), row.getVersion(),
+                    row.getOriginNode(), row.getCreatedAt());
+        }
+    }
+
+    /**
+     * Change log trong bộ nhớ, giữ tối đa capacity dòng mới nhất
+     */
+    static final class InMemoryChangeLog implements ChangeLog {
+        private final int capacity;
+        private final ArrayDeque<Invalidation> entries = new ArrayDeque<>();
+        private long sequence;
+
+        InMemoryChangeLog(int capacity) {
+            this.capacity = Math.max(1, capacity);
+        }
+
+        @Override
+        public synchronized void append(List<Invalidation> batch) {
+            for (Invalidation entry : batch) {
+                entries.addLast(new Invalidation(++sequence, entry.cacheName(), entry.key(), entry.version(),
+                        entry.originNode(), entry.createdAt()));
+            }
+            while (entries.size() > capacity) {
+                entries.pollFirst();
+            }
+        }
+
+        @Override
+        public synchronized List<Invalidation> readAfter(long afterId, int limit) {
+            List<Invalidation> result = new ArrayList<>();
+            for (Invalidation entry : entries) {
+                if (entry.id() > afterId) {
+                    result.add(entry);
+                    if (result.size() == limit) {
+                        break;
+                    }
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public synchronized List<Invalidation> readIds(Collection<Long> ids) {
+            Set<Long> wanted = new HashSet<>(ids);
+            return entries.stream().filter(entry -> wanted.contains(entry.id())).toList();
+        }
+
+        @Override
+        public synchronized long maxId() {
+            return sequence;
+        }
+
+        @Override
+        public synchronized int purgeBefore(LocalDateTime before) {
+            int size = entries.size();
+            entries.removeIf(entry -> entry.createdAt().isBefore(before));
+            return size - entries.size();
+        }
+    }
+}
@@ -1,15 +1,19 @@
 package com.example.financebackend.service;
 
+import com.example.financebackend.dto.CashflowForecastDto;
 import com.example.financebackend.entity.RecurringTransaction;
 import com.example.financebackend.entity.Transaction;
-import com.example.financebackend.entity.Wallet;
 import com.example.financebackend.repository.RecurringTransactionRepository;
 import com.example.financebackend.repository.TransactionRepository;
 import com.example.financebackend.repository.WalletRepository;
+import com.example.financebackend.util.Money;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
@@ -21,35 +25,68 @@ import java.util.stream.Collectors;
  * - Recurring transactions (income + expenses)
  * - Historical spending patterns
  * - Current balance
+ *
+ * Chế độ probabilistic chạy thêm mô phỏng Monte Carlo (CashflowSimulator) với chi tiêu theo ngày
+ * bốc mẫu từ lịch sử history-days ngày gần nhất.
  */
 @Service
 @Transactional(readOnly = true)
 public class CashflowForecastService {
 
+    private static final BigDecimal WARNING_THRESHOLD = new BigDecimal("1000000"); // 1M VND
+    private static final BigDecimal SAFE_THRESHOLD = new BigDecimal("5000000");
+    private static final int AVERAGE_DAYS = 30;
+
     private final WalletRepository walletRepository;
     private final RecurringTransactionRepository recurringTransactionRepository;
     private final TransactionRepository transactionRepository;
+    private final RecurrenceCalendar recurrenceCalendar;
+    private final CashflowSimulator cashflowSimulator;
+
+    @Value("${cashflow.simulation.paths:10000}")
+    private int defaultPaths = 10_000;
+
+    @Value("${cashflow.simulation.max-paths:50000}")
+    private int maxPaths = 50_000;
+
+    @Value("${cashflow.simulation.history-days:90}")
+    private int historyDays = 90;
 
     public CashflowForecastService(WalletRepository walletRepository,
                                   RecurringTransactionRepository recurringTransactionRepository,
-                                  TransactionRepository transactionRepository) {
+                                  TransactionRepository transactionRepository,
+                                  RecurrenceCalendar recurrenceCalendar,
+                                  CashflowSimulator cashflowSimulator) {
         this.walletRepository = walletRepository;
         this.recurringTransactionRepository = recurringTransactionRepository;
         this.transactionRepository = transactionRepository;
+        this.recurrenceCalendar = recurrenceCalendar;
+        this.cashflowSimulator = cashflowSimulator;
     }
 
     /**
      * Get cashflow forecast for next 30 days
      */
-    public Map<String, Object> getForecast(Long userId, Integer days) {
+    public CashflowForecastDto getForecast(Long userId, Integer days) {
+        return getForecast(userId, days, false, null);
+    }
+
+    /**
+     * Dự báo cashflow; probabilistic = true thì kèm mô phỏng Monte Carlo với paths đường (null = mặc định)
+     */
+    @Timed(value = "finance.report", extraTags = {"report", "cashflow-forecast"}, histogram = true)
+    public CashflowForecastDto getForecast(Long userId, Integer days, boolean probabilistic, Integer paths) {
         if (days == null || days <= 0 || days > 90) {
             days = 30; // Default to 30 days
         }
+        if (paths != null && (paths <= 0 || paths > maxPaths)) {
+            throw new IllegalArgumentException("Số đường mô phỏng phải từ 1 đến " + maxPaths);
+        }
 
         // Get current total balance
-        BigDecimal currentBalance = walletRepository.findByUserId(userId).stream()
-            .map(w -> w.getBalance() != null ? w.getBalance() : BigDecimal.ZERO)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
+        Money.Accumulator balances = new Money.Accumulator();
+        walletRepository.findByUserId(userId).forEach(w -> balances.add(w.getBalance()));
+        BigDecimal currentBalance = balances.sum();
 
         // Get recurring transactions
         List<RecurringTransaction> recurringTxns = recurringTransactionRepository
@@ -57,141 +94,131 @@ public class CashflowForecastService {
             .filter(rt -> Boolean.TRUE.equals(rt.getActive()))
             .collect(Collectors.toList());
 
+        LocalDate today = LocalDate.now();
+        LocalDateTime now = LocalDateTime.now();
+        int sampleDays = Math.max(AVERAGE_DAYS, historyDays);
+        LocalDate historyStart = today.minusDays(sampleDays);
+        List<Object[]> expenses = transactionRepository.findAmountsByTypeFrom(
+                userId, Transaction.TransactionType.EXPENSE, historyStart.atStartOfDay());
+
         // Calculate average daily spending (last 30 days)
-        BigDecimal avgDailySpending = calculateAverageDailySpending(userId);
+        BigDecimal avgDailySpending = calculateAverageDailySpending(expenses, now.minusDays(AVERAGE_DAYS));
+
+        // Cộng dồn recurring transactions theo ngày (minor unit) từ lịch đã khai triển của từng quy tắc
+        long[] recurringIncome = new long[days];
+        long[] recurringExpense = new long[days];
+        long firstDay = today.toEpochDay();
+        for (RecurringTransaction rt : recurringTxns) {
+            long amount = Money.toMinor(rt.getAmount(), Money.STORAGE_SCALE);
+            long[] target = rt.getType() == Transaction.TransactionType.INCOME ? recurringIncome : recurringExpense;
+            for (int day : recurrenceCalendar.occurrences(rt, today, today.plusDays(days - 1))) {
+                int index = (int) (day - firstDay);
+                target[index] = Math.addExact(target[index], amount);
+            }
+        }
 
         // Generate daily forecast
-        List<Map<String, Object>> dailyForecast = new ArrayList<>();
-        BigDecimal runningBalance = currentBalance;
-        LocalDate today = LocalDate.now();
-
+        long avgDaily = Money.toMinor(avgDailySpending, Money.STORAGE_SCALE);
+        long warningThreshold = Money.toMinor(WARNING_THRESHOLD, Money.STORAGE_SCALE);
+        List<CashflowForecastDto.DayForecast> dailyForecast = new ArrayList<>(days);
+        List<LocalDate> warningDays = new ArrayList<>();
+        long runningBalance = balances.sumMinor();
+        long minBalance = runningBalance;
         for (int i = 0; i < days; i++) {
             LocalDate date = today.plusDays(i);
-            
+
             // Calculate expected income/expense for this day
-            BigDecimal expectedIncome = BigDecimal.ZERO;
-            BigDecimal expectedExpense = avgDailySpending; // Base spending
-            
-            // Add recurring transactions due on this date
-            for (RecurringTransaction rt : recurringTxns) {
-                if (isRecurringDueOnDate(rt, date)) {
-                    if (rt.getType() == Transaction.TransactionType.INCOME) {
-                        expectedIncome = expectedIncome.add(rt.getAmount() != null ? rt.getAmount() : BigDecimal.ZERO);
-                    } else {
-                        expectedExpense = expectedExpense.add(rt.getAmount() != null ? rt.getAmount() : BigDecimal.ZERO);
-                    }
-                }
+            long expectedIncome = recurringIncome[i];
+            long expectedExpense = Math.addExact(avgDaily, recurringExpense[i]); // Base spending + recurring
+
+            long netChange = Math.subtractExact(expectedIncome, expectedExpense);
+            runningBalance = Math.addExact(runningBalance, netChange);
+
+            BigDecimal predictedBalance = toAmount(runningBalance);
+            dailyForecast.add(new CashflowForecastDto.DayForecast(date, toAmount(expectedIncome),
+                    toAmount(expectedExpense), toAmount(netChange), predictedBalance, getBalanceZone(predictedBalance)));
+
+            // Find warning days (balance < threshold)
+            if (runningBalance < warningThreshold) {
+                warningDays.add(date);
+            }
+            if (i == 0 || runningBalance < minBalance) {
+                minBalance = runningBalance;
             }
-            
-            BigDecimal netChange = expectedIncome.subtract(expectedExpense);
-            runningBalance = runningBalance.add(netChange);
-            
-            String zone = getBalanceZone(runningBalance);
-            
-            Map<String, Object> dayData = new HashMap<>();
-            dayData.put("date", date);
-            dayData.put("expectedIncome", expectedIncome);
-            dayData.put("expectedExpense", expectedExpense);
-            dayData.put("netChange", netChange);
-            dayData.put("predictedBalance", runningBalance);
-            dayData.put("zone", zone); // GREEN, YELLOW, RED
-            
-            dailyForecast.add(dayData);
         }
 
-        // Find warning days (balance < threshold)
-        BigDecimal warningThreshold = new BigDecimal("1000000"); // 1M VND
-        List<LocalDate> warningDays = dailyForecast.stream()
-            .filter(day -> {
-                BigDecimal balance = (BigDecimal) day.get("predictedBalance");
-                return balance.compareTo(warningThreshold) < 0;
-            })
-            .map(day -> (LocalDate) day.get("date"))
-            .collect(Collectors.toList());
+        CashflowForecastDto.Simulation simulation = null;
+        if (probabilistic) {
+            long[] recurringNet = new long[days];
+            for (int i = 0; i < days; i++) {
+                recurringNet[i] = Math.subtractExact(recurringIncome[i], recurringExpense[i]);
+            }
+            long[] dailySpending = dailySpendingHistory(expenses, historyStart, today);
+            int pathCount = paths != null ? paths : defaultPaths;
+            // Seed cố định theo user và ngày để cùng request trong ngày cho cùng kết quả
+            long seed = Objects.hash(userId, today);
+            CashflowSimulator.Result result = cashflowSimulator.simulate(balances.sumMinor(), recurringNet,
+                    dailySpending, warningThreshold, pathCount, seed);
+            simulation = toSimulation(result, today, dailySpending.length);
+        }
 
-        // Calculate minimum balance in forecast period
-        BigDecimal minBalance = dailyForecast.stream()
-            .map(day -> (BigDecimal) day.get("predictedBalance"))
-            .min(BigDecimal::compareTo)
-            .orElse(currentBalance);
-
-        Map<String, Object> result = new HashMap<>();
-        result.put("currentBalance", currentBalance);
-        result.put("forecastDays", days);
-        result.put("dailyForecast", dailyForecast);
-        result.put("minPredictedBalance", minBalance);
-        result.put("warningDays", warningDays);
-        result.put("hasWarnings", !warningDays.isEmpty());
-        result.put("avgDailySpending", avgDailySpending);
-        
-        return result;
+        return new CashflowForecastDto(currentBalance, days, dailyForecast, toAmount(minBalance), warningDays,
+                !warningDays.isEmpty(), avgDailySpending, simulation);
     }
 
-    private BigDecimal calculateAverageDailySpending(Long userId) {
-        LocalDateTime thirtyDaysAgo = LocalDateTime.now().minusDays(30);
-        
-        List<Transaction> recentExpenses = transactionRepository.findByUserId(userId).stream()
-            .filter(t -> t.getType() == Transaction.TransactionType.EXPENSE)
-            .filter(t -> t.getOccurredAt().isAfter(thirtyDaysAgo))
-            .collect(Collectors.toList());
-
-        if (recentExpenses.isEmpty()) {
+    private BigDecimal calculateAverageDailySpending(List<Object[]> expenses, LocalDateTime thirtyDaysAgo) {
+        Money.Accumulator totalExpense = new Money.Accumulator();
+        for (Object[] row : expenses) {
+            if (((LocalDateTime) row[0]).isAfter(thirtyDaysAgo)) {
+                totalExpense.add((BigDecimal) row[1]);
+            }
+        }
+        if (totalExpense.count() == 0) {
             return BigDecimal.ZERO;
         }
-
-        BigDecimal totalExpense = recentExpenses.stream()
-            .map(Transaction::getAmount)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        return totalExpense.divide(new BigDecimal("30"), 2, java.math.RoundingMode.HALF_UP);
+        return totalExpense.average(AVERAGE_DAYS, RoundingMode.HALF_UP);
     }
 
-    private boolean isRecurringDueOnDate(RecurringTransaction rt, LocalDate date) {
-        if (rt.getNextRunDate() == null) {
-            return false;
+    /**
+     * Tổng chi tiêu từng ngày trọn vẹn trong [historyStart, today), kể cả ngày không chi
+     */
+    private long[] dailySpendingHistory(List<Object[]> expenses, LocalDate historyStart, LocalDate today) {
+        long startDay = historyStart.toEpochDay();
+        long[] daily = new long[(int) (today.toEpochDay() - startDay)];
+        for (Object[] row : expenses) {
+            long index = ((LocalDateTime) row[0]).toLocalDate().toEpochDay() - startDay;
+            if (index >= 0 && index < daily.length) {
+                daily[(int) index] = Math.addExact(daily[(int) index],
+                        Money.toMinor((BigDecimal) row[1], Money.STORAGE_SCALE));
+            }
         }
+        return daily;
+    }
 
-        // Check if this date matches the recurring schedule
-        LocalDate current = rt.getNextRunDate();
-        
-        while (!current.isAfter(date)) {
-            if (current.equals(date)) {
-                return true;
-            }
-            
-            // Move to next occurrence
-            switch (rt.getFrequency()) {
-                case DAILY:
-                    current = current.plusDays(1);
-                    break;
-                case WEEKLY:
-                    current = current.plusWeeks(1);
-                    break;
-                case MONTHLY:
-                    current = current.plusMonths(1);
-                    break;
-                case YEARLY:
-                    current = current.plusYears(1);
-                    break;
-            }
-            
-            // Prevent infinite loop
-            if (current.isAfter(date.plusDays(1))) {
-                break;
-            }
+    private CashflowForecastDto.Simulation toSimulation(CashflowSimulator.Result result, LocalDate today,
+                                                         int sampleDays) {
+        int days = result.p50().length;
+        List<CashflowForecastDto.BalanceBand> bands = new ArrayList<>(days);
+        for (int i = 0; i < days; i++) {
+            bands.add(new CashflowForecastDto.BalanceBand(today.plusDays(i),
+                    toAmount(result.p10()[i]), toAmount(result.p50()[i]), toAmount(result.p90()[i]),
+                    result.belowThresholdByDay()[i]));
         }
-        
-        return false;
+        return new CashflowForecastDto.Simulation(result.paths(), sampleDays, WARNING_THRESHOLD,
+                result.probabilityBelowThreshold(), bands);
+    }
+
+    private static BigDecimal toAmount(long minorUnits) {
+        return Money.toBigDecimal(minorUnits, Money.STORAGE_SCALE);
     }
 
     private String getBalanceZone(BigDecimal balance) {
-        if (balance.compareTo(new BigDecimal("5000000")) >= 0) {
+        if (balance.compareTo(SAFE_THRESHOLD) >= 0) {
             return "GREEN";  // Safe
-        } else if (balance.compareTo(new BigDecimal("1000000")) >= 0) {
+        } else if (balance.compareTo(WARNING_THRESHOLD) >= 0) {
             return "YELLOW"; // Caution
         } else {
             return "RED";    // Warning
         }
     }
 }
-
@@ -0,0 +1,248 @@
+package com.example.financebackend.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Cashflow Simulator
+ * Mô phỏng Monte Carlo số dư theo ngày. Chi tiêu mỗi ngày được bốc ngẫu nhiên (bootstrap) từ chi tiêu
+ * thực tế theo ngày trong lịch sử của user, cộng với thu/chi định kỳ đã biết.
+ *
+ * - Mọi số tiền là long theo đơn vị nhỏ nhất (minor unit), không boxing trong vòng lặp
+ * - Các đường mô phỏng chia nhỏ trên ForkJoinPool riêng; mỗi nhánh dùng SplittableRandom tách từ seed
+ *   nên cùng seed cho cùng kết quả bất kể thứ tự chạy của các thread
+ */
+@Service
+public class CashflowSimulator {
+
+    // Số đường mô phỏng tối đa mỗi task lá
+    private static final int LEAF_PATHS = 256;
+
+    private final ForkJoinPool pool;
+
+    public CashflowSimulator(@Value("${cashflow.simulation.parallelism:0}") int parallelism) {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(threads, forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("cashflow-sim-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * Chạy mô phỏng
+     *
+     * @param startBalance   số dư hiện tại
+     * @param recurringNet   thu - chi định kỳ theo từng ngày (độ dài = số ngày dự báo)
+     * @param dailySpending  chi tiêu thực tế theo từng ngày trong lịch sử (kể cả ngày không chi), dùng để bốc mẫu
+     * @param threshold      ngưỡng cảnh báo
+     * @param paths          số đường mô phỏng
+     * @param seed           seed cho bộ sinh số ngẫu nhiên
+     */
+    public Result simulate(long startBalance, long[] recurringNet, long[] dailySpending,
+                           long threshold, int paths, long seed) {
+        if (paths <= 0) {
+            throw new IllegalArgumentException("Số đường mô phỏng phải lớn hơn 0");
+        }
+        int days = recurringNet.length;
+        long[] samples = dailySpending.length > 0 ? dailySpending : new long[] {0L};
+        long[][] balances = new long[days][paths];
+
+        int pathsBelow = pool.invoke(new PathTask(startBalance, recurringNet, samples, threshold, balances,
+                0, paths, new SplittableRandom(seed)));
+
+        long[] p10 = new long[days];
+        long[] p50 = new long[days];
+        long[] p90 = new long[days];
+        double[] belowByDay = new double[days];
+        pool.invoke(new BandTask(balances, threshold, 0, days, p10, p50, p90, belowByDay));
+
+        return new Result(paths, p10, p50, p90, belowByDay, (double) pathsBelow / paths);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Kết quả mô phỏng: phân vị số dư theo ngày, tỉ lệ đường dưới ngưỡng theo ngày và trong cả kỳ
+     */
+    public record Result(int paths, long[] p10, long[] p50, long[] p90,
+                         double[] belowThresholdByDay, double probabilityBelowThreshold) {
+    }
+
+    /**
+     * Mô phỏng các đường [from, to), trả về số đường có ít nhất một ngày dưới ngưỡng
+     */
+    private static final class PathTask extends RecursiveTask<Integer> {
+        private static final long serialVersionUID = 1L;
+
+        private final long startBalance;
+        private final long[] recurringNet;
+        private final long[] samples;
+        private final long threshold;
+        private final long[][] balances;
+        private final int from;
+        private final int to;
+        private final SplittableRandom random;
+
+        PathTask(long startBalance, long[] recurringNet, long[] samples, long threshold, long[][] balances,
+                 int from, int to, SplittableRandom random) {
+            this.startBalance = startBalance;
+            this.recurringNet = recurringNet;
+            this.samples = samples;
+            this.threshold = threshold;
+            this.balances = balances;
+            this.from = from;
+            this.to = to;
+            this.random = random;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (to - from <= LEAF_PATHS) {
+                return simulateRange();
+            }
+            int mid = (from + to) >>> 1;
+            // Tách random trước khi fork để kết quả không phụ thuộc lịch chạy
+            PathTask left = new PathTask(startBalance, recurringNet, samples, threshold, balances,
+                    from, mid, random.split());
+            PathTask right = new PathTask(startBalance, recurringNet, samples, threshold, balances,
+                    mid, to, random);
+            left.fork();
+            int rightBelow = right.compute();
+            return left.join() + rightBelow;
+        }
+
+        private int simulateRange() {
+            int below = 0;
+            int days = recurringNet.length;
+            int sampleCount = samples.length;
+            for (int path = from; path < to; path++) {
+                long balance = startBalance;
+                boolean wentBelow = false;
+                for (int day = 0; day < days; day++) {
+                    balance = balance + recurringNet[day] - samples[random.nextInt(sampleCount)];
+                    balances[day][path] = balance;
+                    wentBelow |= balance < threshold;
+                }
+                if (wentBelow) {
+                    below++;
+                }
+            }
+            return below;
+        }
+    }
+
+    /**
+     * Đọc phân vị số dư của từng ngày [from, to) bằng quickselect (không sắp xếp toàn bộ)
+     */
+    private static final class BandTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final long[][] balances;
+        private final long threshold;
+        private final int from;
+        private final int to;
+        private final long[] p10;
+        private final long[] p50;
+        private final long[] p90;
+        private final double[] belowByDay;
+
+        BandTask(long[][] balances, long threshold, int from, int to,
+                 long[] p10, long[] p50, long[] p90, double[] belowByDay) {
+            this.balances = balances;
+            this.threshold = threshold;
+            this.from = from;
+            this.to = to;
+            this.p10 = p10;
+            this.p50 = p50;
+            this.p90 = p90;
+            this.belowByDay = belowByDay;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                for (int day = from; day < to; day++) {
+                    summarizeDay(day);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new BandTask(balances, threshold, from, mid, p10, p50, p90, belowByDay),
+                    new BandTask(balances, threshold, mid, to, p10, p50, p90, belowByDay));
+        }
+
+        private void summarizeDay(int day) {
+            long[] values = balances[day];
+            int last = values.length - 1;
+            int k10 = rank(values.length, 0.10);
+            int k50 = rank(values.length, 0.50);
+            int k90 = rank(values.length, 0.90);
+            // Sau khi chọn k50: bên trái <= values[k50] <= bên phải, nên k10/k90 chỉ cần chọn trong nửa tương ứng
+            p50[day] = select(values, 0, last, k50);
+            p10[day] = select(values, 0, k50, k10);
+            p90[day] = select(values, k50, last, k90);
+            int below = 0;
+            for (long value : values) {
+                if (value < threshold) {
+                    below++;
+                }
+            }
+            belowByDay[day] = (double) below / values.length;
+        }
+    }
+
+    // Vị trí của phân vị theo nearest-rank
+    static int rank(int size, double quantile) {
+        int rank = (int) Math.ceil(quantile * size);
+        return Math.min(size - 1, Math.max(0, rank - 1));
+    }
+
+    /**
+     * Quickselect: đưa phần tử nhỏ thứ k của values[low..high] về vị trí k và trả về giá trị đó
+     */
+    static long select(long[] values, int low, int high, int k) {
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            // Median-of-three làm pivot
+            if (values[mid] < values[low]) swap(values, mid, low);
+            if (values[high] < values[low]) swap(values, high, low);
+            if (values[high] < values[mid]) swap(values, high, mid);
+            long pivot = values[mid];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (values[i] < pivot) i++;
+                while (values[j] > pivot) j--;
+                if (i <= j) {
+                    swap(values, i++, j--);
+                }
+            }
+            if (k <= j) {
+                high = j;
+            } else if (k >= i) {
+                low = i;
+            } else {
+                return values[k];
+            }
+        }
+        return values[k];
+    }
+
+    private static void swap(long[] values, int i, int j) {
+        long tmp = values[i];
+        values[i] = values[j];
+        values[j] = tmp;
+    }
+}
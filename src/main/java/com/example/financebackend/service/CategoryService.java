@@ -21,6 +21,8 @@ public class CategoryService {
     private final UserRepository userRepository;
     private final TransactionRepository transactionRepository;
     private final BudgetRepository budgetRepository;
+    private ReportCacheService reportCacheService;
+    private RecentTransactionCache recentTransactionCache;
 
     public CategoryService(CategoryRepository categoryRepository, UserRepository userRepository,
                           TransactionRepository transactionRepository, BudgetRepository budgetRepository) {
@@ -30,15 +32,25 @@ public class CategoryService {
         this.budgetRepository = budgetRepository;
     }
 
+    @org.springframework.beans.factory.annotation.Autowired(required = false)
+    public void setReportCacheService(ReportCacheService reportCacheService) {
+        this.reportCacheService = reportCacheService;
+    }
+
+    @org.springframework.beans.factory.annotation.Autowired(required = false)
+    public void setRecentTransactionCache(RecentTransactionCache recentTransactionCache) {
+        this.recentTransactionCache = recentTransactionCache;
+    }
+
     public List<CategoryDto> findAllByUserId(Long userId) {
         return categoryRepository.findByUserId(userId).stream()
-                .map(this::toDto)
+                .map(CategoryService::toDto)
                 .collect(Collectors.toList());
     }
 
     public List<CategoryDto> findByUserIdAndType(Long userId, Category.CategoryType type) {
         return categoryRepository.findByUserIdAndType(userId, type).stream()
-                .map(this::toDto)
+                .map(CategoryService::toDto)
                 .collect(Collectors.toList());
     }
 
@@ -80,6 +92,9 @@ public class CategoryService {
         category.setColor(dto.getColor());
 
         Category saved = categoryRepository.save(category);
+        // Tên danh mục xuất hiện trong các báo cáo theo danh mục và trong giao dịch gần đây
+        evictReportCache(userId);
+        evictRecentTransactions(userId);
         return toDto(saved);
     }
 
@@ -106,9 +121,10 @@ public class CategoryService {
         }
         
         categoryRepository.delete(category);
+        evictRecentTransactions(userId);
     }
 
-    private CategoryDto toDto(Category category) {
+    static CategoryDto toDto(Category category) {
         CategoryDto dto = new CategoryDto();
         dto.setId(category.getId());
         dto.setName(category.getName());
@@ -116,4 +132,16 @@ public class CategoryService {
         dto.setColor(category.getColor());
         return dto;
     }
+
+    private void evictReportCache(Long userId) {
+        if (reportCacheService != null) {
+            reportCacheService.evictUser(userId);
+        }
+    }
+
+    private void evictRecentTransactions(Long userId) {
+        if (recentTransactionCache != null) {
+            recentTransactionCache.evict(userId);
+        }
+    }
 }
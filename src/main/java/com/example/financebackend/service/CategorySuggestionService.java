@@ -4,7 +4,7 @@ import com.example.financebackend.dto.CategoryDto;
 import com.example.financebackend.entity.Category;
 import com.example.financebackend.entity.Transaction;
 import com.example.financebackend.repository.CategoryRepository;
-import com.example.financebackend.repository.TransactionRepository;
+import com.example.financebackend.util.Money;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -17,7 +17,10 @@ import java.util.stream.Collectors;
 public class CategorySuggestionService {
 
     private final CategoryRepository categoryRepository;
-    private final TransactionRepository transactionRepository;
+    private final TransactionSnapshotCache snapshotCache;
+
+    // Số giao dịch gần nhất dùng để gợi ý số tiền
+    private static final int SUGGESTION_HISTORY = 10;
 
     // Keyword mapping cho category suggestions (có thể extend thêm)
     private static final Map<String, String[]> CATEGORY_KEYWORDS = createCategoryKeywordsMap();
@@ -41,9 +44,9 @@ public class CategorySuggestionService {
     }
 
     public CategorySuggestionService(CategoryRepository categoryRepository,
-                                    TransactionRepository transactionRepository) {
+                                    TransactionSnapshotCache snapshotCache) {
         this.categoryRepository = categoryRepository;
-        this.transactionRepository = transactionRepository;
+        this.snapshotCache = snapshotCache;
     }
 
     /**
@@ -97,43 +100,125 @@ public class CategorySuggestionService {
         return suggestions;
     }
 
+    /**
+     * Bộ chọn danh mục cho nhập hàng loạt (sao kê): nạp danh mục và danh mục dùng nhiều nhất của user một lần,
+     * sau đó chỉ tính trong bộ nhớ nên gọi song song từ nhiều thread được.
+     * Cùng cách chấm điểm với suggestCategories; không khớp keyword thì dùng danh mục dùng nhiều nhất cùng loại.
+     */
+    public Classifier classifier(Long userId) {
+        Map<Transaction.TransactionType, Classifier.Candidates> byType = new EnumMap<>(Transaction.TransactionType.class);
+        for (Transaction.TransactionType type : Transaction.TransactionType.values()) {
+            List<Category> categories = categoryRepository.findByUserIdAndType(userId,
+                    type == Transaction.TransactionType.INCOME ? Category.CategoryType.INCOME : Category.CategoryType.EXPENSE);
+            List<Long> ids = new ArrayList<>(categories.size());
+            List<String> names = new ArrayList<>(categories.size());
+            for (Category category : categories) {
+                ids.add(category.getId());
+                names.add(category.getName());
+            }
+            List<CategorySuggestionDto> mostUsed = getMostUsedCategories(type, userId, 1);
+            Long fallback = !mostUsed.isEmpty() ? mostUsed.get(0).getCategoryId() : ids.isEmpty() ? null : ids.get(0);
+            byType.put(type, new Classifier.Candidates(ids, names, fallback));
+        }
+        return new Classifier(byType);
+    }
+
+    /**
+     * Kết quả của classifier(userId): bất biến, an toàn khi dùng chung giữa các thread
+     */
+    public static final class Classifier {
+
+        private record Candidates(List<Long> ids, List<String> names, Long fallback) {
+        }
+
+        private final Map<Transaction.TransactionType, Candidates> byType;
+
+        private Classifier(Map<Transaction.TransactionType, Candidates> byType) {
+            this.byType = byType;
+        }
+
+        /**
+         * Danh mục phù hợp nhất với note, null nếu user không có danh mục loại này
+         */
+        public Long categoryId(String note, Transaction.TransactionType type) {
+            Candidates candidates = byType.get(type);
+            if (note == null || note.isBlank()) {
+                return candidates.fallback();
+            }
+            String lowerNote = note.toLowerCase().trim();
+            Long best = null;
+            int bestScore = 0;
+            for (int i = 0; i < candidates.ids().size(); i++) {
+                int score = calculateKeywordScore(candidates.names().get(i), lowerNote);
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = candidates.ids().get(i);
+                }
+            }
+            return best != null ? best : candidates.fallback();
+        }
+    }
+
     /**
      * Suggest amount dựa trên category history
      */
     public List<BigDecimal> suggestAmounts(Long categoryId, Long userId) {
-        List<Transaction> transactions = transactionRepository.findByUserId(userId).stream()
-                .filter(t -> t.getCategory() != null && t.getCategory().getId().equals(categoryId))
-                .filter(t -> t.getType() == Transaction.TransactionType.EXPENSE)
-                .sorted(Comparator.comparing(Transaction::getOccurredAt).reversed())
-                .limit(10)
-                .collect(Collectors.toList());
+        TransactionSnapshot snapshot = snapshotCache.get(userId);
+        int category = snapshot.categoryIndex(categoryId);
+        if (category == TransactionSnapshot.NONE) {
+            return Collections.emptyList();
+        }
+
+        // 10 giao dịch chi gần nhất của danh mục, giữ sắp xếp giảm dần theo thời gian (chèn trực tiếp)
+        int[] latest = new int[SUGGESTION_HISTORY];
+        int count = 0;
+        for (int row = 0, size = snapshot.size(); row < size; row++) {
+            if (snapshot.category(row) != category || snapshot.type(row) != TransactionSnapshot.EXPENSE) {
+                continue;
+            }
+            long time = snapshot.time(row);
+            if (count == latest.length && time <= snapshot.time(latest[count - 1])) {
+                continue;
+            }
+            int position = Math.min(count, latest.length - 1);
+            while (position > 0 && snapshot.time(latest[position - 1]) < time) {
+                latest[position] = latest[position - 1];
+                position--;
+            }
+            latest[position] = row;
+            count = Math.min(count + 1, latest.length);
+        }
 
-        if (transactions.isEmpty()) {
+        if (count == 0) {
             return Collections.emptyList();
         }
 
         // Calculate average, most common, và last amount
-        BigDecimal sum = transactions.stream()
-                .map(Transaction::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        BigDecimal average = sum.divide(BigDecimal.valueOf(transactions.size()), 2, java.math.RoundingMode.HALF_UP);
-
-        // Most common amount (simplified - lấy mode)
-        BigDecimal mostCommon = transactions.stream()
-                .map(Transaction::getAmount)
-                .collect(Collectors.groupingBy(amount -> amount, Collectors.counting()))
-                .entrySet().stream()
-                .max(Map.Entry.comparingByValue())
-                .map(Map.Entry::getKey)
-                .orElse(null);
+        Money.Accumulator sum = new Money.Accumulator();
+        long mostCommon = 0L;
+        int mostCommonCount = 0;
+        for (int i = 0; i < count; i++) {
+            long amount = snapshot.amount(latest[i]);
+            sum.addMinor(amount);
+            // Most common amount (simplified - lấy mode)
+            int occurrences = 0;
+            for (int j = 0; j < count; j++) {
+                if (snapshot.amount(latest[j]) == amount) {
+                    occurrences++;
+                }
+            }
+            if (occurrences > mostCommonCount) {
+                mostCommon = amount;
+                mostCommonCount = occurrences;
+            }
+        }
+        BigDecimal average = sum.average(java.math.RoundingMode.HALF_UP);
 
         // Last amount
-        BigDecimal lastAmount = transactions.get(0).getAmount();
+        BigDecimal lastAmount = Money.toBigDecimal(snapshot.amount(latest[0]), Money.STORAGE_SCALE);
 
         List<BigDecimal> suggestions = new ArrayList<>();
-        if (mostCommon != null && !suggestions.contains(mostCommon)) {
-            suggestions.add(mostCommon);
-        }
+        suggestions.add(Money.toBigDecimal(mostCommon, Money.STORAGE_SCALE));
         if (!suggestions.contains(average)) {
             suggestions.add(average);
         }
@@ -151,17 +236,23 @@ public class CategorySuggestionService {
      * Get most used categories
      */
     private List<CategorySuggestionDto> getMostUsedCategories(Transaction.TransactionType type, Long userId, int limit) {
-        List<Transaction> transactions = transactionRepository.findByUserId(userId).stream()
-                .filter(t -> t.getType() == type)
-                .filter(t -> t.getCategory() != null)
-                .collect(Collectors.toList());
+        TransactionSnapshot snapshot = snapshotCache.get(userId);
+        byte typeCode = TransactionSnapshot.typeCode(type);
 
         // Count transactions per category
-        Map<Long, Long> categoryCounts = transactions.stream()
-                .collect(Collectors.groupingBy(
-                        t -> t.getCategory().getId(),
-                        Collectors.counting()
-                ));
+        long[] counts = new long[snapshot.categoryCount()];
+        for (int row = 0, size = snapshot.size(); row < size; row++) {
+            int category = snapshot.category(row);
+            if (category != TransactionSnapshot.NONE && snapshot.type(row) == typeCode) {
+                counts[category]++;
+            }
+        }
+        Map<Long, Long> categoryCounts = new HashMap<>();
+        for (int category = 0; category < counts.length; category++) {
+            if (counts[category] > 0) {
+                categoryCounts.put(snapshot.categoryId(category), counts[category]);
+            }
+        }
 
         // Sort by count và lấy top categories
         List<Map.Entry<Long, Long>> sortedEntries = categoryCounts.entrySet().stream()
@@ -188,7 +279,7 @@ public class CategorySuggestionService {
     /**
      * Calculate keyword score cho category matching
      */
-    private int calculateKeywordScore(String categoryName, String note) {
+    private static int calculateKeywordScore(String categoryName, String note) {
         int score = 0;
         
         // Check if category name appears in note
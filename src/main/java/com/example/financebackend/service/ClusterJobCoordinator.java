@@ -0,0 +1,437 @@
+package com.example.financebackend.service;
+
+import com.example.financebackend.entity.JobLease;
+import com.example.financebackend.entity.JobRun;
+import com.example.financebackend.entity.SchedulerNode;
+import com.example.financebackend.repository.JobLeaseRepository;
+import com.example.financebackend.repository.JobRunRepository;
+import com.example.financebackend.repository.SchedulerNodeRepository;
+import com.example.financebackend.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Điều phối job định kỳ giữa nhiều node qua bảng trong DB (không cần coordinator ngoài).
+ *
+ * - Mỗi node ghi heartbeat vào scheduler_nodes.
+ * - Khi cron kích hoạt, node đầu tiên khóa được dòng điều phối sẽ chia user id thành
+ *   scheduler.cluster.partitions khoảng liên tiếp (job_leases, trạng thái PENDING).
+ * - Mọi node claim partition bằng UPDATE có điều kiện, bắt đầu từ partition ứng với thứ hạng
+ *   của mình trong các node còn sống, rồi lấy tiếp partition còn lại - thêm node là chạy song song hơn.
+ * - Partition được đọc theo trang scheduler.cluster.chunk-users user id, nhưng mỗi user một transaction để khóa
+ *   sync_seq/ví chỉ bị giữ trong lúc xử lý một user. Transaction của user bắt đầu bằng việc gia hạn lease (chỉ
+ *   thành công khi node vẫn sở hữu) và kết thúc bằng checkpoint, nên dòng lease bị khóa tới khi user đó commit:
+ *   node khác không claim được giữa chừng, và node đã mất lease không commit được user nào nữa.
+ *   Node chết => kết nối đóng, lease hết hạn => node khác tiếp quản từ checkpoint ở nhịp heartbeat kế tiếp.
+ * - User lỗi chỉ rollback transaction của chính nó và bị bỏ qua (đếm vào job_runs.failed_user_count).
+ *   scheduler.cluster.max-consecutive-failures user lỗi liên tiếp được coi là lỗi hệ thống: partition được đánh
+ *   dấu FAILED và được claim lại từ checkpoint sau scheduler.cluster.retry-delay-ms.
+ * - Mỗi lần xử lý partition ghi một bản ghi tiến độ job_runs.
+ */
+@Service
+public class ClusterJobCoordinator {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterJobCoordinator.class);
+
+    /**
+     * Xử lý các user có id trong [fromUserId, toUserId], trả về số bản ghi đã xử lý
+     */
+    @FunctionalInterface
+    public interface UserRangeTask {
+        int process(String runKey, long fromUserId, long toUserId);
+    }
+
+    private final SchedulerNodeRepository nodeRepository;
+    private final JobLeaseRepository leaseRepository;
+    private final JobRunRepository runRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<String, UserRangeTask> jobs = new ConcurrentHashMap<>();
+    private final ExecutorService takeoverExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "job-takeover");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean takeoverRunning = new AtomicBoolean();
+
+    @Value("${scheduler.cluster.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${scheduler.cluster.node-id:}")
+    private String configuredNodeId;
+
+    @Value("${scheduler.cluster.partitions:8}")
+    private int partitions = 8;
+
+    @Value("${scheduler.cluster.chunk-users:200}")
+    private int chunkUsers = 200;
+
+    @Value("${scheduler.cluster.lease-ms:120000}")
+    private long leaseMs = 120_000;
+
+    @Value("${scheduler.cluster.node-ttl-ms:60000}")
+    private long nodeTtlMs = 60_000;
+
+    @Value("${scheduler.cluster.retry-delay-ms:300000}")
+    private long retryDelayMs = 300_000;
+
+    @Value("${scheduler.cluster.max-consecutive-failures:10}")
+    private int maxConsecutiveFailures = 10;
+
+    private String nodeId;
+
+    public ClusterJobCoordinator(SchedulerNodeRepository nodeRepository,
+                                 JobLeaseRepository leaseRepository,
+                                 JobRunRepository runRepository,
+                                 UserRepository userRepository,
+                                 PlatformTransactionManager transactionManager) {
+        this.nodeRepository = nodeRepository;
+        this.leaseRepository = leaseRepository;
+        this.runRepository = runRepository;
+        this.userRepository = userRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void registerNode() {
+        nodeId = configuredNodeId != null && !configuredNodeId.isBlank()
+                ? configuredNodeId
+                : hostname() + "-" + UUID.randomUUID().toString().substring(0, 8);
+        if (enabled) {
+            saveNode();
+            logger.info("Scheduler node {} registered ({} partitions per job)", nodeId, partitions);
+        }
+    }
+
+    @PreDestroy
+    public void unregisterNode() {
+        takeoverExecutor.shutdownNow();
+        if (enabled) {
+            try {
+                nodeRepository.deleteById(nodeId);
+            } catch (Exception e) {
+                logger.warn("Could not unregister scheduler node {}: {}", nodeId, e.getMessage());
+            }
+        }
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public void register(String jobName, UserRangeTask task) {
+        jobs.put(jobName, task);
+    }
+
+    /**
+     * Chạy job cho runKey (ví dụ ngày). Gọi trên mọi node khi cron kích hoạt.
+     */
+    public void run(String jobName, String runKey) {
+        UserRangeTask task = jobs.get(jobName);
+        if (task == null) {
+            throw new IllegalArgumentException("Job chưa được đăng ký: " + jobName);
+        }
+        if (!enabled) {
+            runLocally(jobName, runKey, task);
+            return;
+        }
+        initRun(jobName, runKey);
+
+        List<JobLease> leases = leaseRepository.findPartitions(jobName);
+        if (leases.isEmpty()) {
+            return;
+        }
+        // Bắt đầu từ partition ứng với thứ hạng node để các node không tranh cùng một partition
+        List<String> liveNodes = nodeRepository.findLiveNodeIds(LocalDateTime.now().minus(nodeTtlMs, ChronoUnit.MILLIS));
+        int rank = Math.max(0, liveNodes.indexOf(nodeId));
+        int start = liveNodes.isEmpty() ? 0 : rank * leases.size() / liveNodes.size();
+        for (int i = 0; i < leases.size(); i++) {
+            JobLease lease = leases.get((start + i) % leases.size());
+            if (runKey.equals(lease.getRunKey())) {
+                processPartition(lease.getLeaseKey(), runKey, task);
+            }
+        }
+    }
+
+    /**
+     * Heartbeat của node; đồng thời tiếp quản partition bị bỏ dở (lease hết hạn) ở thread riêng
+     */
+    @Scheduled(fixedDelayString = "${scheduler.cluster.heartbeat-ms:15000}")
+    public void heartbeat() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        if (nodeRepository.heartbeat(nodeId, now) == 0) {
+            // Dòng của node bị xóa (ví dụ bị coi là chết khi GC pause dài) - đăng ký lại
+            saveNode();
+        }
+        nodeRepository.deleteStale(now.minus(nodeTtlMs * 10, ChronoUnit.MILLIS));
+
+        if (takeoverRunning.compareAndSet(false, true)) {
+            takeoverExecutor.execute(() -> {
+                try {
+                    takeOverAbandoned();
+                } catch (Exception e) {
+                    logger.error("Job takeover failed on node {}: {}", nodeId, e.getMessage(), e);
+                } finally {
+                    takeoverRunning.set(false);
+                }
+            });
+        }
+    }
+
+    private void takeOverAbandoned() {
+        for (JobLease lease : leaseRepository.findClaimable(LocalDateTime.now())) {
+            UserRangeTask task = jobs.get(lease.getJobName());
+            if (task != null) {
+                processPartition(lease.getLeaseKey(), lease.getRunKey(), task);
+            }
+        }
+    }
+
+    /**
+     * Tạo partition cho lần chạy mới - chỉ một node làm, các node khác thấy runKey đã khởi tạo thì bỏ qua
+     */
+    private void initRun(String jobName, String runKey) {
+        String headerKey = JobLease.key(jobName, JobLease.HEADER_PARTITION);
+        if (!leaseRepository.existsById(headerKey)) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    JobLease header = new JobLease();
+                    header.setLeaseKey(headerKey);
+                    header.setJobName(jobName);
+                    header.setPartitionIndex(JobLease.HEADER_PARTITION);
+                    leaseRepository.saveAndFlush(header);
+                });
+            } catch (DataIntegrityViolationException e) {
+                // Node khác vừa tạo
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            JobLease header = leaseRepository.findForUpdate(headerKey)
+                    .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy lease điều phối: " + headerKey));
+            if (runKey.equals(header.getRunKey())) {
+                return;
+            }
+            header.setRunKey(runKey);
+            leaseRepository.save(header);
+
+            long maxUserId = userRepository.findMaxId();
+            long width = Math.max(1, (maxUserId + partitions - 1) / partitions);
+            Map<Integer, JobLease> existing = new HashMap<>();
+            for (JobLease lease : leaseRepository.findPartitions(jobName)) {
+                existing.put(lease.getPartitionIndex(), lease);
+            }
+            for (int i = 0; i < partitions; i++) {
+                JobLease lease = existing.remove(i);
+                if (lease == null) {
+                    lease = new JobLease();
+                    lease.setLeaseKey(JobLease.key(jobName, i));
+                    lease.setJobName(jobName);
+                    lease.setPartitionIndex(i);
+                } else if (lease.getStatus() == JobLease.Status.RUNNING) {
+                    logger.warn("Job {} partition {} of run {} was still running when run {} started",
+                            jobName, i, lease.getRunKey(), runKey);
+                }
+                long from = i * width + 1;
+                // Partition cuối không giới hạn trên để gồm cả user đăng ký sau khi chia
+                long to = i == partitions - 1 ? Long.MAX_VALUE : (i + 1) * width;
+                lease.setRunKey(runKey);
+                lease.setStatus(JobLease.Status.PENDING);
+                lease.setOwnerNode(null);
+                lease.setLeaseUntil(null);
+                lease.setUserIdFrom(from);
+                lease.setUserIdTo(to);
+                lease.setCheckpointUserId(from - 1);
+                leaseRepository.save(lease);
+            }
+            // Số partition giảm so với lần trước
+            leaseRepository.deleteAll(existing.values());
+            logger.info("Job {} run {} split into {} partitions of {} user ids by node {}",
+                    jobName, runKey, partitions, width, nodeId);
+        });
+    }
+
+    private void processPartition(String leaseKey, String runKey, UserRangeTask task) {
+        LocalDateTime now = LocalDateTime.now();
+        if (leaseRepository.claim(leaseKey, runKey, nodeId, now, now.plus(leaseMs, ChronoUnit.MILLIS)) == 0) {
+            return;
+        }
+        JobLease lease = leaseRepository.findById(leaseKey).orElse(null);
+        if (lease == null) {
+            return;
+        }
+        long cursor = lease.getCheckpointUserId() != null ? lease.getCheckpointUserId() : lease.getUserIdFrom() - 1;
+
+        JobRun run = new JobRun();
+        run.setJobName(lease.getJobName());
+        run.setRunKey(runKey);
+        run.setPartitionIndex(lease.getPartitionIndex());
+        run.setNodeId(nodeId);
+        run.setUserIdFrom(lease.getUserIdFrom());
+        run.setUserIdTo(lease.getUserIdTo());
+        if (cursor >= lease.getUserIdFrom()) {
+            run.setResumedFromUserId(cursor + 1);
+            logger.info("Node {} taking over job {} partition {} of run {} from user {}",
+                    nodeId, lease.getJobName(), lease.getPartitionIndex(), runKey, cursor + 1);
+        }
+        run = runRepository.save(run);
+
+        // scanned: user cuối đã đọc; cursor: checkpoint đã commit (không vượt qua user lỗi ở cuối trang)
+        long scanned = cursor;
+        int consecutiveFailures = 0;
+        try {
+            while (true) {
+                List<Long> userIds = userRepository.findIdsInRange(scanned, lease.getUserIdTo(), PageRequest.of(0, chunkUsers));
+                if (userIds.isEmpty()) {
+                    break;
+                }
+                int processed = 0;
+                for (Long userId : userIds) {
+                    long checkpoint = cursor;
+                    Integer count;
+                    try {
+                        count = transactionTemplate.execute(status -> {
+                            // Lease được gia hạn trong transaction của user: dòng lease bị khóa tới khi user commit
+                            if (leaseRepository.renew(leaseKey, nodeId, checkpoint, leaseUntil()) == 0) {
+                                status.setRollbackOnly();
+                                return null;
+                            }
+                            int result = task.process(runKey, userId, userId);
+                            // Checkpoint commit cùng kết quả của user
+                            if (leaseRepository.renew(leaseKey, nodeId, userId, leaseUntil()) == 0) {
+                                status.setRollbackOnly();
+                                return null;
+                            }
+                            return result;
+                        });
+                    } catch (RuntimeException e) {
+                        if (++consecutiveFailures >= maxConsecutiveFailures) {
+                            throw e;
+                        }
+                        run.setFailedUserCount(run.getFailedUserCount() + 1);
+                        if (run.getErrorMessage() == null) {
+                            run.setErrorMessage(truncate("User " + userId + ": " + message(e)));
+                        }
+                        logger.error("Job {} partition {} of run {} skipped user {}: {}",
+                                lease.getJobName(), lease.getPartitionIndex(), runKey, userId, e.getMessage(), e);
+                        continue;
+                    }
+                    if (count == null) {
+                        // Lease đã bị node khác lấy (node này bị coi là chết) hoặc lần chạy mới đã bắt đầu
+                        run.setStatus(JobRun.Status.ABANDONED);
+                        run.setProcessedCount(run.getProcessedCount() + processed);
+                        run.setFinishedAt(LocalDateTime.now());
+                        runRepository.save(run);
+                        logger.warn("Node {} lost lease {} after user {}", nodeId, leaseKey, cursor);
+                        return;
+                    }
+                    consecutiveFailures = 0;
+                    cursor = userId;
+                    processed += count;
+                }
+                scanned = userIds.get(userIds.size() - 1);
+
+                run.setProcessedCount(run.getProcessedCount() + processed);
+                run.setLastUserId(cursor);
+                run.setUpdatedAt(LocalDateTime.now());
+                run = runRepository.save(run);
+                if (userIds.size() < chunkUsers) {
+                    break;
+                }
+            }
+            leaseRepository.release(leaseKey, nodeId, JobLease.Status.COMPLETED);
+            run.setStatus(JobRun.Status.COMPLETED);
+        } catch (RuntimeException e) {
+            leaseRepository.fail(leaseKey, nodeId, LocalDateTime.now().plus(retryDelayMs, ChronoUnit.MILLIS));
+            run.setStatus(JobRun.Status.FAILED);
+            run.setErrorMessage(truncate(message(e)));
+            logger.error("Job {} partition {} of run {} failed after user {}: {}",
+                    lease.getJobName(), lease.getPartitionIndex(), runKey, cursor, e.getMessage(), e);
+        }
+        run.setFinishedAt(LocalDateTime.now());
+        runRepository.save(run);
+    }
+
+    private LocalDateTime leaseUntil() {
+        return LocalDateTime.now().plus(leaseMs, ChronoUnit.MILLIS);
+    }
+
+    private static String message(Exception e) {
+        return e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+    }
+
+    private static String truncate(String message) {
+        return message.length() > 500 ? message.substring(0, 500) : message;
+    }
+
+    /**
+     * Chế độ một node (scheduler.cluster.enabled=false): chạy hết user, mỗi user một transaction, không dùng lease
+     */
+    private void runLocally(String jobName, String runKey, UserRangeTask task) {
+        long cursor = 0;
+        int total = 0;
+        int failed = 0;
+        while (true) {
+            List<Long> userIds = userRepository.findIdsInRange(cursor, Long.MAX_VALUE, PageRequest.of(0, chunkUsers));
+            if (userIds.isEmpty()) {
+                break;
+            }
+            for (Long userId : userIds) {
+                try {
+                    Integer count = transactionTemplate.execute(status -> task.process(runKey, userId, userId));
+                    total += count != null ? count : 0;
+                } catch (RuntimeException e) {
+                    failed++;
+                    logger.error("Job {} run {} skipped user {}: {}", jobName, runKey, userId, e.getMessage(), e);
+                }
+            }
+            cursor = userIds.get(userIds.size() - 1);
+            if (userIds.size() < chunkUsers) {
+                break;
+            }
+        }
+        logger.info("Job {} run {} processed {} records locally ({} users failed)", jobName, runKey, total, failed);
+    }
+
+    private void saveNode() {
+        LocalDateTime now = LocalDateTime.now();
+        SchedulerNode node = new SchedulerNode();
+        node.setNodeId(nodeId);
+        node.setHostname(hostname());
+        node.setStartedAt(now);
+        node.setHeartbeatAt(now);
+        nodeRepository.save(node);
+    }
+
+    private static String hostname() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "unknown";
+        }
+    }
+}
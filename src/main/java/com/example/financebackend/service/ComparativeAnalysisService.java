@@ -1,8 +1,9 @@
 package com.example.financebackend.service;
 
 import com.example.financebackend.entity.Category;
-import com.example.financebackend.entity.Transaction;
-import com.example.financebackend.repository.TransactionRepository;
+import com.example.financebackend.repository.CategoryRepository;
+import com.example.financebackend.util.Money;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -10,7 +11,6 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * Comparative Analysis Service
@@ -18,20 +18,26 @@ import java.util.stream.Collectors;
  * - Month-over-month
  * - Year-over-year
  * - vs. Average (3 months)
+ *
+ * Các kỳ được tính trên TransactionSnapshot (dạng cột) thay vì load toàn bộ entity cho mỗi kỳ.
  */
 @Service
 @Transactional(readOnly = true)
 public class ComparativeAnalysisService {
 
-    private final TransactionRepository transactionRepository;
+    private final TransactionSnapshotCache snapshotCache;
+    private final CategoryRepository categoryRepository;
 
-    public ComparativeAnalysisService(TransactionRepository transactionRepository) {
-        this.transactionRepository = transactionRepository;
+    public ComparativeAnalysisService(TransactionSnapshotCache snapshotCache,
+                                      CategoryRepository categoryRepository) {
+        this.snapshotCache = snapshotCache;
+        this.categoryRepository = categoryRepository;
     }
 
     /**
      * Compare current month với previous month
      */
+    @Timed(value = "finance.report", extraTags = {"report", "month-over-month"}, histogram = true)
     public Map<String, Object> compareMonthOverMonth(Long userId) {
         LocalDateTime now = LocalDateTime.now();
         
@@ -76,6 +82,7 @@ public class ComparativeAnalysisService {
     /**
      * Compare with 3-month average
      */
+    @Timed(value = "finance.report", extraTags = {"report", "vs-average"}, histogram = true)
     public Map<String, Object> compareWithAverage(Long userId) {
         LocalDateTime now = LocalDateTime.now();
         
@@ -119,6 +126,7 @@ public class ComparativeAnalysisService {
     /**
      * Year-over-year comparison
      */
+    @Timed(value = "finance.report", extraTags = {"report", "year-over-year"}, histogram = true)
     public Map<String, Object> compareYearOverYear(Long userId) {
         LocalDateTime now = LocalDateTime.now();
         
@@ -161,26 +169,28 @@ public class ComparativeAnalysisService {
      * Calculate statistics for a period
      */
     private Map<String, BigDecimal> calculatePeriodStats(Long userId, LocalDateTime start, LocalDateTime end) {
-        List<Transaction> transactions = transactionRepository.findByUserId(userId).stream()
-            .filter(t -> !t.getOccurredAt().isBefore(start) && !t.getOccurredAt().isAfter(end))
-            .collect(Collectors.toList());
-
-        BigDecimal income = transactions.stream()
-            .filter(t -> t.getType() == Transaction.TransactionType.INCOME)
-            .map(Transaction::getAmount)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        BigDecimal expense = transactions.stream()
-            .filter(t -> t.getType() == Transaction.TransactionType.EXPENSE)
-            .map(Transaction::getAmount)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        BigDecimal net = income.subtract(expense);
+        TransactionSnapshot snapshot = snapshotCache.get(userId);
+        long from = TransactionSnapshot.timeKeyCeil(start);
+        long to = TransactionSnapshot.timeKey(end);
+
+        long income = 0L;
+        long expense = 0L;
+        for (int row = 0, size = snapshot.size(); row < size; row++) {
+            long time = snapshot.time(row);
+            if (time < from || time > to) {
+                continue;
+            }
+            if (snapshot.type(row) == TransactionSnapshot.INCOME) {
+                income = Math.addExact(income, snapshot.amount(row));
+            } else {
+                expense = Math.addExact(expense, snapshot.amount(row));
+            }
+        }
 
         Map<String, BigDecimal> stats = new HashMap<>();
-        stats.put("income", income);
-        stats.put("expense", expense);
-        stats.put("net", net);
+        stats.put("income", Money.toBigDecimal(income, Money.STORAGE_SCALE));
+        stats.put("expense", Money.toBigDecimal(expense, Money.STORAGE_SCALE));
+        stats.put("net", Money.toBigDecimal(Math.subtractExact(income, expense), Money.STORAGE_SCALE));
         
         return stats;
     }
@@ -189,22 +199,36 @@ public class ComparativeAnalysisService {
      * Get category breakdown for period
      */
     private Map<String, BigDecimal> getCategoryBreakdown(Long userId, LocalDateTime start, LocalDateTime end) {
-        List<Transaction> transactions = transactionRepository.findByUserId(userId).stream()
-            .filter(t -> !t.getOccurredAt().isBefore(start) && !t.getOccurredAt().isAfter(end))
-            .filter(t -> t.getType() == Transaction.TransactionType.EXPENSE)
-            .collect(Collectors.toList());
+        TransactionSnapshot snapshot = snapshotCache.get(userId);
+        long from = TransactionSnapshot.timeKeyCeil(start);
+        long to = TransactionSnapshot.timeKey(end);
+
+        // Cộng theo chỉ số danh mục trong snapshot, chỉ đổi sang tên ở cuối
+        long[] totals = new long[snapshot.categoryCount()];
+        boolean[] used = new boolean[totals.length];
+        boolean any = false;
+        for (int row = 0, size = snapshot.size(); row < size; row++) {
+            int category = snapshot.category(row);
+            long time = snapshot.time(row);
+            if (category == TransactionSnapshot.NONE || snapshot.type(row) != TransactionSnapshot.EXPENSE
+                    || time < from || time > to) {
+                continue;
+            }
+            totals[category] = Math.addExact(totals[category], snapshot.amount(row));
+            used[category] = true;
+            any = true;
+        }
 
         Map<String, BigDecimal> breakdown = new HashMap<>();
-        
-        for (Transaction tx : transactions) {
-            Category category = tx.getCategory();
-            if (category != null) {
-                String categoryName = category.getName();
-                BigDecimal amount = tx.getAmount() != null ? tx.getAmount() : BigDecimal.ZERO;
-                breakdown.merge(categoryName, amount, BigDecimal::add);
+        if (any) {
+            for (Category category : categoryRepository.findByUserId(userId)) {
+                int index = snapshot.categoryIndex(category.getId());
+                if (index != TransactionSnapshot.NONE && used[index]) {
+                    breakdown.merge(category.getName(), Money.toBigDecimal(totals[index], Money.STORAGE_SCALE),
+                            BigDecimal::add);
+                }
             }
         }
-
         return breakdown;
     }
 
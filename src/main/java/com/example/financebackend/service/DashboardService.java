@@ -0,0 +1,276 @@
+package com.example.financebackend.service;
+
+import com.example.financebackend.config.SqlStatementCounter;
+import com.example.financebackend.dto.DashboardDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutorService;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Dashboard Service
+ * Gom các mục của màn hình dashboard (ví, báo cáo, cashflow, cảnh báo budget, số thông báo chưa đọc,
+ * điểm sức khỏe tài chính, dự báo) vào một request.
+ *
+ * - Các mục chạy song song trên thread pool giới hạn; khi hàng đợi đầy thì chạy ngay trên thread của request.
+ *   SecurityContext của request được chuyển sang thread của mục (routing replica, kiểm tra quyền dựa vào user hiện tại)
+ * - TransactionSnapshot của user được nạp một lần trước khi chia mục; cashflow và điểm sức khỏe tài chính
+ *   đọc chung snapshot đó thay vì mỗi mục tự query giao dịch
+ * - Mọi mục dùng chung userId và ngày hiện tại của request, đi qua ReportCacheService với cùng khóa như
+ *   endpoint riêng, nên dashboard và các lần gọi lẻ dùng chung kết quả đã tính
+ * - Mỗi mục có thời gian và số câu SQL riêng; mục lỗi hoặc quá hạn không ảnh hưởng các mục khác
+ */
+@Service
+public class DashboardService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DashboardService.class);
+
+    public enum Section {
+        WALLETS("wallets"),
+        SUMMARY("summary"),
+        CASHFLOW("cashflow"),
+        BUDGET_ALERTS("budgetAlerts"),
+        UNREAD_COUNT("unreadCount"),
+        HEALTH_SCORE("healthScore"),
+        FORECAST("forecast");
+
+        private final String key;
+
+        Section(String key) {
+            this.key = key;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public static Section fromKey(String key) {
+            for (Section section : values()) {
+                if (section.key.equalsIgnoreCase(key)) {
+                    return section;
+                }
+            }
+            throw new IllegalArgumentException("Mục dashboard không hợp lệ: " + key);
+        }
+    }
+
+    private final WalletService walletService;
+    private final ReportService reportService;
+    private final BudgetService budgetService;
+    private final NotificationService notificationService;
+    private final FinancialHealthScoreService healthScoreService;
+    private final CashflowForecastService forecastService;
+    private final ReportCacheService reportCacheService;
+    private final TransactionSnapshotCache snapshotCache;
+    private final ThreadPoolExecutor executor;
+    private final ExecutorService sectionExecutor;
+    private MeterRegistry meterRegistry;
+
+    @Value("${dashboard.timeout-ms:10000}")
+    private long timeoutMs = 10_000L;
+
+    public DashboardService(WalletService walletService,
+                            ReportService reportService,
+                            BudgetService budgetService,
+                            NotificationService notificationService,
+                            FinancialHealthScoreService healthScoreService,
+                            CashflowForecastService forecastService,
+                            ReportCacheService reportCacheService,
+                            TransactionSnapshotCache snapshotCache,
+                            @Value("${dashboard.threads:4}") int threads,
+                            @Value("${dashboard.queue-capacity:64}") int queueCapacity) {
+        this.walletService = walletService;
+        this.reportService = reportService;
+        this.budgetService = budgetService;
+        this.notificationService = notificationService;
+        this.healthScoreService = healthScoreService;
+        this.forecastService = forecastService;
+        this.reportCacheService = reportCacheService;
+        this.snapshotCache = snapshotCache;
+        AtomicInteger threadCount = new AtomicInteger();
+        int poolSize = Math.max(1, threads);
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), runnable -> {
+                    Thread thread = new Thread(runnable, "dashboard-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        // Lấy SecurityContext của thread gọi submit cho từng task
+        this.sectionExecutor = new DelegatingSecurityContextExecutorService(executor);
+    }
+
+    @org.springframework.beans.factory.annotation.Autowired(required = false)
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Đọc danh sách mục dạng "wallets,summary,forecast"; rỗng = tất cả
+     */
+    public static List<Section> parseSections(String sections) {
+        if (sections == null || sections.isBlank()) {
+            return Arrays.asList(Section.values());
+        }
+        Set<Section> parsed = new LinkedHashSet<>();
+        for (String key : sections.split(",")) {
+            if (!key.isBlank()) {
+                parsed.add(Section.fromKey(key.trim()));
+            }
+        }
+        return new ArrayList<>(parsed);
+    }
+
+    /**
+     * Tải các mục dashboard. from/to áp dụng cho summary và cashflow, forecastDays cho forecast.
+     */
+    public DashboardDto load(Long userId, List<Section> sections, LocalDateTime from, LocalDateTime to,
+                             Integer forecastDays) {
+        long started = System.nanoTime();
+        LocalDate today = LocalDate.now();
+        if (sections.contains(Section.CASHFLOW) || sections.contains(Section.HEALTH_SCORE)) {
+            loadSnapshot(userId);
+        }
+
+        Map<Section, Future<DashboardDto.Section>> futures = new LinkedHashMap<>();
+        for (Section section : sections) {
+            futures.put(section, sectionExecutor.submit(() -> run(section, () -> loadSection(section, userId, from, to,
+                    forecastDays, today))));
+        }
+
+        long deadline = started + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        Map<String, DashboardDto.Section> results = new LinkedHashMap<>();
+        for (Map.Entry<Section, Future<DashboardDto.Section>> entry : futures.entrySet()) {
+            DashboardDto.Section result = await(entry.getKey(), entry.getValue(), deadline, started);
+            SqlStatementCounter.add(result.sqlStatements());
+            results.put(entry.getKey().getKey(), result);
+        }
+
+        return new DashboardDto(LocalDateTime.now(), elapsedMs(started), results);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // Nạp snapshot trên thread của request để các mục song song không cùng chờ một lần nạp từ DB
+    private void loadSnapshot(Long userId) {
+        try {
+            snapshotCache.get(userId);
+        } catch (RuntimeException e) {
+            // Mục dùng snapshot sẽ tự thử lại và báo lỗi riêng
+            logger.warn("Failed to preload transaction snapshot for dashboard: {}", e.getMessage());
+        }
+    }
+
+    private Object loadSection(Section section, Long userId, LocalDateTime from, LocalDateTime to,
+                               Integer forecastDays, LocalDate today) {
+        switch (section) {
+            case WALLETS:
+                return walletService.findAllByUserId(userId);
+            case SUMMARY:
+                return reportCacheService.get(userId, ReportCacheService.Endpoint.REPORT_SUMMARY, from, to, null,
+                        () -> reportService.getSummary(userId, from, to));
+            case CASHFLOW:
+                return reportCacheService.get(userId, ReportCacheService.Endpoint.REPORT_CASHFLOW, from, to, null,
+                        () -> reportService.getCashflow(userId, from, to));
+            case BUDGET_ALERTS:
+                return budgetService.getAlerts(userId);
+            case UNREAD_COUNT:
+                return notificationService.getUnreadCount(userId);
+            case HEALTH_SCORE:
+                return reportCacheService.get(userId, ReportCacheService.Endpoint.FINANCIAL_HEALTH, null, null, today,
+                        () -> healthScoreService.calculateHealthScore(userId));
+            case FORECAST:
+                // Cùng khóa cache với /api/cashflow-forecast ở chế độ deterministic
+                return reportCacheService.get(userId, ReportCacheService.Endpoint.CASHFLOW_FORECAST, null, null,
+                        Arrays.asList(forecastDays, today, false, null),
+                        () -> forecastService.getForecast(userId, forecastDays));
+            default:
+                throw new IllegalArgumentException("Mục dashboard không hợp lệ: " + section);
+        }
+    }
+
+    // Chạy một mục, đo thời gian và đếm SQL riêng; lỗi được ghi vào kết quả của mục thay vì ném ra
+    private DashboardDto.Section run(Section section, Supplier<Object> loader) {
+        long started = System.nanoTime();
+        int[] outer = SqlStatementCounter.beginNested();
+        Object data = null;
+        String error = null;
+        try {
+            data = loader.get();
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            error = e.getMessage();
+        } catch (RuntimeException e) {
+            logger.error("Failed to load dashboard section {}: {}", section.getKey(), e.getMessage(), e);
+            error = "Không thể tải dữ liệu";
+        }
+        int statements = SqlStatementCounter.endNested(outer);
+        String status = error == null ? DashboardDto.STATUS_OK : DashboardDto.STATUS_ERROR;
+        long durationMs = elapsedMs(started);
+        record(section, status, System.nanoTime() - started);
+        return new DashboardDto.Section(status, durationMs, statements, data, error);
+    }
+
+    private DashboardDto.Section await(Section section, Future<DashboardDto.Section> future, long deadline,
+                                       long started) {
+        try {
+            return future.get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            logger.warn("Dashboard section {} timed out after {} ms", section.getKey(), timeoutMs);
+            record(section, DashboardDto.STATUS_TIMEOUT, System.nanoTime() - started);
+            return new DashboardDto.Section(DashboardDto.STATUS_TIMEOUT, elapsedMs(started), 0, null,
+                    "Quá thời gian tải dữ liệu");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            return new DashboardDto.Section(DashboardDto.STATUS_ERROR, elapsedMs(started), 0, null,
+                    "Không thể tải dữ liệu");
+        } catch (ExecutionException e) {
+            // run() đã bắt lỗi của mục; chỉ còn Error (OutOfMemoryError...) tới được đây
+            logger.error("Dashboard section {} failed: {}", section.getKey(), e.getCause().getMessage(), e.getCause());
+            return new DashboardDto.Section(DashboardDto.STATUS_ERROR, elapsedMs(started), 0, null,
+                    "Không thể tải dữ liệu");
+        }
+    }
+
+    private void record(Section section, String status, long nanos) {
+        MeterRegistry registry = meterRegistry;
+        if (registry != null) {
+            Timer.builder("finance.dashboard.section")
+                    .description("Time to load one dashboard section")
+                    .tag("section", section.getKey())
+                    .tag("status", status)
+                    .register(registry)
+                    .record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static long elapsedMs(long startedNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedNanos);
+    }
+}
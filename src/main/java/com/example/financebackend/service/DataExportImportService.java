@@ -3,6 +3,7 @@ package com.example.financebackend.service;
 import com.example.financebackend.dto.*;
 import com.example.financebackend.entity.*;
 import com.example.financebackend.repository.*;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -56,6 +57,7 @@ public class DataExportImportService {
         this.financialGoalRepository = financialGoalRepository;
     }
 
+    @Timed(value = "finance.export", extraTags = {"format", "json"}, histogram = true)
     @Transactional(readOnly = true)
     public UserDataExportDto exportUserData(Long userId) {
         User user = userRepository.findById(userId)
@@ -0,0 +1,409 @@
+package com.example.financebackend.service;
+
+import com.example.financebackend.dto.NotificationDto;
+import com.example.financebackend.entity.Notification;
+import com.example.financebackend.entity.Wallet;
+import com.example.financebackend.repository.NotificationRepository;
+import com.example.financebackend.repository.WalletRepository;
+import io.micrometer.core.annotation.Timed;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Event Stream Service
+ * Đẩy thông báo và thay đổi số dư ví tới client qua Server-Sent Events.
+ *
+ * - Mỗi user có registry các kết nối (nhiều tab / thiết bị) trên node này.
+ * - Mỗi kết nối có buffer giới hạn; client đọc không kịp làm buffer đầy thì bị đóng kết nối (client kết nối lại
+ *   và tải lại dữ liệu) thay vì âm thầm mất event.
+ * - Kết nối dùng async servlet (SseEmitter) nên khi idle không giữ thread nào; event được ghi ra socket bởi pool
+ *   dùng chung, mỗi kết nối tối đa một thread. SseEmitter.send là blocking: pool nở tới stream.sender-max-threads
+ *   để client chậm không chặn các client khác, và kết nối có lần ghi kéo dài quá stream.send-timeout-ms bị loại
+ *   khỏi registry (thread đang ghi được trả lại khi servlet container hết hạn ghi).
+ * - Event phát trên node khác tới qua CacheInvalidationBus (kênh "event-stream", key là loại event, user id và
+ *   id bản ghi); node nhận chỉ đọc lại bản ghi khi user có kết nối ở node đó.
+ */
+@Service
+public class EventStreamService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventStreamService.class);
+
+    public static final String EVENT_NOTIFICATION = "notification";
+    public static final String EVENT_WALLET_BALANCE = "wallet-balance";
+
+    static final String BUS_CHANNEL = "event-stream";
+
+    private final Map<Long, Set<StreamConnection>> connections = new ConcurrentHashMap<>();
+    private final AtomicLong evictedConnections = new AtomicLong();
+    private final NotificationRepository notificationRepository;
+    private final WalletRepository walletRepository;
+    private final ThreadPoolExecutor sender;
+    private CacheInvalidationBus invalidationBus;
+
+    @Value("${stream.timeout-ms:1800000}")
+    private long timeoutMs = 1_800_000L;
+
+    @Value("${stream.buffer-size:64}")
+    private int bufferSize = 64;
+
+    @Value("${stream.max-connections-per-user:5}")
+    private int maxConnectionsPerUser = 5;
+
+    @Value("${stream.send-timeout-ms:10000}")
+    private long sendTimeoutMs = 10_000L;
+
+    public EventStreamService(NotificationRepository notificationRepository,
+                              WalletRepository walletRepository,
+                              @Value("${stream.sender-threads:2}") int senderThreads,
+                              @Value("${stream.sender-max-threads:32}") int senderMaxThreads) {
+        this.notificationRepository = notificationRepository;
+        this.walletRepository = walletRepository;
+        AtomicInteger threadCount = new AtomicInteger();
+        int coreThreads = Math.max(1, senderThreads);
+        // Không có hàng đợi: hết thread thì event nằm lại trong buffer và được ghi ở lần enqueue/heartbeat sau
+        this.sender = new ThreadPoolExecutor(coreThreads, Math.max(coreThreads, senderMaxThreads),
+                60, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "sse-sender-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Autowired(required = false)
+    public void setInvalidationBus(CacheInvalidationBus invalidationBus) {
+        this.invalidationBus = invalidationBus;
+        invalidationBus.register(BUS_CHANNEL, this::onRemoteEvent);
+    }
+
+    /**
+     * Mở kết nối SSE mới cho user
+     */
+    public SseEmitter subscribe(Long userId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        StreamConnection connection = new StreamConnection(userId, emitter, bufferSize);
+
+        Set<StreamConnection> userConnections = connections.computeIfAbsent(userId, id -> new CopyOnWriteArraySet<>());
+        userConnections.add(connection);
+        // Giới hạn số kết nối mỗi user - đóng kết nối cũ nhất
+        while (userConnections.size() > maxConnectionsPerUser) {
+            StreamConnection oldest = userConnections.iterator().next();
+            closeConnection(oldest);
+        }
+
+        emitter.onCompletion(() -> removeConnection(connection));
+        emitter.onTimeout(() -> closeConnection(connection));
+        emitter.onError(e -> removeConnection(connection));
+
+        enqueue(connection, SseEmitter.event().comment("connected"));
+        return emitter;
+    }
+
+    /**
+     * Gửi thông báo mới tới user (sau khi transaction commit)
+     */
+    public void publishNotification(Notification notification) {
+        if (notification == null || notification.getUser() == null) {
+            return;
+        }
+        Long userId = notification.getUser().getId();
+        NotificationDto dto = toDto(notification);
+        afterCommit(() -> publish(userId, EVENT_NOTIFICATION, dto));
+        publishRemote(EVENT_NOTIFICATION, userId, notification.getId());
+    }
+
+    /**
+     * Gửi số dư mới của ví tới chủ ví và user thực hiện thay đổi (nếu khác chủ ví)
+     */
+    public void publishWalletBalance(Wallet wallet, Long actingUserId) {
+        if (wallet == null || wallet.getId() == null) {
+            return;
+        }
+        Map<String, Object> payload = balancePayload(wallet);
+
+        Long ownerId = wallet.getUser() != null ? wallet.getUser().getId() : null;
+        afterCommit(() -> {
+            if (ownerId != null) {
+                publish(ownerId, EVENT_WALLET_BALANCE, payload);
+            }
+            if (actingUserId != null && !actingUserId.equals(ownerId)) {
+                publish(actingUserId, EVENT_WALLET_BALANCE, payload);
+            }
+        });
+        if (ownerId != null) {
+            publishRemote(EVENT_WALLET_BALANCE, ownerId, wallet.getId());
+        }
+        if (actingUserId != null && !actingUserId.equals(ownerId)) {
+            publishRemote(EVENT_WALLET_BALANCE, actingUserId, wallet.getId());
+        }
+    }
+
+    public void publish(Long userId, String eventName, Object data) {
+        Set<StreamConnection> userConnections = connections.get(userId);
+        if (userConnections == null || userConnections.isEmpty()) {
+            return;
+        }
+        for (StreamConnection connection : userConnections) {
+            enqueue(connection, SseEmitter.event().name(eventName).data(data, MediaType.APPLICATION_JSON));
+        }
+    }
+
+    // Heartbeat giữ kết nối qua proxy / load balancer và phát hiện client đã ngắt
+    @Timed(value = "finance.scheduler", extraTags = {"job", "sse-heartbeat"})
+    @Scheduled(fixedDelayString = "${stream.heartbeat-ms:25000}")
+    public void sendHeartbeats() {
+        for (Set<StreamConnection> userConnections : connections.values()) {
+            for (StreamConnection connection : userConnections) {
+                enqueue(connection, SseEmitter.event().comment("heartbeat"));
+            }
+        }
+    }
+
+    public int getConnectionCount() {
+        return connections.values().stream().mapToInt(Set::size).sum();
+    }
+
+    public long getEvictedConnectionCount() {
+        return evictedConnections.get();
+    }
+
+    // Phát hiện kết nối có lần ghi bị treo (client không đọc, TCP window đầy)
+    @Scheduled(fixedDelayString = "${stream.send-check-ms:1000}")
+    public void evictStalledConnections() {
+        long now = System.currentTimeMillis();
+        for (Set<StreamConnection> userConnections : connections.values()) {
+            for (StreamConnection connection : userConnections) {
+                long startedAt = connection.sendStartedAt;
+                if (startedAt > 0 && now - startedAt > sendTimeoutMs) {
+                    logger.warn("Evicting SSE connection of user {}: send blocked for {} ms",
+                            connection.userId, now - startedAt);
+                    evict(connection);
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        connections.values().forEach(userConnections -> userConnections.forEach(this::closeConnection));
+        sender.shutdownNow();
+    }
+
+    private void enqueue(StreamConnection connection, SseEmitter.SseEventBuilder event) {
+        if (!connection.offer(event)) {
+            logger.debug("Evicting SSE connection of user {}: buffer of {} events is full",
+                    connection.userId, connection.capacity);
+            evict(connection);
+            return;
+        }
+        scheduleDrain(connection);
+    }
+
+    private void scheduleDrain(StreamConnection connection) {
+        if (!connection.draining.compareAndSet(false, true)) {
+            return; // Đã có task đang ghi cho kết nối này
+        }
+        try {
+            sender.execute(() -> drain(connection));
+        } catch (RejectedExecutionException e) {
+            connection.draining.set(false);
+        }
+    }
+
+    private void drain(StreamConnection connection) {
+        try {
+            SseEmitter.SseEventBuilder event;
+            while ((event = connection.poll()) != null) {
+                connection.sendStartedAt = System.currentTimeMillis();
+                try {
+                    connection.emitter.send(event);
+                } finally {
+                    connection.sendStartedAt = 0;
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            logger.debug("SSE connection closed for user {}: {}", connection.userId, e.getMessage());
+            removeConnection(connection);
+        } finally {
+            connection.draining.set(false);
+        }
+        if (connection.isClosed()) {
+            // Kết nối bị đóng trong lúc đang ghi: thread ghi hoàn tất emitter
+            if (connection.draining.compareAndSet(false, true)) {
+                complete(connection);
+            }
+        } else if (connection.hasPending()) {
+            // Event có thể được thêm vào giữa lúc poll trả null và reset cờ draining
+            scheduleDrain(connection);
+        }
+    }
+
+    private void evict(StreamConnection connection) {
+        if (!connection.isClosed()) {
+            evictedConnections.incrementAndGet();
+        }
+        closeConnection(connection);
+    }
+
+    /**
+     * Đóng kết nối mà không chặn thread gọi: emitter đang ghi dở thì thread ghi hoàn tất nó sau lần ghi đó
+     */
+    private void closeConnection(StreamConnection connection) {
+        removeConnection(connection);
+        if (connection.draining.compareAndSet(false, true)) {
+            complete(connection);
+        }
+    }
+
+    private static void complete(StreamConnection connection) {
+        try {
+            connection.emitter.complete();
+        } catch (Exception e) {
+            // Kết nối đã đóng
+        }
+    }
+
+    private void publishRemote(String eventName, Long userId, Long id) {
+        if (invalidationBus != null && userId != null && id != null) {
+            invalidationBus.publish(BUS_CHANNEL, eventName + ":" + userId + ":" + id);
+        }
+    }
+
+    /**
+     * Event do node khác phát: đọc lại bản ghi và đẩy tới kết nối của user ở node này
+     */
+    private void onRemoteEvent(CacheInvalidationBus.Invalidation entry) {
+        String[] parts = entry.key().split(":");
+        if (parts.length != 3) {
+            return;
+        }
+        Long userId = Long.valueOf(parts[1]);
+        Long id = Long.valueOf(parts[2]);
+        if (!connections.containsKey(userId)) {
+            return;
+        }
+        if (EVENT_NOTIFICATION.equals(parts[0])) {
+            notificationRepository.findById(id)
+                    .ifPresent(notification -> publish(userId, EVENT_NOTIFICATION, toDto(notification)));
+        } else if (EVENT_WALLET_BALANCE.equals(parts[0])) {
+            walletRepository.findById(id)
+                    .ifPresent(wallet -> publish(userId, EVENT_WALLET_BALANCE, balancePayload(wallet)));
+        }
+    }
+
+    private static NotificationDto toDto(Notification notification) {
+        NotificationDto dto = new NotificationDto();
+        dto.setId(notification.getId());
+        dto.setType(notification.getType());
+        dto.setTitle(notification.getTitle());
+        dto.setMessage(notification.getMessage());
+        dto.setRead(notification.getRead() != null ? notification.getRead() : false);
+        dto.setCreatedAt(notification.getCreatedAt());
+        dto.setRelatedEntityId(notification.getRelatedEntityId());
+        dto.setRelatedEntityType(notification.getRelatedEntityType());
+        return dto;
+    }
+
+    private static Map<String, Object> balancePayload(Wallet wallet) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("walletId", wallet.getId());
+        payload.put("balance", wallet.getBalance() != null ? wallet.getBalance() : BigDecimal.ZERO);
+        payload.put("currency", wallet.getCurrency());
+        return payload;
+    }
+
+    private void removeConnection(StreamConnection connection) {
+        connection.close();
+        connections.computeIfPresent(connection.userId, (id, userConnections) -> {
+            userConnections.remove(connection);
+            return userConnections.isEmpty() ? null : userConnections;
+        });
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    static final class StreamConnection {
+        private final Long userId;
+        private final SseEmitter emitter;
+        private final int capacity;
+        private final ArrayDeque<SseEmitter.SseEventBuilder> buffer;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        // Thời điểm bắt đầu lần ghi đang chạy, 0 khi không ghi
+        private volatile long sendStartedAt;
+        private boolean closed;
+
+        StreamConnection(Long userId, SseEmitter emitter, int capacity) {
+            this.userId = userId;
+            this.emitter = emitter;
+            this.capacity = Math.max(1, capacity);
+            this.buffer = new ArrayDeque<>(this.capacity);
+        }
+
+        /**
+         * Thêm event vào buffer. Trả về false nếu buffer đã đầy (client đọc không kịp);
+         * event cho kết nối đã đóng được bỏ qua.
+         */
+        synchronized boolean offer(SseEmitter.SseEventBuilder event) {
+            if (closed) {
+                return true;
+            }
+            if (buffer.size() >= capacity) {
+                return false;
+            }
+            buffer.addLast(event);
+            return true;
+        }
+
+        synchronized SseEmitter.SseEventBuilder poll() {
+            return closed ? null : buffer.pollFirst();
+        }
+
+        synchronized boolean isClosed() {
+            return closed;
+        }
+
+        synchronized boolean hasPending() {
+            return !closed && !buffer.isEmpty();
+        }
+
+        synchronized void close() {
+            closed = true;
+            buffer.clear();
+        }
+    }
+}
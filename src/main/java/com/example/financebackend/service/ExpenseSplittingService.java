@@ -26,6 +26,7 @@ public class ExpenseSplittingService {
     private final SplitExpenseParticipantRepository participantRepository;
     private final UserRepository userRepository;
     private final NotificationRepository notificationRepository;
+    private NotificationService notificationService; // Lazy init to avoid circular dependency
 
     public ExpenseSplittingService(SplitExpenseRepository splitExpenseRepository,
                                   SplitExpenseParticipantRepository participantRepository,
@@ -37,6 +38,13 @@ public class ExpenseSplittingService {
         this.notificationRepository = notificationRepository;
     }
 
+    // Setter injection with @Lazy to break circular dependency
+    @org.springframework.beans.factory.annotation.Autowired(required = false)
+    @org.springframework.context.annotation.Lazy
+    public void setNotificationService(NotificationService notificationService) {
+        this.notificationService = notificationService;
+    }
+
     /**
      * Create split expense
      */
@@ -210,7 +218,11 @@ public class ExpenseSplittingService {
         notification.setRelatedEntityId(participant.getSplitExpense().getId());
         notification.setRelatedEntityType("split_expense");
         
-        notificationRepository.save(notification);
+        if (notificationService != null) {
+            notificationService.saveNew(notification);
+        } else {
+            notificationRepository.save(notification);
+        }
     }
 
     private Map<String, Object> buildSplitExpenseResponse(SplitExpense splitExpense, 
@@ -0,0 +1,525 @@
+package com.example.financebackend.service;
+
+import com.example.financebackend.dto.ExportJobDto;
+import com.example.financebackend.entity.ExportJob;
+import com.example.financebackend.entity.Notification;
+import com.example.financebackend.repository.ExportJobRepository;
+import com.example.financebackend.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Export Job Service
+ * Xuất báo cáo Excel/PDF và dữ liệu JSON chạy nền thay vì trên request thread: client nhận job id, hỏi trạng thái
+ * (hoặc nhận thông báo khi xong) rồi tải file.
+ *
+ * - Worker giới hạn (export.workers, hàng đợi export.queue-capacity; đầy => 503)
+ * - File ghi vào export.storage-dir: JSON và PDF nén gzip, xlsx giữ nguyên vì đã là file zip; ghi ra .part rồi
+ *   đổi tên nên không bao giờ tải phải file dở. Hết hạn sau export.ttl-hours và được dọn định kỳ.
+ * - Client không nhận gzip được tải bản giải nén ({id}.unzipped), tạo một lần ở lần tải đầu tiên để có
+ *   Content-Length và Range như file gốc.
+ * - Yêu cầu giống hệt (cùng loại, cùng khoảng thời gian) trong export.reuse-minutes được trả lại job cũ
+ *   (đang chạy hoặc đã xong) nếu dữ liệu của user chưa đổi (users.sync_seq). Job xong ghi lại sync_seq đọc trong
+ *   chính transaction xuất (có thể trên replica đang trễ), nên file cũ hơn dữ liệu hiện tại không được dùng lại
+ *
+ * Nhiều node: export.storage-dir cần là thư mục dùng chung, hoặc lần tải có thể tới node không có file (410).
+ */
+@Service
+public class ExportJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExportJobService.class);
+
+    private static final int RECENT_JOBS = 20;
+    private static final String RELATED_ENTITY_TYPE = "EXPORT_JOB";
+    private static final List<ExportJob.Status> REUSABLE =
+            List.of(ExportJob.Status.QUEUED, ExportJob.Status.RUNNING, ExportJob.Status.COMPLETED);
+    // Tên file do job ghi ({id}.xlsx, {id}.pdf.gz, {id}.json.gz, {id}.unzipped, {id}.part, {id}.{n}.part):
+    // chỉ các file này bị dọn
+    private static final Pattern ARTIFACT_NAME =
+            Pattern.compile("^\\d+\\.(xlsx|pdf\\.gz|json\\.gz|unzipped|(\\d+\\.)?part)$");
+    private static final String DECOMPRESSED_SUFFIX = ".unzipped";
+
+    /**
+     * File kết quả để tải: compressed = nội dung là gzip của file gốc
+     */
+    public record Artifact(Path path, String fileName, MediaType contentType, boolean compressed, long size) {
+    }
+
+    private final ExportJobRepository jobRepository;
+    private final UserRepository userRepository;
+    private final ExportService exportService;
+    private final DataExportImportService dataExportImportService;
+    private final NotificationService notificationService;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate exportTransaction;
+    private final ThreadPoolExecutor executor;
+    private Counter completedJobs;
+    private Counter failedJobs;
+    private Counter reusedJobs;
+
+    @Value("${export.storage-dir:exports}")
+    private String storageDir = "exports";
+
+    @Value("${export.ttl-hours:24}")
+    private long ttlHours = 24;
+
+    @Value("${export.reuse-minutes:10}")
+    private long reuseMinutes = 10;
+
+    // Job QUEUED/RUNNING lâu hơn mức này được coi là bị gián đoạn (node dừng giữa chừng)
+    @Value("${export.stale-minutes:30}")
+    private long staleMinutes = 30;
+
+    @Value("${export.cleanup.chunk-size:1000}")
+    private int cleanupChunkSize = 1000;
+
+    public ExportJobService(ExportJobRepository jobRepository,
+                            UserRepository userRepository,
+                            ExportService exportService,
+                            DataExportImportService dataExportImportService,
+                            NotificationService notificationService,
+                            ObjectMapper objectMapper,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${export.workers:2}") int workers,
+                            @Value("${export.queue-capacity:50}") int queueCapacity) {
+        this.jobRepository = jobRepository;
+        this.userRepository = userRepository;
+        this.exportService = exportService;
+        this.dataExportImportService = dataExportImportService;
+        this.notificationService = notificationService;
+        this.objectMapper = objectMapper;
+        this.exportTransaction = new TransactionTemplate(transactionManager);
+        this.exportTransaction.setReadOnly(true);
+        AtomicInteger threadCount = new AtomicInteger();
+        int poolSize = Math.max(1, workers);
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), runnable -> {
+                    Thread thread = new Thread(runnable, "export-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @org.springframework.beans.factory.annotation.Autowired(required = false)
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.completedJobs = jobCounter(meterRegistry, "completed");
+        this.failedJobs = jobCounter(meterRegistry, "failed");
+        this.reusedJobs = jobCounter(meterRegistry, "reused");
+    }
+
+    private static Counter jobCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("finance.export.jobs")
+                .description("Export job requests by outcome")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Tạo job xuất, hoặc trả lại job gần đây của cùng yêu cầu nếu dữ liệu chưa đổi
+     */
+    public ExportJobDto submit(Long userId, ExportJob.Type type, LocalDateTime from, LocalDateTime to) {
+        if (type == null) {
+            throw new IllegalArgumentException("Vui lòng chọn loại file xuất");
+        }
+        if (type == ExportJob.Type.DATA) {
+            // Xuất toàn bộ dữ liệu: khoảng thời gian không áp dụng
+            from = null;
+            to = null;
+        }
+        if (from != null && to != null && to.isBefore(from)) {
+            throw new IllegalArgumentException("Ngày kết thúc phải sau ngày bắt đầu");
+        }
+        String requestHash = hash(type, from, to);
+        Long dataVersion = currentDataVersion(userId);
+        LocalDateTime now = LocalDateTime.now();
+
+        for (ExportJob existing : jobRepository.findReusable(userId, requestHash, REUSABLE,
+                now.minusMinutes(reuseMinutes), PageRequest.of(0, 5))) {
+            if (Objects.equals(existing.getDataVersion(), dataVersion) && isUsable(existing, now)) {
+                increment(reusedJobs);
+                return toDto(existing, true);
+            }
+        }
+
+        ExportJob job = new ExportJob();
+        job.setUserId(userId);
+        job.setType(type);
+        job.setFromDate(from);
+        job.setToDate(to);
+        job.setRequestHash(requestHash);
+        job.setDataVersion(dataVersion);
+        job.setCompressed(type != ExportJob.Type.EXCEL);
+        job.setCreatedAt(now);
+        job.setExpiresAt(now.plusHours(ttlHours));
+        ExportJob saved = jobRepository.save(job);
+        try {
+            executor.execute(() -> run(saved.getId()));
+        } catch (RejectedExecutionException e) {
+            jobRepository.delete(saved);
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Hàng đợi xuất file đang đầy, vui lòng thử lại sau");
+        }
+        return toDto(saved, false);
+    }
+
+    public ExportJobDto getJob(Long jobId, Long userId) {
+        return toDto(findJob(jobId, userId), false);
+    }
+
+    public List<ExportJobDto> getRecentJobs(Long userId) {
+        return jobRepository.findRecentByUserId(userId, PageRequest.of(0, RECENT_JOBS)).stream()
+                .map(job -> toDto(job, false))
+                .toList();
+    }
+
+    /**
+     * File của job đã xong; chưa xong => 409, hết hạn hoặc không còn file => 410
+     */
+    public Artifact getArtifact(Long jobId, Long userId) {
+        ExportJob job = findJob(jobId, userId);
+        if (job.getStatus() != ExportJob.Status.COMPLETED) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "File xuất chưa sẵn sàng");
+        }
+        Path path = artifactPath(job);
+        if (job.getExpiresAt().isBefore(LocalDateTime.now()) || path == null || !Files.isRegularFile(path)) {
+            throw new ResponseStatusException(HttpStatus.GONE, "File xuất đã hết hạn, vui lòng tạo lại");
+        }
+        try {
+            return new Artifact(path, fileName(job.getType()), contentType(job.getType()), job.isCompressed(),
+                    Files.size(path));
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.GONE, "File xuất đã hết hạn, vui lòng tạo lại");
+        }
+    }
+
+    /**
+     * Bản giải nén của file gzip, nằm cạnh file gốc. Giải nén ra file tạm rồi đổi tên nên các lần tải đồng thời
+     * không thấy file dở; file đã có và không cũ hơn file gốc thì dùng lại.
+     */
+    public Artifact decompressed(Artifact artifact) {
+        if (!artifact.compressed()) {
+            return artifact;
+        }
+        String name = artifact.path().getFileName().toString();
+        String jobId = name.substring(0, name.indexOf('.'));
+        Path target = artifact.path().resolveSibling(jobId + DECOMPRESSED_SUFFIX);
+        try {
+            if (!Files.isRegularFile(target)
+                    || Files.getLastModifiedTime(target).compareTo(Files.getLastModifiedTime(artifact.path())) < 0) {
+                Path part = Files.createTempFile(artifact.path().getParent(), jobId + ".", ".part");
+                try {
+                    try (InputStream in = new GZIPInputStream(Files.newInputStream(artifact.path()), 64 * 1024)) {
+                        Files.copy(in, part, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                    Files.move(part, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    deleteQuietly(part);
+                }
+            }
+            return new Artifact(target, artifact.fileName(), artifact.contentType(), false, Files.size(target));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Không giải nén được file xuất " + name, e);
+        }
+    }
+
+    private ExportJob findJob(Long jobId, Long userId) {
+        return jobRepository.findByIdAndUserId(jobId, userId)
+                .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy yêu cầu xuất file"));
+    }
+
+    private void run(Long jobId) {
+        ExportJob job = jobRepository.findById(jobId).orElse(null);
+        if (job == null) {
+            return;
+        }
+        job.setStatus(ExportJob.Status.RUNNING);
+        job.setStartedAt(LocalDateTime.now());
+        job = jobRepository.save(job);
+
+        String artifactName = job.getId() + extension(job);
+        Path directory = Path.of(storageDir);
+        Path part = directory.resolve(job.getId() + ".part");
+        try {
+            Files.createDirectories(directory);
+            Long dataVersion;
+            try (OutputStream out = Files.newOutputStream(part)) {
+                dataVersion = export(job, out);
+            }
+            Path target = directory.resolve(artifactName);
+            Files.move(part, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            LocalDateTime finishedAt = LocalDateTime.now();
+            job.setStatus(ExportJob.Status.COMPLETED);
+            job.setDataVersion(dataVersion);
+            job.setArtifactName(artifactName);
+            job.setSizeBytes(Files.size(target));
+            job.setFinishedAt(finishedAt);
+            job.setExpiresAt(finishedAt.plusHours(ttlHours));
+            jobRepository.save(job);
+            increment(completedJobs);
+            logger.info("Export job {} ({}) for user {} finished: {} bytes", job.getId(), job.getType(),
+                    job.getUserId(), job.getSizeBytes());
+            notifyUser(job, "File xuất đã sẵn sàng",
+                    "File " + fileName(job.getType()) + " đã sẵn sàng để tải về trong " + ttlHours + " giờ.");
+        } catch (Exception e) {
+            logger.error("Export job {} failed: {}", job.getId(), e.getMessage(), e);
+            deleteQuietly(part);
+            job.setStatus(ExportJob.Status.FAILED);
+            job.setErrorMessage(e instanceof IllegalArgumentException ? e.getMessage() : "Lỗi khi tạo file xuất");
+            job.setFinishedAt(LocalDateTime.now());
+            try {
+                jobRepository.save(job);
+            } catch (RuntimeException saveError) {
+                logger.error("Could not store failure of export job {}: {}", job.getId(), saveError.getMessage());
+            }
+            increment(failedJobs);
+            notifyUser(job, "Xuất file thất bại", "Không tạo được file " + fileName(job.getType())
+                    + ", vui lòng thử lại.");
+        }
+    }
+
+    // Đọc sync_seq và dữ liệu trong cùng transaction (readOnly: replica): phiên bản ghi lại khớp với nội dung file
+    private Long export(ExportJob job, OutputStream out) throws IOException {
+        try {
+            return exportTransaction.execute(status -> {
+                Long dataVersion = currentDataVersion(job.getUserId());
+                try {
+                    write(job, out);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return dataVersion;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void write(ExportJob job, OutputStream out) throws IOException {
+        Long userId = job.getUserId();
+        switch (job.getType()) {
+            case EXCEL:
+                out.write(exportService.exportToExcel(userId, job.getFromDate(), job.getToDate()));
+                break;
+            case PDF:
+                try (GZIPOutputStream gzip = new GZIPOutputStream(out, 64 * 1024)) {
+                    gzip.write(exportService.exportToPdf(userId, job.getFromDate(), job.getToDate()));
+                }
+                break;
+            case DATA:
+                try (GZIPOutputStream gzip = new GZIPOutputStream(out, 64 * 1024)) {
+                    objectMapper.writeValue(gzip, dataExportImportService.exportUserData(userId));
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Loại file xuất không hỗ trợ: " + job.getType());
+        }
+    }
+
+    private void notifyUser(ExportJob job, String title, String message) {
+        try {
+            Notification notification = new Notification();
+            notification.setUser(userRepository.findById(job.getUserId())
+                    .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy người dùng")));
+            notification.setType(Notification.NotificationType.SYSTEM);
+            notification.setTitle(title);
+            notification.setMessage(message);
+            notification.setRelatedEntityType(RELATED_ENTITY_TYPE);
+            notification.setRelatedEntityId(job.getId());
+            notificationService.saveNew(notification);
+        } catch (RuntimeException e) {
+            logger.warn("Could not notify user {} about export job {}: {}", job.getUserId(), job.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Dọn job hết hạn (xóa file rồi xóa dòng) theo từng chunk, và file job không còn dòng trong thư mục quá TTL
+     * (file .part của job bị gián đoạn, file mà node khác đã xóa dòng); file khác trong thư mục được giữ nguyên
+     */
+    @Timed(value = "finance.scheduler", extraTags = {"job", "export-cleanup"})
+    @Scheduled(cron = "${export.cleanup.cron:0 */15 * * * ?}")
+    public void purgeExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        int total = 0;
+        while (true) {
+            List<Object[]> expired = jobRepository.findExpired(now, PageRequest.of(0, cleanupChunkSize));
+            if (expired.isEmpty()) {
+                break;
+            }
+            List<Long> ids = new ArrayList<>(expired.size());
+            for (Object[] row : expired) {
+                ids.add((Long) row[0]);
+                if (row[1] != null) {
+                    deleteQuietly(Path.of(storageDir).resolve((String) row[1]));
+                }
+                deleteQuietly(Path.of(storageDir).resolve(row[0] + DECOMPRESSED_SUFFIX));
+            }
+            total += jobRepository.deleteByIdIn(ids);
+            if (expired.size() < cleanupChunkSize) {
+                break;
+            }
+        }
+        int orphans = purgeOrphanFiles(now);
+        if (total > 0 || orphans > 0) {
+            logger.info("Export cleanup: deleted {} expired jobs and {} orphan files", total, orphans);
+        }
+    }
+
+    private int purgeOrphanFiles(LocalDateTime now) {
+        Path directory = Path.of(storageDir);
+        if (!Files.isDirectory(directory)) {
+            return 0;
+        }
+        // File của job còn hạn luôn mới hơn TTL (được ghi trước khi job xong)
+        FileTime cutoff = FileTime.from(now.minusHours(ttlHours).minus(1, ChronoUnit.HOURS)
+                .atZone(java.time.ZoneId.systemDefault()).toInstant());
+        int deleted = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                if (ARTIFACT_NAME.matcher(file.getFileName().toString()).matches() && Files.isRegularFile(file)
+                        && Files.getLastModifiedTime(file).compareTo(cutoff) < 0) {
+                    deleteQuietly(file);
+                    deleted++;
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Could not scan export directory {}: {}", directory, e.getMessage());
+        }
+        return deleted;
+    }
+
+    private Long currentDataVersion(Long userId) {
+        List<Object[]> state = userRepository.findSyncState(userId);
+        if (state.isEmpty()) {
+            throw new IllegalArgumentException("Không tìm thấy người dùng");
+        }
+        return (Long) state.get(0)[0];
+    }
+
+    private boolean isUsable(ExportJob job, LocalDateTime now) {
+        if (job.getStatus() == ExportJob.Status.COMPLETED) {
+            Path path = artifactPath(job);
+            return job.getExpiresAt().isAfter(now) && path != null && Files.isRegularFile(path);
+        }
+        return !isStale(job, now);
+    }
+
+    private boolean isStale(ExportJob job, LocalDateTime now) {
+        boolean active = job.getStatus() == ExportJob.Status.QUEUED || job.getStatus() == ExportJob.Status.RUNNING;
+        return active && job.getCreatedAt().isBefore(now.minusMinutes(staleMinutes));
+    }
+
+    private Path artifactPath(ExportJob job) {
+        return job.getArtifactName() != null ? Path.of(storageDir).resolve(job.getArtifactName()) : null;
+    }
+
+    private ExportJobDto toDto(ExportJob job, boolean reused) {
+        ExportJob.Status status = job.getStatus();
+        String errorMessage = job.getErrorMessage();
+        if (isStale(job, LocalDateTime.now())) {
+            status = ExportJob.Status.FAILED;
+            errorMessage = "Yêu cầu xuất file bị gián đoạn, vui lòng tạo lại";
+        }
+        return new ExportJobDto(job.getId(), job.getType(), job.getFromDate(), job.getToDate(), status, reused,
+                fileName(job.getType()), job.getSizeBytes(), errorMessage, job.getCreatedAt(), job.getFinishedAt(),
+                job.getExpiresAt());
+    }
+
+    static String fileName(ExportJob.Type type) {
+        switch (type) {
+            case EXCEL:
+                return "financial-report.xlsx";
+            case PDF:
+                return "financial-report.pdf";
+            default:
+                return "user-data.json";
+        }
+    }
+
+    private static MediaType contentType(ExportJob.Type type) {
+        switch (type) {
+            case EXCEL:
+                return MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+            case PDF:
+                return MediaType.APPLICATION_PDF;
+            default:
+                return MediaType.APPLICATION_JSON;
+        }
+    }
+
+    private static String extension(ExportJob job) {
+        String name = fileName(job.getType());
+        String extension = name.substring(name.lastIndexOf('.'));
+        return job.isCompressed() ? extension + ".gz" : extension;
+    }
+
+    private static String hash(ExportJob.Type type, LocalDateTime from, LocalDateTime to) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            String request = type + "|" + from + "|" + to;
+            return HexFormat.of().formatHex(digest.digest(request.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Không tính được hash của yêu cầu xuất", e);
+        }
+    }
+
+    private static void increment(Counter counter) {
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("Could not delete export file {}: {}", path, e.getMessage());
+        }
+    }
+}
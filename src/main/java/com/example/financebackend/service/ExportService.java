@@ -3,9 +3,11 @@ package com.example.financebackend.service;
 import com.example.financebackend.dto.ReportSummaryDto;
 import com.example.financebackend.entity.Transaction;
 import com.example.financebackend.repository.TransactionRepository;
+import io.micrometer.core.annotation.Timed;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -15,6 +17,7 @@ import java.util.List;
 import java.util.stream.Collectors;
 
 @Service
+@Transactional(readOnly = true)
 public class ExportService {
 
     private final TransactionRepository transactionRepository;
@@ -25,6 +28,7 @@ public class ExportService {
         this.reportService = reportService;
     }
 
+    @Timed(value = "finance.export", extraTags = {"format", "excel"}, histogram = true)
     public byte[] exportToExcel(Long userId, LocalDateTime from, LocalDateTime to) throws IOException {
         ReportSummaryDto summary = reportService.getSummary(userId, from, to);
         List<Transaction> transactions = transactionRepository.findByUserId(userId).stream()
@@ -73,6 +77,7 @@ public class ExportService {
         }
     }
 
+    @Timed(value = "finance.export", extraTags = {"format", "pdf"}, histogram = true)
     public byte[] exportToPdf(Long userId, LocalDateTime from, LocalDateTime to) throws IOException {
         // Simplified PDF export - in production use iText7 properly
         ReportSummaryDto summary = reportService.getSummary(userId, from, to);
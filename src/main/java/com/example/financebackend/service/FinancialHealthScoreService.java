@@ -2,9 +2,10 @@ package com.example.financebackend.service;
 
 import com.example.financebackend.entity.Budget;
 import com.example.financebackend.entity.FinancialGoal;
-import com.example.financebackend.entity.Transaction;
 import com.example.financebackend.entity.User;
 import com.example.financebackend.repository.*;
+import com.example.financebackend.util.Money;
+import io.micrometer.core.annotation.Timed;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -14,6 +15,7 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -35,18 +37,18 @@ public class FinancialHealthScoreService {
     private static final Logger logger = LoggerFactory.getLogger(FinancialHealthScoreService.class);
 
     private final UserRepository userRepository;
-    private final TransactionRepository transactionRepository;
+    private final TransactionSnapshotCache snapshotCache;
     private final BudgetRepository budgetRepository;
     private final WalletRepository walletRepository;
     private final FinancialGoalRepository financialGoalRepository;
 
     public FinancialHealthScoreService(UserRepository userRepository,
-                                      TransactionRepository transactionRepository,
+                                      TransactionSnapshotCache snapshotCache,
                                       BudgetRepository budgetRepository,
                                       WalletRepository walletRepository,
                                       FinancialGoalRepository financialGoalRepository) {
         this.userRepository = userRepository;
-        this.transactionRepository = transactionRepository;
+        this.snapshotCache = snapshotCache;
         this.budgetRepository = budgetRepository;
         this.walletRepository = walletRepository;
         this.financialGoalRepository = financialGoalRepository;
@@ -55,6 +57,7 @@ public class FinancialHealthScoreService {
     /**
      * Calculate financial health score for user
      */
+    @Timed(value = "finance.report", extraTags = {"report", "financial-health"}, histogram = true)
     public Map<String, Object> calculateHealthScore(Long userId) {
         User user = userRepository.findById(userId)
             .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy người dùng"));
@@ -134,19 +137,25 @@ public class FinancialHealthScoreService {
         LocalDateTime oneMonthAgo = LocalDateTime.now().minusMonths(1);
         LocalDateTime now = LocalDateTime.now();
 
-        List<Transaction> recentTransactions = transactionRepository.findByUserId(userId).stream()
-            .filter(t -> t.getOccurredAt().isAfter(oneMonthAgo) && t.getOccurredAt().isBefore(now))
-            .collect(Collectors.toList());
-
-        BigDecimal income = recentTransactions.stream()
-            .filter(t -> t.getType() == Transaction.TransactionType.INCOME)
-            .map(Transaction::getAmount)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        BigDecimal expense = recentTransactions.stream()
-            .filter(t -> t.getType() == Transaction.TransactionType.EXPENSE)
-            .map(Transaction::getAmount)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
+        // Khoảng mở (oneMonthAgo, now) trên khóa thời gian theo giây
+        TransactionSnapshot snapshot = snapshotCache.get(userId);
+        long from = TransactionSnapshot.timeKey(oneMonthAgo) + 1;
+        long to = TransactionSnapshot.timeKeyCeil(now) - 1;
+        long incomeTotal = 0L;
+        long expenseTotal = 0L;
+        for (int row = 0, size = snapshot.size(); row < size; row++) {
+            long time = snapshot.time(row);
+            if (time < from || time > to) {
+                continue;
+            }
+            if (snapshot.type(row) == TransactionSnapshot.INCOME) {
+                incomeTotal = Math.addExact(incomeTotal, snapshot.amount(row));
+            } else {
+                expenseTotal = Math.addExact(expenseTotal, snapshot.amount(row));
+            }
+        }
+        BigDecimal income = Money.toBigDecimal(incomeTotal, Money.STORAGE_SCALE);
+        BigDecimal expense = Money.toBigDecimal(expenseTotal, Money.STORAGE_SCALE);
 
         if (income.compareTo(BigDecimal.ZERO) <= 0) {
             return 50; // Neutral nếu chưa có income
@@ -167,24 +176,24 @@ public class FinancialHealthScoreService {
      */
     private double calculateNetWorthGrowthScore(Long userId) {
         // Current net worth (total balance across all wallets)
-        BigDecimal currentNetWorth = walletRepository.findByUserId(userId).stream()
-            .map(w -> w.getBalance() != null ? w.getBalance() : BigDecimal.ZERO)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
+        Money.Accumulator balances = new Money.Accumulator();
+        walletRepository.findByUserId(userId).forEach(w -> balances.add(w.getBalance()));
+        BigDecimal currentNetWorth = balances.sum();
 
         // Estimate net worth 3 months ago by subtracting recent net changes
         LocalDateTime threeMonthsAgo = LocalDateTime.now().minusMonths(3);
-        BigDecimal recentNetChange = transactionRepository.findByUserId(userId).stream()
-            .filter(t -> t.getOccurredAt().isAfter(threeMonthsAgo))
-            .map(t -> {
-                if (t.getType() == Transaction.TransactionType.INCOME) {
-                    return t.getAmount();
-                } else {
-                    return t.getAmount().negate();
-                }
-            })
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        BigDecimal pastNetWorth = currentNetWorth.subtract(recentNetChange);
+        TransactionSnapshot snapshot = snapshotCache.get(userId);
+        long from = TransactionSnapshot.timeKey(threeMonthsAgo) + 1;
+        long netChange = 0L;
+        for (int row = 0, size = snapshot.size(); row < size; row++) {
+            if (snapshot.time(row) >= from) {
+                netChange = snapshot.type(row) == TransactionSnapshot.INCOME
+                        ? Math.addExact(netChange, snapshot.amount(row))
+                        : Math.subtractExact(netChange, snapshot.amount(row));
+            }
+        }
+        BigDecimal pastNetWorth = Money.toBigDecimal(Math.subtractExact(balances.sumMinor(), netChange),
+                Money.STORAGE_SCALE);
 
         if (pastNetWorth.compareTo(BigDecimal.ZERO) <= 0) {
             // If past net worth was zero or negative, give score based on current
@@ -208,19 +217,26 @@ public class FinancialHealthScoreService {
     private double calculateConsistencyScore(Long userId) {
         LocalDateTime thirtyDaysAgo = LocalDateTime.now().minusDays(30);
         
-        List<Transaction> recentTransactions = transactionRepository.findByUserId(userId).stream()
-            .filter(t -> t.getOccurredAt().isAfter(thirtyDaysAgo))
-            .collect(Collectors.toList());
+        TransactionSnapshot snapshot = snapshotCache.get(userId);
+        long from = TransactionSnapshot.timeKey(thirtyDaysAgo) + 1;
+        int firstDay = (int) thirtyDaysAgo.toLocalDate().toEpochDay();
+
+        // Đánh dấu ngày có giao dịch theo độ lệch epochDay so với ngày bắt đầu
+        BitSet days = new BitSet(32);
+        boolean any = false;
+        for (int row = 0, size = snapshot.size(); row < size; row++) {
+            if (snapshot.time(row) >= from) {
+                days.set(snapshot.epochDay(row) - firstDay);
+                any = true;
+            }
+        }
 
-        if (recentTransactions.isEmpty()) {
+        if (!any) {
             return 25; // Low score nếu không có transactions
         }
 
         // Count unique days with transactions
-        long uniqueDays = recentTransactions.stream()
-            .map(t -> t.getOccurredAt().toLocalDate())
-            .distinct()
-            .count();
+        long uniqueDays = days.cardinality();
 
         // Score: 20+ days = 100, 10 days = 50, 0 days = 0
         double score = Math.min(100, (uniqueDays / 20.0) * 100);
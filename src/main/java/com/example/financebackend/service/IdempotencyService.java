@@ -0,0 +1,379 @@
+package com.example.financebackend.service;
+
+import com.example.financebackend.entity.IdempotencyRecord;
+import com.example.financebackend.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Idempotency Service
+ * Xử lý header Idempotency-Key cho các endpoint tạo giao dịch / chuyển tiền: request gửi lại với cùng key
+ * nhận lại response đã lưu mà không thực hiện lại.
+ *
+ * - Response đã hoàn tất được giữ trong map giới hạn kích thước (Caffeine) và trong bảng idempotency_keys
+ *   (dùng chung giữa các node, hết hạn sau ttl-hours và được dọn định kỳ)
+ * - execute(): action và việc ghi COMPLETED chạy trong cùng một DB transaction, nên action đã commit thì kết quả
+ *   cũng đã lưu; node dừng giữa chừng thì action bị rollback cùng kết quả
+ * - Request trùng đến cùng lúc trên cùng node chờ kết quả của request đầu (CompletableFuture);
+ *   trên node khác thì thấy dòng IN_PROGRESS và đọc lại DB tới khi có kết quả, tối đa wait-ms rồi 409
+ * - Dòng IN_PROGRESS giữ key trong lease-ms (dài hơn nhiều so với lần ghi lâu nhất); hết lease thì request gửi lại
+ *   giành lại key. Lần ghi COMPLETED kiểm tra vẫn còn giữ key (created_at), nên request chạy quá lease bị rollback
+ *   thay vì chạy hai lần
+ * - Request lỗi không được lưu: dòng IN_PROGRESS bị xóa để lần gửi lại được thực hiện
+ * - Cùng key nhưng khác nội dung request => 422
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+
+    public static final String HEADER = "Idempotency-Key";
+
+    static final int MAX_KEY_LENGTH = 100;
+    private static final long POLL_INTERVAL_MS = 50L;
+
+    private record Stored(String requestHash, String responseBody) {
+    }
+
+    // Dòng IN_PROGRESS của request khác đã bị xóa vì request đó lỗi
+    private static final Stored ABANDONED = new Stored(null, null);
+
+    private final IdempotencyRecordRepository recordRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final Cache<String, Stored> completed;
+    private final ConcurrentHashMap<String, CompletableFuture<Stored>> inFlight = new ConcurrentHashMap<>();
+    private final long ttlHours;
+
+    @Value("${idempotency.wait-ms:10000}")
+    private long waitMs = 10_000L;
+
+    // Node giữ dòng IN_PROGRESS quá lease-ms được coi là đã dừng
+    @Value("${idempotency.lease-ms:600000}")
+    private long leaseMs = 600_000L;
+
+    @Value("${idempotency.cleanup.chunk-size:1000}")
+    private int cleanupChunkSize = 1000;
+
+    private Counter replays;
+
+    public IdempotencyService(IdempotencyRecordRepository recordRepository,
+                              JdbcTemplate jdbcTemplate,
+                              ObjectMapper objectMapper,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${idempotency.cache-size:10000}") long cacheSize,
+                              @Value("${idempotency.ttl-hours:24}") long ttlHours) {
+        this.recordRepository = recordRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ttlHours = ttlHours;
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(ttlHours, TimeUnit.HOURS)
+                .build();
+    }
+
+    @org.springframework.beans.factory.annotation.Autowired(required = false)
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.replays = Counter.builder("finance.idempotency.replays")
+                .description("Requests answered from a stored Idempotency-Key response")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Thực hiện action một lần cho mỗi (userId, key). key rỗng = không dùng idempotency.
+     * operation + request xác định nội dung request; responseType là kiểu để đọc lại response đã lưu.
+     * action chạy trong transaction cùng với việc lưu kết quả (các service @Transactional tham gia transaction này).
+     */
+    public <T> T execute(Long userId, String key, String operation, Object request, Class<T> responseType,
+                         Supplier<T> action) {
+        return execute(userId, key, operation, request, responseType, action, true);
+    }
+
+    /**
+     * Như execute() cho action tự commit nhiều transaction (vd. batch mà mỗi dòng thành công/lỗi riêng):
+     * kết quả được lưu sau khi action xong. Node dừng giữa hai bước thì key được nhả sau lease-ms.
+     */
+    public <T> T executeInOwnTransactions(Long userId, String key, String operation, Object request,
+                                          Class<T> responseType, Supplier<T> action) {
+        return execute(userId, key, operation, request, responseType, action, false);
+    }
+
+    private <T> T execute(Long userId, String key, String operation, Object request, Class<T> responseType,
+                          Supplier<T> action, boolean sameTransaction) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key tối đa " + MAX_KEY_LENGTH + " ký tự");
+        }
+        String recordKey = userId + ":" + key;
+        String requestHash = hash(operation, request);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitMs);
+
+        while (true) {
+            Stored stored = completed.getIfPresent(recordKey);
+            if (stored != null) {
+                return replay(stored, requestHash, responseType);
+            }
+
+            CompletableFuture<Stored> mine = new CompletableFuture<>();
+            CompletableFuture<Stored> running = inFlight.putIfAbsent(recordKey, mine);
+            Stored result;
+            if (running != null) {
+                // Cùng node đang xử lý request này: chờ kết quả của nó
+                result = await(running, deadline);
+            } else {
+                try {
+                    result = lead(recordKey, requestHash, action, sameTransaction, deadline);
+                    mine.complete(result);
+                } catch (RuntimeException | Error e) {
+                    mine.completeExceptionally(e);
+                    throw e;
+                } finally {
+                    inFlight.remove(recordKey, mine);
+                }
+            }
+            if (result != ABANDONED) {
+                return replay(result, requestHash, responseType);
+            }
+            // Request đang giữ key đã lỗi và trả lại key: thử giành lại
+            if (System.nanoTime() >= deadline) {
+                throw conflict();
+            }
+        }
+    }
+
+    // Node này là nơi xử lý đầu tiên của key: giành dòng trong DB rồi chạy action, hoặc chờ node đang giữ dòng
+    private <T> Stored lead(String recordKey, String requestHash, Supplier<T> action, boolean sameTransaction,
+                            long deadline) {
+        Timestamp leasedAt = insertInProgress(recordKey, requestHash);
+        if (leasedAt == null) {
+            return awaitRecord(recordKey, deadline);
+        }
+        Stored stored;
+        try {
+            if (sameTransaction) {
+                stored = transactionTemplate.execute(status -> complete(recordKey, requestHash, leasedAt, action.get()));
+            } else {
+                stored = completeAfter(recordKey, requestHash, leasedAt, action.get());
+            }
+        } catch (RuntimeException | Error e) {
+            release(recordKey, leasedAt);
+            throw e;
+        }
+        completed.put(recordKey, stored);
+        return stored;
+    }
+
+    // Ghi COMPLETED nếu dòng vẫn là của lần giữ này; không còn (đã bị giành sau lease-ms) => lỗi để rollback action
+    private Stored complete(String recordKey, String requestHash, Timestamp leasedAt, Object response) {
+        String body = serialize(response);
+        int updated = jdbcTemplate.update("UPDATE idempotency_keys SET status = ?, response_body = ?, expires_at = ? "
+                        + "WHERE record_key = ? AND status = ? AND created_at = ?",
+                IdempotencyRecord.Status.COMPLETED.name(), body,
+                Timestamp.valueOf(LocalDateTime.now().plusHours(ttlHours)),
+                recordKey, IdempotencyRecord.Status.IN_PROGRESS.name(), leasedAt);
+        if (updated == 0) {
+            logger.warn("Idempotency key {} was taken over before the request finished", recordKey);
+            throw conflict();
+        }
+        return new Stored(requestHash, body);
+    }
+
+    // Action đã commit: lưu kết quả, lỗi thì vẫn trả kết quả (node này còn nhớ trong map)
+    private Stored completeAfter(String recordKey, String requestHash, Timestamp leasedAt, Object response) {
+        try {
+            return complete(recordKey, requestHash, leasedAt, response);
+        } catch (RuntimeException e) {
+            logger.error("Could not store idempotent response for {}: {}", recordKey, e.getMessage(), e);
+            return new Stored(requestHash, serialize(response));
+        }
+    }
+
+    // Request lỗi: xóa dòng IN_PROGRESS của lần giữ này để lần gửi lại được thực hiện
+    private void release(String recordKey, Timestamp leasedAt) {
+        try {
+            jdbcTemplate.update("DELETE FROM idempotency_keys WHERE record_key = ? AND status = ? AND created_at = ?",
+                    recordKey, IdempotencyRecord.Status.IN_PROGRESS.name(), leasedAt);
+        } catch (RuntimeException e) {
+            logger.warn("Could not release idempotency key {}: {}", recordKey, e.getMessage());
+        }
+    }
+
+    // Giữ key trong lease-ms, trả về created_at của lần giữ (dùng để kiểm tra khi ghi kết quả), null nếu node khác
+    // đang giữ; dòng IN_PROGRESS đã hết lease thì giành lại
+    private Timestamp insertInProgress(String recordKey, String requestHash) {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        Timestamp leasedAt = Timestamp.valueOf(now);
+        Timestamp leaseUntil = Timestamp.valueOf(now.plus(leaseMs, ChronoUnit.MILLIS));
+        try {
+            jdbcTemplate.update("INSERT INTO idempotency_keys (record_key, request_hash, status, created_at, expires_at) "
+                            + "VALUES (?, ?, ?, ?, ?)",
+                    recordKey, requestHash, IdempotencyRecord.Status.IN_PROGRESS.name(), leasedAt, leaseUntil);
+            return leasedAt;
+        } catch (DataIntegrityViolationException e) {
+            int taken = jdbcTemplate.update("UPDATE idempotency_keys SET request_hash = ?, created_at = ?, expires_at = ? "
+                            + "WHERE record_key = ? AND status = ? AND expires_at < ?",
+                    requestHash, leasedAt, leaseUntil,
+                    recordKey, IdempotencyRecord.Status.IN_PROGRESS.name(), leasedAt);
+            if (taken == 0) {
+                return null;
+            }
+            logger.warn("Idempotency key {} was left in progress by a stopped request, taking it over", recordKey);
+            return leasedAt;
+        }
+    }
+
+    // Đọc lại dòng (từ primary) tới khi COMPLETED; dòng biến mất hoặc IN_PROGRESS quá hạn => ABANDONED
+    private Stored awaitRecord(String recordKey, long deadline) {
+        while (true) {
+            List<Object[]> rows = jdbcTemplate.query(
+                    "SELECT request_hash, status, response_body, expires_at FROM idempotency_keys WHERE record_key = ?",
+                    (rs, rowNum) -> new Object[]{rs.getString(1), rs.getString(2), rs.getString(3),
+                            rs.getTimestamp(4).toLocalDateTime()},
+                    recordKey);
+            if (rows.isEmpty()) {
+                return ABANDONED;
+            }
+            Object[] row = rows.get(0);
+            if (IdempotencyRecord.Status.COMPLETED.name().equals(row[1])) {
+                Stored stored = new Stored((String) row[0], (String) row[2]);
+                completed.put(recordKey, stored);
+                return stored;
+            }
+            // Hết lease khi vẫn IN_PROGRESS: node giữ dòng đã dừng, giành lại key
+            if (((LocalDateTime) row[3]).isBefore(LocalDateTime.now())) {
+                return ABANDONED;
+            }
+            if (System.nanoTime() >= deadline) {
+                throw conflict();
+            }
+            sleep();
+        }
+    }
+
+    private Stored await(CompletableFuture<Stored> running, long deadline) {
+        try {
+            return running.get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw conflict();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw conflict();
+        } catch (ExecutionException e) {
+            // Request đầu lỗi: request trùng nhận cùng lỗi
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private <T> T replay(Stored stored, String requestHash, Class<T> responseType) {
+        if (!stored.requestHash().equals(requestHash)) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                    "Idempotency-Key đã được dùng cho một yêu cầu khác");
+        }
+        Counter counter = replays;
+        if (counter != null) {
+            counter.increment();
+        }
+        try {
+            return objectMapper.readValue(stored.responseBody(), responseType);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Không đọc được response đã lưu", e);
+        }
+    }
+
+    /**
+     * Dọn các key đã hết hạn theo từng chunk
+     */
+    @Timed(value = "finance.scheduler", extraTags = {"job", "idempotency-cleanup"})
+    @Scheduled(cron = "${idempotency.cleanup.cron:0 15 * * * ?}")
+    public void purgeExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        int total = 0;
+        while (true) {
+            List<String> keys = recordRepository.findExpiredKeys(now, PageRequest.of(0, cleanupChunkSize));
+            if (keys.isEmpty()) {
+                break;
+            }
+            total += recordRepository.deleteByRecordKeyIn(keys);
+            if (keys.size() < cleanupChunkSize) {
+                break;
+            }
+        }
+        if (total > 0) {
+            logger.info("Idempotency cleanup: deleted {} expired keys", total);
+        }
+    }
+
+    private String serialize(Object response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Không lưu được response", e);
+        }
+    }
+
+    private String hash(String operation, Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(operation.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("Không tính được hash của request", e);
+        }
+    }
+
+    private static ResponseStatusException conflict() {
+        return new ResponseStatusException(HttpStatus.CONFLICT,
+                "Yêu cầu với Idempotency-Key này đang được xử lý, vui lòng thử lại sau");
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(POLL_INTERVAL_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw conflict();
+        }
+    }
+}
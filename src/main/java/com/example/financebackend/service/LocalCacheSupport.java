@@ -0,0 +1,55 @@
+package com.example.financebackend.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Local Cache Support
+ * Phần chung của các cache trong JVM (Caffeine) được đồng bộ qua CacheInvalidationBus.
+ *
+ * - afterCommit: cập nhật cache của node này chỉ khi DB transaction commit thành công.
+ * - publishRemote: báo cho các node khác xóa entry tương ứng (ghi cùng transaction hiện tại).
+ * - onRemoteInvalidation: lớp con xóa entry khi node khác báo thay đổi.
+ */
+public abstract class LocalCacheSupport {
+
+    private final String cacheName;
+    private volatile CacheInvalidationBus invalidationBus;
+
+    protected LocalCacheSupport(String cacheName) {
+        this.cacheName = cacheName;
+    }
+
+    @Autowired(required = false)
+    public void setInvalidationBus(CacheInvalidationBus invalidationBus) {
+        this.invalidationBus = invalidationBus;
+        invalidationBus.register(cacheName, this::onRemoteInvalidation);
+    }
+
+    /**
+     * Node khác đã thay đổi dữ liệu của key - xóa entry, lần đọc sau nạp lại từ DB
+     */
+    protected abstract void onRemoteInvalidation(CacheInvalidationBus.Invalidation invalidation);
+
+    protected void publishRemote(Object key) {
+        CacheInvalidationBus bus = invalidationBus;
+        if (bus != null) {
+            bus.publish(cacheName, key);
+        }
+    }
+
+    // Không có transaction thì chạy ngay
+    protected static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
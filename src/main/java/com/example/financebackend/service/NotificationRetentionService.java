@@ -0,0 +1,78 @@
+package com.example.financebackend.service;
+
+import com.example.financebackend.repository.NotificationRepository;
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Notification Retention Service
+ * Xóa thông báo cũ theo từng chunk để không giữ lock lâu trên bảng notifications.
+ *
+ * Không đặt @Transactional ở class: mỗi chunk DELETE commit riêng (qua repository).
+ */
+@Service
+public class NotificationRetentionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationRetentionService.class);
+
+    private final NotificationRepository notificationRepository;
+    private final UnreadNotificationCounter unreadCounter;
+
+    @Value("${notification.retention.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${notification.retention.read-days:90}")
+    private int readRetentionDays = 90;
+
+    @Value("${notification.retention.unread-days:180}")
+    private int unreadRetentionDays = 180;
+
+    @Value("${notification.retention.chunk-size:1000}")
+    private int chunkSize = 1000;
+
+    public NotificationRetentionService(NotificationRepository notificationRepository,
+                                        UnreadNotificationCounter unreadCounter) {
+        this.notificationRepository = notificationRepository;
+        this.unreadCounter = unreadCounter;
+    }
+
+    // Run daily at 3:30 AM
+    @Timed(value = "finance.scheduler", extraTags = {"job", "notification-retention"})
+    @Scheduled(cron = "${notification.retention.cron:0 30 3 * * ?}")
+    public void purgeOldNotifications() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        int readDeleted = purge(true, now.minusDays(readRetentionDays));
+        int unreadDeleted = purge(false, now.minusDays(unreadRetentionDays));
+
+        if (unreadDeleted > 0) {
+            // Số thông báo chưa đọc đã thay đổi - nạp lại counter từ DB ở lần đọc sau
+            unreadCounter.evictAll();
+        }
+        logger.info("Notification retention: deleted {} read and {} unread notifications", readDeleted, unreadDeleted);
+    }
+
+    private int purge(boolean read, LocalDateTime before) {
+        int total = 0;
+        while (true) {
+            List<Long> ids = notificationRepository.findIdsForRetention(read, before, PageRequest.of(0, chunkSize));
+            if (ids.isEmpty()) {
+                return total;
+            }
+            total += notificationRepository.deleteByIdIn(ids);
+            if (ids.size() < chunkSize) {
+                return total;
+            }
+        }
+    }
+}
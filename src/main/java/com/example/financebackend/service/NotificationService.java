@@ -1,12 +1,16 @@
 package com.example.financebackend.service;
 
 import com.example.financebackend.dto.NotificationDto;
+import com.example.financebackend.dto.NotificationPageDto;
 import com.example.financebackend.entity.Budget;
 import com.example.financebackend.entity.Notification;
 import com.example.financebackend.entity.User;
 import com.example.financebackend.repository.BudgetRepository;
 import com.example.financebackend.repository.NotificationRepository;
 import com.example.financebackend.repository.UserRepository;
+import com.example.financebackend.util.KeysetCursor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -25,24 +29,90 @@ public class NotificationService {
     private final BudgetRepository budgetRepository;
     private final BudgetService budgetService;
     private final EmailService emailService;
+    private final UnreadNotificationCounter unreadCounter;
+    private final EventStreamService eventStreamService;
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    @Value("${notification.inbox.default-page-size:20}")
+    private int defaultPageSize = 20;
+
+    // Giới hạn số thông báo trả về cho API list cũ (không phân trang)
+    @Value("${notification.inbox.legacy-max-size:200}")
+    private int legacyMaxSize = 200;
 
     public NotificationService(NotificationRepository notificationRepository,
                               UserRepository userRepository,
                               BudgetRepository budgetRepository,
                               BudgetService budgetService,
-                              EmailService emailService) {
+                              EmailService emailService,
+                              UnreadNotificationCounter unreadCounter,
+                              EventStreamService eventStreamService) {
         this.notificationRepository = notificationRepository;
         this.userRepository = userRepository;
         this.budgetRepository = budgetRepository;
         this.budgetService = budgetService;
         this.emailService = emailService;
+        this.unreadCounter = unreadCounter;
+        this.eventStreamService = eventStreamService;
+    }
+
+    /**
+     * Danh sách thông báo mới nhất (giữ cho client cũ), giới hạn legacyMaxSize bản ghi.
+     * Bị cắt thì nextCursor trỏ tới phần còn lại trong inbox phân trang. Client mới nên dùng getInboxPage.
+     */
+    @Transactional(readOnly = true)
+    public NotificationPageDto getUserNotifications(Long userId) {
+        return loadPage(userId, null, legacyMaxSize);
     }
 
+    /**
+     * Inbox phân trang theo keyset (createdAt, id) - không dùng OFFSET nên trang sau không chậm dần.
+     * cursor là giá trị nextCursor của trang trước, null cho trang đầu.
+     */
     @Transactional(readOnly = true)
-    public List<NotificationDto> getUserNotifications(Long userId) {
-        return notificationRepository.findByUserIdOrderByCreatedAtDesc(userId).stream()
+    public NotificationPageDto getInboxPage(Long userId, String cursor, Integer size) {
+        int pageSize = size == null ? defaultPageSize : Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        return loadPage(userId, cursor, pageSize);
+    }
+
+    private NotificationPageDto loadPage(Long userId, String cursor, int pageSize) {
+        // Lấy dư 1 bản ghi để biết còn trang sau hay không, không cần COUNT
+        PageRequest limit = PageRequest.of(0, pageSize + 1);
+
+        List<Notification> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = notificationRepository.findInboxFirstPage(userId, limit);
+        } else {
+            KeysetCursor decoded = KeysetCursor.parse(cursor);
+            rows = notificationRepository.findInboxPageAfter(userId, decoded.getCreatedAt(), decoded.getId(), limit);
+        }
+
+        boolean hasMore = rows.size() > pageSize;
+        if (hasMore) {
+            rows = rows.subList(0, pageSize);
+        }
+        String nextCursor = null;
+        if (hasMore) {
+            Notification last = rows.get(rows.size() - 1);
+            nextCursor = KeysetCursor.encode(last.getCreatedAt(), last.getId());
+        }
+
+        List<NotificationDto> items = rows.stream()
                 .map(this::toDto)
                 .collect(Collectors.toList());
+        return new NotificationPageDto(items, nextCursor, hasMore);
+    }
+
+    @Transactional(readOnly = true)
+    public boolean hasRelatedNotificationSince(Long userId, String relatedEntityType, Long relatedEntityId,
+                                               LocalDateTime since) {
+        return notificationRepository.existsForRelatedEntitySince(userId, relatedEntityType, relatedEntityId, since);
+    }
+
+    @Transactional(readOnly = true)
+    public boolean hasNotificationTypeSince(Long userId, Notification.NotificationType type, LocalDateTime since) {
+        return notificationRepository.existsByTypeSince(userId, type, since);
     }
 
     @Transactional(readOnly = true)
@@ -54,7 +124,7 @@ public class NotificationService {
 
     @Transactional(readOnly = true)
     public Long getUnreadCount(Long userId) {
-        return notificationRepository.countUnreadByUserId(userId);
+        return unreadCounter.get(userId, () -> notificationRepository.countUnreadByUserId(userId));
     }
 
     public void markAsRead(Long notificationId, Long userId) {
@@ -65,14 +135,15 @@ public class NotificationService {
             throw new IllegalArgumentException("Không có quyền truy cập thông báo này");
         }
         
-        notification.setRead(true);
-        notificationRepository.save(notification);
+        if (notificationRepository.markAsReadByIdAndUserId(notificationId, userId) > 0) {
+            unreadCounter.decrement(userId);
+        }
     }
 
     public void markAllAsRead(Long userId) {
-        List<Notification> unread = notificationRepository.findUnreadByUserId(userId);
-        unread.forEach(n -> n.setRead(true));
-        notificationRepository.saveAll(unread);
+        // Một câu UPDATE duy nhất thay vì load + saveAll từng entity
+        notificationRepository.markAllAsReadByUserId(userId);
+        unreadCounter.reset(userId);
     }
 
     public void createBudgetWarning(Budget budget) {
@@ -117,7 +188,7 @@ public class NotificationService {
 
         notification.setRelatedEntityId(budget.getId());
         notification.setRelatedEntityType("budget");
-        notificationRepository.save(notification);
+        saveNew(notification);
         
         // Send email notification
         try {
@@ -148,7 +219,7 @@ public class NotificationService {
         notification.setTitle("Nhắc nhở ghi giao dịch");
         notification.setMessage("Đừng quên ghi lại các giao dịch thu/chi của ngày hôm nay!");
         
-        notificationRepository.save(notification);
+        saveNew(notification);
         
         // Send email reminder
         try {
@@ -174,7 +245,7 @@ public class NotificationService {
             user.getFullName()
         ));
         
-        notificationRepository.save(notification);
+        saveNew(notification);
     }
 
     /**
@@ -190,7 +261,20 @@ public class NotificationService {
         notification.setTitle(title);
         notification.setMessage(message);
         
-        notificationRepository.save(notification);
+        saveNew(notification);
+    }
+
+    /**
+     * Lưu thông báo mới, cập nhật unread counter và đẩy qua SSE.
+     * Các service tự tạo Notification cũng nên gọi qua đây.
+     */
+    public Notification saveNew(Notification notification) {
+        Notification saved = notificationRepository.save(notification);
+        if (!Boolean.TRUE.equals(saved.getRead())) {
+            unreadCounter.increment(saved.getUser().getId());
+        }
+        eventStreamService.publishNotification(saved);
+        return saved;
     }
 
     private NotificationDto toDto(Notification notification) {
@@ -206,4 +290,3 @@ public class NotificationService {
         return dto;
     }
 }
-
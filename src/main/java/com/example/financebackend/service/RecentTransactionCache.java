@@ -0,0 +1,122 @@
+package com.example.financebackend.service;
+
+import com.example.financebackend.dto.TransactionDto;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Recent Transaction Cache
+ * Giữ N giao dịch mới nhất (theo occurredAt) của mỗi user trong bộ nhớ.
+ *
+ * - Nạp bằng query top-N khi chưa có trong cache.
+ * - Giao dịch mới được chèn vào buffer sau khi commit (bỏ qua nếu cũ hơn toàn bộ buffer đã đầy).
+ * - Sửa / xóa giao dịch thì bỏ buffer của user, lần đọc sau nạp lại.
+ * - DTO chứa tên danh mục / ví nên đổi tên hoặc xóa danh mục, ví cũng bỏ buffer; buffer hết hạn theo thời gian
+ *   ghi (transaction.recent-cache.expire-minutes) để user đọc liên tục vẫn được nạp lại.
+ */
+@Service
+public class RecentTransactionCache extends LocalCacheSupport {
+
+    private static final Comparator<TransactionDto> NEWEST_FIRST = Comparator
+            .comparing(TransactionDto::getOccurredAt, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(TransactionDto::getId, Comparator.nullsLast(Comparator.reverseOrder()));
+
+    public static final String CACHE_NAME = "recent-transactions";
+
+    private final Cache<Long, RecentBuffer> buffers;
+    private final int capacity;
+
+    public RecentTransactionCache(@Value("${transaction.recent-cache.size:50}") int capacity,
+                                  @Value("${transaction.recent-cache.max-users:50000}") long maxUsers,
+                                  @Value("${transaction.recent-cache.expire-minutes:10}") long expireMinutes) {
+        super(CACHE_NAME);
+        this.capacity = Math.max(1, capacity);
+        this.buffers = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterWrite(expireMinutes, TimeUnit.MINUTES)
+                .build();
+    }
+
+    @Override
+    protected void onRemoteInvalidation(CacheInvalidationBus.Invalidation invalidation) {
+        buffers.invalidate(Long.valueOf(invalidation.key()));
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Lấy tối đa limit giao dịch mới nhất. loader nhận n và trả về top-n từ DB.
+     */
+    public List<TransactionDto> getRecent(Long userId, int limit, Function<Integer, List<TransactionDto>> loader) {
+        RecentBuffer buffer = buffers.get(userId, id -> new RecentBuffer(capacity, loader.apply(capacity)));
+        return buffer.top(limit);
+    }
+
+    public void onCreated(Long userId, TransactionDto transaction) {
+        // computeIfPresent chờ nếu buffer đang được nạp, tránh mất giao dịch vừa commit
+        afterCommit(() -> buffers.asMap().computeIfPresent(userId, (id, buffer) -> {
+            buffer.insert(transaction);
+            return buffer;
+        }));
+        publishRemote(userId);
+    }
+
+    public void evict(Long userId) {
+        buffers.invalidate(userId);
+        afterCommit(() -> buffers.invalidate(userId));
+        publishRemote(userId);
+    }
+
+    /**
+     * Buffer đã sắp xếp (mới nhất trước), tối đa capacity phần tử.
+     * full = true nghĩa là user có thể còn giao dịch cũ hơn không nằm trong buffer.
+     */
+    static final class RecentBuffer {
+        private final int capacity;
+        private final List<TransactionDto> items;
+        private boolean full;
+
+        RecentBuffer(int capacity, List<TransactionDto> initial) {
+            this.capacity = capacity;
+            this.items = new ArrayList<>(capacity + 1);
+            if (initial != null) {
+                items.addAll(initial.subList(0, Math.min(initial.size(), capacity)));
+                items.sort(NEWEST_FIRST);
+                full = initial.size() >= capacity;
+            }
+        }
+
+        synchronized void insert(TransactionDto transaction) {
+            if (transaction.getId() != null
+                    && items.stream().anyMatch(item -> transaction.getId().equals(item.getId()))) {
+                return; // Đã có (buffer được nạp sau khi giao dịch commit)
+            }
+            int index = 0;
+            while (index < items.size() && NEWEST_FIRST.compare(items.get(index), transaction) <= 0) {
+                index++;
+            }
+            if (index == items.size() && full) {
+                return; // Cũ hơn mọi giao dịch trong buffer đầy - không thuộc top N
+            }
+            items.add(index, transaction);
+            if (items.size() > capacity) {
+                items.remove(items.size() - 1);
+                full = true;
+            }
+        }
+
+        synchronized List<TransactionDto> top(int limit) {
+            return new ArrayList<>(items.subList(0, Math.min(Math.max(limit, 0), items.size())));
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.example.financebackend.service;
+
+import com.example.financebackend.entity.RecurringTransaction;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+
+/**
+ * Recurrence Calendar
+ * Khai triển lịch của giao dịch định kỳ thành mảng epoch day đã sắp xếp, dùng chung cho dự báo cashflow
+ * và job tạo giao dịch định kỳ.
+ *
+ * - Lần đầu tiên là nextRunDate; các lần sau tính từ nextRunDate theo tần suất.
+ *   MONTHLY / YEARLY giữ ngày của startDate (31/01 -> 28/02 -> 31/03), không trôi dần về ngày 28.
+ * - Sau nextRunDate, các lần chạy chỉ phụ thuộc "dạng" quy tắc (tần suất + ngày trong tháng / thứ trong tuần),
+ *   nên lịch được khai triển horizon-days ngày và cache theo dạng đó, không theo id hay nextRunDate:
+ *   job đẩy nextRunDate lên và các quy tắc cùng dạng dùng chung một entry, entry không bao giờ cũ.
+ * - nextAfter tính trực tiếp lần chạy kế tiếp, không khai triển lịch.
+ */
+@Service
+public class RecurrenceCalendar {
+
+    private static final int[] EMPTY = new int[0];
+
+    private final Cache<Shape, Expansion> expansions;
+    private final int horizonDays;
+
+    public RecurrenceCalendar(@Value("${recurring.calendar.horizon-days:730}") int horizonDays,
+                              @Value("${recurring.calendar.max-days:2000000}") long maxCachedDays) {
+        this.horizonDays = Math.max(1, horizonDays);
+        this.expansions = Caffeine.newBuilder()
+                .maximumWeight(maxCachedDays)
+                .weigher((Shape shape, Expansion expansion) -> expansion.days.length + 1)
+                .build();
+    }
+
+    /**
+     * Các ngày đến hạn (epoch day, tăng dần) trong [from, to]. Quy tắc tắt hoặc chưa có nextRunDate => rỗng.
+     */
+    public int[] occurrences(RecurringTransaction rule, LocalDate from, LocalDate to) {
+        Schedule schedule = Schedule.of(rule);
+        if (schedule == null || !Boolean.TRUE.equals(rule.getActive()) || from.isAfter(to)) {
+            return EMPTY;
+        }
+        long fromDay = from.toEpochDay();
+        long toDay = Math.min(to.toEpochDay(), schedule.endDay);
+        long first = schedule.indexAfter(fromDay - 1);
+        if (first == 0) {
+            // nextRunDate có thể lệch khỏi lịch (sửa tay), các lần sau thì luôn nằm trên lịch của dạng quy tắc
+            if (schedule.anchorDay > toDay) {
+                return EMPTY;
+            }
+            int[] rest = onSchedule(schedule, schedule.step(1).toEpochDay(), toDay);
+            int[] days = new int[rest.length + 1];
+            days[0] = (int) schedule.anchorDay;
+            System.arraycopy(rest, 0, days, 1, rest.length);
+            return days;
+        }
+        return onSchedule(schedule, schedule.step(first).toEpochDay(), toDay);
+    }
+
+    /**
+     * Lần chạy kế tiếp sau date theo tần suất (không xét endDate - job sẽ tắt quy tắc khi quá endDate)
+     */
+    public LocalDate nextAfter(RecurringTransaction rule, LocalDate date) {
+        Schedule schedule = Schedule.of(rule);
+        if (schedule == null) {
+            throw new IllegalArgumentException("Giao dịch định kỳ chưa có ngày chạy hoặc tần suất");
+        }
+        return schedule.step(schedule.indexAfter(date.toEpochDay()));
+    }
+
+    /**
+     * Các ngày trên lịch của dạng quy tắc trong [startDay, toDay]; startDay phải là một ngày trên lịch
+     */
+    private int[] onSchedule(Schedule schedule, long startDay, long toDay) {
+        if (startDay > toDay) {
+            return EMPTY;
+        }
+        Shape shape = schedule.shape();
+        Expansion cached = expansions.getIfPresent(shape);
+        if (cached == null || startDay < cached.origin || toDay > cached.horizon) {
+            long horizon = startDay + horizonDays;
+            if (toDay > horizon) {
+                // Dài hơn horizon - hiếm, tính trực tiếp
+                return expand(schedule.from(startDay), toDay);
+            }
+            cached = new Expansion(startDay, expand(schedule.from(startDay), horizon), horizon);
+            expansions.put(shape, cached);
+        }
+        return slice(cached.days, startDay, toDay);
+    }
+
+    /**
+     * Khai triển từ nextRunDate đến min(untilDay, endDate)
+     */
+    static int[] expand(Schedule schedule, long untilDay) {
+        long last = Math.min(untilDay, schedule.endDay);
+        if (schedule.anchorDay > last) {
+            return EMPTY;
+        }
+        int[] days = new int[16];
+        int size = 0;
+        long day = schedule.anchorDay;
+        for (long n = 1; day <= last; n++) {
+            if (size == days.length) {
+                days = Arrays.copyOf(days, size * 2);
+            }
+            days[size++] = (int) day;
+            day = schedule.step(n).toEpochDay();
+        }
+        return Arrays.copyOf(days, size);
+    }
+
+    private static int[] slice(int[] days, long fromDay, long toDay) {
+        int start = lowerBound(days, fromDay);
+        int end = upperBound(days, toDay);
+        return start >= end ? EMPTY : Arrays.copyOfRange(days, start, end);
+    }
+
+    // Vị trí đầu tiên có giá trị >= key
+    private static int lowerBound(int[] days, long key) {
+        int low = 0;
+        int high = days.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (days[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Vị trí đầu tiên có giá trị > key
+    private static int upperBound(int[] days, long key) {
+        int low = 0;
+        int high = days.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (days[mid] <= key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Các trường quyết định lịch của một quy tắc
+     */
+    record Schedule(long anchorDay, int dayOfMonth, RecurringTransaction.Frequency frequency, long endDay) {
+
+        static Schedule of(RecurringTransaction rule) {
+            if (rule.getNextRunDate() == null || rule.getFrequency() == null) {
+                return null;
+            }
+            LocalDate anchor = rule.getNextRunDate();
+            int dayOfMonth = rule.getStartDate() != null ? rule.getStartDate().getDayOfMonth() : anchor.getDayOfMonth();
+            long endDay = rule.getEndDate() != null ? rule.getEndDate().toEpochDay() : Long.MAX_VALUE;
+            return new Schedule(anchor.toEpochDay(), dayOfMonth, rule.getFrequency(), endDay);
+        }
+
+        /**
+         * Lần chạy thứ n (n = 0 là nextRunDate)
+         */
+        LocalDate step(long n) {
+            LocalDate anchor = LocalDate.ofEpochDay(anchorDay);
+            if (n == 0) {
+                return anchor;
+            }
+            return switch (frequency) {
+                case DAILY -> anchor.plusDays(n);
+                case WEEKLY -> anchor.plusWeeks(n);
+                case MONTHLY -> clamp(YearMonth.from(anchor).plusMonths(n));
+                case YEARLY -> clamp(YearMonth.from(anchor).plusYears(n));
+            };
+        }
+
+        /**
+         * n nhỏ nhất có step(n) > day. Ước lượng n theo khoảng cách rồi chỉnh tối đa vài bước.
+         */
+        long indexAfter(long day) {
+            if (day < anchorDay) {
+                return 0;
+            }
+            YearMonth anchorMonth = YearMonth.from(LocalDate.ofEpochDay(anchorDay));
+            YearMonth month = YearMonth.from(LocalDate.ofEpochDay(day));
+            long n = switch (frequency) {
+                case DAILY -> day - anchorDay;
+                case WEEKLY -> (day - anchorDay) / 7;
+                case MONTHLY -> ChronoUnit.MONTHS.between(anchorMonth, month);
+                case YEARLY -> ChronoUnit.YEARS.between(anchorMonth, month);
+            };
+            n = Math.max(1, n);
+            while (step(n).toEpochDay() <= day) {
+                n++;
+            }
+            return n;
+        }
+
+        /**
+         * Lịch cùng dạng bắt đầu từ startDay (một ngày trên lịch), không giới hạn endDate
+         */
+        Schedule from(long startDay) {
+            return new Schedule(startDay, dayOfMonth, frequency, Long.MAX_VALUE);
+        }
+
+        Shape shape() {
+            LocalDate anchor = LocalDate.ofEpochDay(anchorDay);
+            return switch (frequency) {
+                case DAILY -> new Shape(frequency, 0);
+                case WEEKLY -> new Shape(frequency, anchor.getDayOfWeek().getValue());
+                case MONTHLY -> new Shape(frequency, dayOfMonth);
+                case YEARLY -> new Shape(frequency, anchor.getMonthValue() * 100 + dayOfMonth);
+            };
+        }
+
+        private LocalDate clamp(YearMonth month) {
+            return month.atDay(Math.min(dayOfMonth, month.lengthOfMonth()));
+        }
+    }
+
+    /**
+     * Dạng quy tắc: tần suất và vị trí trong chu kỳ (thứ trong tuần, ngày trong tháng, tháng + ngày trong năm)
+     */
+    record Shape(RecurringTransaction.Frequency frequency, int phase) {
+    }
+
+    // Các ngày trên lịch của một dạng quy tắc trong [origin, horizon]
+    private record Expansion(long origin, int[] days, long horizon) {
+    }
+}
@@ -13,7 +13,6 @@ import com.example.financebackend.repository.UserRepository;
 import com.example.financebackend.repository.WalletRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -34,18 +33,57 @@ public class RecurringTransactionService {
     private final WalletRepository walletRepository;
     private final CategoryRepository categoryRepository;
     private final UserRepository userRepository;
+    private final RecurrenceCalendar recurrenceCalendar;
+    private ReportCacheService reportCacheService;
+    private EventStreamService eventStreamService;
+    private RecentTransactionCache recentTransactionCache;
+    private TransactionNoteIndex transactionNoteIndex;
+    private TransactionSnapshotCache transactionSnapshotCache;
+    private SyncSequenceService syncSequenceService;
 
     public RecurringTransactionService(
             RecurringTransactionRepository recurringTransactionRepository,
             TransactionRepository transactionRepository,
             WalletRepository walletRepository,
             CategoryRepository categoryRepository,
-            UserRepository userRepository) {
+            UserRepository userRepository,
+            RecurrenceCalendar recurrenceCalendar) {
         this.recurringTransactionRepository = recurringTransactionRepository;
         this.transactionRepository = transactionRepository;
         this.walletRepository = walletRepository;
         this.categoryRepository = categoryRepository;
         this.userRepository = userRepository;
+        this.recurrenceCalendar = recurrenceCalendar;
+    }
+
+    @org.springframework.beans.factory.annotation.Autowired(required = false)
+    public void setSyncSequenceService(SyncSequenceService syncSequenceService) {
+        this.syncSequenceService = syncSequenceService;
+    }
+
+    @org.springframework.beans.factory.annotation.Autowired(required = false)
+    public void setReportCacheService(ReportCacheService reportCacheService) {
+        this.reportCacheService = reportCacheService;
+    }
+
+    @org.springframework.beans.factory.annotation.Autowired(required = false)
+    public void setEventStreamService(EventStreamService eventStreamService) {
+        this.eventStreamService = eventStreamService;
+    }
+
+    @org.springframework.beans.factory.annotation.Autowired(required = false)
+    public void setTransactionNoteIndex(TransactionNoteIndex transactionNoteIndex) {
+        this.transactionNoteIndex = transactionNoteIndex;
+    }
+
+    @org.springframework.beans.factory.annotation.Autowired(required = false)
+    public void setTransactionSnapshotCache(TransactionSnapshotCache transactionSnapshotCache) {
+        this.transactionSnapshotCache = transactionSnapshotCache;
+    }
+
+    @org.springframework.beans.factory.annotation.Autowired(required = false)
+    public void setRecentTransactionCache(RecentTransactionCache recentTransactionCache) {
+        this.recentTransactionCache = recentTransactionCache;
     }
 
     public List<RecurringTransactionDto> findAllByUserId(Long userId) {
@@ -85,6 +123,7 @@ public class RecurringTransactionService {
         recurring.setNote(dto.getNote());
 
         RecurringTransaction saved = recurringTransactionRepository.save(recurring);
+        evictReportCache(userId);
         return toDto(saved);
     }
 
@@ -118,6 +157,7 @@ public class RecurringTransactionService {
         }
 
         RecurringTransaction saved = recurringTransactionRepository.save(recurring);
+        evictReportCache(userId);
         return toDto(saved);
     }
 
@@ -125,6 +165,7 @@ public class RecurringTransactionService {
         RecurringTransaction recurring = recurringTransactionRepository.findByIdAndUserId(id, userId)
                 .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy giao dịch định kỳ"));
         recurringTransactionRepository.delete(recurring);
+        evictReportCache(userId);
     }
 
     public RecurringTransactionDto toggleActive(Long id, Long userId) {
@@ -132,6 +173,7 @@ public class RecurringTransactionService {
                 .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy giao dịch định kỳ"));
         recurring.setActive(!recurring.getActive());
         RecurringTransaction saved = recurringTransactionRepository.save(recurring);
+        evictReportCache(userId);
         return toDto(saved);
     }
 
@@ -152,22 +194,35 @@ public class RecurringTransactionService {
         return dto;
     }
 
-    @Scheduled(cron = "0 0 1 * * ?") // Run daily at 1 AM
-    public void processRecurringTransactions() {
-        LocalDate today = LocalDate.now();
+    /**
+     * Tạo giao dịch cho các giao dịch định kỳ đến hạn của user trong [fromUserId, toUserId].
+     * Được ScheduledJobRunner gọi theo từng chunk user, mỗi chunk một transaction.
+     */
+    public int processRecurringTransactionsForUsers(Long fromUserId, Long toUserId, LocalDate today) {
         List<RecurringTransaction> recurringTxns = recurringTransactionRepository
-                .findByActiveTrueAndNextRunDateLessThanEqual(today);
+                .findDueForUserRange(today, fromUserId, toUserId);
 
         for (RecurringTransaction recurring : recurringTxns) {
             if (recurring.getEndDate() != null && today.isAfter(recurring.getEndDate())) {
                 recurring.setActive(false);
                 recurringTransactionRepository.save(recurring);
+                evictReportCache(recurring.getUser().getId());
                 continue;
             }
 
+            // Chiếm lần chạy trước khi ghi: nếu node khác đã đăng (hoặc đang giữ khóa dòng tới khi commit) thì
+            // UPDATE có điều kiện trả về 0 và lần này bị bỏ qua, nên giao dịch không bị tạo hai lần.
+            // Dùng chung lịch với dự báo cashflow (giữ ngày của startDate cho MONTHLY / YEARLY)
+            LocalDate due = recurring.getNextRunDate();
+            LocalDate next = recurrenceCalendar.nextAfter(recurring, due);
+            if (recurringTransactionRepository.advanceNextRunDate(recurring.getId(), due, next) == 0) {
+                logger.info("Recurring transaction {} for {} was already processed", recurring.getId(), due);
+                continue;
+            }
             createTransactionFromRecurring(recurring);
-            updateNextRunDate(recurring);
+            evictReportCache(recurring.getUser().getId());
         }
+        return recurringTxns.size();
     }
 
     private void createTransactionFromRecurring(RecurringTransaction recurring) {
@@ -196,7 +251,12 @@ public class RecurringTransactionService {
             transaction.setNote(recurring.getNote() != null ? recurring.getNote() : "Giao dịch định kỳ");
             transaction.setOccurredAt(LocalDateTime.now());
 
-            transactionRepository.save(transaction);
+            // Ví chia sẻ: khóa bộ đếm sync của người tạo và chủ ví theo thứ tự id trước khi ghi
+            if (syncSequenceService != null) {
+                syncSequenceService.reserveInOrder(recurring.getUser().getId(), wallet.getUser().getId());
+            }
+
+            Transaction saved = transactionRepository.save(transaction);
 
             // Update wallet balance
             if (recurring.getType() == Transaction.TransactionType.INCOME) {
@@ -205,6 +265,16 @@ public class RecurringTransactionService {
                 wallet.setBalance(currentBalance.subtract(amount));
             }
             walletRepository.save(wallet);
+            publishWalletBalance(wallet, recurring.getUser().getId());
+            if (recentTransactionCache != null) {
+                recentTransactionCache.evict(recurring.getUser().getId());
+            }
+            if (transactionNoteIndex != null) {
+                transactionNoteIndex.onSaved(recurring.getUser().getId(), saved.getId(), saved.getNote());
+            }
+            if (transactionSnapshotCache != null) {
+                transactionSnapshotCache.onSaved(saved);
+            }
             
             logger.info("Processed recurring transaction {}: amount={}, type={}, walletId={}", 
                        recurring.getId(), amount, recurring.getType(), wallet.getId());
@@ -214,25 +284,15 @@ public class RecurringTransactionService {
         }
     }
 
-    private void updateNextRunDate(RecurringTransaction recurring) {
-        LocalDate nextDate = recurring.getNextRunDate();
-        switch (recurring.getFrequency()) {
-            case DAILY:
-                nextDate = nextDate.plusDays(1);
-                break;
-            case WEEKLY:
-                nextDate = nextDate.plusWeeks(1);
-                break;
-            case MONTHLY:
-                nextDate = nextDate.plusMonths(1);
-                break;
-            case YEARLY:
-                nextDate = nextDate.plusYears(1);
-                break;
-            default:
-                throw new IllegalArgumentException("Tần suất không hợp lệ: " + recurring.getFrequency());
+    private void evictReportCache(Long userId) {
+        if (reportCacheService != null) {
+            reportCacheService.evictUser(userId);
+        }
+    }
+
+    private void publishWalletBalance(Wallet wallet, Long userId) {
+        if (eventStreamService != null) {
+            eventStreamService.publishWalletBalance(wallet, userId);
         }
-        recurring.setNextRunDate(nextDate);
-        recurringTransactionRepository.save(recurring);
     }
 }
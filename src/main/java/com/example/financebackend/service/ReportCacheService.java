@@ -0,0 +1,384 @@
+package com.example.financebackend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Report Cache Service
+ * Cache kết quả báo cáo / phân tích theo (userId, endpoint, khoảng thời gian).
+ *
+ * - Giới hạn theo dung lượng ước lượng (bytes), không theo số entry.
+ * - Chỉ xóa các entry có khoảng thời gian chứa giao dịch vừa thay đổi.
+ * - Các request giống nhau chạy đồng thời chỉ tính toán một lần.
+ * - Caller không bao giờ nhận chung một object có thể sửa: Map/List được lưu dưới dạng bất biến, còn DTO
+ *   (ReportSummaryDto, CashflowDto...) được lưu dạng JSON và dựng lại bản mới cho mỗi lần đọc. Kết quả chỉ
+ *   gồm giá trị bất biến (String, số, ngày...) được dùng chung, không copy.
+ */
+@Service
+public class ReportCacheService extends LocalCacheSupport {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReportCacheService.class);
+
+    // Overhead ước lượng cho key + entry của Caffeine
+    private static final int ENTRY_OVERHEAD_BYTES = 256;
+    private static final int FALLBACK_WEIGHT_BYTES = 16 * 1024;
+
+    public static final String CACHE_NAME = "report";
+
+    public enum Endpoint {
+        REPORT_SUMMARY,
+        REPORT_CASHFLOW,
+        REPORT_WALLET_SUMMARY,
+        MONTH_OVER_MONTH,
+        VS_AVERAGE,
+        YEAR_OVER_YEAR,
+        CASHFLOW_FORECAST,
+        FINANCIAL_HEALTH,
+        BUDGET_RECOMMENDATIONS
+    }
+
+    private final ObjectMapper objectMapper;
+    private final Cache<CacheKey, Entry> cache;
+    private final ConcurrentMap<CacheKey, Pending> inFlight = new ConcurrentHashMap<>();
+    // Index key theo user để invalidate chỉ duyệt các entry của user đó thay vì toàn bộ cache
+    private final ConcurrentMap<Long, Set<CacheKey>> keysByUser = new ConcurrentHashMap<>();
+    // Tăng mỗi lần invalidate để kết quả tính trước khi dữ liệu đổi không bị ghi vào cache
+    private final ConcurrentMap<Long, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    public ReportCacheService(ObjectMapper objectMapper,
+                              @Value("${report.cache.max-weight-bytes:33554432}") long maxWeightBytes,
+                              @Value("${report.cache.ttl-minutes:10}") long ttlMinutes) {
+        super(CACHE_NAME);
+        // Getter tính toán (không có setter) cũng được ghi ra JSON, bỏ qua khi dựng lại DTO
+        this.objectMapper = objectMapper.copy().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeightBytes)
+                .weigher((CacheKey key, Entry entry) -> entry.weight())
+                .expireAfterWrite(ttlMinutes, TimeUnit.MINUTES)
+                // Chạy trong thao tác evict (hết hạn / quá dung lượng); xóa chủ động thì tự gỡ khỏi index
+                .evictionListener((CacheKey key, Entry entry, RemovalCause cause) -> unindex(key))
+                .build();
+    }
+
+    /**
+     * Lấy kết quả từ cache hoặc tính bằng loader.
+     * from/to = null nghĩa là khoảng mở (phụ thuộc mọi giao dịch ở phía đó).
+     * variant dùng cho các tham số khác ngoài khoảng thời gian (days, ngày hiện tại...).
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(Long userId, Endpoint endpoint, LocalDateTime from, LocalDateTime to,
+                     Object variant, Supplier<T> loader) {
+        CacheKey key = new CacheKey(userId, endpoint, normalize(from), normalize(to), variant);
+
+        Entry cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return (T) read(cached);
+        }
+
+        long generation = generation(userId).get();
+        Pending pending = new Pending(new CompletableFuture<>(), generation);
+        while (true) {
+            Pending existing = inFlight.putIfAbsent(key, pending);
+            if (existing == null) {
+                break;
+            }
+            if (existing.generation == generation) {
+                // Request giống hệt đang được tính - chờ kết quả của request đầu tiên
+                return (T) read(join(existing.future));
+            }
+            // Lần tính đang chạy bắt đầu trước khi dữ liệu đổi: không dùng chung, các request đã chờ nó vẫn nhận kết quả
+            if (inFlight.replace(key, existing, pending)) {
+                break;
+            }
+        }
+
+        try {
+            Entry entry = store(loader.get());
+            if (entry != null && generation(userId).get() == generation) {
+                index(key);
+                cache.put(key, entry);
+                if (generation(userId).get() != generation) {
+                    // Bị invalidate trong lúc ghi vào cache
+                    cache.invalidate(key);
+                    unindex(key);
+                }
+            }
+            pending.future.complete(entry);
+            return (T) read(entry);
+        } catch (RuntimeException e) {
+            pending.future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, pending);
+        }
+    }
+
+    /**
+     * Xóa các entry của user có khoảng thời gian chứa occurredAt.
+     * Nếu đang trong DB transaction thì xóa lại sau khi commit.
+     */
+    public void invalidate(Long userId, LocalDateTime occurredAt) {
+        if (userId == null) {
+            return;
+        }
+        if (occurredAt == null) {
+            evictUser(userId);
+            return;
+        }
+        doInvalidate(userId, occurredAt);
+        afterCommit(() -> doInvalidate(userId, occurredAt));
+        publishRemote(userId + "@" + occurredAt);
+    }
+
+    /**
+     * Xóa toàn bộ entry của user (thay đổi ví, ngân sách, danh mục, giao dịch định kỳ...)
+     */
+    public void evictUser(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        doEvictUser(userId);
+        afterCommit(() -> doEvictUser(userId));
+        publishRemote(userId);
+    }
+
+    // key: "userId" hoặc "userId@occurredAt"
+    @Override
+    protected void onRemoteInvalidation(CacheInvalidationBus.Invalidation invalidation) {
+        String key = invalidation.key();
+        int separator = key.indexOf('@');
+        if (separator < 0) {
+            doEvictUser(Long.valueOf(key));
+        } else {
+            doInvalidate(Long.valueOf(key.substring(0, separator)), LocalDateTime.parse(key.substring(separator + 1)));
+        }
+    }
+
+    private void doInvalidate(Long userId, LocalDateTime occurredAt) {
+        generation(userId).incrementAndGet();
+        Set<CacheKey> keys = keysByUser.get(userId);
+        if (keys == null) {
+            return;
+        }
+        for (CacheKey key : keys) {
+            if (key.contains(occurredAt)) {
+                cache.invalidate(key);
+                unindex(key);
+            }
+        }
+    }
+
+    private void doEvictUser(Long userId) {
+        generation(userId).incrementAndGet();
+        Set<CacheKey> keys = keysByUser.remove(userId);
+        if (keys != null) {
+            cache.invalidateAll(keys);
+        }
+    }
+
+    private void index(CacheKey key) {
+        keysByUser.compute(key.userId, (userId, keys) -> {
+            Set<CacheKey> result = keys != null ? keys : ConcurrentHashMap.newKeySet();
+            result.add(key);
+            return result;
+        });
+    }
+
+    private void unindex(CacheKey key) {
+        keysByUser.computeIfPresent(key.userId, (userId, keys) -> {
+            keys.remove(key);
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+
+    private AtomicLong generation(Long userId) {
+        return generations.computeIfAbsent(userId, id -> new AtomicLong());
+    }
+
+    private Entry join(CompletableFuture<Entry> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private Entry store(Object value) {
+        if (value == null) {
+            return null;
+        }
+        Object frozen = freeze(value);
+        return new Entry(frozen, isShareable(frozen), estimateWeight(value));
+    }
+
+    private Object read(Entry entry) {
+        if (entry == null) {
+            return null;
+        }
+        return entry.shareable() ? entry.value() : thaw(entry.value());
+    }
+
+    private int estimateWeight(Object value) {
+        try {
+            long bytes = (long) objectMapper.writeValueAsBytes(value).length + ENTRY_OVERHEAD_BYTES;
+            return (int) Math.min(Integer.MAX_VALUE, bytes);
+        } catch (Exception e) {
+            logger.debug("Cannot estimate report cache weight: {}", e.getMessage());
+            return FALLBACK_WEIGHT_BYTES;
+        }
+    }
+
+    // Map/List được copy thành bất biến (đệ quy); object có thể sửa (DTO) được lưu dạng JSON
+    private Object freeze(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            Map<Object, Object> copy = new LinkedHashMap<>();
+            map.forEach((k, v) -> copy.put(k, freeze(v)));
+            return Collections.unmodifiableMap(copy);
+        }
+        if (value instanceof List<?> list) {
+            List<Object> copy = new ArrayList<>(list.size());
+            list.forEach(item -> copy.add(freeze(item)));
+            return Collections.unmodifiableList(copy);
+        }
+        if (isImmutable(value)) {
+            return value;
+        }
+        try {
+            return new Snapshot(value.getClass(), objectMapper.writeValueAsBytes(value));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Không lưu được kết quả báo cáo vào cache: " + value.getClass().getName(), e);
+        }
+    }
+
+    // Dựng lại cây của entry: DTO là bản mới, Map/List bất biến bọc các bản mới đó
+    private Object thaw(Object value) {
+        if (value instanceof Snapshot snapshot) {
+            try {
+                return objectMapper.readValue(snapshot.json(), snapshot.type());
+            } catch (IOException e) {
+                throw new IllegalStateException("Không đọc được kết quả báo cáo từ cache: " + snapshot.type().getName(), e);
+            }
+        }
+        if (value instanceof Map<?, ?> map) {
+            Map<Object, Object> copy = new LinkedHashMap<>();
+            map.forEach((k, v) -> copy.put(k, thaw(v)));
+            return Collections.unmodifiableMap(copy);
+        }
+        if (value instanceof List<?> list) {
+            List<Object> copy = new ArrayList<>(list.size());
+            list.forEach(item -> copy.add(thaw(item)));
+            return Collections.unmodifiableList(copy);
+        }
+        return value;
+    }
+
+    private static boolean isShareable(Object frozen) {
+        if (frozen instanceof Snapshot) {
+            return false;
+        }
+        if (frozen instanceof Map<?, ?> map) {
+            return map.values().stream().allMatch(ReportCacheService::isShareable);
+        }
+        if (frozen instanceof List<?> list) {
+            return list.stream().allMatch(ReportCacheService::isShareable);
+        }
+        return true;
+    }
+
+    private static boolean isImmutable(Object value) {
+        return value == null || value instanceof String || value instanceof Boolean || value instanceof Character
+                || value instanceof Integer || value instanceof Long || value instanceof Double
+                || value instanceof Float || value instanceof Short || value instanceof Byte
+                || value instanceof BigDecimal || value instanceof BigInteger || value instanceof Enum<?>
+                || value instanceof UUID
+                || (value instanceof TemporalAccessor && value.getClass().getName().startsWith("java.time."));
+    }
+
+    private static LocalDateTime normalize(LocalDateTime value) {
+        return value != null ? value.truncatedTo(ChronoUnit.SECONDS) : null;
+    }
+
+    private record Pending(CompletableFuture<Entry> future, long generation) {
+    }
+
+    /**
+     * Giá trị trong cache; shareable = cây chỉ gồm giá trị bất biến, trả thẳng cho caller
+     */
+    private record Entry(Object value, boolean shareable, int weight) {
+    }
+
+    // DTO ở dạng JSON, mỗi lần đọc dựng lại một object mới
+    private record Snapshot(Class<?> type, byte[] json) {
+    }
+
+    static final class CacheKey {
+        private final Long userId;
+        private final Endpoint endpoint;
+        private final LocalDateTime from;
+        private final LocalDateTime to;
+        private final Object variant;
+
+        CacheKey(Long userId, Endpoint endpoint, LocalDateTime from, LocalDateTime to, Object variant) {
+            this.userId = userId;
+            this.endpoint = endpoint;
+            this.from = from;
+            this.to = to;
+            this.variant = variant;
+        }
+
+        boolean contains(LocalDateTime occurredAt) {
+            LocalDateTime time = occurredAt.truncatedTo(ChronoUnit.SECONDS);
+            return (from == null || !time.isBefore(from)) && (to == null || !time.isAfter(to));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof CacheKey)) return false;
+            CacheKey other = (CacheKey) o;
+            return userId.equals(other.userId)
+                    && endpoint == other.endpoint
+                    && Objects.equals(from, other.from)
+                    && Objects.equals(to, other.to)
+                    && Objects.equals(variant, other.variant);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, endpoint, from, to, variant);
+        }
+    }
+}
@@ -5,12 +5,15 @@ import com.example.financebackend.dto.ReportSummaryDto;
 import com.example.financebackend.dto.WalletSummaryDto;
 import com.example.financebackend.entity.Transaction;
 import com.example.financebackend.repository.TransactionRepository;
+import com.example.financebackend.util.Money;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -21,37 +24,29 @@ import java.util.stream.Collectors;
 public class ReportService {
 
     private final TransactionRepository transactionRepository;
+    private final TransactionSnapshotCache snapshotCache;
 
-    public ReportService(TransactionRepository transactionRepository) {
+    public ReportService(TransactionRepository transactionRepository, TransactionSnapshotCache snapshotCache) {
         this.transactionRepository = transactionRepository;
+        this.snapshotCache = snapshotCache;
     }
 
+    @Timed(value = "finance.report", extraTags = {"report", "summary"}, histogram = true)
     public ReportSummaryDto getSummary(Long userId, LocalDateTime from, LocalDateTime to) {
-        // Get all transactions for user with date filtering
-        List<Transaction> allTransactions = transactionRepository.findByUserId(userId);
-        List<Transaction> transactions = allTransactions.stream()
-                .filter(tx -> {
-                    if (tx.getOccurredAt() == null) {
-                        return false; // Skip transactions without date
-                    }
-                    LocalDateTime occurredAt = tx.getOccurredAt();
-                    return (from == null || !occurredAt.isBefore(from)) 
-                        && (to == null || !occurredAt.isAfter(to));
-                })
-                .collect(Collectors.toList());
-
-        BigDecimal totalIncome = transactions.stream()
-                .filter(tx -> tx.getType() == Transaction.TransactionType.INCOME && tx.getAmount() != null)
-                .map(Transaction::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        BigDecimal totalExpense = transactions.stream()
-                .filter(tx -> tx.getType() == Transaction.TransactionType.EXPENSE && tx.getAmount() != null)
-                .map(Transaction::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        // Lọc theo khoảng thời gian ở DB, category fetch cùng query
+        List<Transaction> transactions = transactionRepository.findByUserIdInRangeWithCategory(userId, from, to);
 
+        // Cộng dồn bằng long (minor unit), chỉ đổi sang BigDecimal khi tạo DTO
+        Money.Accumulator totalIncome = new Money.Accumulator();
+        Money.Accumulator totalExpense = new Money.Accumulator();
         Map<String, CategorySummary> categoryMap = new HashMap<>();
         for (Transaction tx : transactions) {
+            if (tx.getType() == Transaction.TransactionType.INCOME) {
+                totalIncome.add(tx.getAmount());
+            } else if (tx.getType() == Transaction.TransactionType.EXPENSE) {
+                totalExpense.add(tx.getAmount());
+            }
+
             // Null safety checks
             if (tx.getCategory() == null || tx.getAmount() == null || tx.getType() == null) {
                 continue; // Skip invalid transactions
@@ -66,24 +61,23 @@ public class ReportService {
         }
 
         ReportSummaryDto dto = new ReportSummaryDto();
-        dto.setTotalIncome(totalIncome != null ? totalIncome : BigDecimal.ZERO);
-        dto.setTotalExpense(totalExpense != null ? totalExpense : BigDecimal.ZERO);
-        dto.setBalance((totalIncome != null ? totalIncome : BigDecimal.ZERO)
-                .subtract(totalExpense != null ? totalExpense : BigDecimal.ZERO));
+        dto.setTotalIncome(totalIncome.sum());
+        dto.setTotalExpense(totalExpense.sum());
+        dto.setBalance(totalIncome.toMoney().minus(totalExpense.toMoney()).toBigDecimal());
         dto.setTransactionCount((long) transactions.size());
         
         // Filter out categories with zero amount và ensure proper formatting
         List<ReportSummaryDto.CategorySummaryDto> categorySummaries = categoryMap.values().stream()
-                .filter(cs -> cs.amount != null && cs.amount.compareTo(BigDecimal.ZERO) > 0) // Only include non-zero amounts
+                .filter(cs -> cs.amount.sumMinor() > 0) // Only include non-zero amounts
+                .sorted((a, b) -> Long.compare(b.amount.sumMinor(), a.amount.sumMinor())) // Sort by amount descending
                 .map(cs -> {
                     ReportSummaryDto.CategorySummaryDto catDto = new ReportSummaryDto.CategorySummaryDto();
                     catDto.setCategoryId(cs.categoryId);
                     catDto.setCategoryName(cs.categoryName != null ? cs.categoryName : "Unknown");
-                    catDto.setAmount(cs.amount != null ? cs.amount : BigDecimal.ZERO);
+                    catDto.setAmount(cs.amount.sum());
                     catDto.setType(cs.type != null ? cs.type : "EXPENSE");
                     return catDto;
                 })
-                .sorted((a, b) -> b.getAmount().compareTo(a.getAmount())) // Sort by amount descending
                 .collect(Collectors.toList());
         
         dto.setCategorySummaries(categorySummaries);
@@ -94,7 +88,7 @@ public class ReportService {
     private static class CategorySummary {
         Long categoryId;
         String categoryName;
-        BigDecimal amount = BigDecimal.ZERO;
+        final Money.Accumulator amount = new Money.Accumulator();
         String type;
 
         CategorySummary(Long categoryId, String categoryName, String type) {
@@ -104,61 +98,44 @@ public class ReportService {
         }
 
         void addAmount(BigDecimal amount) {
-            if (amount != null) {
-                this.amount = this.amount.add(amount);
-            }
+            this.amount.add(amount);
         }
     }
 
+    @Timed(value = "finance.report", extraTags = {"report", "cashflow"}, histogram = true)
     public List<CashflowDto> getCashflow(Long userId, LocalDateTime from, LocalDateTime to) {
-        // Get all transactions for user with date filtering
-        List<Transaction> allTransactions = transactionRepository.findByUserId(userId);
-        List<Transaction> transactions = allTransactions.stream()
-                .filter(tx -> {
-                    if (tx.getOccurredAt() == null) {
-                        return false; // Skip transactions without date
-                    }
-                    LocalDateTime occurredAt = tx.getOccurredAt();
-                    return (from == null || !occurredAt.isBefore(from))
-                        && (to == null || !occurredAt.isAfter(to));
-                })
-                .collect(Collectors.toList());
-
-        Map<LocalDate, CashflowData> cashflowMap = new HashMap<>();
-        for (Transaction tx : transactions) {
-            // Null safety checks
-            if (tx.getOccurredAt() == null || tx.getType() == null || tx.getAmount() == null) {
-                continue; // Skip invalid transactions
+        // Đọc từ TransactionSnapshot (dùng chung với dashboard và các service phân tích) thay vì load toàn bộ entity
+        TransactionSnapshot snapshot = snapshotCache.get(userId);
+        long fromKey = from != null ? TransactionSnapshot.timeKeyCeil(from) : Long.MIN_VALUE;
+        long toKey = to != null ? TransactionSnapshot.timeKey(to) : Long.MAX_VALUE;
+
+        Map<Integer, CashflowData> cashflowMap = new HashMap<>();
+        for (int row = 0, size = snapshot.size(); row < size; row++) {
+            long time = snapshot.time(row);
+            if (time < fromKey || time > toKey) {
+                continue;
             }
-            
-            LocalDate date = tx.getOccurredAt().toLocalDate();
-            CashflowData data = cashflowMap.computeIfAbsent(date, k -> new CashflowData(date));
-
-            BigDecimal amount = tx.getAmount() != null ? tx.getAmount() : BigDecimal.ZERO;
-            if (tx.getType() == Transaction.TransactionType.INCOME) {
-                data.income = data.income.add(amount);
+            CashflowData data = cashflowMap.computeIfAbsent(snapshot.epochDay(row),
+                    day -> new CashflowData(LocalDate.ofEpochDay(day)));
+            if (snapshot.type(row) == TransactionSnapshot.INCOME) {
+                data.income = Math.addExact(data.income, snapshot.amount(row));
             } else {
-                data.expense = data.expense.add(amount);
+                data.expense = Math.addExact(data.expense, snapshot.amount(row));
             }
         }
 
-        // Sort by date và tính cumulative balance
-        List<CashflowDto> cashflowList = cashflowMap.values().stream()
+        // Sort by date và tính cumulative balance (running balance) - balance là tổng số dư từ đầu đến ngày đó
+        List<CashflowData> days = cashflowMap.values().stream()
                 .sorted((a, b) -> a.date.compareTo(b.date))
-                .map(data -> {
-                    BigDecimal income = data.income != null ? data.income : BigDecimal.ZERO;
-                    BigDecimal expense = data.expense != null ? data.expense : BigDecimal.ZERO;
-                    BigDecimal net = income.subtract(expense);
-                    return new CashflowDto(data.date, income, expense, net);
-                })
                 .collect(Collectors.toList());
-        
-        // Tính cumulative balance (running balance) - balance là tổng số dư từ đầu đến ngày đó
-        BigDecimal runningBalance = BigDecimal.ZERO;
-        for (CashflowDto dto : cashflowList) {
-            BigDecimal net = dto.getBalance() != null ? dto.getBalance() : BigDecimal.ZERO;
-            runningBalance = runningBalance.add(net);
-            dto.setBalance(runningBalance);
+        List<CashflowDto> cashflowList = new ArrayList<>(days.size());
+        long runningBalance = 0L;
+        for (CashflowData data : days) {
+            runningBalance = Math.addExact(runningBalance, Math.subtractExact(data.income, data.expense));
+            cashflowList.add(new CashflowDto(data.date,
+                    Money.toBigDecimal(data.income, Money.STORAGE_SCALE),
+                    Money.toBigDecimal(data.expense, Money.STORAGE_SCALE),
+                    Money.toBigDecimal(runningBalance, Money.STORAGE_SCALE)));
         }
         
         // Ensure we have at least some data points for chart rendering
@@ -173,14 +150,15 @@ public class ReportService {
 
     private static class CashflowData {
         LocalDate date;
-        BigDecimal income = BigDecimal.ZERO;
-        BigDecimal expense = BigDecimal.ZERO;
+        long income;
+        long expense;
 
         CashflowData(LocalDate date) {
             this.date = date;
         }
     }
 
+    @Timed(value = "finance.report", extraTags = {"report", "wallet-summary"}, histogram = true)
     public List<WalletSummaryDto> getWalletSummary(Long userId, LocalDateTime from, LocalDateTime to) {
         List<Transaction> transactions = transactionRepository.findByUserId(userId).stream()
                 .filter(tx -> {
@@ -204,26 +182,23 @@ public class ReportService {
                     tx.getWallet().getCurrency() != null ? tx.getWallet().getCurrency() : "VND"
             ));
 
-            BigDecimal amount = tx.getAmount() != null ? tx.getAmount() : BigDecimal.ZERO;
             if (tx.getType() == Transaction.TransactionType.INCOME) {
-                summary.totalIncome = summary.totalIncome.add(amount);
+                summary.totalIncome.add(tx.getAmount());
             } else {
-                summary.totalExpense = summary.totalExpense.add(amount);
+                summary.totalExpense.add(tx.getAmount());
             }
             summary.transactionCount++;
         }
 
         return walletMap.values().stream()
                 .map(ws -> {
-                    BigDecimal totalIncome = ws.totalIncome != null ? ws.totalIncome : BigDecimal.ZERO;
-                    BigDecimal totalExpense = ws.totalExpense != null ? ws.totalExpense : BigDecimal.ZERO;
-                    BigDecimal balance = totalIncome.subtract(totalExpense);
+                    BigDecimal balance = ws.totalIncome.toMoney().minus(ws.totalExpense.toMoney()).toBigDecimal();
                     return new WalletSummaryDto(
                             ws.walletId,
                             ws.walletName,
                             ws.currency,
-                            totalIncome,
-                            totalExpense,
+                            ws.totalIncome.sum(),
+                            ws.totalExpense.sum(),
                             balance,
                             ws.transactionCount
                     );
@@ -235,8 +210,8 @@ public class ReportService {
         Long walletId;
         String walletName;
         String currency;
-        BigDecimal totalIncome = BigDecimal.ZERO;
-        BigDecimal totalExpense = BigDecimal.ZERO;
+        final Money.Accumulator totalIncome = new Money.Accumulator();
+        final Money.Accumulator totalExpense = new Money.Accumulator();
         Long transactionCount = 0L;
 
         WalletSummary(Long walletId, String walletName, String currency) {
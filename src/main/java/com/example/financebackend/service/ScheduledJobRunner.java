@@ -0,0 +1,56 @@
+package com.example.financebackend.service;
+
+import io.micrometer.core.annotation.Timed;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * Các cron job theo user, chạy qua ClusterJobCoordinator: mỗi job được chia partition theo
+ * khoảng user id và chạy song song trên các node, không bị chạy trùng khi có nhiều node.
+ *
+ * runKey là ngày chạy, nên node tiếp quản sau nửa đêm vẫn xử lý đúng ngày của lần chạy đó.
+ */
+@Component
+public class ScheduledJobRunner {
+
+    static final String RECURRING_TRANSACTIONS = "recurring-transactions";
+    static final String BUDGET_ALERTS = "budget-alerts";
+    static final String DAILY_REMINDERS = "daily-reminders";
+
+    private final ClusterJobCoordinator coordinator;
+
+    public ScheduledJobRunner(ClusterJobCoordinator coordinator,
+                              RecurringTransactionService recurringTransactionService,
+                              ScheduledNotificationService scheduledNotificationService) {
+        this.coordinator = coordinator;
+        // Coordinator gọi task cho từng user trong transaction riêng; service tham gia transaction đó
+        coordinator.register(RECURRING_TRANSACTIONS, (runKey, from, to) ->
+                recurringTransactionService.processRecurringTransactionsForUsers(from, to, LocalDate.parse(runKey)));
+        coordinator.register(BUDGET_ALERTS, (runKey, from, to) ->
+                scheduledNotificationService.checkBudgetAlertsForUsers(from, to, LocalDate.parse(runKey)));
+        coordinator.register(DAILY_REMINDERS, (runKey, from, to) ->
+                scheduledNotificationService.sendDailyRemindersForUsers(from, to, LocalDate.parse(runKey)));
+    }
+
+    @Timed(value = "finance.scheduler", extraTags = {"job", "recurring-transactions"})
+    @Scheduled(cron = "0 0 1 * * ?") // Run daily at 1 AM
+    public void processRecurringTransactions() {
+        coordinator.run(RECURRING_TRANSACTIONS, LocalDate.now().toString());
+    }
+
+    // Run daily at 8 AM to check budget alerts
+    @Timed(value = "finance.scheduler", extraTags = {"job", "budget-alerts"})
+    @Scheduled(cron = "0 0 8 * * ?")
+    public void checkBudgetAlerts() {
+        coordinator.run(BUDGET_ALERTS, LocalDate.now().toString());
+    }
+
+    // Run daily at 9 PM to remind users to log transactions
+    @Timed(value = "finance.scheduler", extraTags = {"job", "daily-reminders"})
+    @Scheduled(cron = "0 0 21 * * ?")
+    public void sendDailyReminders() {
+        coordinator.run(DAILY_REMINDERS, LocalDate.now().toString());
+    }
+}
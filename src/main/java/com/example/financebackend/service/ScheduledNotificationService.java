@@ -1,12 +1,10 @@
 package com.example.financebackend.service;
 
 import com.example.financebackend.entity.Budget;
-import com.example.financebackend.entity.Transaction;
 import com.example.financebackend.entity.User;
 import com.example.financebackend.repository.BudgetRepository;
 import com.example.financebackend.repository.TransactionRepository;
 import com.example.financebackend.repository.UserRepository;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -15,7 +13,6 @@ import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
 @Transactional
@@ -39,19 +36,14 @@ public class ScheduledNotificationService {
         this.budgetService = budgetService;
     }
 
-    // Run daily at 8 AM to check budget alerts
-    @Scheduled(cron = "0 0 8 * * ?")
-    public void checkBudgetAlerts() {
-        LocalDate today = LocalDate.now();
-        
+    /**
+     * Kiểm tra ngân sách đang hiệu lực của user trong [fromUserId, toUserId] và tạo cảnh báo.
+     * Được ScheduledJobRunner gọi theo từng chunk user (8h sáng).
+     */
+    public int checkBudgetAlertsForUsers(Long fromUserId, Long toUserId, LocalDate today) {
         // Get all active budgets that are currently in their period
-        List<Budget> activeBudgets = budgetRepository.findAll().stream()
-                .filter(budget -> {
-                    LocalDate startDate = budget.getStartDate();
-                    LocalDate endDate = budget.getEndDate();
-                    return !today.isBefore(startDate) && !today.isAfter(endDate);
-                })
-                .collect(Collectors.toList());
+        List<Budget> activeBudgets = budgetRepository.findActiveForUserRange(today, fromUserId, toUserId);
+        LocalDateTime todayStart = today.atStartOfDay();
 
         for (Budget budget : activeBudgets) {
             // Update used amount
@@ -69,52 +61,40 @@ public class ScheduledNotificationService {
             BigDecimal threshold = budget.getAlertThreshold() != null ? budget.getAlertThreshold() : new BigDecimal("0.80");
 
             // Check if we already sent notification today for this budget
-            LocalDateTime todayStart = LocalDateTime.now().withHour(0).withMinute(0).withSecond(0);
-            boolean hasNotificationToday = notificationService.getUserNotifications(budget.getUser().getId()).stream()
-                    .anyMatch(n -> n.getRelatedEntityId() != null 
-                            && n.getRelatedEntityId().equals(budget.getId())
-                            && n.getCreatedAt().isAfter(todayStart));
+            boolean hasNotificationToday = notificationService.hasRelatedNotificationSince(
+                    budget.getUser().getId(), "budget", budget.getId(), todayStart);
 
             if (!hasNotificationToday && ratio.compareTo(threshold) >= 0) {
                 notificationService.createBudgetWarning(budget);
             }
         }
+        return activeBudgets.size();
     }
 
-    // Run daily at 9 PM to remind users to log transactions
-    @Scheduled(cron = "0 0 21 * * ?")
-    public void sendDailyReminders() {
-        LocalDate today = LocalDate.now();
+    /**
+     * Nhắc user trong [fromUserId, toUserId] chưa ghi giao dịch nào hôm nay (9h tối).
+     */
+    public int sendDailyRemindersForUsers(Long fromUserId, Long toUserId, LocalDate today) {
         LocalDateTime todayStart = today.atStartOfDay();
         LocalDateTime todayEnd = today.atTime(23, 59, 59);
 
         // Get all active users
-        List<User> activeUsers = userRepository.findAll().stream()
-                .filter(User::getEnabled)
-                .collect(Collectors.toList());
+        List<User> activeUsers = userRepository.findEnabledInRange(fromUserId, toUserId);
 
+        int sent = 0;
         for (User user : activeUsers) {
-            // Check if user has transactions today
-            List<Transaction> todayTransactions = transactionRepository.findByUserId(user.getId()).stream()
-                    .filter(tx -> {
-                        LocalDateTime occurredAt = tx.getOccurredAt();
-                        return !occurredAt.isBefore(todayStart) && !occurredAt.isAfter(todayEnd);
-                    })
-                    .collect(Collectors.toList());
-
             // Only send reminder if no transactions today
-            if (todayTransactions.isEmpty()) {
+            if (!transactionRepository.existsByUserIdAndOccurredAtBetween(user.getId(), todayStart, todayEnd)) {
                 // Check if we already sent reminder today
-                LocalDateTime reminderStart = LocalDateTime.now().withHour(0).withMinute(0).withSecond(0);
-                boolean hasReminderToday = notificationService.getUserNotifications(user.getId()).stream()
-                        .anyMatch(n -> n.getType() == com.example.financebackend.entity.Notification.NotificationType.DAILY_REMINDER
-                                && n.getCreatedAt().isAfter(reminderStart));
+                boolean hasReminderToday = notificationService.hasNotificationTypeSince(user.getId(),
+                        com.example.financebackend.entity.Notification.NotificationType.DAILY_REMINDER, todayStart);
 
                 if (!hasReminderToday) {
                     notificationService.createDailyReminder(user);
+                    sent++;
                 }
             }
         }
+        return sent;
     }
 }
-
@@ -30,6 +30,7 @@ public class SmartBudgetAlertService {
     private final BudgetRepository budgetRepository;
     private final NotificationRepository notificationRepository;
     private final EmailService emailService;
+    private NotificationService notificationService; // Lazy init to avoid circular dependency
 
     public SmartBudgetAlertService(BudgetRepository budgetRepository,
                                   NotificationRepository notificationRepository,
@@ -39,6 +40,13 @@ public class SmartBudgetAlertService {
         this.emailService = emailService;
     }
 
+    // Setter injection with @Lazy to break circular dependency
+    @org.springframework.beans.factory.annotation.Autowired(required = false)
+    @org.springframework.context.annotation.Lazy
+    public void setNotificationService(NotificationService notificationService) {
+        this.notificationService = notificationService;
+    }
+
     /**
      * Check và gửi alerts cho một budget
      */
@@ -104,7 +112,11 @@ public class SmartBudgetAlertService {
         notification.setMessage(message);
         notification.setRelatedEntityId(budget.getId());
         notification.setRelatedEntityType("budget");
-        notificationRepository.save(notification);
+        if (notificationService != null) {
+            notificationService.saveNew(notification);
+        } else {
+            notificationRepository.save(notification);
+        }
 
         logger.info("Sent {} alert for budget {}: {}%", level, budget.getId(), percentage);
 
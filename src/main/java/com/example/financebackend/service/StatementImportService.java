@@ -0,0 +1,781 @@
+package com.example.financebackend.service;
+
+import com.example.financebackend.config.IdGeneratorInitializer;
+import com.example.financebackend.dto.StatementImportDto;
+import com.example.financebackend.entity.Budget;
+import com.example.financebackend.entity.Category;
+import com.example.financebackend.entity.StatementImportJob;
+import com.example.financebackend.entity.Transaction;
+import com.example.financebackend.entity.User;
+import com.example.financebackend.entity.Wallet;
+import com.example.financebackend.entity.WalletShare;
+import com.example.financebackend.repository.BudgetRepository;
+import com.example.financebackend.repository.CategoryRepository;
+import com.example.financebackend.repository.StatementImportJobRepository;
+import com.example.financebackend.repository.TransactionRepository;
+import com.example.financebackend.repository.UserRepository;
+import com.example.financebackend.repository.WalletRepository;
+import com.example.financebackend.repository.WalletShareRepository;
+import com.example.financebackend.util.Money;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Statement Import Service
+ * Nhập sao kê ngân hàng (CSV/OFX) vào một ví, chạy nền với trạng thái và tiến độ trong statement_import_jobs.
+ *
+ * - File upload được chép ra file tạm rồi đọc từng giao dịch (StatementParser), không nạp cả file vào bộ nhớ
+ * - Mỗi batch: chọn danh mục song song (CategorySuggestionService.Classifier), rồi trong một transaction (primary)
+ *   cùng với tiến độ của job: loại dòng trùng, insert bằng JDBC batch với id giữ trước, cộng số dư ví và usedAmount
+ *   ngân sách một lần cho các dòng thực sự được ghi
+ * - Chống trùng: mỗi dòng nhập có import_hash (mã giao dịch của ngân hàng, hoặc ngày + số tiền + nội dung + thứ tự
+ *   xuất hiện trong file) nên nhập lại cùng sao kê hay sao kê chồng kỳ không tạo giao dịch trùng; ngoài ra dòng
+ *   khớp ngày, loại và số tiền với một giao dịch nhập tay của ví được coi là đã có
+ * - Mỗi ví chỉ một lần nhập đang chạy (kiểm tra khi khóa dòng ví); (wallet_id, import_hash) là unique index và
+ *   insert bỏ qua dòng trùng, nên kể cả hai lần nhập chồng nhau (job cũ bị coi là gián đoạn) cũng không ghi trùng
+ * - Job bị dừng giữa chừng (node dừng) giữ lại các batch đã commit; nhập lại file sẽ bỏ qua các dòng đó
+ *
+ * Insert bằng JDBC không qua TransactionService nên không tạo thông báo từng giao dịch; cảnh báo ngân sách
+ * được kiểm tra một lần khi job xong.
+ */
+@Service
+public class StatementImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatementImportService.class);
+
+    // Trùng (wallet_id, import_hash) với dòng vừa được lần nhập khác ghi: bỏ qua dòng, không lỗi cả batch
+    private static final String INSERT_TRANSACTION =
+            "INSERT INTO transactions (id, amount, type, wallet_id, category_id, user_id, note, occurred_at, "
+                    + "import_hash, updated_at, sync_seq) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) "
+                    + "ON DUPLICATE KEY UPDATE id = id";
+    private static final int NOTE_LENGTH = 255;
+    private static final int MAX_REPORTED_ERRORS = 20;
+    private static final int RECENT_JOBS = 20;
+    private static final String FALLBACK_CATEGORY = "Khác";
+    private static final List<StatementImportJob.Status> ACTIVE =
+            List.of(StatementImportJob.Status.QUEUED, StatementImportJob.Status.RUNNING);
+
+    private final StatementImportJobRepository jobRepository;
+    private final TransactionRepository transactionRepository;
+    private final WalletRepository walletRepository;
+    private final WalletShareRepository walletShareRepository;
+    private final CategoryRepository categoryRepository;
+    private final BudgetRepository budgetRepository;
+    private final UserRepository userRepository;
+    private final CategorySuggestionService categorySuggestionService;
+    private final SmartBudgetAlertService smartBudgetAlertService;
+    private final SyncSequenceService syncSequenceService;
+    private final IdGeneratorInitializer idGeneratorInitializer;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolExecutor jobExecutor;
+    private final ExecutorService categorizeExecutor;
+    private final int categorizeThreads;
+    private ReportCacheService reportCacheService;
+    private TransactionSnapshotCache transactionSnapshotCache;
+    private RecentTransactionCache recentTransactionCache;
+    private TransactionNoteIndex transactionNoteIndex;
+    private EventStreamService eventStreamService;
+    private Counter importedRows;
+    private Counter duplicateRows;
+    private Counter errorRows;
+
+    @Value("${statement-import.batch-size:1000}")
+    private int batchSize = 1000;
+
+    @Value("${statement-import.max-file-size-mb:50}")
+    private long maxFileSizeMb = 50;
+
+    // Job QUEUED/RUNNING không cập nhật tiến độ lâu hơn mức này được coi là bị gián đoạn
+    @Value("${statement-import.stale-minutes:30}")
+    private long staleMinutes = 30;
+
+    public StatementImportService(StatementImportJobRepository jobRepository,
+                                  TransactionRepository transactionRepository,
+                                  WalletRepository walletRepository,
+                                  WalletShareRepository walletShareRepository,
+                                  CategoryRepository categoryRepository,
+                                  BudgetRepository budgetRepository,
+                                  UserRepository userRepository,
+                                  CategorySuggestionService categorySuggestionService,
+                                  SmartBudgetAlertService smartBudgetAlertService,
+                                  SyncSequenceService syncSequenceService,
+                                  IdGeneratorInitializer idGeneratorInitializer,
+                                  JdbcTemplate jdbcTemplate,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${statement-import.workers:2}") int workers,
+                                  @Value("${statement-import.queue-capacity:20}") int queueCapacity,
+                                  @Value("${statement-import.categorize-threads:4}") int categorizeThreads) {
+        this.jobRepository = jobRepository;
+        this.transactionRepository = transactionRepository;
+        this.walletRepository = walletRepository;
+        this.walletShareRepository = walletShareRepository;
+        this.categoryRepository = categoryRepository;
+        this.budgetRepository = budgetRepository;
+        this.userRepository = userRepository;
+        this.categorySuggestionService = categorySuggestionService;
+        this.smartBudgetAlertService = smartBudgetAlertService;
+        this.syncSequenceService = syncSequenceService;
+        this.idGeneratorInitializer = idGeneratorInitializer;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        AtomicInteger jobThreads = new AtomicInteger();
+        int poolSize = Math.max(1, workers);
+        this.jobExecutor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), runnable -> {
+                    Thread thread = new Thread(runnable, "statement-import-" + jobThreads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.categorizeThreads = Math.max(1, categorizeThreads);
+        AtomicInteger categorizeCount = new AtomicInteger();
+        this.categorizeExecutor = Executors.newFixedThreadPool(this.categorizeThreads, runnable -> {
+            Thread thread = new Thread(runnable, "statement-categorize-" + categorizeCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @org.springframework.beans.factory.annotation.Autowired(required = false)
+    public void setReportCacheService(ReportCacheService reportCacheService) {
+        this.reportCacheService = reportCacheService;
+    }
+
+    @org.springframework.beans.factory.annotation.Autowired(required = false)
+    public void setTransactionSnapshotCache(TransactionSnapshotCache transactionSnapshotCache) {
+        this.transactionSnapshotCache = transactionSnapshotCache;
+    }
+
+    @org.springframework.beans.factory.annotation.Autowired(required = false)
+    public void setRecentTransactionCache(RecentTransactionCache recentTransactionCache) {
+        this.recentTransactionCache = recentTransactionCache;
+    }
+
+    @org.springframework.beans.factory.annotation.Autowired(required = false)
+    public void setTransactionNoteIndex(TransactionNoteIndex transactionNoteIndex) {
+        this.transactionNoteIndex = transactionNoteIndex;
+    }
+
+    @org.springframework.beans.factory.annotation.Autowired(required = false)
+    public void setEventStreamService(EventStreamService eventStreamService) {
+        this.eventStreamService = eventStreamService;
+    }
+
+    @org.springframework.beans.factory.annotation.Autowired(required = false)
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.importedRows = rowCounter(meterRegistry, "imported");
+        this.duplicateRows = rowCounter(meterRegistry, "duplicate");
+        this.errorRows = rowCounter(meterRegistry, "error");
+    }
+
+    private static Counter rowCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("finance.statement-import.rows")
+                .description("Bank statement rows processed by import jobs")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobExecutor.shutdownNow();
+        categorizeExecutor.shutdownNow();
+    }
+
+    /**
+     * Nhận file sao kê và xếp hàng job nhập; format rỗng thì đoán theo đuôi file (.ofx/.qfx = OFX, còn lại CSV)
+     */
+    public StatementImportDto submit(Long userId, Long walletId, MultipartFile file, String format) {
+        if (walletId == null) {
+            throw new IllegalArgumentException("Vui lòng chọn ví");
+        }
+        if (file == null || file.isEmpty()) {
+            throw new IllegalArgumentException("File sao kê trống");
+        }
+        if (file.getSize() > maxFileSizeMb * 1024 * 1024) {
+            throw new IllegalArgumentException("File sao kê tối đa " + maxFileSizeMb + "MB");
+        }
+        StatementImportJob.Format resolved = resolveFormat(format, file.getOriginalFilename());
+        requireWritableWallet(walletId, userId);
+
+        // MultipartFile bị xóa khi request kết thúc: chép (stream) ra file tạm cho job nền
+        Path path;
+        try {
+            path = Files.createTempFile("statement-", "." + resolved.name().toLowerCase(Locale.ROOT));
+            file.transferTo(path);
+        } catch (IOException e) {
+            throw new IllegalStateException("Không lưu được file sao kê", e);
+        }
+
+        StatementImportJob job = new StatementImportJob();
+        job.setUserId(userId);
+        job.setWalletId(walletId);
+        job.setFormat(resolved);
+        job.setFileName(truncate(file.getOriginalFilename(), 255));
+        StatementImportJob saved;
+        try {
+            saved = transactionTemplate.execute(status -> {
+                // Khóa dòng ví: chủ ví và người được chia sẻ gửi cùng lúc thì kiểm tra + tạo job lần lượt
+                jdbcTemplate.queryForList("SELECT id FROM wallets WHERE id = ? FOR UPDATE", Long.class, walletId);
+                if (jobRepository.existsActiveForWallet(walletId, ACTIVE,
+                        LocalDateTime.now().minusMinutes(staleMinutes))) {
+                    throw new ResponseStatusException(HttpStatus.CONFLICT,
+                            "Ví đang có một lần nhập sao kê chưa hoàn tất");
+                }
+                return jobRepository.save(job);
+            });
+        } catch (RuntimeException e) {
+            deleteQuietly(path);
+            throw e;
+        }
+        try {
+            jobExecutor.execute(() -> run(saved.getId(), path));
+        } catch (RejectedExecutionException e) {
+            deleteQuietly(path);
+            jobRepository.delete(saved);
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Hàng đợi nhập sao kê đang đầy, vui lòng thử lại sau");
+        }
+        logger.info("Queued statement import {} for user {} into wallet {} ({} bytes)",
+                saved.getId(), userId, walletId, file.getSize());
+        return toDto(saved);
+    }
+
+    public StatementImportDto getJob(Long jobId, Long userId) {
+        return jobRepository.findByIdAndUserId(jobId, userId)
+                .map(this::toDto)
+                .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy lần nhập sao kê"));
+    }
+
+    public List<StatementImportDto> getRecentJobs(Long userId) {
+        return jobRepository.findRecentByUserId(userId, PageRequest.of(0, RECENT_JOBS)).stream()
+                .map(this::toDto)
+                .toList();
+    }
+
+    static StatementImportJob.Format resolveFormat(String format, String fileName) {
+        if (format != null && !format.isBlank()) {
+            try {
+                return StatementImportJob.Format.valueOf(format.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Định dạng sao kê không hỗ trợ: " + format);
+            }
+        }
+        String name = fileName != null ? fileName.toLowerCase(Locale.ROOT) : "";
+        return name.endsWith(".ofx") || name.endsWith(".qfx") ? StatementImportJob.Format.OFX : StatementImportJob.Format.CSV;
+    }
+
+    // Chủ ví hoặc người được chia sẻ quyền EDITOR/OWNER (giống TransactionService.create)
+    private Wallet requireWritableWallet(Long walletId, Long userId) {
+        Wallet wallet = walletRepository.findById(walletId)
+                .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy ví"));
+        if (wallet.getUser().getId().equals(userId)) {
+            return wallet;
+        }
+        boolean canEdit = walletShareRepository.findByWalletIdAndSharedWithUserId(walletId, userId)
+                .map(share -> share.getPermission() == WalletShare.Permission.EDITOR
+                        || share.getPermission() == WalletShare.Permission.OWNER)
+                .orElse(false);
+        if (!canEdit) {
+            throw new IllegalArgumentException("Không tìm thấy ví hoặc bạn không có quyền tạo giao dịch");
+        }
+        return wallet;
+    }
+
+    private void run(Long jobId, Path path) {
+        StatementImportJob job = jobRepository.findById(jobId).orElse(null);
+        if (job == null) {
+            deleteQuietly(path);
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        job.setStatus(StatementImportJob.Status.RUNNING);
+        job.setStartedAt(now);
+        job.setUpdatedAt(now);
+        job = jobRepository.save(job);
+
+        Progress progress = new Progress();
+        ImportContext context = null;
+        try (StatementParser parser = StatementParser.open(job.getFormat(),
+                new InputStreamReader(Files.newInputStream(path), StandardCharsets.UTF_8))) {
+            context = prepare(job);
+            List<StatementParser.Row> batch = new ArrayList<>(batchSize);
+            while (true) {
+                StatementParser.Row row;
+                try {
+                    row = parser.next();
+                } catch (IllegalArgumentException e) {
+                    progress.processed++;
+                    progress.error(e.getMessage());
+                    increment(errorRows, 1);
+                    continue;
+                }
+                if (row == null) {
+                    break;
+                }
+                progress.processed++;
+                batch.add(row);
+                if (batch.size() >= batchSize) {
+                    importBatch(job.getId(), context, batch, progress);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                importBatch(job.getId(), context, batch, progress);
+            }
+            finish(job, StatementImportJob.Status.COMPLETED, progress, progress.errorSummary());
+            logger.info("Statement import {} finished: {} imported, {} duplicates, {} errors",
+                    job.getId(), progress.imported, progress.duplicates, progress.errors);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Statement import {} failed: {}", job.getId(), e.getMessage(), e);
+            String message = e instanceof IOException || e instanceof IllegalArgumentException
+                    ? e.getMessage() : "Lỗi khi nhập sao kê";
+            finish(job, StatementImportJob.Status.FAILED, progress, message);
+        } finally {
+            deleteQuietly(path);
+            if (context != null && progress.imported > 0) {
+                afterImport(context);
+            }
+        }
+    }
+
+    // Dữ liệu dùng chung cho cả job: danh mục, ngân sách, trạng thái chống trùng
+    private ImportContext prepare(StatementImportJob job) {
+        Long userId = job.getUserId();
+        Wallet wallet = walletRepository.findById(job.getWalletId())
+                .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy ví"));
+        CategorySuggestionService.Classifier classifier = categorySuggestionService.classifier(userId);
+        boolean created = false;
+        for (Transaction.TransactionType type : Transaction.TransactionType.values()) {
+            if (classifier.categoryId(null, type) == null) {
+                createFallbackCategory(userId, type);
+                created = true;
+            }
+        }
+        if (created) {
+            classifier = categorySuggestionService.classifier(userId);
+        }
+        List<BudgetWindow> budgets = new ArrayList<>();
+        for (Budget budget : budgetRepository.findByUserId(userId)) {
+            if (budget.getCategory() != null) {
+                budgets.add(new BudgetWindow(budget.getId(), budget.getCategory().getId(),
+                        budget.getStartDate(), budget.getEndDate()));
+            }
+        }
+        return new ImportContext(userId, wallet.getId(), wallet.getUser().getId(), classifier, budgets);
+    }
+
+    // User chưa có danh mục thu hoặc chi: tạo "Khác" để mọi dòng đều có danh mục
+    private void createFallbackCategory(Long userId, Transaction.TransactionType type) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy người dùng"));
+        Category category = new Category();
+        category.setUser(user);
+        category.setName(FALLBACK_CATEGORY);
+        category.setType(type == Transaction.TransactionType.INCOME
+                ? Category.CategoryType.INCOME : Category.CategoryType.EXPENSE);
+        category.setColor("#9E9E9E");
+        categoryRepository.save(category);
+    }
+
+    private void importBatch(Long jobId, ImportContext context, List<StatementParser.Row> rows, Progress progress) {
+        Long[] categories = categorize(context.classifier, rows);
+
+        // Dòng hợp lệ + hash của nó
+        List<Pending> candidates = new ArrayList<>(rows.size());
+        int errors = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            StatementParser.Row row = rows.get(i);
+            long signedMinor;
+            try {
+                signedMinor = Money.toMinor(row.amount(), Money.STORAGE_SCALE);
+            } catch (IllegalArgumentException e) {
+                progress.error("Dòng " + row.line() + ": số tiền không hợp lệ " + row.amount());
+                errors++;
+                continue;
+            }
+            if (signedMinor == 0L) {
+                progress.error("Dòng " + row.line() + ": số tiền bằng 0");
+                errors++;
+                continue;
+            }
+            Transaction.TransactionType type = signedMinor > 0
+                    ? Transaction.TransactionType.INCOME : Transaction.TransactionType.EXPENSE;
+            candidates.add(new Pending(row, type, Math.abs(signedMinor), categories[i],
+                    context.importHash(row, signedMinor)));
+        }
+
+        // Giữ id ngoài transaction của batch (khóa id_generators chỉ trong lúc cấp), dư thì bỏ
+        long firstId = candidates.isEmpty() ? 0L : idGeneratorInitializer.reserveIds("transactions", candidates.size());
+        long processed = progress.processed;
+        long errorTotal = progress.errors;
+
+        // Tra trùng trong transaction ghi để đọc từ primary, thấy cả dòng vừa commit của lần nhập khác
+        int inserted = transactionTemplate.execute(status -> {
+            List<Pending> accepted = removeDuplicates(context, candidates);
+            int count = accepted.isEmpty() ? 0 : insert(context, accepted, firstId);
+            jobRepository.updateProgress(jobId, processed, progress.imported + count,
+                    progress.duplicates + candidates.size() - count, errorTotal, LocalDateTime.now());
+            return count;
+        });
+
+        long duplicates = candidates.size() - inserted;
+        progress.imported += inserted;
+        progress.duplicates += duplicates;
+        increment(importedRows, inserted);
+        increment(duplicateRows, duplicates);
+        increment(errorRows, errors);
+    }
+
+    // Chọn danh mục song song: chia batch thành categorizeThreads đoạn, mỗi đoạn ghi vào phần riêng của mảng
+    private Long[] categorize(CategorySuggestionService.Classifier classifier, List<StatementParser.Row> rows) {
+        Long[] result = new Long[rows.size()];
+        int chunk = (rows.size() + categorizeThreads - 1) / categorizeThreads;
+        List<Future<?>> futures = new ArrayList<>(categorizeThreads);
+        for (int from = 0; from < rows.size(); from += chunk) {
+            int start = from;
+            int end = Math.min(rows.size(), from + chunk);
+            futures.add(categorizeExecutor.submit(() -> {
+                for (int i = start; i < end; i++) {
+                    StatementParser.Row row = rows.get(i);
+                    Transaction.TransactionType type = row.amount().signum() > 0
+                            ? Transaction.TransactionType.INCOME : Transaction.TransactionType.EXPENSE;
+                    result[i] = classifier.categoryId(row.description(), type);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Nhập sao kê bị dừng", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Không phân loại được giao dịch", e.getCause());
+            }
+        }
+        return result;
+    }
+
+    // Bỏ dòng đã nhập trước đó (import_hash), trùng trong batch, hoặc khớp một giao dịch nhập tay chưa được khớp
+    private List<Pending> removeDuplicates(ImportContext context, List<Pending> candidates) {
+        if (candidates.isEmpty()) {
+            return candidates;
+        }
+        Set<String> hashes = new HashSet<>();
+        LocalDate from = null;
+        LocalDate to = null;
+        for (Pending pending : candidates) {
+            hashes.add(pending.hash);
+            LocalDate day = pending.row.occurredAt().toLocalDate();
+            from = from == null || day.isBefore(from) ? day : from;
+            to = to == null || day.isAfter(to) ? day : to;
+        }
+        Set<String> existing = new HashSet<>(transactionRepository.findImportHashes(context.walletId, hashes));
+
+        Map<String, ArrayDeque<Long>> manual = new HashMap<>();
+        for (Object[] entry : transactionRepository.findManualEntries(context.walletId,
+                from.atStartOfDay(), to.plusDays(1).atStartOfDay())) {
+            Long id = (Long) entry[0];
+            if (context.matchedManual.contains(id)) {
+                continue;
+            }
+            String key = manualKey(((LocalDateTime) entry[1]).toLocalDate(), (Transaction.TransactionType) entry[3],
+                    Money.toMinor((BigDecimal) entry[2], Money.STORAGE_SCALE));
+            manual.computeIfAbsent(key, k -> new ArrayDeque<>()).add(id);
+        }
+
+        Set<String> seen = new HashSet<>();
+        List<Pending> accepted = new ArrayList<>(candidates.size());
+        for (Pending pending : candidates) {
+            if (existing.contains(pending.hash) || !seen.add(pending.hash)) {
+                continue;
+            }
+            ArrayDeque<Long> matches = manual.get(manualKey(pending.row.occurredAt().toLocalDate(), pending.type,
+                    pending.amountMinor));
+            if (matches != null && !matches.isEmpty()) {
+                context.matchedManual.add(matches.poll());
+                continue;
+            }
+            accepted.add(pending);
+        }
+        return accepted;
+    }
+
+    private static String manualKey(LocalDate day, Transaction.TransactionType type, long amountMinor) {
+        return day + "|" + type + "|" + amountMinor;
+    }
+
+    // Insert batch rồi cộng dồn số dư ví / usedAmount ngân sách một lần cho các dòng đã ghi, trong transaction
+    // của batch; trả về số dòng đã ghi
+    private int insert(ImportContext context, List<Pending> accepted, long firstId) {
+        boolean ownWallet = context.walletOwnerId.equals(context.userId);
+        // Ví chia sẻ: khóa người nhập và chủ ví theo thứ tự id trước, tránh deadlock với transaction của chủ ví
+        syncSequenceService.reserveInOrder(context.userId, context.walletOwnerId);
+        long seq = syncSequenceService.reserveBlock(context.userId, accepted.size());
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        List<Object[]> inserts = new ArrayList<>(accepted.size());
+        for (int i = 0; i < accepted.size(); i++) {
+            Pending pending = accepted.get(i);
+            inserts.add(new Object[]{firstId + i, Money.toBigDecimal(pending.amountMinor, Money.STORAGE_SCALE),
+                    pending.type.name(), context.walletId, pending.categoryId, context.userId,
+                    truncate(pending.row.description(), NOTE_LENGTH), Timestamp.valueOf(pending.row.occurredAt()),
+                    pending.hash, now, seq++});
+        }
+        jdbcTemplate.batchUpdate(INSERT_TRANSACTION, inserts);
+
+        // Số dòng bị bỏ qua không đọc được từ batch (rewriteBatchedStatements): id giữ trước chỉ của batch này,
+        // nên dòng đã ghi là dòng có id trong khoảng
+        Set<Long> written = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT id FROM transactions WHERE id >= ? AND id < ?", Long.class, firstId, firstId + accepted.size()));
+        List<Pending> landed = new ArrayList<>(written.size());
+        for (int i = 0; i < accepted.size(); i++) {
+            if (written.contains(firstId + i)) {
+                landed.add(accepted.get(i));
+            }
+        }
+        if (landed.isEmpty()) {
+            return 0;
+        }
+
+        long walletDelta = 0L;
+        Map<Long, Long> budgetDeltas = new LinkedHashMap<>();
+        for (Pending pending : landed) {
+            if (pending.type == Transaction.TransactionType.INCOME) {
+                walletDelta += pending.amountMinor;
+                continue;
+            }
+            walletDelta -= pending.amountMinor;
+            LocalDate day = pending.row.occurredAt().toLocalDate();
+            for (BudgetWindow budget : context.budgets) {
+                if (budget.categoryId.equals(pending.categoryId) && !day.isBefore(budget.startDate)
+                        && !day.isAfter(budget.endDate)) {
+                    budgetDeltas.merge(budget.id, pending.amountMinor, Long::sum);
+                }
+            }
+        }
+
+        seq = syncSequenceService.reserveBlock(context.userId, budgetDeltas.size() + (ownWallet ? 1 : 0));
+        // Ví chia sẻ: số thứ tự thay đổi của ví thuộc chủ ví
+        long walletSeq = ownWallet ? seq++ : syncSequenceService.reserveBlock(context.walletOwnerId, 1);
+        jdbcTemplate.update("UPDATE wallets SET balance = balance + ?, updated_at = ?, sync_seq = ? WHERE id = ?",
+                Money.toBigDecimal(walletDelta, Money.STORAGE_SCALE), now, walletSeq, context.walletId);
+        if (!budgetDeltas.isEmpty()) {
+            List<Object[]> budgetUpdates = new ArrayList<>(budgetDeltas.size());
+            for (Map.Entry<Long, Long> delta : budgetDeltas.entrySet()) {
+                budgetUpdates.add(new Object[]{Money.toBigDecimal(delta.getValue(), Money.STORAGE_SCALE), now, seq++,
+                        delta.getKey()});
+            }
+            jdbcTemplate.batchUpdate("UPDATE budgets SET used_amount = used_amount + ?, updated_at = ?, sync_seq = ? "
+                    + "WHERE id = ?", budgetUpdates);
+            context.touchedBudgets.addAll(budgetDeltas.keySet());
+        }
+
+        evictCaches(context.userId);
+        if (!ownWallet) {
+            evictCaches(context.walletOwnerId);
+        }
+        return landed.size();
+    }
+
+    // Các evict đăng ký lại sau commit nên gọi trong transaction của batch
+    private void evictCaches(Long userId) {
+        if (transactionSnapshotCache != null) {
+            transactionSnapshotCache.evict(userId);
+        }
+        if (recentTransactionCache != null) {
+            recentTransactionCache.evict(userId);
+        }
+        if (transactionNoteIndex != null) {
+            transactionNoteIndex.evict(userId);
+        }
+        if (reportCacheService != null) {
+            reportCacheService.evictUser(userId);
+        }
+    }
+
+    // Sau job: cảnh báo ngân sách một lần cho các ngân sách bị ảnh hưởng và đẩy số dư ví mới
+    private void afterImport(ImportContext context) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (Budget budget : budgetRepository.findAllById(context.touchedBudgets)) {
+                    smartBudgetAlertService.checkAndSendAlerts(budget);
+                }
+                if (eventStreamService != null) {
+                    walletRepository.findById(context.walletId)
+                            .ifPresent(wallet -> eventStreamService.publishWalletBalance(wallet, context.userId));
+                }
+            });
+        } catch (RuntimeException e) {
+            logger.warn("Post-import processing failed for wallet {}: {}", context.walletId, e.getMessage());
+        }
+    }
+
+    private void finish(StatementImportJob job, StatementImportJob.Status status, Progress progress, String message) {
+        LocalDateTime now = LocalDateTime.now();
+        job.setStatus(status);
+        job.setProcessedRows(progress.processed);
+        job.setImportedRows(progress.imported);
+        job.setDuplicateRows(progress.duplicates);
+        job.setErrorRows(progress.errors);
+        job.setErrorMessage(message);
+        job.setFinishedAt(now);
+        job.setUpdatedAt(now);
+        try {
+            jobRepository.save(job);
+        } catch (RuntimeException e) {
+            logger.error("Could not store result of statement import {}: {}", job.getId(), e.getMessage(), e);
+        }
+    }
+
+    private StatementImportDto toDto(StatementImportJob job) {
+        StatementImportJob.Status status = job.getStatus();
+        String errorMessage = job.getErrorMessage();
+        boolean active = status == StatementImportJob.Status.QUEUED || status == StatementImportJob.Status.RUNNING;
+        if (active && job.getUpdatedAt() != null
+                && job.getUpdatedAt().isBefore(LocalDateTime.now().minusMinutes(staleMinutes))) {
+            status = StatementImportJob.Status.FAILED;
+            errorMessage = "Lần nhập bị gián đoạn, vui lòng tải lại file (các dòng đã nhập sẽ được bỏ qua)";
+        }
+        return new StatementImportDto(job.getId(), job.getWalletId(), job.getFormat(), job.getFileName(), status,
+                job.getProcessedRows(), job.getImportedRows(), job.getDuplicateRows(), job.getErrorRows(),
+                errorMessage, job.getCreatedAt(), job.getStartedAt(), job.getFinishedAt());
+    }
+
+    private static void increment(Counter counter, long amount) {
+        if (counter != null && amount > 0) {
+            counter.increment(amount);
+        }
+    }
+
+    private static String truncate(String value, int length) {
+        return value != null && value.length() > length ? value.substring(0, length) : value;
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("Could not delete temporary statement file {}: {}", path, e.getMessage());
+        }
+    }
+
+    private record BudgetWindow(Long id, Long categoryId, LocalDate startDate, LocalDate endDate) {
+    }
+
+    private record Pending(StatementParser.Row row, Transaction.TransactionType type, long amountMinor,
+                           Long categoryId, String hash) {
+    }
+
+    // Bộ đếm của job: processed/errors đếm khi đọc, imported/duplicates sau khi batch commit
+    private static final class Progress {
+        private long processed;
+        private long imported;
+        private long duplicates;
+        private long errors;
+        private final List<String> messages = new ArrayList<>();
+
+        private void error(String message) {
+            errors++;
+            if (messages.size() < MAX_REPORTED_ERRORS) {
+                messages.add(message);
+            }
+        }
+
+        private String errorSummary() {
+            if (messages.isEmpty()) {
+                return null;
+            }
+            String summary = String.join("\n", messages);
+            return errors > messages.size() ? summary + "\n... và " + (errors - messages.size()) + " dòng lỗi khác" : summary;
+        }
+    }
+
+    private static final class ImportContext {
+        private final Long userId;
+        private final Long walletId;
+        private final Long walletOwnerId;
+        private final CategorySuggestionService.Classifier classifier;
+        private final List<BudgetWindow> budgets;
+        private final Set<Long> matchedManual = new HashSet<>();
+        private final Set<Long> touchedBudgets = new HashSet<>();
+        // Số lần đã gặp mỗi dòng (ngày, số tiền, nội dung) trong file, theo 64 bit đầu của hash
+        private final Map<Long, Integer> occurrences = new HashMap<>();
+
+        private ImportContext(Long userId, Long walletId, Long walletOwnerId,
+                              CategorySuggestionService.Classifier classifier, List<BudgetWindow> budgets) {
+            this.userId = userId;
+            this.walletId = walletId;
+            this.walletOwnerId = walletOwnerId;
+            this.classifier = classifier;
+            this.budgets = budgets;
+        }
+
+        // Mã giao dịch của ngân hàng nếu có; không thì nội dung dòng + lần xuất hiện thứ mấy trong file,
+        // để hai giao dịch giống hệt nhau trong cùng ngày vẫn là hai dòng khác nhau
+        private String importHash(StatementParser.Row row, long signedMinor) {
+            if (row.externalId() != null) {
+                return sha256(walletId + "|id|" + row.externalId());
+            }
+            String description = row.description() != null
+                    ? row.description().trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT) : "";
+            String base = walletId + "|row|" + row.occurredAt() + "|" + signedMinor + "|" + description;
+            long key = ByteBuffer.wrap(HexFormat.of().parseHex(sha256(base), 0, 16)).getLong();
+            int occurrence = occurrences.merge(key, 1, Integer::sum) - 1;
+            return sha256(base + "|" + occurrence);
+        }
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Không tính được hash của dòng sao kê", e);
+        }
+    }
+}
@@ -0,0 +1,526 @@
+package com.example.financebackend.service;
+
+import com.example.financebackend.entity.StatementImportJob;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PushbackReader;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.text.Normalizer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Đọc sao kê ngân hàng từng giao dịch một từ Reader (không nạp cả file vào bộ nhớ).
+ *
+ * - CSV: dòng đầu là tiêu đề, cột được nhận theo tên (tiếng Việt hoặc tiếng Anh, có dấu hay không);
+ *   dấu phân cách ',', ';' hoặc tab được đoán từ dòng tiêu đề. Số tiền là một cột có dấu (âm = chi)
+ *   hoặc hai cột ghi nợ / ghi có.
+ * - OFX: cả SGML (1.x, thẻ lá không đóng) lẫn XML (2.x); mỗi STMTTRN là một giao dịch.
+ *
+ * next() trả null khi hết file. Dòng không đọc được ném IllegalArgumentException với số dòng, parser vẫn
+ * đứng sau dòng đó nên gọi next() tiếp được; IOException (kể cả file hỏng không đọc tiếp được) là lỗi của cả file.
+ */
+abstract class StatementParser implements Closeable {
+
+    /**
+     * Một giao dịch trong sao kê; amount có dấu (âm = chi), externalId là mã giao dịch của ngân hàng nếu có
+     */
+    record Row(int line, LocalDateTime occurredAt, BigDecimal amount, String description, String externalId) {
+    }
+
+    // Giới hạn độ dài một bản ghi / một giá trị, tránh dấu ngoặc kép không đóng nuốt cả file vào bộ nhớ
+    static final int MAX_RECORD_LENGTH = 64 * 1024;
+
+    static StatementParser open(StatementImportJob.Format format, Reader reader) throws IOException {
+        return format == StatementImportJob.Format.OFX ? new Ofx(reader) : new Csv(reader);
+    }
+
+    abstract Row next() throws IOException;
+
+    /**
+     * Đọc số tiền kiểu "1.234.567", "1,234,567.89", "-50000", "(1.500,50)", "50.000 VND".
+     * Có cả ',' và '.' thì dấu xuất hiện sau cùng là dấu thập phân; chỉ có một loại thì nó là dấu thập phân khi
+     * xuất hiện đúng một lần và không có đúng 3 chữ số phía sau (nên "50.000" là năm mươi nghìn).
+     */
+    static BigDecimal parseAmount(String raw) {
+        if (raw == null || raw.isBlank()) {
+            throw new IllegalArgumentException("Số tiền trống");
+        }
+        String value = raw.trim();
+        boolean negative = false;
+        if (value.startsWith("(") && value.endsWith(")")) {
+            negative = true;
+            value = value.substring(1, value.length() - 1);
+        }
+        StringBuilder kept = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '-') {
+                negative = true;
+            } else if ((c >= '0' && c <= '9') || c == ',' || c == '.') {
+                kept.append(c);
+            }
+        }
+        String number = kept.toString();
+        int lastComma = number.lastIndexOf(',');
+        int lastDot = number.lastIndexOf('.');
+        char decimal = 0;
+        if (lastComma >= 0 && lastDot >= 0) {
+            decimal = lastComma > lastDot ? ',' : '.';
+        } else if (lastComma >= 0 || lastDot >= 0) {
+            char separator = lastComma >= 0 ? ',' : '.';
+            int last = Math.max(lastComma, lastDot);
+            if (number.indexOf(separator) == last && number.length() - last - 1 != 3) {
+                decimal = separator;
+            }
+        }
+        StringBuilder normalized = new StringBuilder(number.length() + 1);
+        if (negative) {
+            normalized.append('-');
+        }
+        for (int i = 0; i < number.length(); i++) {
+            char c = number.charAt(i);
+            if (c == decimal) {
+                normalized.append('.');
+            } else if (c != ',' && c != '.') {
+                normalized.append(c);
+            }
+        }
+        try {
+            return new BigDecimal(normalized.toString());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Số tiền không hợp lệ: " + raw);
+        }
+    }
+
+    private static final List<DateTimeFormatter> DATE_FORMATS = List.of(
+            DateTimeFormatter.ofPattern("yyyy-M-d"),
+            DateTimeFormatter.ofPattern("d/M/yyyy"),
+            DateTimeFormatter.ofPattern("d-M-yyyy"),
+            DateTimeFormatter.ofPattern("d.M.yyyy"),
+            DateTimeFormatter.ofPattern("yyyy/M/d"),
+            DateTimeFormatter.ofPattern("yyyyMMdd"));
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("H:mm[:ss]");
+
+    /**
+     * Đọc ngày (có thể kèm giờ) kiểu "2024-03-15", "15/03/2024", "15/03/2024 08:30", "2024-03-15T08:30:00"
+     */
+    static LocalDateTime parseDate(String raw) {
+        if (raw == null || raw.isBlank()) {
+            throw new IllegalArgumentException("Ngày giao dịch trống");
+        }
+        String value = raw.trim();
+        String datePart = value;
+        String timePart = null;
+        int split = value.indexOf('T') > 0 ? value.indexOf('T') : value.indexOf(' ');
+        if (split > 0) {
+            datePart = value.substring(0, split);
+            timePart = value.substring(split + 1).trim();
+        }
+        LocalDate date = null;
+        for (DateTimeFormatter format : DATE_FORMATS) {
+            try {
+                date = LocalDate.parse(datePart, format);
+                break;
+            } catch (DateTimeParseException e) {
+                // thử định dạng tiếp theo
+            }
+        }
+        if (date == null) {
+            throw new IllegalArgumentException("Ngày không hợp lệ: " + raw);
+        }
+        if (timePart == null || timePart.isEmpty()) {
+            return date.atStartOfDay();
+        }
+        try {
+            // Bỏ phần giây lẻ / múi giờ nếu có
+            String time = timePart.length() > 8 ? timePart.substring(0, 8) : timePart;
+            return date.atTime(LocalTime.parse(time, TIME_FORMAT));
+        } catch (DateTimeParseException e) {
+            return date.atStartOfDay();
+        }
+    }
+
+    // Chữ thường, bỏ dấu tiếng Việt, gộp khoảng trắng: "Ngày giao dịch" -> "ngay giao dich"
+    static String normalizeHeader(String header) {
+        String lower = header.trim().toLowerCase(Locale.ROOT).replace('đ', 'd');
+        String stripped = Normalizer.normalize(lower, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+        return stripped.replaceAll("[^a-z0-9]+", " ").trim();
+    }
+
+    /**
+     * CSV theo RFC 4180: trường trong ngoặc kép có thể chứa dấu phân cách, xuống dòng và "" (ngoặc kép thoát)
+     */
+    static final class Csv extends StatementParser {
+
+        private static final Set<String> DATE_HEADERS = Set.of("date", "ngay", "ngay giao dich", "transaction date",
+                "posting date", "booking date", "ngay hach toan", "ngay gd", "thoi gian", "ngay thuc hien");
+        private static final Set<String> AMOUNT_HEADERS = Set.of("amount", "so tien", "so tien giao dich",
+                "transaction amount", "gia tri");
+        private static final Set<String> DEBIT_HEADERS = Set.of("debit", "ghi no", "so tien ghi no", "withdrawal",
+                "withdrawals", "rut", "chi", "tien ra", "money out");
+        private static final Set<String> CREDIT_HEADERS = Set.of("credit", "ghi co", "so tien ghi co", "deposit",
+                "deposits", "thu", "tien vao", "money in");
+        private static final Set<String> DESCRIPTION_HEADERS = Set.of("description", "memo", "noi dung", "dien giai",
+                "mo ta", "ghi chu", "note", "details", "narrative", "noi dung giao dich", "payee");
+        private static final Set<String> ID_HEADERS = Set.of("id", "reference", "ref", "so tham chieu",
+                "ma giao dich", "transaction id", "fitid", "so but toan", "ma gd");
+
+        private final BufferedReader reader;
+        private final char delimiter;
+        private final int dateColumn;
+        private final int amountColumn;
+        private final int debitColumn;
+        private final int creditColumn;
+        private final int descriptionColumn;
+        private final int idColumn;
+        private int line;
+
+        Csv(Reader source) throws IOException {
+            this.reader = source instanceof BufferedReader buffered ? buffered : new BufferedReader(source);
+            String header = reader.readLine();
+            if (header == null) {
+                throw new IllegalArgumentException("File sao kê trống");
+            }
+            line = 1;
+            if (!header.isEmpty() && header.charAt(0) == '\uFEFF') {
+                header = header.substring(1);
+            }
+            this.delimiter = detectDelimiter(header);
+            Map<String, Integer> columns = new HashMap<>();
+            List<String> names = split(header, delimiter);
+            for (int i = 0; i < names.size(); i++) {
+                columns.putIfAbsent(normalizeHeader(names.get(i)), i);
+            }
+            this.dateColumn = find(columns, DATE_HEADERS);
+            this.amountColumn = find(columns, AMOUNT_HEADERS);
+            this.debitColumn = find(columns, DEBIT_HEADERS);
+            this.creditColumn = find(columns, CREDIT_HEADERS);
+            this.descriptionColumn = find(columns, DESCRIPTION_HEADERS);
+            this.idColumn = find(columns, ID_HEADERS);
+            if (dateColumn < 0 || (amountColumn < 0 && debitColumn < 0 && creditColumn < 0)) {
+                throw new IllegalArgumentException("Dòng tiêu đề CSV phải có cột ngày và cột số tiền (hoặc ghi nợ/ghi có)");
+            }
+        }
+
+        @Override
+        Row next() throws IOException {
+            while (true) {
+                int startLine = line + 1;
+                List<String> fields = readRecord();
+                if (fields == null) {
+                    return null;
+                }
+                if (fields.size() == 1 && fields.get(0).isBlank()) {
+                    continue;
+                }
+                try {
+                    return toRow(startLine, fields);
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Dòng " + startLine + ": " + e.getMessage());
+                }
+            }
+        }
+
+        private Row toRow(int startLine, List<String> fields) {
+            LocalDateTime occurredAt = parseDate(field(fields, dateColumn));
+            BigDecimal amount;
+            if (amountColumn >= 0 && !field(fields, amountColumn).isBlank()) {
+                amount = parseAmount(field(fields, amountColumn));
+            } else {
+                String debit = field(fields, debitColumn);
+                String credit = field(fields, creditColumn);
+                if (debit.isBlank() && credit.isBlank()) {
+                    throw new IllegalArgumentException("Số tiền trống");
+                }
+                BigDecimal in = credit.isBlank() ? BigDecimal.ZERO : parseAmount(credit).abs();
+                BigDecimal out = debit.isBlank() ? BigDecimal.ZERO : parseAmount(debit).abs();
+                amount = in.subtract(out);
+            }
+            String description = field(fields, descriptionColumn).trim();
+            String externalId = field(fields, idColumn).trim();
+            return new Row(startLine, occurredAt, amount, description.isEmpty() ? null : description,
+                    externalId.isEmpty() ? null : externalId);
+        }
+
+        // Một bản ghi CSV (có thể trải nhiều dòng vật lý nếu trường trong ngoặc kép chứa xuống dòng)
+        private List<String> readRecord() throws IOException {
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            boolean any = false;
+            int length = 0;
+            while (true) {
+                int c = reader.read();
+                if (c < 0) {
+                    if (!any) {
+                        return null;
+                    }
+                    if (quoted) {
+                        throw new IOException("Dòng " + line + ": thiếu dấu ngoặc kép đóng");
+                    }
+                    fields.add(field.toString());
+                    line++;
+                    return fields;
+                }
+                any = true;
+                if (++length > MAX_RECORD_LENGTH) {
+                    throw new IOException("Dòng " + (line + 1) + ": bản ghi quá dài");
+                }
+                char ch = (char) c;
+                if (quoted) {
+                    if (ch == '"') {
+                        reader.mark(1);
+                        int following = reader.read();
+                        if (following == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            if (following >= 0) {
+                                reader.reset();
+                            }
+                        }
+                    } else {
+                        if (ch == '\n') {
+                            line++;
+                        }
+                        field.append(ch);
+                    }
+                } else if (ch == '"' && field.length() == 0) {
+                    quoted = true;
+                } else if (ch == delimiter) {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (ch == '\n') {
+                    fields.add(field.toString());
+                    line++;
+                    return fields;
+                } else if (ch != '\r') {
+                    field.append(ch);
+                }
+            }
+        }
+
+        private static char detectDelimiter(String header) {
+            int commas = 0;
+            int semicolons = 0;
+            int tabs = 0;
+            boolean quoted = false;
+            for (int i = 0; i < header.length(); i++) {
+                char c = header.charAt(i);
+                if (c == '"') {
+                    quoted = !quoted;
+                } else if (!quoted) {
+                    if (c == ',') {
+                        commas++;
+                    } else if (c == ';') {
+                        semicolons++;
+                    } else if (c == '\t') {
+                        tabs++;
+                    }
+                }
+            }
+            if (tabs > commas && tabs > semicolons) {
+                return '\t';
+            }
+            return semicolons > commas ? ';' : ',';
+        }
+
+        private static List<String> split(String header, char delimiter) {
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; i < header.length(); i++) {
+                char c = header.charAt(i);
+                if (c == '"') {
+                    quoted = !quoted;
+                } else if (c == delimiter && !quoted) {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+
+        private static int find(Map<String, Integer> columns, Set<String> names) {
+            int found = -1;
+            for (Map.Entry<String, Integer> column : columns.entrySet()) {
+                if (names.contains(column.getKey()) && (found < 0 || column.getValue() < found)) {
+                    found = column.getValue();
+                }
+            }
+            return found;
+        }
+
+        private static String field(List<String> fields, int column) {
+            return column >= 0 && column < fields.size() ? fields.get(column) : "";
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    /**
+     * OFX đọc theo thẻ: mỗi thẻ lá là (tên, giá trị tới thẻ kế tiếp), nên không cần thẻ đóng như SGML 1.x
+     */
+    static final class Ofx extends StatementParser {
+
+        private final PushbackReader reader;
+        private int line = 1;
+
+        Ofx(Reader source) {
+            this.reader = new PushbackReader(source instanceof BufferedReader ? source : new BufferedReader(source));
+        }
+
+        @Override
+        Row next() throws IOException {
+            Map<String, String> values = null;
+            int startLine = line;
+            while (true) {
+                String tag = readTag();
+                if (tag == null) {
+                    if (values != null) {
+                        throw new IOException("Dòng " + startLine + ": thiếu thẻ </STMTTRN>");
+                    }
+                    return null;
+                }
+                if (tag.equals("STMTTRN")) {
+                    values = new HashMap<>();
+                    startLine = line;
+                } else if (tag.equals("/STMTTRN") && values != null) {
+                    try {
+                        return toRow(startLine, values);
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("Dòng " + startLine + ": " + e.getMessage());
+                    }
+                } else if (values != null && !tag.startsWith("/")) {
+                    String text = readText();
+                    if (!text.isEmpty()) {
+                        values.put(tag, text);
+                    }
+                }
+            }
+        }
+
+        private static Row toRow(int startLine, Map<String, String> values) {
+            String posted = values.get("DTPOSTED");
+            if (posted == null || posted.length() < 8) {
+                throw new IllegalArgumentException("Thiếu DTPOSTED");
+            }
+            LocalDate date;
+            try {
+                date = LocalDate.parse(posted.substring(0, 8), DateTimeFormatter.BASIC_ISO_DATE);
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("DTPOSTED không hợp lệ: " + posted);
+            }
+            LocalDateTime occurredAt = date.atStartOfDay();
+            if (posted.length() >= 14 && posted.substring(8, 14).chars().allMatch(Character::isDigit)) {
+                int hour = Integer.parseInt(posted.substring(8, 10));
+                int minute = Integer.parseInt(posted.substring(10, 12));
+                int second = Integer.parseInt(posted.substring(12, 14));
+                if (hour < 24 && minute < 60 && second < 60) {
+                    occurredAt = date.atTime(hour, minute, second);
+                }
+            }
+            String rawAmount = values.get("TRNAMT");
+            if (rawAmount == null) {
+                throw new IllegalArgumentException("Thiếu TRNAMT");
+            }
+            BigDecimal amount;
+            try {
+                // OFX luôn dùng '.' làm dấu thập phân (một số ngân hàng xuất ',')
+                amount = new BigDecimal(rawAmount.replace(',', '.').replace("+", ""));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("TRNAMT không hợp lệ: " + rawAmount);
+            }
+            String name = values.get("NAME");
+            String memo = values.get("MEMO");
+            String description = name == null ? memo
+                    : memo == null || memo.equalsIgnoreCase(name) ? name : name + " - " + memo;
+            return new Row(startLine, occurredAt, amount, description, values.get("FITID"));
+        }
+
+        // Tên thẻ kế tiếp (chữ hoa, "/X" với thẻ đóng), bỏ qua <?xml ...?> / <!-- ... --> và chữ ngoài thẻ
+        private String readTag() throws IOException {
+            while (true) {
+                int c = read();
+                while (c >= 0 && c != '<') {
+                    c = read();
+                }
+                if (c < 0) {
+                    return null;
+                }
+                StringBuilder tag = new StringBuilder();
+                while ((c = read()) >= 0 && c != '>') {
+                    if (tag.length() < MAX_RECORD_LENGTH) {
+                        tag.append((char) c);
+                    }
+                }
+                if (c < 0) {
+                    return null;
+                }
+                String name = tag.toString().trim();
+                if (name.isEmpty() || name.charAt(0) == '?' || name.charAt(0) == '!') {
+                    continue;
+                }
+                int space = name.indexOf(' ');
+                return (space > 0 ? name.substring(0, space) : name).toUpperCase(Locale.ROOT);
+            }
+        }
+
+        // Giá trị của thẻ lá: chữ tới '<' kế tiếp (không đọc '<')
+        private String readText() throws IOException {
+            StringBuilder text = new StringBuilder();
+            int c;
+            while ((c = read()) >= 0) {
+                if (c == '<') {
+                    reader.unread(c);
+                    break;
+                }
+                if (text.length() < MAX_RECORD_LENGTH) {
+                    text.append((char) c);
+                }
+            }
+            return decodeEntities(text.toString().trim());
+        }
+
+        private int read() throws IOException {
+            int c = reader.read();
+            if (c == '\n') {
+                line++;
+            }
+            return c;
+        }
+
+        private static String decodeEntities(String text) {
+            if (text.indexOf('&') < 0) {
+                return text;
+            }
+            return text.replace("&lt;", "<").replace("&gt;", ">").replace("&quot;", "\"")
+                    .replace("&apos;", "'").replace("&amp;", "&");
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+}
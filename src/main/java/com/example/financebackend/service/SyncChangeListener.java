@@ -0,0 +1,55 @@
+package com.example.financebackend.service;
+
+import com.example.financebackend.entity.SyncTracked;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreRemove;
+import jakarta.persistence.PreUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.time.LocalDateTime;
+
+/**
+ * JPA entity listener cho delta sync: gán updatedAt + syncSeq khi insert/update và ghi dấu xóa khi delete.
+ * Hibernate tạo listener qua Spring bean container nên có thể inject service; context không có
+ * SyncSequenceService (vd. test @DataJpaTest) thì listener không làm gì.
+ *
+ * Chỉ bắt thay đổi đi qua EntityManager; câu UPDATE/INSERT trực tiếp bằng JDBC (vd. SyntheticDataGenerator)
+ * phải gọi SyncSequenceService.assignPending() sau khi ghi.
+ */
+public class SyncChangeListener {
+
+    private final ObjectProvider<SyncSequenceService> syncSequenceService;
+
+    public SyncChangeListener(ObjectProvider<SyncSequenceService> syncSequenceService) {
+        this.syncSequenceService = syncSequenceService;
+    }
+
+    @PrePersist
+    @PreUpdate
+    public void onChange(Object entity) {
+        SyncTracked tracked = (SyncTracked) entity;
+        Long userId = ownerId(tracked);
+        SyncSequenceService sequences = syncSequenceService.getIfAvailable();
+        if (userId == null || sequences == null) {
+            return;
+        }
+        tracked.setSyncSeq(sequences.next(userId));
+        tracked.setUpdatedAt(LocalDateTime.now());
+    }
+
+    @PreRemove
+    public void onRemove(Object entity) {
+        SyncTracked tracked = (SyncTracked) entity;
+        Long userId = ownerId(tracked);
+        SyncSequenceService sequences = syncSequenceService.getIfAvailable();
+        if (userId == null || tracked.getId() == null || sequences == null) {
+            return;
+        }
+        sequences.recordDeletion(userId, tracked.getSyncEntityType(), tracked.getId());
+    }
+
+    // Proxy lazy của user trả id mà không cần load
+    private static Long ownerId(SyncTracked tracked) {
+        return tracked.getUser() != null ? tracked.getUser().getId() : null;
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.financebackend.service;
+
+import com.example.financebackend.entity.SyncTombstone;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Sync Sequence Service
+ * Cấp số thứ tự thay đổi (syncSeq) theo từng user cho delta sync.
+ *
+ * - Bộ đếm nằm ở users.sync_seq. Lần đầu một transaction cần số cho một user, nó khóa dòng user
+ *   (SELECT ... FOR UPDATE) và giữ trước một khối block-size số; các thay đổi sau trong cùng transaction
+ *   lấy từ khối đó mà không chạm DB. Phần khối không dùng bị bỏ (khoảng trống trong dãy không ảnh hưởng client).
+ * - Row lock được giữ tới khi commit, nên các transaction ghi cùng user commit theo đúng thứ tự số:
+ *   client đã thấy số N thì mọi thay đổi có số nhỏ hơn N đều đã commit.
+ * - Transaction ghi dữ liệu của nhiều user (ví chia sẻ: người ghi và chủ ví) gọi reserveInOrder() trước khi ghi
+ *   để khóa các dòng user theo id tăng dần; nếu không, hai transaction khóa hai dòng theo thứ tự ngược nhau
+ *   sẽ deadlock. Dòng đã khóa trong transaction thì khóa lại không phải chờ.
+ * - users.sync_seq = NULL nghĩa là user chưa được khởi tạo: các dòng có trước (sync_seq NULL) được gán số
+ *   lần đầu cần tới, xem assignPending().
+ */
+@Service
+public class SyncSequenceService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SyncSequenceService.class);
+
+    // Bảng được đồng bộ; vị trí trong danh sách là phần dư khi gán số cho dữ liệu cũ (id * size + vị trí)
+    static final List<String> TRACKED_TABLES = List.of("transactions", "wallets", "categories", "budgets");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${sync.sequence.block-size:64}")
+    private int blockSize = 64;
+
+    public SyncSequenceService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Số thứ tự tiếp theo của user trong transaction hiện tại
+     */
+    public long next(Long userId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Ngoài transaction (không xảy ra với repository của Spring Data): cấp từng số một
+            return reserve(userId, 1);
+        }
+        Map<Long, long[]> ranges = currentRanges();
+        long[] range = ranges.get(userId);
+        if (range == null || range[0] > range[1]) {
+            range = reserveRange(ranges, userId);
+        }
+        return range[0]++;
+    }
+
+    /**
+     * Khóa dòng của các user theo id tăng dần và giữ khối số cho từng user, trong transaction hiện tại.
+     * Gọi trước khi ghi khi transaction có thể cần số của nhiều user.
+     */
+    public void reserveInOrder(Long... userIds) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Ngoài transaction mỗi lần cấp số tự commit và nhả khóa ngay
+            return;
+        }
+        Map<Long, long[]> ranges = currentRanges();
+        TreeSet<Long> pending = new TreeSet<>();
+        for (Long userId : userIds) {
+            if (userId != null && !ranges.containsKey(userId)) {
+                pending.add(userId);
+            }
+        }
+        if (pending.isEmpty() || pending.size() + ranges.size() < 2) {
+            return; // Đã khóa hết hoặc chỉ một user - không có thứ tự nào để giữ
+        }
+        if (!ranges.isEmpty() && pending.first() < Collections.max(ranges.keySet())) {
+            logger.warn("Sync sequence of user {} locked after a higher user id in the same transaction", pending.first());
+        }
+        for (Long userId : pending) {
+            reserveRange(ranges, userId);
+        }
+    }
+
+    /**
+     * Giữ trước count số liên tiếp cho các dòng ghi thẳng bằng JDBC trong transaction hiện tại (vd. nhập sao kê),
+     * trả về số đầu tiên. Phải gọi trong transaction: dòng user bị khóa tới khi commit như với next().
+     */
+    public long reserveBlock(Long userId, int count) {
+        return reserve(userId, Math.max(1, count));
+    }
+
+    /**
+     * Ghi dấu xóa cho bản ghi của user, trong transaction đang xóa bản ghi đó
+     */
+    public void recordDeletion(Long userId, SyncTombstone.EntityType type, Long entityId) {
+        long seq = next(userId);
+        jdbcTemplate.update("INSERT INTO sync_tombstones (user_id, entity_type, entity_id, sync_seq, deleted_at) "
+                        + "VALUES (?, ?, ?, ?, ?)",
+                userId, type.name(), entityId, seq, Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    /**
+     * Gán số cho các dòng của user chưa có sync_seq (dữ liệu có trước delta sync hoặc insert thẳng bằng JDBC),
+     * trả về bộ đếm hiện tại. Chạy trong transaction riêng để các lần đọc sau thấy kết quả.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public long assignPending(Long userId) {
+        Long current = lock(userId);
+        long assigned = assignPendingRows(userId, current != null ? current : 0L);
+        jdbcTemplate.update("UPDATE users SET sync_seq = ? WHERE id = ?", assigned, userId);
+        return assigned;
+    }
+
+    private long[] reserveRange(Map<Long, long[]> ranges, Long userId) {
+        int size = Math.max(1, blockSize);
+        long first = reserve(userId, size);
+        long[] range = {first, first + size - 1};
+        ranges.put(userId, range);
+        return range;
+    }
+
+    // Khóa dòng user và giữ trước count số, trả về số đầu tiên
+    private long reserve(Long userId, int count) {
+        Long current = lock(userId);
+        long base = current != null ? current : assignPendingRows(userId, 0L);
+        jdbcTemplate.update("UPDATE users SET sync_seq = ? WHERE id = ?", base + count, userId);
+        return base + 1;
+    }
+
+    private Long lock(Long userId) {
+        List<Long> rows = jdbcTemplate.queryForList("SELECT sync_seq FROM users WHERE id = ? FOR UPDATE",
+                Long.class, userId);
+        if (rows.isEmpty()) {
+            throw new IllegalArgumentException("Không tìm thấy người dùng");
+        }
+        return rows.get(0);
+    }
+
+    // Gán số sau base cho các dòng chưa có số, bằng một câu UPDATE mỗi bảng: id duy nhất trong bảng nên
+    // id * số bảng + vị trí bảng duy nhất giữa các bảng. Dãy có khoảng trống nhưng vẫn tăng dần.
+    private long assignPendingRows(Long userId, long base) {
+        int tables = TRACKED_TABLES.size();
+        long top = base;
+        for (int i = 0; i < tables; i++) {
+            String table = TRACKED_TABLES.get(i);
+            Long maxId = jdbcTemplate.queryForObject(
+                    "SELECT MAX(id) FROM " + table + " WHERE user_id = ? AND sync_seq IS NULL", Long.class, userId);
+            if (maxId == null) {
+                continue;
+            }
+            int updated = jdbcTemplate.update("UPDATE " + table + " SET sync_seq = id * " + tables + " + ? "
+                    + "WHERE user_id = ? AND sync_seq IS NULL", base + i, userId);
+            top = Math.max(top, base + maxId * tables + i);
+            logger.info("Assigned sync sequence to {} existing {} of user {}", updated, table, userId);
+        }
+        return top;
+    }
+
+    // Khối số của transaction hiện tại, gắn với synchronization nên tự tách khi transaction bị suspend
+    private static Map<Long, long[]> currentRanges() {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof ReservedRanges reserved) {
+                return reserved.ranges;
+            }
+        }
+        ReservedRanges reserved = new ReservedRanges();
+        TransactionSynchronizationManager.registerSynchronization(reserved);
+        return reserved.ranges;
+    }
+
+    private static final class ReservedRanges implements TransactionSynchronization {
+        private final Map<Long, long[]> ranges = new HashMap<>();
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.financebackend.service;
+
+import com.example.financebackend.dto.BudgetDto;
+import com.example.financebackend.dto.CategoryDto;
+import com.example.financebackend.dto.SyncDto;
+import com.example.financebackend.dto.TransactionDto;
+import com.example.financebackend.dto.WalletDto;
+import com.example.financebackend.entity.Budget;
+import com.example.financebackend.entity.Category;
+import com.example.financebackend.entity.SyncTombstone;
+import com.example.financebackend.entity.Transaction;
+import com.example.financebackend.entity.Wallet;
+import com.example.financebackend.repository.BudgetRepository;
+import com.example.financebackend.repository.CategoryRepository;
+import com.example.financebackend.repository.SyncTombstoneRepository;
+import com.example.financebackend.repository.TransactionRepository;
+import com.example.financebackend.repository.UserRepository;
+import com.example.financebackend.repository.WalletRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Sync Service
+ * Delta sync cho client offline: trả các giao dịch, ví, danh mục, budget đã thay đổi và các dấu xóa
+ * có syncSeq > since, phân trang theo syncSeq.
+ *
+ * - Mỗi loại lấy tối đa limit + 1 dòng theo index (user_id, sync_seq), gộp lại và cắt ở limit dòng có số nhỏ nhất
+ * - Các truy vấn chạy trong một transaction REPEATABLE READ để cùng nhìn một snapshot; vì số được cấp theo thứ tự
+ *   commit (xem SyncSequenceService), snapshot luôn chứa mọi thay đổi có số nhỏ hơn số lớn nhất nó thấy
+ * - Chi phí phụ thuộc số thay đổi sau since, không phụ thuộc kích thước dữ liệu của user
+ */
+@Service
+public class SyncService {
+
+    private final UserRepository userRepository;
+    private final TransactionRepository transactionRepository;
+    private final WalletRepository walletRepository;
+    private final CategoryRepository categoryRepository;
+    private final BudgetRepository budgetRepository;
+    private final SyncTombstoneRepository tombstoneRepository;
+    private final SyncSequenceService syncSequenceService;
+    private final TransactionTemplate readTemplate;
+
+    @Value("${sync.page-size:500}")
+    private int defaultPageSize = 500;
+
+    @Value("${sync.max-page-size:2000}")
+    private int maxPageSize = 2000;
+
+    public SyncService(UserRepository userRepository,
+                       TransactionRepository transactionRepository,
+                       WalletRepository walletRepository,
+                       CategoryRepository categoryRepository,
+                       BudgetRepository budgetRepository,
+                       SyncTombstoneRepository tombstoneRepository,
+                       SyncSequenceService syncSequenceService,
+                       PlatformTransactionManager transactionManager) {
+        this.userRepository = userRepository;
+        this.transactionRepository = transactionRepository;
+        this.walletRepository = walletRepository;
+        this.categoryRepository = categoryRepository;
+        this.budgetRepository = budgetRepository;
+        this.tombstoneRepository = tombstoneRepository;
+        this.syncSequenceService = syncSequenceService;
+        this.readTemplate = new TransactionTemplate(transactionManager);
+        this.readTemplate.setReadOnly(true);
+        this.readTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    /**
+     * Các thay đổi của user sau since (0 = toàn bộ dữ liệu)
+     */
+    public SyncDto changes(Long userId, long since, Integer limit) {
+        if (since < 0) {
+            throw new IllegalArgumentException("since không hợp lệ");
+        }
+        int size = limit == null ? defaultPageSize : limit;
+        if (size < 1 || size > maxPageSize) {
+            throw new IllegalArgumentException("limit phải từ 1 đến " + maxPageSize);
+        }
+
+        SyncDto result = readTemplate.execute(status -> read(userId, since, size));
+        if (result == null) {
+            // User chưa được khởi tạo: gán số cho dữ liệu hiện có rồi đọc lại
+            syncSequenceService.assignPending(userId);
+            result = readTemplate.execute(status -> read(userId, since, size));
+        }
+        if (result == null) {
+            // Replica chưa thấy lần khởi tạo: không trả gì, client gọi lại
+            return new SyncDto(since, since, true, false, List.of(), List.of(), List.of(), List.of(), List.of());
+        }
+        return result;
+    }
+
+    // null = user chưa có bộ đếm (users.sync_seq NULL)
+    private SyncDto read(Long userId, long since, int limit) {
+        List<Object[]> state = userRepository.findSyncState(userId);
+        if (state.isEmpty()) {
+            throw new IllegalArgumentException("Không tìm thấy người dùng");
+        }
+        Long current = (Long) state.get(0)[0];
+        Long pruned = (Long) state.get(0)[1];
+        if (current == null) {
+            return null;
+        }
+        if (since > 0 && pruned != null && since < pruned) {
+            return new SyncDto(since, 0L, false, true, List.of(), List.of(), List.of(), List.of(), List.of());
+        }
+
+        Pageable page = PageRequest.of(0, limit + 1);
+        List<Change> changes = new ArrayList<>();
+        for (Transaction transaction : transactionRepository.findChangedSince(userId, since, page)) {
+            changes.add(new Change(transaction.getSyncSeq(), TransactionService.toDto(transaction)));
+        }
+        for (Wallet wallet : walletRepository.findChangedSince(userId, since, page)) {
+            changes.add(new Change(wallet.getSyncSeq(), WalletService.toDto(wallet)));
+        }
+        for (Category category : categoryRepository.findChangedSince(userId, since, page)) {
+            changes.add(new Change(category.getSyncSeq(), CategoryService.toDto(category)));
+        }
+        for (Budget budget : budgetRepository.findChangedSince(userId, since, page)) {
+            changes.add(new Change(budget.getSyncSeq(), BudgetService.toDto(budget)));
+        }
+        for (SyncTombstone tombstone : tombstoneRepository.findChangedSince(userId, since, page)) {
+            changes.add(new Change(tombstone.getSyncSeq(), new SyncDto.Deletion(tombstone.getEntityType().name(),
+                    tombstone.getEntityId(), tombstone.getSyncSeq(), tombstone.getDeletedAt())));
+        }
+        changes.sort(Comparator.comparingLong(Change::seq));
+
+        boolean hasMore = changes.size() > limit;
+        List<Change> pageItems = hasMore ? changes.subList(0, limit) : changes;
+        List<TransactionDto> transactions = new ArrayList<>();
+        List<WalletDto> wallets = new ArrayList<>();
+        List<CategoryDto> categories = new ArrayList<>();
+        List<BudgetDto> budgets = new ArrayList<>();
+        List<SyncDto.Deletion> deleted = new ArrayList<>();
+        for (Change change : pageItems) {
+            Object item = change.item();
+            if (item instanceof TransactionDto dto) {
+                transactions.add(dto);
+            } else if (item instanceof WalletDto dto) {
+                wallets.add(dto);
+            } else if (item instanceof CategoryDto dto) {
+                categories.add(dto);
+            } else if (item instanceof BudgetDto dto) {
+                budgets.add(dto);
+            } else {
+                deleted.add((SyncDto.Deletion) item);
+            }
+        }
+        long nextSince = pageItems.isEmpty() ? since : pageItems.get(pageItems.size() - 1).seq();
+        return new SyncDto(since, nextSince, hasMore, false, transactions, wallets, categories, budgets, deleted);
+    }
+
+    private record Change(long seq, Object item) {
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.financebackend.service;
+
+import com.example.financebackend.repository.SyncTombstoneRepository;
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sync Tombstone Retention Service
+ * Xóa dấu xóa (sync_tombstones) cũ theo từng chunk. Trước khi xóa, ghi syncSeq lớn nhất bị dọn của từng user
+ * vào users.sync_pruned_seq: client có since nhỏ hơn giá trị này sẽ nhận fullResync thay vì bỏ sót lần xóa.
+ */
+@Service
+public class SyncTombstoneRetentionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SyncTombstoneRetentionService.class);
+
+    private final SyncTombstoneRepository tombstoneRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${sync.tombstone.retention.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${sync.tombstone.retention.days:90}")
+    private int retentionDays = 90;
+
+    @Value("${sync.tombstone.retention.chunk-size:1000}")
+    private int chunkSize = 1000;
+
+    public SyncTombstoneRetentionService(SyncTombstoneRepository tombstoneRepository, JdbcTemplate jdbcTemplate) {
+        this.tombstoneRepository = tombstoneRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Run daily at 3:45 AM
+    @Timed(value = "finance.scheduler", extraTags = {"job", "sync-tombstone-retention"})
+    @Scheduled(cron = "${sync.tombstone.retention.cron:0 45 3 * * ?}")
+    public void purgeOldTombstones() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime before = LocalDateTime.now().minusDays(retentionDays);
+        int total = 0;
+        while (true) {
+            List<Object[]> rows = tombstoneRepository.findForRetention(before, PageRequest.of(0, chunkSize));
+            if (rows.isEmpty()) {
+                break;
+            }
+            List<Long> ids = new ArrayList<>(rows.size());
+            Map<Long, Long> prunedByUser = new HashMap<>();
+            for (Object[] row : rows) {
+                ids.add((Long) row[0]);
+                prunedByUser.merge((Long) row[1], (Long) row[2], Math::max);
+            }
+            List<Object[]> updates = new ArrayList<>(prunedByUser.size());
+            prunedByUser.forEach((userId, seq) -> updates.add(new Object[]{seq, userId, seq}));
+            jdbcTemplate.batchUpdate("UPDATE users SET sync_pruned_seq = ? "
+                    + "WHERE id = ? AND (sync_pruned_seq IS NULL OR sync_pruned_seq < ?)", updates);
+            total += tombstoneRepository.deleteByIdIn(ids);
+            if (rows.size() < chunkSize) {
+                break;
+            }
+        }
+        logger.info("Sync tombstone retention: deleted {} tombstones older than {} days", total, retentionDays);
+    }
+}
@@ -0,0 +1,275 @@
+package com.example.financebackend.service;
+
+import com.example.financebackend.repository.TransactionRepository;
+import com.example.financebackend.util.TextFolding;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transaction Note Index
+ * Inverted index trong bộ nhớ cho ghi chú giao dịch, mỗi user một index (token -> danh sách id đã sắp xếp).
+ *
+ * - Token được fold (chữ thường, bỏ dấu) nên "an trua" khớp "Ăn trưa".
+ * - Mỗi token của query khớp theo tiền tố ("caf" khớp "cafe"), các token kết hợp theo AND. Token ngắn hơn
+ *   transaction.note-index.min-prefix-length chỉ khớp nguyên token, để "a" không gộp gần hết giao dịch của user.
+ * - Kết quả nhiều hơn transaction.note-index.max-matches thì trả null để caller dùng query LIKE.
+ * - Nạp một lần từ DB (chỉ id + note), sau đó cập nhật tăng dần sau khi commit,
+ *   nên thời gian tìm kiếm không tăng theo số giao dịch như LIKE '%...%'.
+ */
+@Service
+public class TransactionNoteIndex extends LocalCacheSupport {
+
+    private final TransactionRepository transactionRepository;
+    public static final String CACHE_NAME = "transaction-notes";
+
+    private final Cache<Long, UserNoteIndex> indexes;
+
+    @Value("${transaction.note-index.min-prefix-length:3}")
+    private int minPrefixLength = 3;
+
+    @Value("${transaction.note-index.max-matches:1000}")
+    private int maxMatches = 1000;
+
+    public TransactionNoteIndex(TransactionRepository transactionRepository,
+                                @Value("${transaction.note-index.max-weight-bytes:67108864}") long maxWeightBytes,
+                                @Value("${transaction.note-index.expire-minutes:60}") long expireMinutes) {
+        super(CACHE_NAME);
+        this.transactionRepository = transactionRepository;
+        this.indexes = Caffeine.newBuilder()
+                .maximumWeight(maxWeightBytes)
+                .weigher((Long userId, UserNoteIndex index) -> index.estimatedBytes())
+                .expireAfterAccess(expireMinutes, TimeUnit.MINUTES)
+                .build();
+    }
+
+    @Override
+    protected void onRemoteInvalidation(CacheInvalidationBus.Invalidation invalidation) {
+        indexes.invalidate(Long.valueOf(invalidation.key()));
+    }
+
+    /**
+     * Trả về id (tăng dần) của các giao dịch có note khớp query,
+     * hoặc null nếu query không có token nào hoặc khớp quá nhiều giao dịch (caller dùng query LIKE).
+     */
+    public long[] search(Long userId, String query) {
+        List<String> tokens = TextFolding.tokenize(query);
+        if (tokens.isEmpty()) {
+            return null;
+        }
+        return indexes.get(userId, this::load).search(tokens, minPrefixLength, maxMatches);
+    }
+
+    public void onSaved(Long userId, Long transactionId, String note) {
+        if (userId == null || transactionId == null) {
+            return;
+        }
+        // computeIfPresent chờ nếu index đang được nạp; trả lại cùng object để Caffeine tính lại weight
+        afterCommit(() -> indexes.asMap().computeIfPresent(userId, (id, index) -> {
+            index.put(transactionId, note);
+            return index;
+        }));
+        publishRemote(userId);
+    }
+
+    public void onDeleted(Long userId, Long transactionId) {
+        if (userId == null || transactionId == null) {
+            return;
+        }
+        afterCommit(() -> indexes.asMap().computeIfPresent(userId, (id, index) -> {
+            index.remove(transactionId);
+            return index;
+        }));
+        publishRemote(userId);
+    }
+
+    public void evict(Long userId) {
+        indexes.invalidate(userId);
+        afterCommit(() -> indexes.invalidate(userId));
+        publishRemote(userId);
+    }
+
+    private UserNoteIndex load(Long userId) {
+        UserNoteIndex index = new UserNoteIndex();
+        for (Object[] row : transactionRepository.findNotesByUserId(userId)) {
+            index.put((Long) row[0], (String) row[1]);
+        }
+        return index;
+    }
+
+    /**
+     * Index của một user. Term được giữ trong TreeMap để duyệt theo tiền tố.
+     */
+    static final class UserNoteIndex {
+        private final TreeMap<String, Postings> terms = new TreeMap<>();
+        private final Map<Long, String[]> tokensById = new HashMap<>();
+        private long postingCount;
+        private long termChars;
+
+        synchronized void put(Long id, String note) {
+            remove(id);
+            List<String> tokens = TextFolding.tokenize(note);
+            if (tokens.isEmpty()) {
+                return;
+            }
+            for (String token : tokens) {
+                terms.computeIfAbsent(token, t -> {
+                    termChars += t.length();
+                    return new Postings();
+                }).add(id);
+                postingCount++;
+            }
+            tokensById.put(id, tokens.toArray(new String[0]));
+        }
+
+        synchronized void remove(Long id) {
+            String[] tokens = tokensById.remove(id);
+            if (tokens == null) {
+                return;
+            }
+            for (String token : tokens) {
+                Postings postings = terms.get(token);
+                if (postings != null && postings.remove(id)) {
+                    postingCount--;
+                    if (postings.size == 0) {
+                        terms.remove(token);
+                        termChars -= token.length();
+                    }
+                }
+            }
+        }
+
+        synchronized long[] search(List<String> queryTokens, int minPrefixLength, int maxMatches) {
+            List<Map<String, Postings>> ranges = new ArrayList<>(queryTokens.size());
+            long smallest = Long.MAX_VALUE;
+            for (String token : queryTokens) {
+                Map<String, Postings> range = token.length() < minPrefixLength
+                        ? terms.subMap(token, true, token, true)
+                        : terms.subMap(token, true, token + Character.MAX_VALUE, false);
+                long total = postingTotal(range);
+                if (total == 0) {
+                    return new long[0];
+                }
+                smallest = Math.min(smallest, total);
+                ranges.add(range);
+            }
+            if (smallest > maxMatches) {
+                return null; // Mọi token đều quá phổ biến - để DB lọc
+            }
+            // Giao từ danh sách ngắn nhất
+            ranges.sort(Comparator.comparingLong(UserNoteIndex::postingTotal));
+            long[] result = union(ranges.get(0));
+            for (int i = 1; i < ranges.size() && result.length > 0; i++) {
+                result = intersect(result, union(ranges.get(i)));
+            }
+            return result.length > maxMatches ? null : result;
+        }
+
+        private static long postingTotal(Map<String, Postings> range) {
+            long total = 0;
+            for (Postings postings : range.values()) {
+                total += postings.size;
+            }
+            return total;
+        }
+
+        private static long[] union(Map<String, Postings> range) {
+            if (range.size() == 1) {
+                return range.values().iterator().next().toArray();
+            }
+            int total = (int) postingTotal(range);
+            long[] all = new long[total];
+            int offset = 0;
+            for (Postings postings : range.values()) {
+                System.arraycopy(postings.ids, 0, all, offset, postings.size);
+                offset += postings.size;
+            }
+            Arrays.sort(all);
+            int unique = 0;
+            for (int i = 0; i < all.length; i++) {
+                if (i == 0 || all[i] != all[unique - 1]) {
+                    all[unique++] = all[i];
+                }
+            }
+            return Arrays.copyOf(all, unique);
+        }
+
+        private static long[] intersect(long[] a, long[] b) {
+            long[] out = new long[Math.min(a.length, b.length)];
+            int i = 0, j = 0, n = 0;
+            while (i < a.length && j < b.length) {
+                if (a[i] < b[j]) {
+                    i++;
+                } else if (a[i] > b[j]) {
+                    j++;
+                } else {
+                    out[n++] = a[i];
+                    i++;
+                    j++;
+                }
+            }
+            return Arrays.copyOf(out, n);
+        }
+
+        // Ước lượng thô: 8 byte mỗi posting, ~64 byte mỗi term / mỗi giao dịch
+        synchronized int estimatedBytes() {
+            long bytes = postingCount * 8 + terms.size() * 64L + termChars * 2 + tokensById.size() * 64L;
+            return (int) Math.min(Integer.MAX_VALUE, bytes);
+        }
+    }
+
+    /**
+     * Danh sách id tăng dần (mảng long nguyên thủy, không boxing)
+     */
+    static final class Postings {
+        private long[] ids = new long[4];
+        private int size;
+
+        void add(long id) {
+            if (size == 0 || ids[size - 1] < id) {
+                ensureCapacity();
+                ids[size++] = id; // Trường hợp thường gặp: id mới lớn hơn mọi id cũ
+                return;
+            }
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                return;
+            }
+            int insertAt = -index - 1;
+            ensureCapacity();
+            System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+            ids[insertAt] = id;
+            size++;
+        }
+
+        boolean remove(long id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            size--;
+            return true;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(ids, size);
+        }
+
+        private void ensureCapacity() {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, ids.length * 2);
+            }
+        }
+    }
+}
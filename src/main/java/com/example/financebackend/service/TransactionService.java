@@ -11,8 +11,10 @@ import com.example.financebackend.repository.TransactionRepository;
 import com.example.financebackend.repository.UserRepository;
 import com.example.financebackend.repository.WalletRepository;
 import com.example.financebackend.repository.WalletShareRepository;
+import io.micrometer.core.annotation.Timed;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -26,6 +28,9 @@ import java.util.stream.Collectors;
 public class TransactionService {
 
     private static final Logger logger = LoggerFactory.getLogger(TransactionService.class);
+    private static final int MAX_RECENT_LIMIT = 200;
+    // Số id tối đa trong một mệnh đề IN khi kết hợp note index với các filter khác
+    private static final int NOTE_SEARCH_ID_CHUNK = 1000;
     
     private final TransactionRepository transactionRepository;
     private final WalletRepository walletRepository;
@@ -36,6 +41,12 @@ public class TransactionService {
     private final BudgetService budgetService;
     private final AchievementService achievementService;
     private NotificationService notificationService; // Lazy init to avoid circular dependency
+    private ReportCacheService reportCacheService;
+    private EventStreamService eventStreamService;
+    private RecentTransactionCache recentTransactionCache;
+    private TransactionNoteIndex transactionNoteIndex;
+    private SyncSequenceService syncSequenceService;
+    private TransactionSnapshotCache transactionSnapshotCache;
 
     public TransactionService(TransactionRepository transactionRepository,
                              WalletRepository walletRepository,
@@ -61,6 +72,43 @@ public class TransactionService {
     public void setNotificationService(NotificationService notificationService) {
         this.notificationService = notificationService;
     }
+
+    @org.springframework.beans.factory.annotation.Autowired(required = false)
+    public void setReportCacheService(ReportCacheService reportCacheService) {
+        this.reportCacheService = reportCacheService;
+    }
+
+    @org.springframework.beans.factory.annotation.Autowired(required = false)
+    public void setRecentTransactionCache(RecentTransactionCache recentTransactionCache) {
+        this.recentTransactionCache = recentTransactionCache;
+    }
+
+    @org.springframework.beans.factory.annotation.Autowired(required = false)
+    public void setTransactionNoteIndex(TransactionNoteIndex transactionNoteIndex) {
+        this.transactionNoteIndex = transactionNoteIndex;
+    }
+
+    @org.springframework.beans.factory.annotation.Autowired(required = false)
+    public void setTransactionSnapshotCache(TransactionSnapshotCache transactionSnapshotCache) {
+        this.transactionSnapshotCache = transactionSnapshotCache;
+    }
+
+    @org.springframework.beans.factory.annotation.Autowired(required = false)
+    public void setEventStreamService(EventStreamService eventStreamService) {
+        this.eventStreamService = eventStreamService;
+    }
+
+    @org.springframework.beans.factory.annotation.Autowired(required = false)
+    public void setSyncSequenceService(SyncSequenceService syncSequenceService) {
+        this.syncSequenceService = syncSequenceService;
+    }
+
+    // Ví chia sẻ: giao dịch và ví thuộc hai user khác nhau - khóa bộ đếm sync của họ theo thứ tự id trước khi ghi
+    private void lockSyncSequences(Long... userIds) {
+        if (syncSequenceService != null) {
+            syncSequenceService.reserveInOrder(userIds);
+        }
+    }
     
     private boolean hasWalletAccess(Long walletId, Long userId, com.example.financebackend.entity.WalletShare.Permission requiredPermission) {
         // Check ownership
@@ -89,7 +137,7 @@ public class TransactionService {
     public List<TransactionDto> findAllByUserId(Long userId) {
         // Get transactions from owned wallets
         List<TransactionDto> ownedTransactions = transactionRepository.findByUserId(userId).stream()
-                .map(this::toDto)
+                .map(TransactionService::toDto)
                 .collect(Collectors.toList());
         
         // Get transactions from shared wallets where user has at least VIEWER permission
@@ -100,10 +148,16 @@ public class TransactionService {
 
     @Transactional(readOnly = true)
     public List<TransactionDto> findRecentTransactions(Long userId, int limit) {
-        return transactionRepository.findByUserId(userId).stream()
-                .sorted((t1, t2) -> t2.getOccurredAt().compareTo(t1.getOccurredAt()))
-                .limit(limit)
-                .map(this::toDto)
+        int n = Math.max(1, Math.min(limit, MAX_RECENT_LIMIT));
+        if (recentTransactionCache != null && n <= recentTransactionCache.getCapacity()) {
+            return recentTransactionCache.getRecent(userId, n, size -> loadRecentTransactions(userId, size));
+        }
+        return loadRecentTransactions(userId, n);
+    }
+
+    private List<TransactionDto> loadRecentTransactions(Long userId, int limit) {
+        return transactionRepository.findRecentByUserId(userId, PageRequest.of(0, limit)).stream()
+                .map(TransactionService::toDto)
                 .collect(Collectors.toList());
     }
 
@@ -112,13 +166,14 @@ public class TransactionService {
                                                         BigDecimal amount, LocalDateTime occurredAt) {
         List<Transaction> similar = findSimilarTransactionsInternal(userId, categoryId, walletId, amount, occurredAt);
         return similar.stream()
-                .map(this::toDto)
+                .map(TransactionService::toDto)
                 .collect(Collectors.toList());
     }
 
     /**
      * Tạo transaction nhanh với minimal fields (quick entry)
      */
+    @Timed(value = "finance.transaction.create", histogram = true)
     public TransactionDto createQuick(QuickTransactionRequest request, Long userId) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy người dùng"));
@@ -228,9 +283,9 @@ public class TransactionService {
                                                             java.time.LocalDateTime startDate,
                                                             java.time.LocalDateTime endDate,
                                                             String keyword) {
-        return transactionRepository.findByUserIdWithFilters(userId, categoryId, walletId, type, startDate, endDate, keyword)
+        return findWithFilters(userId, categoryId, walletId, type, startDate, endDate, keyword)
                 .stream()
-                .map(this::toDto)
+                .map(TransactionService::toDto)
                 .collect(Collectors.toList());
     }
 
@@ -245,7 +300,7 @@ public class TransactionService {
                                                                     String keyword,
                                                                     BigDecimal minAmount,
                                                                     BigDecimal maxAmount) {
-        return transactionRepository.findByUserIdWithFilters(userId, categoryId, walletId, type, startDate, endDate, keyword)
+        return findWithFilters(userId, categoryId, walletId, type, startDate, endDate, keyword)
                 .stream()
                 .filter(t -> {
                     if (minAmount != null && t.getAmount().compareTo(minAmount) < 0) {
@@ -256,10 +311,40 @@ public class TransactionService {
                     }
                     return true;
                 })
-                .map(this::toDto)
+                .map(TransactionService::toDto)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Keyword được tìm qua note index (bỏ dấu, khớp tiền tố) rồi kết hợp với các filter còn lại trong DB.
+     * Dùng query LIKE cũ (khớp chuỗi con) khi không có index, keyword không có token nào, keyword khớp quá nhiều
+     * giao dịch, hoặc index không tìm thấy gì (ví dụ keyword nằm giữa một từ).
+     */
+    private List<Transaction> findWithFilters(Long userId, Long categoryId, Long walletId,
+                                              Transaction.TransactionType type,
+                                              LocalDateTime startDate, LocalDateTime endDate,
+                                              String keyword) {
+        long[] noteMatches = transactionNoteIndex != null && keyword != null && !keyword.isBlank()
+                ? transactionNoteIndex.search(userId, keyword)
+                : null;
+        if (noteMatches == null || noteMatches.length == 0) {
+            return transactionRepository.findByUserIdWithFilters(userId, categoryId, walletId, type, startDate, endDate, keyword);
+        }
+
+        List<Transaction> result = new java.util.ArrayList<>();
+        for (int from = 0; from < noteMatches.length; from += NOTE_SEARCH_ID_CHUNK) {
+            int to = Math.min(noteMatches.length, from + NOTE_SEARCH_ID_CHUNK);
+            List<Long> ids = new java.util.ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                ids.add(noteMatches[i]);
+            }
+            result.addAll(transactionRepository.findByUserIdAndIdInWithFilters(
+                    userId, ids, categoryId, walletId, type, startDate, endDate));
+        }
+        result.sort(java.util.Comparator.comparing(Transaction::getOccurredAt).reversed());
+        return result;
+    }
+
     public TransactionDto findByIdAndUserId(Long id, Long userId) {
         Transaction transaction = transactionRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy giao dịch"));
@@ -275,6 +360,7 @@ public class TransactionService {
         return toDto(transaction);
     }
 
+    @Timed(value = "finance.transaction.create", histogram = true)
     public TransactionDto create(TransactionDto dto, Long userId) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy người dùng"));
@@ -321,6 +407,8 @@ public class TransactionService {
             // Trong tương lai có thể thêm currency conversion
         }
 
+        lockSyncSequences(userId, wallet.getUser().getId());
+
         Transaction transaction = new Transaction();
         transaction.setUser(user);
         transaction.setWallet(wallet);
@@ -335,6 +423,13 @@ public class TransactionService {
         walletRepository.save(wallet);
 
         Transaction saved = transactionRepository.save(transaction);
+        invalidateReportCache(saved.getUser(), wallet, occurredAt);
+        publishWalletBalance(wallet, userId);
+        if (recentTransactionCache != null) {
+            recentTransactionCache.onCreated(userId, toDto(saved));
+        }
+        indexNote(saved);
+        updateSnapshot(saved);
         
         // Update budgets related to this transaction
         updateBudgetsForTransaction(saved);
@@ -372,6 +467,7 @@ public class TransactionService {
         BigDecimal oldAmount = transaction.getAmount();
         Transaction.TransactionType oldType = transaction.getType();
         Wallet oldWallet = transaction.getWallet();
+        LocalDateTime oldOccurredAt = transaction.getOccurredAt();
 
         // Check new wallet access
         if (!hasWalletAccess(dto.getWalletId(), userId, com.example.financebackend.entity.WalletShare.Permission.EDITOR)) {
@@ -388,6 +484,7 @@ public class TransactionService {
             throw new IllegalArgumentException("Loại danh mục phải khớp với loại giao dịch");
         }
 
+        lockSyncSequences(transaction.getUser().getId(), oldWallet.getUser().getId(), wallet.getUser().getId());
         revertWalletBalance(oldWallet, oldAmount, oldType);
         walletRepository.save(oldWallet);
 
@@ -403,6 +500,15 @@ public class TransactionService {
         walletRepository.save(wallet);
 
         Transaction saved = transactionRepository.save(transaction);
+        invalidateReportCache(saved.getUser(), oldWallet, oldOccurredAt);
+        invalidateReportCache(saved.getUser(), wallet, saved.getOccurredAt());
+        if (!oldWallet.getId().equals(wallet.getId())) {
+            publishWalletBalance(oldWallet, userId);
+        }
+        publishWalletBalance(wallet, userId);
+        evictRecentTransactions(saved.getUser());
+        indexNote(saved);
+        updateSnapshot(saved);
         
         // Update budgets related to this transaction
         updateBudgetsForTransaction(saved);
@@ -426,11 +532,21 @@ public class TransactionService {
         // Get transaction category before deleting
         Category category = transaction.getCategory();
         LocalDateTime occurredAt = transaction.getOccurredAt();
-        
+
+        lockSyncSequences(transaction.getUser().getId(), wallet.getUser().getId());
         revertWalletBalance(wallet, transaction.getAmount(), transaction.getType());
         walletRepository.save(wallet);
 
         transactionRepository.delete(transaction);
+        invalidateReportCache(transaction.getUser(), wallet, occurredAt);
+        publishWalletBalance(wallet, userId);
+        evictRecentTransactions(transaction.getUser());
+        if (transactionNoteIndex != null) {
+            transactionNoteIndex.onDeleted(transaction.getUser().getId(), transaction.getId());
+        }
+        if (transactionSnapshotCache != null) {
+            transactionSnapshotCache.onDeleted(transaction.getUser().getId(), transaction.getId());
+        }
         
         // Update budgets after deletion (recalculate based on remaining transactions)
         if (category != null && occurredAt != null) {
@@ -438,6 +554,7 @@ public class TransactionService {
         }
     }
 
+    @Timed(value = "finance.transaction.transfer", histogram = true)
     @Transactional
     public void transfer(Long fromWalletId, Long toWalletId, BigDecimal amount, Long userId) {
         try {
@@ -491,6 +608,9 @@ public class TransactionService {
             User user = userRepository.findById(userId)
                     .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy người dùng"));
 
+            // Người chuyển, chủ ví nguồn và chủ ví đích có thể là ba user khác nhau
+            lockSyncSequences(userId, fromWallet.getUser().getId(), toWallet.getUser().getId());
+
             // Get or create "Chuyển tiền" category for transfer transactions
             Category transferExpenseCategory = getOrCreateTransferCategory(userId, Category.CategoryType.EXPENSE);
             Category transferIncomeCategory = getOrCreateTransferCategory(userId, Category.CategoryType.INCOME);
@@ -522,6 +642,18 @@ public class TransactionService {
 
             Transaction savedExpense = transactionRepository.save(expense);
             Transaction savedIncome = transactionRepository.save(income);
+            invalidateReportCache(user, fromWallet, savedExpense.getOccurredAt());
+            invalidateReportCache(user, toWallet, savedIncome.getOccurredAt());
+            publishWalletBalance(fromWallet, userId);
+            publishWalletBalance(toWallet, userId);
+            if (recentTransactionCache != null) {
+                recentTransactionCache.onCreated(userId, toDto(savedExpense));
+                recentTransactionCache.onCreated(userId, toDto(savedIncome));
+            }
+            indexNote(savedExpense);
+            indexNote(savedIncome);
+            updateSnapshot(savedExpense);
+            updateSnapshot(savedIncome);
             
             // Create notification for transfer
             createTransferNotification(fromWallet, toWallet, amount, userId);
@@ -542,6 +674,20 @@ public class TransactionService {
         }
     }
 
+    /**
+     * Xóa cache báo cáo có khoảng thời gian chứa giao dịch (cho người tạo và chủ ví nếu ví được chia sẻ)
+     */
+    private void invalidateReportCache(User user, Wallet wallet, LocalDateTime occurredAt) {
+        if (reportCacheService == null) {
+            return;
+        }
+        Long userId = user != null ? user.getId() : null;
+        reportCacheService.invalidate(userId, occurredAt);
+        if (wallet != null && wallet.getUser() != null && !wallet.getUser().getId().equals(userId)) {
+            reportCacheService.invalidate(wallet.getUser().getId(), occurredAt);
+        }
+    }
+
     private void updateWalletBalance(Wallet wallet, BigDecimal amount, Transaction.TransactionType type) {
         BigDecimal currentBalance = wallet.getBalance() != null ? wallet.getBalance() : BigDecimal.ZERO;
         
@@ -673,7 +819,7 @@ public class TransactionService {
         }
     }
 
-    private TransactionDto toDto(Transaction transaction) {
+    static TransactionDto toDto(Transaction transaction) {
         TransactionDto dto = new TransactionDto();
         dto.setId(transaction.getId());
         dto.setAmount(transaction.getAmount());
@@ -745,4 +891,28 @@ public class TransactionService {
             logger.error("Failed to create transfer notification: {}", e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    private void evictRecentTransactions(User user) {
+        if (recentTransactionCache != null && user != null) {
+            recentTransactionCache.evict(user.getId());
+        }
+    }
+
+    private void indexNote(Transaction transaction) {
+        if (transactionNoteIndex != null && transaction.getUser() != null) {
+            transactionNoteIndex.onSaved(transaction.getUser().getId(), transaction.getId(), transaction.getNote());
+        }
+    }
+
+    private void updateSnapshot(Transaction transaction) {
+        if (transactionSnapshotCache != null) {
+            transactionSnapshotCache.onSaved(transaction);
+        }
+    }
+
+    private void publishWalletBalance(Wallet wallet, Long userId) {
+        if (eventStreamService != null) {
+            eventStreamService.publishWalletBalance(wallet, userId);
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package com.example.financebackend.service;
+
+import com.example.financebackend.entity.Transaction;
+import com.example.financebackend.util.Money;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+/**
+ * Ảnh chụp dạng cột (columnar) giao dịch của một user cho các phép phân tích.
+ * Mỗi thuộc tính là một mảng nguyên thủy, lọc/gom nhóm bằng vòng lặp trên chỉ số dòng, không load entity.
+ *
+ * - epochDay + secondOfDay: thời điểm giao dịch (giờ địa phương, làm tròn xuống giây)
+ * - amount: minor unit theo Money.STORAGE_SCALE
+ * - category / wallet: chỉ số trong từ điển id của snapshot (categoryId(index), walletId(index))
+ *
+ * Object bất biến với người đọc: thêm giao dịch tạo snapshot mới dùng chung mảng (chỉ ghi vào vị trí sau size
+ * của bản cũ), sửa/xóa thì chép mảng. Chỉ bản mới nhất trong cache được thêm tiếp (xem TransactionSnapshotCache).
+ */
+public final class TransactionSnapshot {
+
+    public static final byte INCOME = 0;
+    public static final byte EXPENSE = 1;
+
+    /** Chỉ số từ điển khi giao dịch không có danh mục */
+    public static final int NONE = -1;
+
+    private static final long SECONDS_PER_DAY = 86_400L;
+
+    private final int size;
+    private final long maxId;
+    private final long[] ids;
+    private final int[] epochDays;
+    private final int[] secondsOfDay;
+    private final long[] amounts;
+    private final int[] categories;
+    private final int[] wallets;
+    private final byte[] types;
+    private final long[] categoryIds;
+    private final int categoryCount;
+    private final long[] walletIds;
+    private final int walletCount;
+
+    private TransactionSnapshot(Builder builder) {
+        this.size = builder.size;
+        this.maxId = builder.maxId;
+        this.ids = builder.ids;
+        this.epochDays = builder.epochDays;
+        this.secondsOfDay = builder.secondsOfDay;
+        this.amounts = builder.amounts;
+        this.categories = builder.categories;
+        this.wallets = builder.wallets;
+        this.types = builder.types;
+        this.categoryIds = builder.categoryIds;
+        this.categoryCount = builder.categoryCount;
+        this.walletIds = builder.walletIds;
+        this.walletCount = builder.walletCount;
+    }
+
+    public static TransactionSnapshot empty() {
+        return new Builder(0).build();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long id(int row) {
+        return ids[row];
+    }
+
+    public int epochDay(int row) {
+        return epochDays[row];
+    }
+
+    /** Thời điểm giao dịch dạng giây, so sánh với timeKey()/timeKeyCeil() */
+    public long time(int row) {
+        return epochDays[row] * SECONDS_PER_DAY + secondsOfDay[row];
+    }
+
+    /** Số tiền theo minor unit (Money.STORAGE_SCALE) */
+    public long amount(int row) {
+        return amounts[row];
+    }
+
+    public int category(int row) {
+        return categories[row];
+    }
+
+    public int wallet(int row) {
+        return wallets[row];
+    }
+
+    public byte type(int row) {
+        return types[row];
+    }
+
+    public int categoryCount() {
+        return categoryCount;
+    }
+
+    public long categoryId(int index) {
+        return categoryIds[index];
+    }
+
+    /** Chỉ số của danh mục trong từ điển, NONE nếu chưa có giao dịch nào thuộc danh mục */
+    public int categoryIndex(Long categoryId) {
+        return categoryId == null ? NONE : indexOf(categoryIds, categoryCount, categoryId);
+    }
+
+    public int walletCount() {
+        return walletCount;
+    }
+
+    public long walletId(int index) {
+        return walletIds[index];
+    }
+
+    /** Khóa thời gian (giây) làm tròn xuống: time(row) <= timeKey(t) tương đương occurredAt <= t */
+    public static long timeKey(LocalDateTime dateTime) {
+        return dateTime.toLocalDate().toEpochDay() * SECONDS_PER_DAY + dateTime.toLocalTime().toSecondOfDay();
+    }
+
+    /** Khóa thời gian làm tròn lên: time(row) >= timeKeyCeil(t) tương đương occurredAt >= t */
+    public static long timeKeyCeil(LocalDateTime dateTime) {
+        return dateTime.getNano() == 0 ? timeKey(dateTime) : timeKey(dateTime) + 1;
+    }
+
+    public static byte typeCode(Transaction.TransactionType type) {
+        return type == Transaction.TransactionType.INCOME ? INCOME : EXPENSE;
+    }
+
+    /**
+     * Thêm hoặc cập nhật một giao dịch. Id mới lớn hơn mọi id đã có (trường hợp thường gặp) thì nối vào cuối
+     * mà không chép mảng; id đã có thì chép mảng và ghi đè dòng đó.
+     */
+    TransactionSnapshot upsert(long id, LocalDateTime occurredAt, BigDecimal amount,
+                               Long categoryId, Long walletId, Transaction.TransactionType type) {
+        int row = id > maxId ? -1 : indexOf(ids, size, id);
+        Builder builder = new Builder(this, row >= 0);
+        if (row >= 0) {
+            builder.set(row, id, occurredAt, Money.toMinor(amount, Money.STORAGE_SCALE), categoryId, walletId,
+                    typeCode(type));
+        } else {
+            builder.add(id, occurredAt, Money.toMinor(amount, Money.STORAGE_SCALE), categoryId, walletId,
+                    typeCode(type));
+        }
+        return builder.build();
+    }
+
+    TransactionSnapshot remove(long id) {
+        int row = indexOf(ids, size, id);
+        if (row < 0) {
+            return this;
+        }
+        Builder builder = new Builder(this, true);
+        builder.removeRow(row);
+        return builder.build();
+    }
+
+    // Ước lượng thô: 33 byte mỗi dòng theo dung lượng mảng, 8 byte mỗi mục từ điển
+    int estimatedBytes() {
+        long bytes = ids.length * 33L + (categoryIds.length + walletIds.length) * 8L + 128;
+        return (int) Math.min(Integer.MAX_VALUE, bytes);
+    }
+
+    // Quét từ cuối: giao dịch vừa sửa thường là giao dịch mới
+    private static int indexOf(long[] values, int size, long value) {
+        for (int i = size - 1; i >= 0; i--) {
+            if (values[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Dựng snapshot từng dòng. Không thread-safe; dùng khi nạp từ DB và cho các thay đổi tăng dần.
+     */
+    static final class Builder {
+        private int size;
+        private long maxId = Long.MIN_VALUE;
+        private long[] ids;
+        private int[] epochDays;
+        private int[] secondsOfDay;
+        private long[] amounts;
+        private int[] categories;
+        private int[] wallets;
+        private byte[] types;
+        private long[] categoryIds;
+        private int categoryCount;
+        private long[] walletIds;
+        private int walletCount;
+
+        Builder(int expectedSize) {
+            int capacity = Math.max(16, expectedSize);
+            ids = new long[capacity];
+            epochDays = new int[capacity];
+            secondsOfDay = new int[capacity];
+            amounts = new long[capacity];
+            categories = new int[capacity];
+            wallets = new int[capacity];
+            types = new byte[capacity];
+            categoryIds = new long[8];
+            walletIds = new long[4];
+        }
+
+        // copy = false: dùng chung mảng với snapshot, chỉ ghi vào phần sau size của nó
+        private Builder(TransactionSnapshot snapshot, boolean copy) {
+            size = snapshot.size;
+            maxId = snapshot.maxId;
+            ids = copy ? snapshot.ids.clone() : snapshot.ids;
+            epochDays = copy ? snapshot.epochDays.clone() : snapshot.epochDays;
+            secondsOfDay = copy ? snapshot.secondsOfDay.clone() : snapshot.secondsOfDay;
+            amounts = copy ? snapshot.amounts.clone() : snapshot.amounts;
+            categories = copy ? snapshot.categories.clone() : snapshot.categories;
+            wallets = copy ? snapshot.wallets.clone() : snapshot.wallets;
+            types = copy ? snapshot.types.clone() : snapshot.types;
+            categoryIds = copy ? snapshot.categoryIds.clone() : snapshot.categoryIds;
+            categoryCount = snapshot.categoryCount;
+            walletIds = copy ? snapshot.walletIds.clone() : snapshot.walletIds;
+            walletCount = snapshot.walletCount;
+        }
+
+        Builder add(long id, LocalDateTime occurredAt, long amount, Long categoryId, Long walletId, byte type) {
+            if (size == ids.length) {
+                grow();
+            }
+            set(size++, id, occurredAt, amount, categoryId, walletId, type);
+            return this;
+        }
+
+        private void set(int row, long id, LocalDateTime occurredAt, long amount,
+                         Long categoryId, Long walletId, byte type) {
+            ids[row] = id;
+            epochDays[row] = Math.toIntExact(occurredAt.toLocalDate().toEpochDay());
+            secondsOfDay[row] = occurredAt.toLocalTime().toSecondOfDay();
+            amounts[row] = amount;
+            categories[row] = categoryId == null ? NONE : categoryIndex(categoryId);
+            wallets[row] = walletId == null ? NONE : walletIndex(walletId);
+            types[row] = type;
+            maxId = Math.max(maxId, id);
+        }
+
+        private void removeRow(int row) {
+            int tail = size - row - 1;
+            System.arraycopy(ids, row + 1, ids, row, tail);
+            System.arraycopy(epochDays, row + 1, epochDays, row, tail);
+            System.arraycopy(secondsOfDay, row + 1, secondsOfDay, row, tail);
+            System.arraycopy(amounts, row + 1, amounts, row, tail);
+            System.arraycopy(categories, row + 1, categories, row, tail);
+            System.arraycopy(wallets, row + 1, wallets, row, tail);
+            System.arraycopy(types, row + 1, types, row, tail);
+            size--;
+        }
+
+        private int categoryIndex(long categoryId) {
+            int index = indexOf(categoryIds, categoryCount, categoryId);
+            if (index >= 0) {
+                return index;
+            }
+            if (categoryCount == categoryIds.length) {
+                categoryIds = Arrays.copyOf(categoryIds, categoryCount * 2);
+            }
+            categoryIds[categoryCount] = categoryId;
+            return categoryCount++;
+        }
+
+        private int walletIndex(long walletId) {
+            int index = indexOf(walletIds, walletCount, walletId);
+            if (index >= 0) {
+                return index;
+            }
+            if (walletCount == walletIds.length) {
+                walletIds = Arrays.copyOf(walletIds, walletCount * 2);
+            }
+            walletIds[walletCount] = walletId;
+            return walletCount++;
+        }
+
+        private void grow() {
+            int capacity = Math.max(16, ids.length + (ids.length >> 1));
+            ids = Arrays.copyOf(ids, capacity);
+            epochDays = Arrays.copyOf(epochDays, capacity);
+            secondsOfDay = Arrays.copyOf(secondsOfDay, capacity);
+            amounts = Arrays.copyOf(amounts, capacity);
+            categories = Arrays.copyOf(categories, capacity);
+            wallets = Arrays.copyOf(wallets, capacity);
+            types = Arrays.copyOf(types, capacity);
+        }
+
+        TransactionSnapshot build() {
+            return new TransactionSnapshot(this);
+        }
+    }
+}
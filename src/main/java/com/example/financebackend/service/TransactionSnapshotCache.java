@@ -0,0 +1,100 @@
+package com.example.financebackend.service;
+
+import com.example.financebackend.entity.Transaction;
+import com.example.financebackend.repository.TransactionRepository;
+import com.example.financebackend.util.Money;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transaction Snapshot Cache
+ * Giữ TransactionSnapshot (dạng cột) của từng user cho các service phân tích
+ * (so sánh kỳ, điểm sức khỏe tài chính, đề xuất budget, gợi ý danh mục).
+ *
+ * - Nạp một lần từ DB bằng projection (id, thời điểm, số tiền, danh mục, ví, loại), không load entity.
+ * - Cập nhật tăng dần sau khi commit; snapshot cũ mà request khác đang đọc không bị thay đổi.
+ * - Giới hạn theo tổng dung lượng ước lượng (maximumWeight) và hết hạn khi lâu không truy cập.
+ */
+@Service
+public class TransactionSnapshotCache extends LocalCacheSupport {
+
+    public static final String CACHE_NAME = "transaction-snapshots";
+
+    private final TransactionRepository transactionRepository;
+    private final Cache<Long, TransactionSnapshot> snapshots;
+
+    public TransactionSnapshotCache(TransactionRepository transactionRepository,
+                                    @Value("${transaction.snapshot.max-weight-bytes:134217728}") long maxWeightBytes,
+                                    @Value("${transaction.snapshot.expire-minutes:30}") long expireMinutes) {
+        super(CACHE_NAME);
+        this.transactionRepository = transactionRepository;
+        this.snapshots = Caffeine.newBuilder()
+                .maximumWeight(maxWeightBytes)
+                .weigher((Long userId, TransactionSnapshot snapshot) -> snapshot.estimatedBytes())
+                .expireAfterAccess(expireMinutes, TimeUnit.MINUTES)
+                .build();
+    }
+
+    @Override
+    protected void onRemoteInvalidation(CacheInvalidationBus.Invalidation invalidation) {
+        snapshots.invalidate(Long.valueOf(invalidation.key()));
+    }
+
+    /**
+     * Snapshot hiện tại của user (nạp từ DB nếu chưa có)
+     */
+    public TransactionSnapshot get(Long userId) {
+        return snapshots.get(userId, this::load);
+    }
+
+    public void onSaved(Transaction transaction) {
+        if (transaction.getUser() == null || transaction.getId() == null || transaction.getOccurredAt() == null) {
+            return;
+        }
+        // Đọc giá trị ngay: entity có thể bị sửa tiếp trước khi commit
+        Long userId = transaction.getUser().getId();
+        long id = transaction.getId();
+        LocalDateTime occurredAt = transaction.getOccurredAt();
+        BigDecimal amount = transaction.getAmount();
+        Long categoryId = transaction.getCategory() != null ? transaction.getCategory().getId() : null;
+        Long walletId = transaction.getWallet() != null ? transaction.getWallet().getId() : null;
+        Transaction.TransactionType type = transaction.getType();
+        // computeIfPresent chờ nếu snapshot đang được nạp; upsert bỏ qua giao dịch mà lần nạp đã thấy
+        afterCommit(() -> snapshots.asMap().computeIfPresent(userId,
+                (key, snapshot) -> snapshot.upsert(id, occurredAt, amount, categoryId, walletId, type)));
+        publishRemote(userId);
+    }
+
+    public void onDeleted(Long userId, Long transactionId) {
+        if (userId == null || transactionId == null) {
+            return;
+        }
+        afterCommit(() -> snapshots.asMap().computeIfPresent(userId, (key, snapshot) -> snapshot.remove(transactionId)));
+        publishRemote(userId);
+    }
+
+    public void evict(Long userId) {
+        snapshots.invalidate(userId);
+        afterCommit(() -> snapshots.invalidate(userId));
+        publishRemote(userId);
+    }
+
+    private TransactionSnapshot load(Long userId) {
+        List<Object[]> rows = transactionRepository.findSnapshotRowsByUserId(userId);
+        TransactionSnapshot.Builder builder = new TransactionSnapshot.Builder(rows.size());
+        for (Object[] row : rows) {
+            builder.add((Long) row[0], (LocalDateTime) row[1],
+                    Money.toMinor((BigDecimal) row[2], Money.STORAGE_SCALE),
+                    (Long) row[3], (Long) row[4],
+                    TransactionSnapshot.typeCode((Transaction.TransactionType) row[5]));
+        }
+        return builder.build();
+    }
+}
@@ -35,6 +35,12 @@ public class TransactionTemplateService {
     private final CategoryRepository categoryRepository;
     private final TransactionRepository transactionRepository;
     private final WalletShareRepository walletShareRepository;
+    private ReportCacheService reportCacheService;
+    private EventStreamService eventStreamService;
+    private RecentTransactionCache recentTransactionCache;
+    private TransactionNoteIndex transactionNoteIndex;
+    private TransactionSnapshotCache transactionSnapshotCache;
+    private SyncSequenceService syncSequenceService;
 
     public TransactionTemplateService(TransactionTemplateRepository templateRepository,
                                      UserRepository userRepository,
@@ -50,6 +56,36 @@ public class TransactionTemplateService {
         this.walletShareRepository = walletShareRepository;
     }
 
+    @org.springframework.beans.factory.annotation.Autowired(required = false)
+    public void setSyncSequenceService(SyncSequenceService syncSequenceService) {
+        this.syncSequenceService = syncSequenceService;
+    }
+
+    @org.springframework.beans.factory.annotation.Autowired(required = false)
+    public void setReportCacheService(ReportCacheService reportCacheService) {
+        this.reportCacheService = reportCacheService;
+    }
+
+    @org.springframework.beans.factory.annotation.Autowired(required = false)
+    public void setEventStreamService(EventStreamService eventStreamService) {
+        this.eventStreamService = eventStreamService;
+    }
+
+    @org.springframework.beans.factory.annotation.Autowired(required = false)
+    public void setTransactionNoteIndex(TransactionNoteIndex transactionNoteIndex) {
+        this.transactionNoteIndex = transactionNoteIndex;
+    }
+
+    @org.springframework.beans.factory.annotation.Autowired(required = false)
+    public void setTransactionSnapshotCache(TransactionSnapshotCache transactionSnapshotCache) {
+        this.transactionSnapshotCache = transactionSnapshotCache;
+    }
+
+    @org.springframework.beans.factory.annotation.Autowired(required = false)
+    public void setRecentTransactionCache(RecentTransactionCache recentTransactionCache) {
+        this.recentTransactionCache = recentTransactionCache;
+    }
+
     @Transactional(readOnly = true)
     public List<TransactionTemplateDto> findAllByUserId(Long userId) {
         return templateRepository.findByUserIdOrderByUsageCountDesc(userId).stream()
@@ -177,11 +213,32 @@ public class TransactionTemplateService {
         transaction.setNote(transactionDto.getNote());
         transaction.setOccurredAt(transactionDto.getOccurredAt() != null ? transactionDto.getOccurredAt() : LocalDateTime.now());
 
+        // Ví chia sẻ: khóa bộ đếm sync của người ghi và chủ ví theo thứ tự id trước khi ghi
+        if (syncSequenceService != null) {
+            syncSequenceService.reserveInOrder(userId, wallet.getUser().getId());
+        }
+
         // Update wallet balance
         updateWalletBalance(wallet, transaction.getAmount(), transaction.getType());
         walletRepository.save(wallet);
 
         Transaction saved = transactionRepository.save(transaction);
+        if (reportCacheService != null) {
+            reportCacheService.invalidate(userId, saved.getOccurredAt());
+            if (!wallet.getUser().getId().equals(userId)) {
+                reportCacheService.invalidate(wallet.getUser().getId(), saved.getOccurredAt());
+            }
+        }
+        publishWalletBalance(wallet, userId);
+        if (recentTransactionCache != null) {
+            recentTransactionCache.evict(userId);
+        }
+        if (transactionNoteIndex != null) {
+            transactionNoteIndex.onSaved(saved.getUser().getId(), saved.getId(), saved.getNote());
+        }
+        if (transactionSnapshotCache != null) {
+            transactionSnapshotCache.onSaved(saved);
+        }
 
         // Update template usage
         template.setUsageCount(template.getUsageCount() + 1);
@@ -244,5 +301,10 @@ public class TransactionTemplateService {
         dto.setLastUsedAt(template.getLastUsedAt());
         return dto;
     }
-}
 
+    private void publishWalletBalance(Wallet wallet, Long userId) {
+        if (eventStreamService != null) {
+            eventStreamService.publishWalletBalance(wallet, userId);
+        }
+    }
+}
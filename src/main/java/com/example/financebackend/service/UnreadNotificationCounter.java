@@ -0,0 +1,86 @@
+package com.example.financebackend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Unread Notification Counter
+ * Đếm số thông báo chưa đọc trong bộ nhớ, tránh chạy COUNT mỗi lần client poll.
+ *
+ * Counter được nạp từ DB ở lần đọc đầu tiên, sau đó cập nhật khi tạo / đọc thông báo
+ * (sau khi commit). Entry hết hạn định kỳ để tự sửa sai lệch.
+ */
+@Service
+public class UnreadNotificationCounter extends LocalCacheSupport {
+
+    public static final String CACHE_NAME = "unread-notifications";
+    private static final String ALL_USERS = "*";
+
+    private final Cache<Long, AtomicLong> counters;
+
+    public UnreadNotificationCounter(@Value("${notification.unread-counter.max-users:100000}") long maxUsers,
+                                     @Value("${notification.unread-counter.ttl-minutes:30}") long ttlMinutes) {
+        super(CACHE_NAME);
+        this.counters = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterWrite(ttlMinutes, TimeUnit.MINUTES)
+                .build();
+    }
+
+    public long get(Long userId, Supplier<Long> loader) {
+        return counters.get(userId, id -> {
+            Long count = loader.get();
+            return new AtomicLong(count != null ? count : 0L);
+        }).get();
+    }
+
+    public void increment(Long userId) {
+        afterCommit(() -> counters.asMap().computeIfPresent(userId, (id, counter) -> {
+            counter.incrementAndGet();
+            return counter;
+        }));
+        publishRemote(userId);
+    }
+
+    public void decrement(Long userId) {
+        afterCommit(() -> counters.asMap().computeIfPresent(userId, (id, counter) -> {
+            counter.updateAndGet(value -> Math.max(0L, value - 1));
+            return counter;
+        }));
+        publishRemote(userId);
+    }
+
+    public void reset(Long userId) {
+        afterCommit(() -> counters.asMap().computeIfPresent(userId, (id, counter) -> {
+            counter.set(0L);
+            return counter;
+        }));
+        publishRemote(userId);
+    }
+
+    public void evict(Long userId) {
+        afterCommit(() -> counters.invalidate(userId));
+        publishRemote(userId);
+    }
+
+    public void evictAll() {
+        afterCommit(counters::invalidateAll);
+        publishRemote(ALL_USERS);
+    }
+
+    // Node khác đã thay đổi số thông báo chưa đọc - nạp lại từ DB ở lần đọc sau
+    @Override
+    protected void onRemoteInvalidation(CacheInvalidationBus.Invalidation invalidation) {
+        if (ALL_USERS.equals(invalidation.key())) {
+            counters.invalidateAll();
+        } else {
+            counters.invalidate(Long.valueOf(invalidation.key()));
+        }
+    }
+}
@@ -28,6 +28,9 @@ public class WalletService {
     private final UserRepository userRepository;
     private final WalletShareRepository walletShareRepository;
     private final TransactionRepository transactionRepository;
+    private ReportCacheService reportCacheService;
+    private EventStreamService eventStreamService;
+    private RecentTransactionCache recentTransactionCache;
 
     public WalletService(WalletRepository walletRepository, UserRepository userRepository, 
                         WalletShareRepository walletShareRepository, TransactionRepository transactionRepository) {
@@ -37,10 +40,25 @@ public class WalletService {
         this.transactionRepository = transactionRepository;
     }
 
+    @org.springframework.beans.factory.annotation.Autowired(required = false)
+    public void setReportCacheService(ReportCacheService reportCacheService) {
+        this.reportCacheService = reportCacheService;
+    }
+
+    @org.springframework.beans.factory.annotation.Autowired(required = false)
+    public void setEventStreamService(EventStreamService eventStreamService) {
+        this.eventStreamService = eventStreamService;
+    }
+
+    @org.springframework.beans.factory.annotation.Autowired(required = false)
+    public void setRecentTransactionCache(RecentTransactionCache recentTransactionCache) {
+        this.recentTransactionCache = recentTransactionCache;
+    }
+
     public List<WalletDto> findAllByUserId(Long userId) {
         // Get owned wallets
         List<WalletDto> ownedWallets = walletRepository.findByUserId(userId).stream()
-                .map(this::toDto)
+                .map(WalletService::toDto)
                 .collect(Collectors.toList());
         
         // Get shared wallets with at least VIEWER permission
@@ -124,6 +142,8 @@ public class WalletService {
         wallet.setUser(user);
         apply(dto, wallet);
         Wallet saved = walletRepository.save(wallet);
+        evictReportCache(userId);
+        publishWalletBalance(saved, userId);
         logger.info("Wallet created successfully: id={}, name={}, userId={}", saved.getId(), saved.getName(), userId);
         return toDto(saved);
     }
@@ -145,6 +165,9 @@ public class WalletService {
 
         apply(dto, wallet);
         Wallet saved = walletRepository.save(wallet);
+        evictReportCache(userId);
+        evictRecentTransactions(saved);
+        publishWalletBalance(saved, userId);
         return toDto(saved);
     }
 
@@ -182,9 +205,11 @@ public class WalletService {
         }
         
         walletRepository.delete(wallet);
+        evictReportCache(userId);
+        evictRecentTransactions(wallet);
     }
 
-    private WalletDto toDto(Wallet wallet) {
+    static WalletDto toDto(Wallet wallet) {
         WalletDto dto = new WalletDto();
         dto.setId(wallet.getId());
         dto.setName(wallet.getName());
@@ -202,4 +227,27 @@ public class WalletService {
         wallet.setBalance(dto.getBalance() != null ? dto.getBalance() : BigDecimal.ZERO);
         wallet.setDefault(Boolean.TRUE.equals(dto.getIsDefault()));
     }
+
+    private void evictReportCache(Long userId) {
+        if (reportCacheService != null) {
+            reportCacheService.evictUser(userId);
+        }
+    }
+
+    // Tên ví nằm trong giao dịch gần đây của chủ ví và của người được chia sẻ đã ghi vào ví
+    private void evictRecentTransactions(Wallet wallet) {
+        if (recentTransactionCache == null) {
+            return;
+        }
+        recentTransactionCache.evict(wallet.getUser().getId());
+        for (WalletShare share : walletShareRepository.findByWalletId(wallet.getId())) {
+            recentTransactionCache.evict(share.getSharedWithUser().getId());
+        }
+    }
+
+    private void publishWalletBalance(Wallet wallet, Long userId) {
+        if (eventStreamService != null) {
+            eventStreamService.publishWalletBalance(wallet, userId);
+        }
+    }
 }
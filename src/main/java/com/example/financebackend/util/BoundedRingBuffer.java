@@ -0,0 +1,99 @@
+package com.example.financebackend.util;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Ring buffer có giới hạn, lock-free, nhiều producer / nhiều consumer
+ * (thuật toán bounded MPMC queue của Dmitry Vyukov: mỗi slot có sequence riêng).
+ *
+ * offer() không bao giờ block: trả về false khi buffer đầy để caller tự chọn chính sách.
+ */
+public class BoundedRingBuffer<T> {
+
+    private final int mask;
+    private final AtomicReferenceArray<T> slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong head = new AtomicLong(); // vị trí đọc tiếp theo
+    private final AtomicLong tail = new AtomicLong(); // vị trí ghi tiếp theo
+
+    public BoundedRingBuffer(int requestedCapacity) {
+        if (requestedCapacity < 2) {
+            throw new IllegalArgumentException("Capacity phải >= 2");
+        }
+        int capacity = Integer.highestOneBit(requestedCapacity - 1) << 1; // làm tròn lên lũy thừa của 2
+        this.mask = capacity - 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    public boolean offer(T item) {
+        if (item == null) {
+            throw new NullPointerException();
+        }
+        while (true) {
+            long position = tail.get();
+            int index = (int) (position & mask);
+            long diff = sequences.get(index) - position;
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.set(index, item);
+                    sequences.set(index, position + 1); // publish cho consumer
+                    return true;
+                }
+            } else if (diff < 0) {
+                return false; // đầy
+            }
+            // diff > 0: producer khác vừa lấy slot này, thử lại với tail mới
+        }
+    }
+
+    public T poll() {
+        while (true) {
+            long position = head.get();
+            int index = (int) (position & mask);
+            long diff = sequences.get(index) - (position + 1);
+            if (diff == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    T item = slots.get(index);
+                    slots.set(index, null);
+                    sequences.set(index, position + mask + 1); // trả slot cho vòng tiếp theo
+                    return item;
+                }
+            } else if (diff < 0) {
+                return null; // rỗng
+            }
+        }
+    }
+
+    /**
+     * Lấy tối đa maxItems phần tử vào target. Trả về số phần tử đã lấy.
+     */
+    public int drainTo(List<? super T> target, int maxItems) {
+        int count = 0;
+        T item;
+        while (count < maxItems && (item = poll()) != null) {
+            target.add(item);
+            count++;
+        }
+        return count;
+    }
+
+    public int size() {
+        long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(size, capacity()));
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+}
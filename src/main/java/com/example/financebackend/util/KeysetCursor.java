@@ -0,0 +1,54 @@
+package com.example.financebackend.util;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Cursor cho keyset pagination theo (createdAt, id), dạng "createdAt_id",
+ * ví dụ 2024-05-01T10:15:30.123_42
+ */
+public final class KeysetCursor {
+
+    private final LocalDateTime createdAt;
+    private final Long id;
+
+    public KeysetCursor(LocalDateTime createdAt, Long id) {
+        this.createdAt = createdAt;
+        this.id = id;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String encode() {
+        return createdAt + "_" + id;
+    }
+
+    public static String encode(LocalDateTime createdAt, Long id) {
+        return new KeysetCursor(createdAt, id).encode();
+    }
+
+    /**
+     * Trả về null nếu cursor rỗng (trang đầu tiên)
+     */
+    public static KeysetCursor parse(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        int separator = cursor.lastIndexOf('_');
+        if (separator <= 0 || separator == cursor.length() - 1) {
+            throw new IllegalArgumentException("Cursor không hợp lệ");
+        }
+        try {
+            return new KeysetCursor(LocalDateTime.parse(cursor.substring(0, separator)),
+                    Long.parseLong(cursor.substring(separator + 1)));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Cursor không hợp lệ");
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.financebackend.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Số tiền dạng long theo đơn vị nhỏ nhất (minor unit) với số chữ số thập phân cố định.
+ *
+ * Mọi phép tính đều kiểm tra tràn số (Math.*Exact). Chỉ đổi sang BigDecimal ở DTO.
+ * Tổng hợp số liệu (report, budget, forecast) dùng Accumulator với STORAGE_SCALE: giao dịch của
+ * nhiều ví, nhiều loại tiền được cộng chung và cột trong DB là DECIMAL(19,2) nên scale 2 không mất dữ liệu.
+ *
+ * Cố ý không có scale theo loại tiền (ví dụ VND scale 0): mọi số tiền dùng scale của cột lưu trữ
+ * (STORAGE_SCALE = 2), kể cả VND, vì tổng hợp luôn cộng chung nhiều loại tiền ở cùng một scale.
+ * Cần scale theo loại tiền thì phải đổi cả kiểu cột và cách tổng hợp, không chỉ lớp này.
+ */
+public final class Money implements Comparable<Money> {
+
+    /** Scale của các cột tiền trong DB */
+    public static final int STORAGE_SCALE = 2;
+
+    private static final int MAX_SCALE = 2;
+
+    private final long minorUnits;
+    private final int scale;
+
+    private Money(long minorUnits, int scale) {
+        this.minorUnits = minorUnits;
+        this.scale = scale;
+    }
+
+    public static Money ofMinor(long minorUnits, int scale) {
+        checkScale(scale);
+        return new Money(minorUnits, scale);
+    }
+
+    /**
+     * Đổi BigDecimal sang minor unit, không làm tròn: số có nhiều chữ số thập phân hơn scale hoặc tràn long
+     * sẽ bị từ chối
+     */
+    public static long toMinor(BigDecimal amount, int scale) {
+        checkScale(scale);
+        if (amount == null) {
+            return 0L;
+        }
+        try {
+            if (amount.scale() == scale) {
+                // Trường hợp thường gặp (giá trị đọc từ DB): unscaled value chính là minor unit
+                return amount.movePointRight(scale).longValueExact();
+            }
+            return amount.setScale(scale, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Số tiền không hợp lệ: " + amount.toPlainString());
+        }
+    }
+
+    public static BigDecimal toBigDecimal(long minorUnits, int scale) {
+        return BigDecimal.valueOf(minorUnits, scale);
+    }
+
+    public long minorUnits() {
+        return minorUnits;
+    }
+
+    public int scale() {
+        return scale;
+    }
+
+    public Money minus(Money other) {
+        return new Money(Math.subtractExact(minorUnits, sameScale(other).minorUnits), scale);
+    }
+
+    public int signum() {
+        return Long.signum(minorUnits);
+    }
+
+    public BigDecimal toBigDecimal() {
+        return toBigDecimal(minorUnits, scale);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(minorUnits, sameScale(other).minorUnits);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Money other)) return false;
+        return minorUnits == other.minorUnits && scale == other.scale;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Long.hashCode(minorUnits) + scale;
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+
+    private Money sameScale(Money other) {
+        if (other.scale != scale) {
+            throw new IllegalArgumentException("Không thể tính toán giữa hai số tiền khác loại tiền");
+        }
+        return other;
+    }
+
+    private static void checkScale(int scale) {
+        if (scale < 0 || scale > MAX_SCALE) {
+            throw new IllegalArgumentException("Scale không hợp lệ: " + scale);
+        }
+    }
+
+    /**
+     * Bộ cộng dồn bằng long: tổng, số lượng, min, max, trung bình. Không cấp phát khi add.
+     * Không thread-safe; gộp kết quả của nhiều thread bằng merge().
+     */
+    public static final class Accumulator {
+        private final int scale;
+        private long sum;
+        private long count;
+        private long min = Long.MAX_VALUE;
+        private long max = Long.MIN_VALUE;
+
+        public Accumulator() {
+            this(STORAGE_SCALE);
+        }
+
+        public Accumulator(int scale) {
+            checkScale(scale);
+            this.scale = scale;
+        }
+
+        /**
+         * Cộng một số tiền; null bị bỏ qua
+         */
+        public Accumulator add(BigDecimal amount) {
+            if (amount != null) {
+                addMinor(toMinor(amount, scale));
+            }
+            return this;
+        }
+
+        public Accumulator addMinor(long minorUnits) {
+            sum = Math.addExact(sum, minorUnits);
+            count++;
+            if (minorUnits < min) min = minorUnits;
+            if (minorUnits > max) max = minorUnits;
+            return this;
+        }
+
+        public Accumulator merge(Accumulator other) {
+            if (other.scale != scale) {
+                throw new IllegalArgumentException("Không thể gộp hai bộ cộng dồn khác scale");
+            }
+            sum = Math.addExact(sum, other.sum);
+            count += other.count;
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+            return this;
+        }
+
+        public int scale() {
+            return scale;
+        }
+
+        public long count() {
+            return count;
+        }
+
+        public long sumMinor() {
+            return sum;
+        }
+
+        public Money toMoney() {
+            return new Money(sum, scale);
+        }
+
+        public BigDecimal sum() {
+            return toBigDecimal(sum, scale);
+        }
+
+        /** Giá trị nhỏ nhất, 0 nếu chưa có phần tử */
+        public BigDecimal min() {
+            return toBigDecimal(count == 0 ? 0L : min, scale);
+        }
+
+        /** Giá trị lớn nhất, 0 nếu chưa có phần tử */
+        public BigDecimal max() {
+            return toBigDecimal(count == 0 ? 0L : max, scale);
+        }
+
+        /**
+         * Tổng chia cho divisor (ví dụ số ngày), làm tròn theo scale của bộ cộng dồn
+         */
+        public BigDecimal average(long divisor, RoundingMode roundingMode) {
+            if (divisor <= 0) {
+                throw new IllegalArgumentException("Số chia phải lớn hơn 0");
+            }
+            return sum().divide(BigDecimal.valueOf(divisor), scale, roundingMode);
+        }
+
+        /** Trung bình trên số phần tử đã cộng, 0 nếu chưa có phần tử */
+        public BigDecimal average(RoundingMode roundingMode) {
+            return count == 0 ? toBigDecimal(0L, scale) : average(count, roundingMode);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.financebackend.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ReadWriteRoutingDataSource, dùng hai database H2 trong bộ nhớ làm primary / replica
+ */
+class ReadWriteRoutingDataSourceTest {
+
+    private DataSource primary;
+    private DataSource replica;
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        primary = h2("routing_primary", "primary");
+        replica = h2("routing_replica", "replica");
+        registry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void readOnlyTransaction_ShouldUseReplica() {
+        Router router = router(replica, 0);
+
+        assertEquals("replica", router.read());
+        assertEquals("primary", router.write());
+        assertEquals(1.0, registry.get("finance.datasource.connections").tag("pool", "replica").counter().count());
+    }
+
+    @Test
+    void replicaDown_ShouldFallBackToPrimary() {
+        DataSource broken = new org.springframework.jdbc.datasource.AbstractDataSource() {
+            @Override
+            public java.sql.Connection getConnection() throws SQLException {
+                throw new SQLException("Connection refused");
+            }
+
+            @Override
+            public java.sql.Connection getConnection(String username, String password) throws SQLException {
+                return getConnection();
+            }
+        };
+        Router router = router(broken, 0);
+
+        assertEquals("primary", router.read());
+        assertEquals("primary", router.read());
+        // Sau lần lỗi đầu tiên replica bị bỏ qua trong retry-ms
+        assertEquals(1.0, registry.get("finance.datasource.replica.fallbacks").counter().count());
+        assertEquals(0.0, registry.get("finance.datasource.replica.available").gauge().value());
+    }
+
+    @Test
+    void userWhoJustWrote_ShouldReadFromPrimary() {
+        Router router = router(replica, 60_000);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(7L, null, List.of()));
+
+        assertEquals("replica", router.read());
+        router.update(false);
+        assertEquals("primary", router.read());
+
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(8L, null, List.of()));
+        assertEquals("replica", router.read());
+    }
+
+    @Test
+    void readWriteTransactionWithoutDml_ShouldNotPinUserToPrimary() {
+        Router router = router(replica, 60_000);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(7L, null, List.of()));
+
+        assertEquals("primary", router.write());
+        assertEquals("replica", router.read());
+
+        // Transaction rollback cũng không tính là đã ghi
+        router.update(true);
+        assertEquals("replica", router.read());
+    }
+
+    @Test
+    void isDml_ShouldSkipLeadingComments() {
+        assertTrue(ReadWriteRoutingDataSource.isDml("/* insert Transaction */ insert into transactions (id) values (?)"));
+        assertTrue(ReadWriteRoutingDataSource.isDml("\n  UPDATE users SET sync_seq = ?"));
+        assertFalse(ReadWriteRoutingDataSource.isDml("select u1_0.id from users u1_0 for update"));
+        assertFalse(ReadWriteRoutingDataSource.isDml("-- delete\nselect 1"));
+    }
+
+    private Router router(DataSource replicaDataSource, long stickyMs) {
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(primary, replicaDataSource, 60_000, stickyMs);
+        routing.bindMetrics(registry);
+        return new Router(new LazyConnectionDataSourceProxy(routing));
+    }
+
+    private static DataSource h2(String name, String marker) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS node (name VARCHAR(20))");
+        jdbcTemplate.execute("DELETE FROM node");
+        jdbcTemplate.update("INSERT INTO node (name) VALUES (?)", marker);
+        return dataSource;
+    }
+
+    private static final class Router {
+        private final JdbcTemplate jdbcTemplate;
+        private final TransactionTemplate readOnly;
+        private final TransactionTemplate readWrite;
+
+        Router(DataSource dataSource) {
+            DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+            this.jdbcTemplate = new JdbcTemplate(dataSource);
+            this.readOnly = new TransactionTemplate(transactionManager);
+            this.readOnly.setReadOnly(true);
+            this.readWrite = new TransactionTemplate(transactionManager);
+        }
+
+        String read() {
+            return readOnly.execute(status -> jdbcTemplate.queryForObject("SELECT name FROM node", String.class));
+        }
+
+        String write() {
+            return readWrite.execute(status -> jdbcTemplate.queryForObject("SELECT name FROM node", String.class));
+        }
+
+        void update(boolean rollback) {
+            readWrite.execute(status -> {
+                jdbcTemplate.update("UPDATE node SET name = name");
+                if (rollback) {
+                    status.setRollbackOnly();
+                }
+                return null;
+            });
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.financebackend.controller;
+
+import com.example.financebackend.dto.ExportJobDto;
+import com.example.financebackend.entity.ExportJob;
+import com.example.financebackend.entity.User;
+import com.example.financebackend.repository.UserRepository;
+import com.example.financebackend.service.ExportJobService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.authentication;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tải file xuất qua HTTP: Range cho cả bản gzip và bản giải nén
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:export_download;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false",
+        "spring.security.oauth2.client.registration.google.client-id=test",
+        "spring.security.oauth2.client.registration.google.client-secret=test",
+        "audit.archive.enabled=false",
+        "export.storage-dir=target/test-export-downloads",
+        "logging.level.org.hibernate.tool.schema.internal.ExceptionHandlerLoggedImpl=ERROR"
+})
+@AutoConfigureMockMvc
+class ExportJobControllerTest {
+
+    private static final AtomicInteger USERS = new AtomicInteger();
+
+    @Autowired private MockMvc mockMvc;
+    @Autowired private ExportJobService exportJobService;
+    @Autowired private UserRepository userRepository;
+
+    private Long userId;
+    private Long jobId;
+    private byte[] json;
+    private byte[] gzip;
+
+    @BeforeEach
+    void exportData() throws Exception {
+        User user = new User();
+        user.setEmail("export-download-" + USERS.incrementAndGet() + "@example.com");
+        user.setPasswordHash("test");
+        user.setFullName("Export Download");
+        userId = userRepository.save(user).getId();
+
+        ExportJobDto job = exportJobService.submit(userId, ExportJob.Type.DATA, null, null);
+        long deadline = System.currentTimeMillis() + 10_000L;
+        while (job.status() == ExportJob.Status.QUEUED || job.status() == ExportJob.Status.RUNNING) {
+            assertTrue(System.currentTimeMillis() < deadline, "export job did not finish");
+            Thread.sleep(50L);
+            job = exportJobService.getJob(job.id(), userId);
+        }
+        assertEquals(ExportJob.Status.COMPLETED, job.status(), job.errorMessage());
+        jobId = job.id();
+        ExportJobService.Artifact artifact = exportJobService.getArtifact(jobId, userId);
+        gzip = Files.readAllBytes(artifact.path());
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(artifact.path()))) {
+            json = in.readAllBytes();
+        }
+    }
+
+    @Test
+    void download_WithoutGzip_ShouldServeDecompressedRange() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/exports/{id}/download", jobId)
+                        .header(HttpHeaders.RANGE, "bytes=10-19")
+                        .with(authentication(auth())))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 10-19/" + json.length))
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andReturn();
+
+        assertArrayEquals(Arrays.copyOfRange(json, 10, 20), result.getResponse().getContentAsByteArray());
+    }
+
+    @Test
+    void download_WithoutGzip_ShouldSendLengthAndAcceptRanges() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/exports/{id}/download", jobId)
+                        .with(authentication(auth())))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_LENGTH, String.valueOf(json.length)))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andReturn();
+
+        assertArrayEquals(json, result.getResponse().getContentAsByteArray());
+    }
+
+    @Test
+    void download_WithGzip_ShouldServeCompressedRange() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/exports/{id}/download", jobId)
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate")
+                        .header(HttpHeaders.RANGE, "bytes=0-9")
+                        .with(authentication(auth())))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 0-9/" + gzip.length))
+                .andReturn();
+
+        assertArrayEquals(Arrays.copyOfRange(gzip, 0, 10), result.getResponse().getContentAsByteArray());
+    }
+
+    private UsernamePasswordAuthenticationToken auth() {
+        return new UsernamePasswordAuthenticationToken(userId, null, List.of());
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.financebackend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for CacheInvalidationBus (hai "node" dùng chung một change log trong bộ nhớ)
+ */
+class CacheInvalidationBusTest {
+
+    private CacheInvalidationBus.InMemoryChangeLog changeLog;
+    private CacheInvalidationBus nodeA;
+    private CacheInvalidationBus nodeB;
+    private List<String> receivedByA;
+    private List<String> receivedByB;
+
+    @BeforeEach
+    void setUp() {
+        changeLog = new CacheInvalidationBus.InMemoryChangeLog(100);
+        nodeA = new CacheInvalidationBus(changeLog, "node-a", 10, 10_000);
+        nodeB = new CacheInvalidationBus(changeLog, "node-b", 10, 10_000);
+        nodeA.init();
+        nodeB.init();
+        receivedByA = new ArrayList<>();
+        receivedByB = new ArrayList<>();
+        nodeA.register("test", invalidation -> receivedByA.add(invalidation.key()));
+        nodeB.register("test", invalidation -> receivedByB.add(invalidation.key()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void publish_ShouldReachOtherNodesOnly() {
+        nodeA.publish("test", 42L);
+
+        nodeA.poll();
+        nodeB.poll();
+
+        assertEquals(List.of(), receivedByA);
+        assertEquals(List.of("42"), receivedByB);
+
+        nodeB.poll();
+        assertEquals(List.of("42"), receivedByB); // Không nhận lại
+    }
+
+    @Test
+    void publish_InTransaction_ShouldWriteOnceBeforeCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        nodeA.publish("test", 1L);
+        nodeA.publish("test", 1L);
+        nodeA.publish("test", 2L);
+
+        assertEquals(0, changeLog.maxId()); // Chưa commit
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.beforeCommit(false);
+        }
+        TransactionSynchronizationManager.clearSynchronization();
+
+        nodeB.poll();
+        assertEquals(List.of("1", "2"), receivedByB);
+    }
+
+    @Test
+    void poll_OutOfOrderCommit_ShouldPickUpSkippedId() {
+        // Dòng 2 commit trước dòng 1
+        DelayedChangeLog delayed = new DelayedChangeLog();
+        CacheInvalidationBus node = new CacheInvalidationBus(delayed, "node-b", 10, 10_000);
+        node.init();
+        List<String> received = new ArrayList<>();
+        node.register("test", invalidation -> received.add(invalidation.key()));
+
+        delayed.add(2, "second");
+        node.poll();
+        assertEquals(List.of("second"), received);
+
+        delayed.add(1, "first");
+        node.poll();
+        assertEquals(List.of("second", "first"), received);
+    }
+
+    @Test
+    void poll_SkippedIdNeverCommitted_ShouldBeDroppedAfterTimeout() {
+        DelayedChangeLog delayed = new DelayedChangeLog();
+        CacheInvalidationBus node = new CacheInvalidationBus(delayed, "node-b", 10, 0);
+        node.init();
+        AtomicInteger received = new AtomicInteger();
+        node.register("test", invalidation -> received.incrementAndGet());
+
+        delayed.add(2, "second");
+        node.poll();
+        node.poll();
+        assertEquals(1, delayed.idLookups); // Gap hết hạn ở lần poll thứ hai, không đọc lại nữa
+        node.poll();
+        assertEquals(1, delayed.idLookups);
+        assertEquals(1, received.get());
+    }
+
+    @Test
+    void reportCache_ShouldBeEvictedByOtherNode() {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        ReportCacheService cacheA = new ReportCacheService(objectMapper, 1024 * 1024, 10);
+        ReportCacheService cacheB = new ReportCacheService(objectMapper, 1024 * 1024, 10);
+        cacheA.setInvalidationBus(nodeA);
+        cacheB.setInvalidationBus(nodeB);
+        LocalDateTime from = LocalDateTime.of(2024, 1, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2024, 1, 31, 23, 59, 59);
+        AtomicInteger calls = new AtomicInteger();
+
+        cacheB.get(1L, ReportCacheService.Endpoint.REPORT_SUMMARY, from, to, null, () -> "v" + calls.incrementAndGet());
+        cacheA.invalidate(1L, LocalDateTime.of(2024, 1, 15, 12, 0));
+        String beforePoll = cacheB.get(1L, ReportCacheService.Endpoint.REPORT_SUMMARY, from, to, null,
+                () -> "v" + calls.incrementAndGet());
+        nodeB.poll();
+        String afterPoll = cacheB.get(1L, ReportCacheService.Endpoint.REPORT_SUMMARY, from, to, null,
+                () -> "v" + calls.incrementAndGet());
+
+        assertEquals("v1", beforePoll);
+        assertEquals("v2", afterPoll);
+    }
+
+    /**
+     * Change log cho phép thêm dòng với id tùy ý để mô phỏng commit không theo thứ tự
+     */
+    private static final class DelayedChangeLog implements CacheInvalidationBus.ChangeLog {
+        private final List<CacheInvalidationBus.Invalidation> entries = new ArrayList<>();
+        private int idLookups;
+
+        void add(long id, String key) {
+            entries.add(new CacheInvalidationBus.Invalidation(id, "test", key, 0, "node-a", LocalDateTime.now()));
+        }
+
+        @Override
+        public void append(List<CacheInvalidationBus.Invalidation> batch) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<CacheInvalidationBus.Invalidation> readAfter(long afterId, int limit) {
+            return entries.stream().filter(entry -> entry.id() > afterId)
+                    .sorted((a, b) -> Long.compare(a.id(), b.id())).limit(limit).toList();
+        }
+
+        @Override
+        public List<CacheInvalidationBus.Invalidation> readIds(Collection<Long> ids) {
+            idLookups++;
+            return entries.stream().filter(entry -> ids.contains(entry.id())).toList();
+        }
+
+        @Override
+        public long maxId() {
+            return 0;
+        }
+
+        @Override
+        public int purgeBefore(LocalDateTime before) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.financebackend.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for CashflowSimulator
+ */
+class CashflowSimulatorTest {
+
+    private final CashflowSimulator simulator = new CashflowSimulator(4);
+
+    @AfterEach
+    void tearDown() {
+        simulator.shutdown();
+    }
+
+    @Test
+    void simulate_ConstantHistory_ShouldMatchDeterministicPath() {
+        long[] recurringNet = {0, 500, 0, -300};
+        long[] history = {100, 100, 100};
+
+        CashflowSimulator.Result result = simulator.simulate(1_000, recurringNet, history, 800, 1_000, 42L);
+
+        assertArrayEquals(new long[] {900, 1_300, 1_200, 800}, result.p10());
+        assertArrayEquals(result.p10(), result.p50());
+        assertArrayEquals(result.p10(), result.p90());
+        assertEquals(0.0, result.probabilityBelowThreshold());
+    }
+
+    @Test
+    void simulate_ShouldReportShareOfPathsBelowThreshold() {
+        // Ngày đầu chi 0 hoặc 1000 với xác suất như nhau => khoảng một nửa số đường xuống dưới 500
+        CashflowSimulator.Result result = simulator.simulate(1_000, new long[1], new long[] {0, 1_000}, 500, 10_000, 7L);
+
+        assertEquals(0.5, result.probabilityBelowThreshold(), 0.03);
+        assertEquals(result.probabilityBelowThreshold(), result.belowThresholdByDay()[0]);
+        assertEquals(0, result.p10()[0]);
+        assertEquals(1_000, result.p90()[0]);
+    }
+
+    @Test
+    void simulate_SameSeed_ShouldBeReproducible() {
+        long[] recurringNet = new long[90];
+        recurringNet[29] = 5_000_000;
+        long[] history = {0, 0, 120_000, 45_000, 300_000, 0, 80_000};
+
+        CashflowSimulator.Result first = simulator.simulate(2_000_000, recurringNet, history, 1_000_000, 10_000, 99L);
+        CashflowSimulator.Result second = simulator.simulate(2_000_000, recurringNet, history, 1_000_000, 10_000, 99L);
+
+        assertArrayEquals(first.p10(), second.p10());
+        assertArrayEquals(first.p50(), second.p50());
+        assertArrayEquals(first.p90(), second.p90());
+        assertEquals(first.probabilityBelowThreshold(), second.probabilityBelowThreshold());
+        for (int day = 0; day < 90; day++) {
+            assertTrue(first.p10()[day] <= first.p50()[day] && first.p50()[day] <= first.p90()[day]);
+        }
+    }
+
+    @Test
+    void simulate_InvalidPaths_ShouldThrow() {
+        assertThrows(IllegalArgumentException.class,
+                () -> simulator.simulate(0, new long[1], new long[0], 0, 0, 1L));
+    }
+}
@@ -0,0 +1,244 @@
+package com.example.financebackend.service;
+
+import com.example.financebackend.entity.JobLease;
+import com.example.financebackend.entity.JobRun;
+import com.example.financebackend.entity.User;
+import com.example.financebackend.repository.JobLeaseRepository;
+import com.example.financebackend.repository.JobRunRepository;
+import com.example.financebackend.repository.SchedulerNodeRepository;
+import com.example.financebackend.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ClusterJobCoordinatorTest {
+
+    private static final int USERS = 50;
+    private static final int PARTITIONS = 4;
+
+    @Autowired private SchedulerNodeRepository nodeRepository;
+    @Autowired private JobLeaseRepository leaseRepository;
+    @Autowired private JobRunRepository runRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private PlatformTransactionManager transactionManager;
+    @Autowired private DataSource dataSource;
+
+    @BeforeEach
+    void setUp() {
+        // Node chờ khóa dòng lease lâu hơn thời gian một chunk bị treo trong test
+        new JdbcTemplate(dataSource).execute("SET DEFAULT_LOCK_TIMEOUT 10000");
+        runRepository.deleteAll();
+        leaseRepository.deleteAll();
+        nodeRepository.deleteAll();
+        if (userRepository.count() == 0) {
+            for (int i = 0; i < USERS; i++) {
+                User user = new User();
+                user.setEmail("cluster-" + i + "@example.com");
+                user.setPasswordHash("test");
+                user.setFullName("Cluster " + i);
+                userRepository.save(user);
+            }
+        }
+    }
+
+    @Test
+    void twoNodesProcessEveryUserExactlyOnce() throws Exception {
+        Map<Long, AtomicInteger> processed = new ConcurrentHashMap<>();
+        ClusterJobCoordinator.UserRangeTask counting = countingTask(processed);
+        CountDownLatch stalled = new CountDownLatch(1);
+        CountDownLatch resume = new CountDownLatch(1);
+        AtomicBoolean firstChunk = new AtomicBoolean(true);
+        // Chunk đầu tiên của node-a chạy lâu hơn lease-ms
+        ClusterJobCoordinator nodeA = coordinator("node-a", (runKey, from, to) -> {
+            if (firstChunk.compareAndSet(true, false)) {
+                stalled.countDown();
+                await(resume);
+            }
+            return counting.process(runKey, from, to);
+        });
+        ClusterJobCoordinator nodeB = coordinator("node-b", counting);
+        ReflectionTestUtils.setField(nodeA, "leaseMs", 200L);
+        ReflectionTestUtils.setField(nodeB, "leaseMs", 200L);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> a = executor.submit(() -> nodeA.run("test-job", "2026-01-01"));
+            assertTrue(stalled.await(5, TimeUnit.SECONDS));
+            Thread.sleep(300); // lease của node-a đã hết hạn khi node-b bắt đầu
+            Future<?> b = executor.submit(() -> {
+                nodeB.run("test-job", "2026-01-01");
+                ReflectionTestUtils.invokeMethod(nodeB, "takeOverAbandoned");
+            });
+            // Cho node-b chạy hết phần nó làm được (hoặc đứng chờ ở partition node-a đang giữ) rồi mới thả node-a
+            try {
+                b.get(1, TimeUnit.SECONDS);
+            } catch (TimeoutException e) {
+                // node-b đang chờ dòng lease của node-a
+            }
+            resume.countDown();
+            a.get(20, TimeUnit.SECONDS);
+            b.get(20, TimeUnit.SECONDS);
+        } finally {
+            resume.countDown();
+            executor.shutdownNow();
+        }
+
+        // Chỉ đếm user đã commit: mỗi user đúng một lần dù hai node chạy chồng lên nhau
+        assertEquals(USERS, processed.size());
+        assertTrue(processed.values().stream().allMatch(count -> count.get() == 1));
+        assertTrue(leaseRepository.findPartitions("test-job").stream()
+                .allMatch(lease -> lease.getStatus() == JobLease.Status.COMPLETED));
+        List<JobRun> runs = runRepository.findAll();
+        assertEquals(USERS, runs.stream().mapToLong(JobRun::getProcessedCount).sum());
+    }
+
+    @Test
+    void failedPartitionIsRetriedFromCheckpoint() {
+        Map<Long, AtomicInteger> processed = new ConcurrentHashMap<>();
+        ClusterJobCoordinator.UserRangeTask counting = countingTask(processed);
+        AtomicInteger calls = new AtomicInteger();
+        AtomicBoolean down = new AtomicBoolean(true);
+        // Từ user thứ 6 mọi user đều lỗi (ví dụ DB tạm mất kết nối)
+        ClusterJobCoordinator node = coordinator("node-a", (runKey, from, to) -> {
+            if (calls.incrementAndGet() > 5 && down.get()) {
+                throw new IllegalStateException("Lỗi tạm thời");
+            }
+            return counting.process(runKey, from, to);
+        });
+        ReflectionTestUtils.setField(node, "partitions", 1);
+        ReflectionTestUtils.setField(node, "retryDelayMs", 0L);
+        ReflectionTestUtils.setField(node, "maxConsecutiveFailures", 3);
+
+        node.run("test-job", "2026-01-03");
+        JobLease failed = leaseRepository.findById(JobLease.key("test-job", 0)).orElseThrow();
+        assertEquals(JobLease.Status.FAILED, failed.getStatus());
+        assertEquals(5, processed.size());
+
+        down.set(false);
+        ReflectionTestUtils.invokeMethod(node, "takeOverAbandoned");
+
+        assertEquals(JobLease.Status.COMPLETED, leaseRepository.findById(failed.getLeaseKey()).orElseThrow().getStatus());
+        assertEquals(USERS, processed.size());
+        assertTrue(processed.values().stream().allMatch(count -> count.get() == 1));
+    }
+
+    @Test
+    void failingUserIsSkippedWithoutRollingBackOthers() {
+        Map<Long, AtomicInteger> processed = new ConcurrentHashMap<>();
+        ClusterJobCoordinator.UserRangeTask counting = countingTask(processed);
+        long badUser = userRepository.findIdsInRange(0, Long.MAX_VALUE, Pageable.unpaged()).get(2);
+        ClusterJobCoordinator node = coordinator("node-a", (runKey, from, to) -> {
+            // User lỗi đã ghi một phần trong transaction của chính nó
+            int result = counting.process(runKey, from, to);
+            if (from <= badUser && badUser <= to) {
+                throw new IllegalArgumentException("Dữ liệu user không hợp lệ");
+            }
+            return result;
+        });
+        ReflectionTestUtils.setField(node, "partitions", 1);
+
+        node.run("test-job", "2026-01-04");
+
+        assertEquals(JobLease.Status.COMPLETED,
+                leaseRepository.findById(JobLease.key("test-job", 0)).orElseThrow().getStatus());
+        assertEquals(USERS - 1, processed.size());
+        assertFalse(processed.containsKey(badUser));
+        JobRun run = runRepository.findAll().get(0);
+        assertEquals(1, run.getFailedUserCount());
+        assertEquals(USERS - 1, run.getProcessedCount());
+        assertTrue(run.getErrorMessage().contains(String.valueOf(badUser)));
+    }
+
+    @Test
+    void abandonedPartitionIsResumedFromCheckpoint() {
+        Map<Long, AtomicInteger> processed = new ConcurrentHashMap<>();
+        ClusterJobCoordinator.UserRangeTask task = countingTask(processed);
+        ClusterJobCoordinator nodeB = coordinator("node-b", task);
+        ReflectionTestUtils.invokeMethod(nodeB, "initRun", "test-job", "2026-01-02");
+
+        // node-a claim partition 0, xử lý đến checkpoint rồi chết (lease hết hạn)
+        JobLease lease = leaseRepository.findById(JobLease.key("test-job", 0)).orElseThrow();
+        long checkpoint = lease.getUserIdFrom() + 4;
+        LocalDateTime past = LocalDateTime.now().minusMinutes(5);
+        assertEquals(1, leaseRepository.claim(lease.getLeaseKey(), "2026-01-02", "node-a", past, past.plusSeconds(1)));
+        assertEquals(1, leaseRepository.renew(lease.getLeaseKey(), "node-a", checkpoint, past.plusSeconds(1)));
+
+        ReflectionTestUtils.invokeMethod(nodeB, "takeOverAbandoned");
+
+        List<Long> beforeCheckpoint = userRepository.findIdsInRange(0, checkpoint, Pageable.unpaged());
+        assertTrue(beforeCheckpoint.stream().noneMatch(processed::containsKey));
+        assertEquals(USERS - beforeCheckpoint.size(), processed.size());
+        JobRun resumed = runRepository.findAll().stream()
+                .filter(run -> run.getPartitionIndex() == 0)
+                .findFirst().orElseThrow();
+        assertEquals("node-b", resumed.getNodeId());
+        assertEquals(checkpoint + 1, resumed.getResumedFromUserId());
+        assertEquals(JobLease.Status.COMPLETED, leaseRepository.findById(lease.getLeaseKey()).orElseThrow().getStatus());
+    }
+
+    // Ghi nhận user sau khi transaction của user commit
+    private ClusterJobCoordinator.UserRangeTask countingTask(Map<Long, AtomicInteger> processed) {
+        return (runKey, from, to) -> {
+            List<Long> ids = userRepository.findIdsInRange(from - 1, to, Pageable.unpaged());
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    ids.forEach(id -> processed.computeIfAbsent(id, k -> new AtomicInteger()).incrementAndGet());
+                }
+            });
+            return ids.size();
+        };
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private ClusterJobCoordinator coordinator(String nodeId, ClusterJobCoordinator.UserRangeTask task) {
+        ClusterJobCoordinator coordinator = new ClusterJobCoordinator(
+                nodeRepository, leaseRepository, runRepository, userRepository, transactionManager);
+        ReflectionTestUtils.setField(coordinator, "configuredNodeId", nodeId);
+        ReflectionTestUtils.setField(coordinator, "partitions", PARTITIONS);
+        ReflectionTestUtils.setField(coordinator, "chunkUsers", 5);
+        coordinator.registerNode();
+        coordinator.register("test-job", task);
+        return coordinator;
+    }
+}
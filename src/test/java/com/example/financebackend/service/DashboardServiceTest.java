@@ -0,0 +1,106 @@
+package com.example.financebackend.service;
+
+import com.example.financebackend.dto.DashboardDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for DashboardService
+ */
+@ExtendWith(MockitoExtension.class)
+class DashboardServiceTest {
+
+    @Mock private WalletService walletService;
+    @Mock private ReportService reportService;
+    @Mock private BudgetService budgetService;
+    @Mock private NotificationService notificationService;
+    @Mock private FinancialHealthScoreService healthScoreService;
+    @Mock private CashflowForecastService forecastService;
+    @Mock private ReportCacheService reportCacheService;
+    @Mock private TransactionSnapshotCache snapshotCache;
+
+    private DashboardService dashboardService;
+
+    @BeforeEach
+    void setUp() {
+        dashboardService = new DashboardService(walletService, reportService, budgetService, notificationService,
+                healthScoreService, forecastService, reportCacheService, snapshotCache, 2, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        dashboardService.shutdown();
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void parseSections_ShouldKeepOrderAndRejectUnknown() {
+        assertEquals(List.of(DashboardService.Section.FORECAST, DashboardService.Section.WALLETS),
+                DashboardService.parseSections("forecast, wallets,forecast"));
+        assertEquals(DashboardService.Section.values().length, DashboardService.parseSections(" ").size());
+        assertThrows(IllegalArgumentException.class, () -> DashboardService.parseSections("wallets,balance"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void load_FailingSection_ShouldNotAffectOthers() {
+        when(walletService.findAllByUserId(1L)).thenReturn(Collections.emptyList());
+        when(notificationService.getUnreadCount(1L)).thenReturn(3L);
+        when(budgetService.getAlerts(1L)).thenThrow(new IllegalArgumentException("Không tìm thấy người dùng"));
+        when(reportCacheService.get(eq(1L), eq(ReportCacheService.Endpoint.FINANCIAL_HEALTH), isNull(), isNull(),
+                any(), any())).thenAnswer(invocation ->
+                ((Supplier<Object>) invocation.getArgument(5)).get());
+        when(healthScoreService.calculateHealthScore(1L)).thenReturn(Map.of("score", 72));
+
+        // 4 mục, pool 2 thread + hàng đợi 1: mục không xếp được hàng chạy luôn trên thread của request
+        DashboardDto dashboard = dashboardService.load(1L, DashboardService.parseSections(
+                "unreadCount,wallets,budgetAlerts,healthScore"), null, null, null);
+
+        assertEquals(List.of("unreadCount", "wallets", "budgetAlerts", "healthScore"),
+                List.copyOf(dashboard.sections().keySet()));
+        assertEquals(3L, dashboard.sections().get("unreadCount").data());
+        assertEquals(DashboardDto.STATUS_OK, dashboard.sections().get("wallets").status());
+        assertEquals(Map.of("score", 72), dashboard.sections().get("healthScore").data());
+        DashboardDto.Section alerts = dashboard.sections().get("budgetAlerts");
+        assertEquals(DashboardDto.STATUS_ERROR, alerts.status());
+        assertEquals("Không tìm thấy người dùng", alerts.error());
+        assertNull(alerts.data());
+    }
+
+    @Test
+    void load_SectionsOnPool_ShouldSeeRequestUserAndShareSnapshot() {
+        Authentication authentication = new UsernamePasswordAuthenticationToken(1L, null, List.of());
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+        AtomicReference<Authentication> seen = new AtomicReference<>();
+        AtomicReference<String> thread = new AtomicReference<>();
+        when(walletService.findAllByUserId(1L)).thenAnswer(invocation -> {
+            seen.set(SecurityContextHolder.getContext().getAuthentication());
+            thread.set(Thread.currentThread().getName());
+            return Collections.emptyList();
+        });
+
+        DashboardDto dashboard = dashboardService.load(1L, DashboardService.parseSections("wallets,cashflow"),
+                null, null, null);
+
+        assertEquals(DashboardDto.STATUS_OK, dashboard.sections().get("wallets").status());
+        assertTrue(thread.get().startsWith("dashboard-"));
+        assertSame(authentication, seen.get());
+        verify(snapshotCache, times(1)).get(1L);
+    }
+}
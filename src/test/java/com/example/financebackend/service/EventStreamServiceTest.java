@@ -0,0 +1,151 @@
+package com.example.financebackend.service;
+
+import com.example.financebackend.entity.User;
+import com.example.financebackend.entity.Wallet;
+import com.example.financebackend.repository.NotificationRepository;
+import com.example.financebackend.repository.WalletRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for EventStreamService (hai "node" nối với nhau qua CacheInvalidationBus trong bộ nhớ)
+ */
+class EventStreamServiceTest {
+
+    private WalletRepository walletRepositoryA;
+    private WalletRepository walletRepositoryB;
+    private CacheInvalidationBus busA;
+    private CacheInvalidationBus busB;
+    private EventStreamService nodeA;
+    private EventStreamService nodeB;
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        CacheInvalidationBus.InMemoryChangeLog changeLog = new CacheInvalidationBus.InMemoryChangeLog(100);
+        busA = new CacheInvalidationBus(changeLog, "node-a", 10, 10_000);
+        busB = new CacheInvalidationBus(changeLog, "node-b", 10, 10_000);
+        busA.init();
+        busB.init();
+        walletRepositoryA = mock(WalletRepository.class);
+        walletRepositoryB = mock(WalletRepository.class);
+        nodeA = node(walletRepositoryA, busA);
+        nodeB = node(walletRepositoryB, busB);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        nodeA.shutdown();
+        nodeB.shutdown();
+    }
+
+    @Test
+    void publishWalletBalance_ShouldReachConnectionOnOtherNode() {
+        Wallet wallet = wallet(5L, 1L, "150000");
+        when(walletRepositoryB.findById(5L)).thenReturn(Optional.of(wallet));
+        nodeB.subscribe(1L);
+
+        nodeA.publishWalletBalance(wallet, 1L);
+        busA.poll();
+        busB.poll();
+
+        // Node B đọc lại số dư từ DB và đẩy tới kết nối của user ở node B
+        verify(walletRepositoryB).findById(5L);
+        verify(walletRepositoryA, never()).findById(any());
+    }
+
+    @Test
+    void remoteEvent_UserNotConnectedHere_ShouldNotReadDatabase() {
+        nodeA.publishWalletBalance(wallet(5L, 1L, "150000"), 1L);
+        busB.poll();
+
+        verify(walletRepositoryB, never()).findById(any());
+    }
+
+    @Test
+    void publish_BufferFull_ShouldEvictConnection() {
+        blockSender(nodeA);
+        nodeA.subscribe(1L); // event "connected" nằm trong buffer vì không còn thread ghi
+
+        for (int i = 0; i < 3; i++) {
+            nodeA.publish(1L, EventStreamService.EVENT_NOTIFICATION, Map.of("i", i));
+        }
+
+        assertEquals(0, nodeA.getConnectionCount());
+        assertEquals(1, nodeA.getEvictedConnectionCount());
+    }
+
+    @Test
+    void evictStalledConnections_SendBlockedTooLong_ShouldEvict() {
+        blockSender(nodeA);
+        nodeA.subscribe(1L);
+        nodeA.subscribe(2L);
+        connectionOf(nodeA, 1L).ifPresent(connection -> ReflectionTestUtils.setField(connection, "sendStartedAt",
+                System.currentTimeMillis() - 20_000L));
+
+        nodeA.evictStalledConnections();
+
+        assertEquals(1, nodeA.getConnectionCount());
+        assertTrue(connectionOf(nodeA, 1L).isEmpty());
+        assertEquals(1, nodeA.getEvictedConnectionCount());
+    }
+
+    private EventStreamService node(WalletRepository walletRepository, CacheInvalidationBus bus) {
+        EventStreamService service = new EventStreamService(mock(NotificationRepository.class), walletRepository, 1, 1);
+        ReflectionTestUtils.setField(service, "bufferSize", 3);
+        service.setInvalidationBus(bus);
+        return service;
+    }
+
+    // Giữ thread ghi duy nhất của node
+    private void blockSender(EventStreamService service) {
+        ThreadPoolExecutor sender = (ThreadPoolExecutor) ReflectionTestUtils.getField(service, "sender");
+        CountDownLatch busy = new CountDownLatch(1);
+        sender.execute(() -> {
+            busy.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        try {
+            assertTrue(busy.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Optional<Object> connectionOf(EventStreamService service, Long userId) {
+        Map<Long, Set<Object>> connections = (Map<Long, Set<Object>>) ReflectionTestUtils.getField(service, "connections");
+        Set<Object> userConnections = connections.get(userId);
+        return userConnections == null ? Optional.empty() : userConnections.stream().findFirst();
+    }
+
+    private static Wallet wallet(Long id, Long ownerId, String balance) {
+        User owner = new User();
+        owner.setId(ownerId);
+        Wallet wallet = new Wallet();
+        wallet.setId(id);
+        wallet.setUser(owner);
+        wallet.setBalance(new BigDecimal(balance));
+        wallet.setCurrency("VND");
+        return wallet;
+    }
+}
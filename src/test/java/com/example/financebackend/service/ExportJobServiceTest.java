@@ -0,0 +1,192 @@
+package com.example.financebackend.service;
+
+import com.example.financebackend.dto.ExportJobDto;
+import com.example.financebackend.entity.ExportJob;
+import com.example.financebackend.entity.User;
+import com.example.financebackend.repository.ExportJobRepository;
+import com.example.financebackend.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Integration tests for ExportJobService, chạy job nền thật trên H2
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:export_job;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false",
+        "spring.security.oauth2.client.registration.google.client-id=test",
+        "spring.security.oauth2.client.registration.google.client-secret=test",
+        "audit.archive.enabled=false",
+        "export.storage-dir=" + ExportJobServiceTest.STORAGE_DIR,
+        "logging.level.org.hibernate.tool.schema.internal.ExceptionHandlerLoggedImpl=ERROR"
+})
+class ExportJobServiceTest {
+
+    static final String STORAGE_DIR = "target/test-export-jobs";
+
+    private static final AtomicInteger USERS = new AtomicInteger();
+
+    @Autowired private ExportJobService exportJobService;
+    @Autowired private ExportJobRepository jobRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    private Long userId;
+    private String email;
+
+    @BeforeEach
+    void createUser() {
+        email = "export-job-" + USERS.incrementAndGet() + "@example.com";
+        User user = new User();
+        user.setEmail(email);
+        user.setPasswordHash("test");
+        user.setFullName("Export Job");
+        userId = userRepository.save(user).getId();
+    }
+
+    @Test
+    void dataExport_ShouldWriteGzipArtifactAndReuseIdenticalRequest() throws InterruptedException, IOException {
+        ExportJobDto job = awaitJob(exportJobService.submit(userId, ExportJob.Type.DATA, null, null));
+        assertEquals(ExportJob.Status.COMPLETED, job.status(), job.errorMessage());
+
+        ExportJobService.Artifact artifact = exportJobService.getArtifact(job.id(), userId);
+        assertTrue(artifact.compressed());
+        assertEquals("user-data.json", artifact.fileName());
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(artifact.path()))) {
+            String json = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            assertTrue(json.contains(email));
+        }
+        // Phiên bản dữ liệu là sync_seq đọc trong transaction xuất
+        assertEquals(syncSeq(), jobRepository.findById(job.id()).orElseThrow().getDataVersion());
+
+        // Dữ liệu chưa đổi: yêu cầu giống hệt nhận lại job cũ
+        ExportJobDto again = exportJobService.submit(userId, ExportJob.Type.DATA, null, null);
+        assertEquals(job.id(), again.id());
+        assertTrue(again.reused());
+    }
+
+    @Test
+    void submit_AfterDataChanged_ShouldCreateNewJob() throws InterruptedException {
+        ExportJobDto job = awaitJob(exportJobService.submit(userId, ExportJob.Type.DATA, null, null));
+        assertEquals(ExportJob.Status.COMPLETED, job.status(), job.errorMessage());
+
+        jdbcTemplate.update("UPDATE users SET sync_seq = COALESCE(sync_seq, 0) + 1 WHERE id = ?", userId);
+
+        ExportJobDto again = awaitJob(exportJobService.submit(userId, ExportJob.Type.DATA, null, null));
+        assertNotEquals(job.id(), again.id());
+        assertFalse(again.reused());
+    }
+
+    @Test
+    void getArtifact_NotFinished_ShouldConflict() {
+        ExportJob job = saveJob(ExportJob.Status.QUEUED, null, LocalDateTime.now().plusHours(1));
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> exportJobService.getArtifact(job.getId(), userId));
+        assertEquals(HttpStatus.CONFLICT.value(), e.getStatusCode().value());
+    }
+
+    @Test
+    void getArtifact_Expired_ShouldBeGone() throws IOException {
+        ExportJob job = saveJob(ExportJob.Status.COMPLETED, null, LocalDateTime.now().minusMinutes(1));
+        job.setArtifactName(job.getId() + ".json.gz");
+        jobRepository.save(job);
+        Files.createDirectories(Path.of(STORAGE_DIR));
+        Files.write(Path.of(STORAGE_DIR, job.getArtifactName()), new byte[]{1});
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> exportJobService.getArtifact(job.getId(), userId));
+        assertEquals(HttpStatus.GONE.value(), e.getStatusCode().value());
+    }
+
+    @Test
+    void getArtifact_FileMissing_ShouldBeGone() {
+        // File nằm ở node khác hoặc đã bị dọn
+        ExportJob job = saveJob(ExportJob.Status.COMPLETED, "missing.json.gz", LocalDateTime.now().plusHours(1));
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> exportJobService.getArtifact(job.getId(), userId));
+        assertEquals(HttpStatus.GONE.value(), e.getStatusCode().value());
+    }
+
+    @Test
+    void purgeExpired_ShouldDeleteOnlyOldJobFiles() throws IOException {
+        Path directory = Files.createDirectories(Path.of(STORAGE_DIR));
+        FileTime old = FileTime.from(Instant.now().minus(30, ChronoUnit.DAYS));
+        Path part = Files.write(directory.resolve("987654.part"), new byte[]{1});
+        Path report = Files.write(directory.resolve("987654.pdf.gz"), new byte[]{1});
+        Path unzipped = Files.write(directory.resolve("987654.unzipped"), new byte[]{1});
+        Path foreign = Files.write(directory.resolve("README.txt"), new byte[]{1});
+        Path lookalike = Files.write(directory.resolve("987654.json"), new byte[]{1});
+        Path recent = Files.write(directory.resolve("987655.xlsx"), new byte[]{1});
+        for (Path file : new Path[]{part, report, unzipped, foreign, lookalike}) {
+            Files.setLastModifiedTime(file, old);
+        }
+        try {
+            exportJobService.purgeExpired();
+
+            assertFalse(Files.exists(part));
+            assertFalse(Files.exists(report));
+            assertFalse(Files.exists(unzipped));
+            assertTrue(Files.exists(foreign));
+            assertTrue(Files.exists(lookalike));
+            assertTrue(Files.exists(recent));
+        } finally {
+            for (Path file : new Path[]{part, report, unzipped, foreign, lookalike, recent}) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private ExportJob saveJob(ExportJob.Status status, String artifactName, LocalDateTime expiresAt) {
+        ExportJob job = new ExportJob();
+        job.setUserId(userId);
+        job.setType(ExportJob.Type.DATA);
+        job.setRequestHash("test-" + status);
+        job.setStatus(status);
+        job.setArtifactName(artifactName);
+        job.setCompressed(true);
+        job.setCreatedAt(LocalDateTime.now());
+        job.setExpiresAt(expiresAt);
+        return jobRepository.save(job);
+    }
+
+    private Long syncSeq() {
+        return jdbcTemplate.queryForObject("SELECT sync_seq FROM users WHERE id = ?", Long.class, userId);
+    }
+
+    private ExportJobDto awaitJob(ExportJobDto job) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000L;
+        while (job.status() == ExportJob.Status.QUEUED || job.status() == ExportJob.Status.RUNNING) {
+            assertTrue(System.currentTimeMillis() < deadline, "export job did not finish");
+            Thread.sleep(50L);
+            job = exportJobService.getJob(job.id(), userId);
+        }
+        return job;
+    }
+}
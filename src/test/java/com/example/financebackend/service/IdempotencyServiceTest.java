@@ -0,0 +1,254 @@
+package com.example.financebackend.service;
+
+import com.example.financebackend.dto.TransactionDto;
+import com.example.financebackend.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Unit tests for IdempotencyService, dùng H2 trong bộ nhớ; mỗi instance của service đóng vai một node
+ */
+class IdempotencyServiceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private DataSourceTransactionManager transactionManager;
+    private IdempotencyService idempotencyService;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:idempotency;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=5000");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS idempotency_keys (record_key VARCHAR(150) PRIMARY KEY, "
+                + "request_hash VARCHAR(64) NOT NULL, status VARCHAR(20) NOT NULL, response_body CLOB, "
+                + "created_at TIMESTAMP(6) NOT NULL, expires_at TIMESTAMP(6) NOT NULL)");
+        // Dòng do action ghi, trong transaction của action
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS effects (id BIGINT AUTO_INCREMENT PRIMARY KEY, tag VARCHAR(50))");
+        jdbcTemplate.execute("DELETE FROM idempotency_keys");
+        jdbcTemplate.execute("DELETE FROM effects");
+        transactionManager = new DataSourceTransactionManager(dataSource);
+        idempotencyService = node(5_000L, 600_000L);
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void execute_SameKey_ShouldReplayWithoutRunningAgain() {
+        AtomicInteger calls = new AtomicInteger();
+        TransactionDto request = request("50000");
+
+        TransactionDto first = idempotencyService.execute(1L, "key-1", "transactions.create", request,
+                TransactionDto.class, () -> created(calls.incrementAndGet()));
+        TransactionDto second = idempotencyService.execute(1L, "key-1", "transactions.create", request,
+                TransactionDto.class, () -> created(calls.incrementAndGet()));
+
+        assertEquals(1, calls.get());
+        assertEquals(1L, second.getId());
+        assertEquals(first.getOccurredAt(), second.getOccurredAt());
+        assertEquals("COMPLETED", status("1:key-1"));
+    }
+
+    @Test
+    void execute_ConcurrentDuplicate_ShouldWaitForFirstResult() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        TransactionDto request = request("50000");
+        Future<TransactionDto> first = executor.submit(() -> idempotencyService.execute(1L, "key-2",
+                "transactions.create", request, TransactionDto.class, () -> {
+                    started.countDown();
+                    await(release);
+                    return created(calls.incrementAndGet());
+                }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<TransactionDto> duplicate = executor.submit(() -> idempotencyService.execute(1L, "key-2",
+                "transactions.create", request, TransactionDto.class, () -> created(calls.incrementAndGet())));
+        release.countDown();
+
+        assertEquals(1L, first.get(5, TimeUnit.SECONDS).getId());
+        assertEquals(1L, duplicate.get(5, TimeUnit.SECONDS).getId());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void execute_SameKeyDifferentRequest_ShouldBeRejected() {
+        idempotencyService.execute(1L, "key-3", "transactions.create", request("50000"), TransactionDto.class,
+                () -> created(1));
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> idempotencyService.execute(
+                1L, "key-3", "transactions.create", request("60000"), TransactionDto.class, () -> created(2)));
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY.value(), e.getStatusCode().value());
+    }
+
+    @Test
+    void execute_FailedRequest_ShouldReleaseKey() {
+        TransactionDto request = request("50000");
+        assertThrows(IllegalArgumentException.class, () -> idempotencyService.execute(1L, "key-4",
+                "transactions.create", request, TransactionDto.class, () -> {
+                    effect("failed");
+                    throw new IllegalArgumentException("Không tìm thấy ví");
+                }));
+        assertNull(status("1:key-4"));
+        assertEquals(0, effects());
+
+        TransactionDto retried = idempotencyService.execute(1L, "key-4", "transactions.create", request,
+                TransactionDto.class, () -> created(7));
+
+        assertEquals(7L, retried.getId());
+    }
+
+    @Test
+    void execute_ActionOutlivesWaitMs_RetryOnOtherNode_ShouldNotRunTwice() throws Exception {
+        IdempotencyService nodeA = node(200L, 600_000L);
+        IdempotencyService nodeB = node(200L, 600_000L);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        TransactionDto request = request("50000");
+
+        // Request đầu chạy lâu hơn wait-ms (client timeout rồi gửi lại)
+        Future<TransactionDto> slow = executor.submit(() -> nodeA.execute(1L, "key-5", "transactions.transfer",
+                request, TransactionDto.class, () -> {
+                    effect("slow");
+                    started.countDown();
+                    await(release);
+                    return created(calls.incrementAndGet());
+                }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Thread.sleep(300L);
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> nodeB.execute(1L, "key-5",
+                "transactions.transfer", request, TransactionDto.class, () -> created(calls.incrementAndGet())));
+        assertEquals(HttpStatus.CONFLICT.value(), e.getStatusCode().value());
+
+        release.countDown();
+        assertEquals(1L, slow.get(5, TimeUnit.SECONDS).getId());
+        TransactionDto retried = nodeB.execute(1L, "key-5", "transactions.transfer", request, TransactionDto.class,
+                () -> created(calls.incrementAndGet()));
+
+        assertEquals(1L, retried.getId());
+        assertEquals(1, calls.get());
+        assertEquals(1, effects());
+    }
+
+    @Test
+    void execute_StaleInProgressRow_ShouldBeTakenOver() {
+        // Node khác giữ key rồi dừng: dòng IN_PROGRESS đã quá lease
+        LocalDateTime past = LocalDateTime.now().minusMinutes(30);
+        jdbcTemplate.update("INSERT INTO idempotency_keys (record_key, request_hash, status, created_at, expires_at) "
+                + "VALUES (?, ?, ?, ?, ?)", "1:key-6", "other", "IN_PROGRESS", Timestamp.valueOf(past),
+                Timestamp.valueOf(past.plusMinutes(10)));
+
+        TransactionDto result = idempotencyService.execute(1L, "key-6", "transactions.create", request("50000"),
+                TransactionDto.class, () -> created(9));
+
+        assertEquals(9L, result.getId());
+        assertEquals("COMPLETED", status("1:key-6"));
+    }
+
+    @Test
+    void execute_TakenOverAfterLease_ShouldRollBackSlowAction() throws Exception {
+        IdempotencyService nodeA = node(5_000L, 100L);
+        IdempotencyService nodeB = node(5_000L, 100L);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch takenOver = new CountDownLatch(1);
+        TransactionDto request = request("50000");
+
+        Future<TransactionDto> slow = executor.submit(() -> nodeA.execute(1L, "key-7", "transactions.create",
+                request, TransactionDto.class, () -> {
+                    effect("slow");
+                    started.countDown();
+                    await(takenOver);
+                    return created(1);
+                }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Thread.sleep(200L);
+
+        TransactionDto winner = nodeB.execute(1L, "key-7", "transactions.create", request, TransactionDto.class,
+                () -> {
+                    effect("retry");
+                    return created(2);
+                });
+        takenOver.countDown();
+
+        assertEquals(2L, winner.getId());
+        Exception e = assertThrows(Exception.class, () -> slow.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(ResponseStatusException.class, e.getCause());
+        // Lần chạy quá lease bị rollback cùng dòng nó đã ghi
+        assertEquals(1, effects());
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM effects WHERE tag = 'retry'", Integer.class));
+    }
+
+    private IdempotencyService node(long waitMs, long leaseMs) {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        IdempotencyService service = new IdempotencyService(mock(IdempotencyRecordRepository.class), jdbcTemplate,
+                objectMapper, transactionManager, 100, 24);
+        ReflectionTestUtils.setField(service, "waitMs", waitMs);
+        ReflectionTestUtils.setField(service, "leaseMs", leaseMs);
+        return service;
+    }
+
+    private void effect(String tag) {
+        jdbcTemplate.update("INSERT INTO effects (tag) VALUES (?)", tag);
+    }
+
+    private int effects() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM effects", Integer.class);
+    }
+
+    private String status(String recordKey) {
+        return jdbcTemplate.queryForList("SELECT status FROM idempotency_keys WHERE record_key = ?", String.class,
+                recordKey).stream().findFirst().orElse(null);
+    }
+
+    private static TransactionDto request(String amount) {
+        TransactionDto dto = new TransactionDto();
+        dto.setAmount(new BigDecimal(amount));
+        dto.setWalletId(10L);
+        dto.setCategoryId(20L);
+        return dto;
+    }
+
+    private static TransactionDto created(long id) {
+        TransactionDto dto = new TransactionDto();
+        dto.setId(id);
+        dto.setAmount(new BigDecimal("50000"));
+        dto.setOccurredAt(LocalDateTime.of(2024, 3, 15, 12, 0));
+        return dto;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
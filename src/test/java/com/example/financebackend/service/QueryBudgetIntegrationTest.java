@@ -0,0 +1,313 @@
+package com.example.financebackend.service;
+
+import com.example.financebackend.dto.CategoryDto;
+import com.example.financebackend.dto.NotificationPageDto;
+import com.example.financebackend.dto.SyncDto;
+import com.example.financebackend.entity.Budget;
+import com.example.financebackend.entity.Category;
+import com.example.financebackend.entity.Notification;
+import com.example.financebackend.entity.Transaction;
+import com.example.financebackend.entity.User;
+import com.example.financebackend.entity.Wallet;
+import com.example.financebackend.entity.WalletShare;
+import com.example.financebackend.repository.BudgetRepository;
+import com.example.financebackend.repository.CategoryRepository;
+import com.example.financebackend.repository.NotificationRepository;
+import com.example.financebackend.repository.TransactionRepository;
+import com.example.financebackend.repository.UserRepository;
+import com.example.financebackend.repository.WalletRepository;
+import com.example.financebackend.repository.WalletShareRepository;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Ngân sách số câu SQL cho các thao tác quan trọng, chạy trên H2 với DataSource được proxy để đếm.
+ * Mục đích: bắt lỗi N+1 - số query không được tăng theo số bản ghi.
+ *
+ * Khi một assertion fail, message liệt kê các câu SQL đã chạy.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:query_budget;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.format_sql=false",
+        "spring.security.oauth2.client.registration.google.client-id=test",
+        "spring.security.oauth2.client.registration.google.client-secret=test",
+        "audit.archive.enabled=false",
+        "logging.level.org.hibernate.tool.schema.internal.ExceptionHandlerLoggedImpl=ERROR"
+})
+@Import(QueryBudgetIntegrationTest.QueryCountingConfig.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class QueryBudgetIntegrationTest {
+
+    private static final int SHARED_WALLETS = 20;
+    private static final int TRANSACTIONS = 200;
+    private static final int BUDGETS = 5;
+    private static final int NOTIFICATIONS = 30;
+
+    @TestConfiguration
+    static class QueryCountingConfig {
+        @Bean
+        static BeanPostProcessor queryCountingDataSourcePostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource ? QueryCountingDataSource.wrap(dataSource) : bean;
+                }
+            };
+        }
+    }
+
+    @Autowired private WalletService walletService;
+    @Autowired private BudgetService budgetService;
+    @Autowired private CategoryService categoryService;
+    @Autowired private ReportService reportService;
+    @Autowired private TransactionService transactionService;
+    @Autowired private NotificationService notificationService;
+    @Autowired private ReportCacheService reportCacheService;
+    @Autowired private BudgetRecommendationService budgetRecommendationService;
+    @Autowired private SyncService syncService;
+
+    @Autowired private UserRepository userRepository;
+    @Autowired private WalletRepository walletRepository;
+    @Autowired private WalletShareRepository walletShareRepository;
+    @Autowired private CategoryRepository categoryRepository;
+    @Autowired private TransactionRepository transactionRepository;
+    @Autowired private BudgetRepository budgetRepository;
+    @Autowired private NotificationRepository notificationRepository;
+    @Autowired private PlatformTransactionManager transactionManager;
+
+    private Long userId;
+
+    @BeforeAll
+    void seed() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            User user = userRepository.save(user("query-budget@example.com"));
+            userId = user.getId();
+
+            List<Wallet> wallets = new ArrayList<>();
+            wallets.add(walletRepository.save(wallet(user, "Tiền mặt")));
+            wallets.add(walletRepository.save(wallet(user, "Ngân hàng")));
+
+            // 20 ví của user khác chia sẻ cho user này
+            for (int i = 0; i < SHARED_WALLETS; i++) {
+                User owner = userRepository.save(user("owner-" + i + "@example.com"));
+                WalletShare share = new WalletShare();
+                share.setWallet(walletRepository.save(wallet(owner, "Ví chung " + i)));
+                share.setSharedWithUser(user);
+                share.setPermission(i % 2 == 0 ? WalletShare.Permission.EDITOR : WalletShare.Permission.VIEWER);
+                walletShareRepository.save(share);
+            }
+
+            List<Category> categories = new ArrayList<>();
+            for (int i = 0; i < BUDGETS; i++) {
+                Category category = new Category();
+                category.setUser(user);
+                category.setName("Danh mục " + i);
+                category.setType(Category.CategoryType.EXPENSE);
+                categories.add(categoryRepository.save(category));
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            List<Transaction> transactions = new ArrayList<>();
+            for (int i = 0; i < TRANSACTIONS; i++) {
+                Transaction transaction = new Transaction();
+                transaction.setUser(user);
+                transaction.setWallet(wallets.get(i % wallets.size()));
+                transaction.setCategory(categories.get(i % categories.size()));
+                transaction.setType(Transaction.TransactionType.EXPENSE);
+                transaction.setAmount(BigDecimal.valueOf(10_000L + i * 1_000L));
+                transaction.setNote("Giao dịch " + i);
+                transaction.setOccurredAt(now.minusDays(i % 25).minusMinutes(i));
+                transactions.add(transaction);
+            }
+            transactionRepository.saveAll(transactions);
+
+            for (Category category : categories) {
+                Budget budget = new Budget();
+                budget.setUser(user);
+                budget.setCategory(category);
+                budget.setPeriod(Budget.Period.MONTHLY);
+                budget.setStartDate(LocalDate.now().withDayOfMonth(1));
+                budget.setEndDate(LocalDate.now().withDayOfMonth(1).plusMonths(1).minusDays(1));
+                budget.setLimitAmount(new BigDecimal("5000000"));
+                budgetRepository.save(budget);
+            }
+
+            for (int i = 0; i < NOTIFICATIONS; i++) {
+                Notification notification = new Notification();
+                notification.setUser(user);
+                notification.setType(Notification.NotificationType.SYSTEM);
+                notification.setTitle("Thông báo " + i);
+                notification.setMessage("Nội dung " + i);
+                notificationRepository.save(notification);
+            }
+        });
+    }
+
+    @BeforeEach
+    void clearCaches() {
+        reportCacheService.evictUser(userId);
+    }
+
+    @Test
+    void walletListWithSharedWallets() {
+        List<?> wallets = assertMaxQueries(2, "wallet list with 20 shared wallets",
+                () -> walletService.findAllByUserId(userId));
+        assertEquals(2 + SHARED_WALLETS, wallets.size());
+    }
+
+    @Test
+    void budgetList() {
+        List<?> budgets = assertMaxQueries(1, "budget list", () -> budgetService.findAllByUserId(userId));
+        assertEquals(BUDGETS, budgets.size());
+    }
+
+    @Test
+    void categoryList() {
+        assertMaxQueries(1, "category list", () -> categoryService.findAllByUserId(userId));
+    }
+
+    @Test
+    void reportSummary() {
+        LocalDateTime to = LocalDateTime.now();
+        assertMaxQueries(3, "report summary", () -> reportService.getSummary(userId, to.minusMonths(1), to));
+    }
+
+    @Test
+    void reportCashflow() {
+        LocalDateTime to = LocalDateTime.now();
+        assertMaxQueries(3, "report cashflow", () -> reportService.getCashflow(userId, to.minusMonths(6), to));
+    }
+
+    @Test
+    void transactionListWithFilters() {
+        List<?> transactions = assertMaxQueries(3, "transaction list",
+                () -> transactionService.findAllByUserIdWithFilters(userId, null, null, null, null, null, null));
+        assertEquals(TRANSACTIONS, transactions.size());
+    }
+
+    @Test
+    void recentTransactions() {
+        assertMaxQueries(3, "recent transactions", () -> transactionService.findRecentTransactions(userId, 10));
+    }
+
+    @Test
+    void notificationInboxPage() {
+        assertMaxQueries(1, "notification inbox page", () -> notificationService.getInboxPage(userId, null, 20));
+    }
+
+    @Test
+    void legacyNotificationList_Truncated_ShouldPointToNextPage() {
+        Object target = AopTestUtils.getTargetObject(notificationService);
+        ReflectionTestUtils.setField(target, "legacyMaxSize", 20);
+        try {
+            NotificationPageDto legacy = assertMaxQueries(1, "legacy notification list",
+                    () -> notificationService.getUserNotifications(userId));
+            assertEquals(20, legacy.getItems().size());
+            assertTrue(legacy.isHasMore());
+
+            NotificationPageDto rest = notificationService.getInboxPage(userId, legacy.getNextCursor(), 100);
+            assertEquals(NOTIFICATIONS - 20, rest.getItems().size());
+            assertFalse(rest.isHasMore());
+        } finally {
+            ReflectionTestUtils.setField(target, "legacyMaxSize", 200);
+        }
+    }
+
+    @Test
+    void budgetRecommendationsForAllCategories() {
+        List<BudgetRecommendationService.BudgetRecommendationDto> recommendations = assertMaxQueries(3,
+                "budget recommendations", () -> budgetRecommendationService.recommendBudgetsForAllCategories(userId, 3));
+        assertEquals(BUDGETS, recommendations.size());
+        assertTrue(recommendations.stream().allMatch(dto -> dto.getMonthlySpending().size() == 3
+                && dto.getP80MonthlySpending().compareTo(dto.getMedianMonthlySpending()) >= 0));
+    }
+
+    @Test
+    void deltaSyncPagesBySequence() {
+        // 2 ví + 5 danh mục + 200 giao dịch + 5 budget của user (ví được chia sẻ thuộc user khác)
+        int expected = 2 + BUDGETS + TRANSACTIONS + BUDGETS;
+        long since = 0;
+        int received = 0;
+        SyncDto page;
+        do {
+            long from = since;
+            page = assertMaxQueries(6, "delta sync page", () -> syncService.changes(userId, from, 50));
+            received += page.transactions().size() + page.wallets().size() + page.categories().size()
+                    + page.budgets().size();
+            assertTrue(page.nextSince() > since);
+            since = page.nextSince();
+        } while (page.hasMore());
+        assertEquals(expected, received);
+
+        CategoryDto temporary = new CategoryDto();
+        temporary.setName("Tạm");
+        temporary.setType(Category.CategoryType.EXPENSE);
+        Long categoryId = categoryService.create(temporary, userId).getId();
+        categoryService.delete(categoryId, userId);
+
+        // Thêm rồi xóa sau lần sync trước: chỉ còn dấu xóa
+        SyncDto delta = syncService.changes(userId, since, 50);
+        assertEquals(0, delta.categories().size());
+        assertEquals(1, delta.deleted().size());
+        assertEquals(categoryId, delta.deleted().get(0).id());
+        assertFalse(delta.hasMore());
+        assertEquals(0, syncService.changes(userId, delta.nextSince(), 50).deleted().size());
+    }
+
+    private <T> T assertMaxQueries(int budget, String operation, Supplier<T> action) {
+        QueryCountingDataSource.reset();
+        T result = action.get();
+        int count = QueryCountingDataSource.count();
+        assertTrue(count <= budget, operation + " executed " + count + " queries (budget " + budget + "):\n"
+                + String.join("\n", QueryCountingDataSource.statements()));
+        return result;
+    }
+
+    private static User user(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setPasswordHash("test");
+        user.setFullName("Query Budget");
+        return user;
+    }
+
+    private static Wallet wallet(User owner, String name) {
+        Wallet wallet = new Wallet();
+        wallet.setUser(owner);
+        wallet.setName(name);
+        wallet.setType(Wallet.WalletType.CASH);
+        wallet.setBalance(new BigDecimal("1000000"));
+        return wallet;
+    }
+}
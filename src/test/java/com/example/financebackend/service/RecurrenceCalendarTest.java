@@ -0,0 +1,129 @@
+package com.example.financebackend.service;
+
+import com.example.financebackend.entity.RecurringTransaction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for RecurrenceCalendar
+ */
+class RecurrenceCalendarTest {
+
+    private RecurrenceCalendar calendar;
+
+    @BeforeEach
+    void setUp() {
+        calendar = new RecurrenceCalendar(730, 100_000);
+    }
+
+    @Test
+    void occurrences_Monthly_ShouldKeepStartDayOfMonth() {
+        RecurringTransaction rule = rule(1L, RecurringTransaction.Frequency.MONTHLY, LocalDate.of(2024, 1, 31), null);
+
+        List<LocalDate> dates = dates(calendar.occurrences(rule, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 4, 30)));
+
+        assertEquals(List.of(LocalDate.of(2024, 1, 31), LocalDate.of(2024, 2, 29),
+                LocalDate.of(2024, 3, 31), LocalDate.of(2024, 4, 30)), dates);
+    }
+
+    @Test
+    void occurrences_ShouldStopAtEndDateAndWindow() {
+        RecurringTransaction rule = rule(2L, RecurringTransaction.Frequency.WEEKLY, LocalDate.of(2024, 1, 1),
+                LocalDate.of(2024, 1, 22));
+
+        List<LocalDate> dates = dates(calendar.occurrences(rule, LocalDate.of(2024, 1, 5), LocalDate.of(2024, 12, 31)));
+
+        assertEquals(List.of(LocalDate.of(2024, 1, 8), LocalDate.of(2024, 1, 15), LocalDate.of(2024, 1, 22)), dates);
+    }
+
+    @Test
+    void occurrences_InactiveRule_ShouldBeEmpty() {
+        RecurringTransaction rule = rule(3L, RecurringTransaction.Frequency.DAILY, LocalDate.of(2024, 1, 1), null);
+        rule.setActive(false);
+
+        assertEquals(0, calendar.occurrences(rule, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31)).length);
+    }
+
+    @Test
+    void occurrences_RuleChanged_ShouldNotUseStaleExpansion() {
+        RecurringTransaction rule = rule(4L, RecurringTransaction.Frequency.DAILY, LocalDate.of(2024, 1, 1), null);
+        assertEquals(10, calendar.occurrences(rule, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 10)).length);
+
+        // Sửa quy tắc mà không gọi evict (ví dụ sửa trên node khác)
+        rule.setFrequency(RecurringTransaction.Frequency.WEEKLY);
+
+        assertEquals(2, calendar.occurrences(rule, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 10)).length);
+    }
+
+    @Test
+    void occurrences_BeyondHorizon_ShouldStillBeComplete() {
+        RecurrenceCalendar shortHorizon = new RecurrenceCalendar(30, 100_000);
+        RecurringTransaction rule = rule(5L, RecurringTransaction.Frequency.DAILY, LocalDate.of(2024, 1, 1), null);
+
+        assertEquals(90, shortHorizon.occurrences(rule, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 3, 30)).length);
+    }
+
+    @Test
+    void nextAfter_ShouldFollowSameScheduleAsForecast() {
+        RecurringTransaction rule = rule(6L, RecurringTransaction.Frequency.MONTHLY, LocalDate.of(2024, 1, 31), null);
+
+        LocalDate next = calendar.nextAfter(rule, rule.getNextRunDate());
+        assertEquals(LocalDate.of(2024, 2, 29), next);
+
+        // Job đã chạy: nextRunDate = 29/02, lần sau vẫn về ngày 31
+        rule.setNextRunDate(next);
+        assertEquals(LocalDate.of(2024, 3, 31), calendar.nextAfter(rule, next));
+    }
+
+    @Test
+    void nextAfter_PastEndDate_ShouldStillAdvance() {
+        RecurringTransaction rule = rule(7L, RecurringTransaction.Frequency.YEARLY, LocalDate.of(2024, 2, 29),
+                LocalDate.of(2024, 6, 1));
+
+        assertEquals(LocalDate.of(2025, 2, 28), calendar.nextAfter(rule, LocalDate.of(2024, 2, 29)));
+    }
+
+    @Test
+    void nextAfter_FarAhead_ShouldJumpDirectly() {
+        RecurrenceCalendar shortHorizon = new RecurrenceCalendar(30, 100_000);
+        RecurringTransaction rule = rule(8L, RecurringTransaction.Frequency.MONTHLY, LocalDate.of(2020, 1, 31), null);
+
+        assertEquals(LocalDate.of(2030, 4, 30), shortHorizon.nextAfter(rule, LocalDate.of(2030, 3, 31)));
+        assertEquals(LocalDate.of(2020, 1, 31), shortHorizon.nextAfter(rule, LocalDate.of(2019, 12, 1)));
+    }
+
+    @Test
+    void occurrences_AdvancedNextRunDate_ShouldShareScheduleOfSameShape() {
+        RecurringTransaction first = rule(9L, RecurringTransaction.Frequency.MONTHLY, LocalDate.of(2024, 1, 31), null);
+        RecurringTransaction second = rule(10L, RecurringTransaction.Frequency.MONTHLY, LocalDate.of(2024, 3, 31), null);
+        // nextRunDate sửa tay lệch khỏi lịch: lần đầu giữ nguyên, các lần sau về ngày 31
+        second.setNextRunDate(LocalDate.of(2024, 4, 15));
+
+        assertEquals(List.of(LocalDate.of(2024, 3, 31), LocalDate.of(2024, 4, 30), LocalDate.of(2024, 5, 31)),
+                dates(calendar.occurrences(first, LocalDate.of(2024, 3, 1), LocalDate.of(2024, 5, 31))));
+        assertEquals(List.of(LocalDate.of(2024, 4, 15), LocalDate.of(2024, 5, 31), LocalDate.of(2024, 6, 30)),
+                dates(calendar.occurrences(second, LocalDate.of(2024, 3, 1), LocalDate.of(2024, 6, 30))));
+    }
+
+    private static RecurringTransaction rule(Long id, RecurringTransaction.Frequency frequency,
+                                             LocalDate start, LocalDate end) {
+        RecurringTransaction rule = new RecurringTransaction();
+        rule.setId(id);
+        rule.setFrequency(frequency);
+        rule.setStartDate(start);
+        rule.setNextRunDate(start);
+        rule.setEndDate(end);
+        rule.setActive(true);
+        return rule;
+    }
+
+    private static List<LocalDate> dates(int[] epochDays) {
+        return Arrays.stream(epochDays).mapToObj(LocalDate::ofEpochDay).toList();
+    }
+}
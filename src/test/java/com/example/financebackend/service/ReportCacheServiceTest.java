@@ -0,0 +1,154 @@
+package com.example.financebackend.service;
+
+import com.example.financebackend.dto.ReportSummaryDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ReportCacheService
+ */
+class ReportCacheServiceTest {
+
+    private static final LocalDateTime JAN_START = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final LocalDateTime JAN_END = LocalDateTime.of(2024, 1, 31, 23, 59, 59);
+
+    private ReportCacheService cacheService;
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        cacheService = new ReportCacheService(objectMapper, 1024 * 1024, 10);
+    }
+
+    @Test
+    void get_SameKey_ShouldComputeOnce() {
+        AtomicInteger calls = new AtomicInteger();
+
+        String first = cacheService.get(1L, ReportCacheService.Endpoint.REPORT_SUMMARY, JAN_START, JAN_END, null,
+                () -> "result-" + calls.incrementAndGet());
+        String second = cacheService.get(1L, ReportCacheService.Endpoint.REPORT_SUMMARY, JAN_START, JAN_END, null,
+                () -> "result-" + calls.incrementAndGet());
+
+        assertEquals("result-1", first);
+        assertEquals("result-1", second);
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void invalidate_TransactionOutsideRange_ShouldKeepEntry() {
+        AtomicInteger calls = new AtomicInteger();
+        cacheService.get(1L, ReportCacheService.Endpoint.REPORT_SUMMARY, JAN_START, JAN_END, null,
+                calls::incrementAndGet);
+
+        cacheService.invalidate(1L, LocalDateTime.of(2024, 2, 15, 10, 0));
+        cacheService.get(1L, ReportCacheService.Endpoint.REPORT_SUMMARY, JAN_START, JAN_END, null,
+                calls::incrementAndGet);
+
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void invalidate_TransactionInsideRange_ShouldRecompute() {
+        AtomicInteger calls = new AtomicInteger();
+        cacheService.get(1L, ReportCacheService.Endpoint.REPORT_SUMMARY, JAN_START, JAN_END, null,
+                calls::incrementAndGet);
+        cacheService.get(1L, ReportCacheService.Endpoint.FINANCIAL_HEALTH, null, null, null,
+                calls::incrementAndGet);
+
+        cacheService.invalidate(1L, LocalDateTime.of(2024, 1, 15, 10, 0));
+        cacheService.get(1L, ReportCacheService.Endpoint.REPORT_SUMMARY, JAN_START, JAN_END, null,
+                calls::incrementAndGet);
+        cacheService.get(1L, ReportCacheService.Endpoint.FINANCIAL_HEALTH, null, null, null,
+                calls::incrementAndGet);
+
+        assertEquals(4, calls.get());
+    }
+
+    @Test
+    void get_ConcurrentIdenticalRequests_ShouldCoalesce() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<?>[] futures = new Future<?>[4];
+            for (int i = 0; i < futures.length; i++) {
+                futures[i] = executor.submit(() -> cacheService.get(1L, ReportCacheService.Endpoint.REPORT_CASHFLOW,
+                        JAN_START, JAN_END, null, () -> {
+                            calls.incrementAndGet();
+                            try {
+                                release.await(5, TimeUnit.SECONDS);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                            return "cashflow";
+                        }));
+            }
+            Thread.sleep(200);
+            release.countDown();
+            for (Future<?> future : futures) {
+                assertEquals("cashflow", future.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void get_MapResult_ShouldBeSharedAsImmutableCopy() {
+        Map<String, Object> computed = new HashMap<>();
+        computed.put("months", new ArrayList<>(List.of(1, 2)));
+
+        Map<String, Object> first = cacheService.get(1L, ReportCacheService.Endpoint.MONTH_OVER_MONTH, JAN_START,
+                null, null, () -> computed);
+        computed.put("extra", 1);
+        Map<String, Object> second = cacheService.get(1L, ReportCacheService.Endpoint.MONTH_OVER_MONTH, JAN_START,
+                null, null, () -> computed);
+
+        assertSame(first, second);
+        assertFalse(second.containsKey("extra"));
+        assertThrows(UnsupportedOperationException.class, () -> second.put("x", 1));
+        assertThrows(UnsupportedOperationException.class, () -> ((List<?>) second.get("months")).clear());
+    }
+
+    @Test
+    void get_DtoResult_ShouldReturnCopyPerCaller() {
+        ReportSummaryDto.CategorySummaryDto category = new ReportSummaryDto.CategorySummaryDto();
+        category.setCategoryId(3L);
+        category.setAmount(new BigDecimal("200000"));
+        ReportSummaryDto computed = new ReportSummaryDto();
+        computed.setTotalIncome(new BigDecimal("500000"));
+        computed.setCategorySummaries(new ArrayList<>(List.of(category)));
+
+        ReportSummaryDto first = cacheService.get(1L, ReportCacheService.Endpoint.REPORT_SUMMARY, JAN_START, JAN_END,
+                null, () -> computed);
+        // Caller sửa DTO nhận được
+        first.setTotalIncome(BigDecimal.ZERO);
+        first.getCategorySummaries().get(0).setAmount(BigDecimal.ONE);
+        computed.setTotalIncome(BigDecimal.TEN);
+        ReportSummaryDto second = cacheService.get(1L, ReportCacheService.Endpoint.REPORT_SUMMARY, JAN_START, JAN_END,
+                null, () -> computed);
+
+        assertNotSame(first, second);
+        assertEquals(new BigDecimal("500000"), second.getTotalIncome());
+        assertEquals(new BigDecimal("200000"), second.getCategorySummaries().get(0).getAmount());
+    }
+}
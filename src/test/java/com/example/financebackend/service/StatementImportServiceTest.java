@@ -0,0 +1,322 @@
+package com.example.financebackend.service;
+
+import com.example.financebackend.dto.StatementImportDto;
+import com.example.financebackend.entity.Budget;
+import com.example.financebackend.entity.Category;
+import com.example.financebackend.entity.StatementImportJob;
+import com.example.financebackend.entity.Transaction;
+import com.example.financebackend.entity.User;
+import com.example.financebackend.entity.Wallet;
+import com.example.financebackend.entity.WalletShare;
+import com.example.financebackend.repository.BudgetRepository;
+import com.example.financebackend.repository.CategoryRepository;
+import com.example.financebackend.repository.StatementImportJobRepository;
+import com.example.financebackend.repository.TransactionRepository;
+import com.example.financebackend.repository.UserRepository;
+import com.example.financebackend.repository.WalletRepository;
+import com.example.financebackend.repository.WalletShareRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Integration tests for StatementImportService, chạy job nền thật trên H2 (chế độ MySQL)
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:statement_import;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false",
+        "spring.security.oauth2.client.registration.google.client-id=test",
+        "spring.security.oauth2.client.registration.google.client-secret=test",
+        "audit.archive.enabled=false",
+        "statement-import.batch-size=50",
+        "logging.level.org.hibernate.tool.schema.internal.ExceptionHandlerLoggedImpl=ERROR"
+})
+class StatementImportServiceTest {
+
+    private static final AtomicInteger USERS = new AtomicInteger();
+    private static final String HEADER = "Ngày giao dịch;Nội dung;Ghi nợ;Ghi có\n";
+
+    @Autowired private StatementImportService statementImportService;
+    @Autowired private StatementImportJobRepository jobRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private WalletRepository walletRepository;
+    @Autowired private WalletShareRepository walletShareRepository;
+    @Autowired private CategoryRepository categoryRepository;
+    @Autowired private TransactionRepository transactionRepository;
+    @Autowired private BudgetRepository budgetRepository;
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private PlatformTransactionManager transactionManager;
+
+    @Test
+    void import_ShouldApplyBatchDeltasAndSkipDuplicates() throws InterruptedException {
+        Long[] ids = new Long[3];
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            User user = userRepository.save(user());
+            Wallet wallet = walletRepository.save(wallet(user));
+            Category food = expenseCategory(user);
+
+            Budget budget = new Budget();
+            budget.setUser(user);
+            budget.setCategory(food);
+            budget.setPeriod(Budget.Period.MONTHLY);
+            budget.setStartDate(LocalDate.now().withDayOfMonth(1));
+            budget.setEndDate(LocalDate.now().withDayOfMonth(1).plusMonths(1).minusDays(1));
+            budget.setLimitAmount(new BigDecimal("5000000"));
+            budgetRepository.save(budget);
+
+            // Đã nhập tay: dòng cùng ngày, cùng số tiền trong sao kê là trùng
+            Transaction manual = new Transaction();
+            manual.setUser(user);
+            manual.setWallet(wallet);
+            manual.setCategory(food);
+            manual.setType(Transaction.TransactionType.EXPENSE);
+            manual.setAmount(new BigDecimal("45000"));
+            manual.setNote("Grab");
+            manual.setOccurredAt(LocalDate.now().atTime(8, 0));
+            transactionRepository.save(manual);
+            ids[0] = user.getId();
+            ids[1] = wallet.getId();
+            ids[2] = budget.getId();
+        });
+        String today = today();
+        String csv = HEADER
+                + today + ";Ăn trưa phở;50.000;\n"
+                + today + ";Ăn trưa phở;50.000;\n"
+                + today + ";Grab đi làm;45.000;\n"
+                + today + ";Lương tháng;;15.000.000\n"
+                + "ngày sai;x;1;\n"
+                + "\"" + today + "\";\"Cà phê, \"\"sữa\"\"\";25.000;\n";
+
+        StatementImportDto first = awaitImport(submit(ids[0], ids[1], csv));
+        assertEquals(StatementImportJob.Status.COMPLETED, first.status(), first.errorMessage());
+        assertEquals(6, first.processedRows());
+        assertEquals(4, first.importedRows());
+        assertEquals(1, first.duplicateRows());
+        assertEquals(1, first.errorRows());
+        // 1.000.000 - 125.000 + 15.000.000; chi tiêu đều vào "Ăn uống" (keyword hoặc danh mục dùng nhiều nhất)
+        assertEquals(0, new BigDecimal("15875000").compareTo(walletRepository.findById(ids[1]).orElseThrow().getBalance()));
+        assertEquals(0, new BigDecimal("125000").compareTo(budgetRepository.findById(ids[2]).orElseThrow().getUsedAmount()));
+        assertEquals(5, transactionRepository.findByUserId(ids[0]).size());
+        assertTrue(transactionRepository.findByUserId(ids[0]).stream().allMatch(t -> t.getSyncSeq() != null));
+
+        // Nhập lại cùng file: không thêm gì
+        StatementImportDto second = awaitImport(submit(ids[0], ids[1], csv));
+        assertEquals(0, second.importedRows());
+        assertEquals(5, second.duplicateRows());
+        assertEquals(0, new BigDecimal("15875000").compareTo(walletRepository.findById(ids[1]).orElseThrow().getBalance()));
+    }
+
+    @Test
+    void submit_WhileOwnerImportIsRunning_ShouldRejectSharee() {
+        Long[] ids = sharedWallet();
+        StatementImportJob running = new StatementImportJob();
+        running.setUserId(ids[0]);
+        running.setWalletId(ids[2]);
+        running.setFormat(StatementImportJob.Format.CSV);
+        running.setStatus(StatementImportJob.Status.RUNNING);
+        jobRepository.save(running);
+
+        // Lần nhập đang chạy là của chủ ví: người được chia sẻ nhập vào cùng ví vẫn bị từ chối
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> submit(ids[1], ids[2], HEADER + today() + ";Cà phê;25.000;\n"));
+        assertEquals(HttpStatus.CONFLICT.value(), e.getStatusCode().value());
+    }
+
+    @Test
+    void concurrentSubmit_OwnerAndSharee_ShouldImportEachRowOnce() throws Exception {
+        Long[] ids = sharedWallet();
+        String csv = statement(120);
+
+        List<Long> jobIds = submitTogether(ids, csv);
+        assertFalse(jobIds.isEmpty());
+        long imported = 0;
+        for (Long jobId : jobIds) {
+            StatementImportJob job = awaitJob(jobId);
+            assertEquals(StatementImportJob.Status.COMPLETED, job.getStatus(), job.getErrorMessage());
+            imported += job.getImportedRows();
+        }
+
+        assertEquals(120, imported);
+        assertWalletHoldsStatementOnce(ids[2], 120);
+    }
+
+    @Test
+    void overlappingImports_OwnerAndSharee_ShouldCountOnlyWrittenRows() throws Exception {
+        Long[] ids = sharedWallet();
+        String csv = statement(300);
+
+        // Job trước bị coi là gián đoạn (quá stale-minutes) nên job sau được nhận: hai job chạy chồng nhau
+        List<Long> jobIds;
+        ReflectionTestUtils.setField(statementImportService, "staleMinutes", -60L);
+        try {
+            jobIds = submitTogether(ids, csv);
+        } finally {
+            ReflectionTestUtils.setField(statementImportService, "staleMinutes", 30L);
+        }
+        assertEquals(2, jobIds.size());
+
+        long imported = 0;
+        long duplicates = 0;
+        for (Long jobId : jobIds) {
+            StatementImportJob job = awaitJob(jobId);
+            assertEquals(StatementImportJob.Status.COMPLETED, job.getStatus(), job.getErrorMessage());
+            imported += job.getImportedRows();
+            duplicates += job.getDuplicateRows();
+        }
+
+        assertEquals(300, imported);
+        assertEquals(300, duplicates);
+        assertWalletHoldsStatementOnce(ids[2], 300);
+    }
+
+    // Chủ ví và người được chia sẻ (EDITOR) gửi cùng file cùng lúc; trả về các job được nhận (lần gửi còn lại có thể 409)
+    private List<Long> submitTogether(Long[] ids, String csv) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Long>> futures = List.of(
+                    executor.submit(() -> submitAfter(start, ids[0], ids[2], csv)),
+                    executor.submit(() -> submitAfter(start, ids[1], ids[2], csv)));
+            start.countDown();
+            List<Long> jobIds = new ArrayList<>();
+            for (Future<Long> future : futures) {
+                Long jobId = future.get(10, TimeUnit.SECONDS);
+                if (jobId != null) {
+                    jobIds.add(jobId);
+                }
+            }
+            return jobIds;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Long submitAfter(CountDownLatch start, Long userId, Long walletId, String csv) throws InterruptedException {
+        assertTrue(start.await(5, TimeUnit.SECONDS));
+        try {
+            return submit(userId, walletId, csv).id();
+        } catch (ResponseStatusException e) {
+            assertEquals(HttpStatus.CONFLICT.value(), e.getStatusCode().value());
+            return null;
+        }
+    }
+
+    // Mỗi dòng của sao kê đúng một giao dịch trong ví, số dư chỉ trừ một lần
+    private void assertWalletHoldsStatementOnce(Long walletId, int rows) {
+        assertEquals(rows, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM transactions WHERE wallet_id = ?", Integer.class, walletId));
+        assertEquals(rows, jdbcTemplate.queryForObject(
+                "SELECT COUNT(DISTINCT import_hash) FROM transactions WHERE wallet_id = ?", Integer.class, walletId));
+        BigDecimal spent = BigDecimal.valueOf(1_000L * rows * (rows + 1) / 2);
+        assertEquals(0, new BigDecimal("1000000").subtract(spent)
+                .compareTo(walletRepository.findById(walletId).orElseThrow().getBalance()));
+    }
+
+    // Ví của chủ ví, chia sẻ quyền EDITOR: [ownerId, shareeId, walletId]
+    private Long[] sharedWallet() {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            User owner = userRepository.save(user());
+            User sharee = userRepository.save(user());
+            Wallet wallet = walletRepository.save(wallet(owner));
+            expenseCategory(owner);
+            expenseCategory(sharee);
+            WalletShare share = new WalletShare();
+            share.setWallet(wallet);
+            share.setSharedWithUser(sharee);
+            share.setPermission(WalletShare.Permission.EDITOR);
+            walletShareRepository.save(share);
+            return new Long[]{owner.getId(), sharee.getId(), wallet.getId()};
+        });
+    }
+
+    // Các dòng chi khác nhau: dòng i chi i.000đ
+    private static String statement(int rows) {
+        StringBuilder csv = new StringBuilder(HEADER);
+        String today = today();
+        for (int i = 1; i <= rows; i++) {
+            csv.append(today).append(";Mua hàng ").append(i).append(';').append(i).append(".000;\n");
+        }
+        return csv.toString();
+    }
+
+    private StatementImportDto submit(Long userId, Long walletId, String csv) {
+        MockMultipartFile file = new MockMultipartFile("file", "statement.csv", "text/csv",
+                csv.getBytes(StandardCharsets.UTF_8));
+        return statementImportService.submit(userId, walletId, file, null);
+    }
+
+    private StatementImportDto awaitImport(StatementImportDto job) throws InterruptedException {
+        Long userId = jobRepository.findById(job.id()).orElseThrow().getUserId();
+        awaitJob(job.id());
+        return statementImportService.getJob(job.id(), userId);
+    }
+
+    private StatementImportJob awaitJob(Long jobId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000L;
+        while (true) {
+            StatementImportJob job = jobRepository.findById(jobId).orElseThrow();
+            if (job.getStatus() != StatementImportJob.Status.QUEUED && job.getStatus() != StatementImportJob.Status.RUNNING) {
+                return job;
+            }
+            assertTrue(System.currentTimeMillis() < deadline, "statement import did not finish");
+            Thread.sleep(50L);
+        }
+    }
+
+    private Category expenseCategory(User user) {
+        Category food = new Category();
+        food.setUser(user);
+        food.setName("Ăn uống");
+        food.setType(Category.CategoryType.EXPENSE);
+        return categoryRepository.save(food);
+    }
+
+    private static String today() {
+        return LocalDate.now().format(DateTimeFormatter.ofPattern("dd/MM/yyyy"));
+    }
+
+    private static User user() {
+        User user = new User();
+        user.setEmail("statement-import-" + USERS.incrementAndGet() + "@example.com");
+        user.setPasswordHash("test");
+        user.setFullName("Statement Import");
+        return user;
+    }
+
+    private static Wallet wallet(User owner) {
+        Wallet wallet = new Wallet();
+        wallet.setUser(owner);
+        wallet.setName("Tài khoản ngân hàng");
+        wallet.setType(Wallet.WalletType.CASH);
+        wallet.setBalance(new BigDecimal("1000000"));
+        return wallet;
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.financebackend.service;
+
+import com.example.financebackend.entity.StatementImportJob;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for StatementParser
+ */
+class StatementParserTest {
+
+    @Test
+    void parseAmount_ShouldHandleVietnameseAndEnglishSeparators() {
+        assertEquals(0, new BigDecimal("50000").compareTo(StatementParser.parseAmount("50.000")));
+        assertEquals(0, new BigDecimal("1234567.89").compareTo(StatementParser.parseAmount("1,234,567.89")));
+        assertEquals(0, new BigDecimal("-1500.5").compareTo(StatementParser.parseAmount("(1.500,50)")));
+        assertEquals(0, new BigDecimal("-25000").compareTo(StatementParser.parseAmount("-25,000 VND")));
+        assertEquals(0, new BigDecimal("12.5").compareTo(StatementParser.parseAmount("12,5")));
+        assertThrows(IllegalArgumentException.class, () -> StatementParser.parseAmount("abc"));
+    }
+
+    @Test
+    void csv_ShouldReadQuotedFieldsAndContinueAfterBadRow() throws Exception {
+        String csv = "\uFEFFDate,Description,Amount,Reference\r\n"
+                + "2024-03-15,\"Cà phê, \"\"sữa\"\"\",-25000,A1\r\n"
+                + "not a date,Lỗi,-1,\r\n"
+                + "15/03/2024 18:30,\"Lương\ntháng 3\",15000000,\r\n";
+        try (StatementParser parser = StatementParser.open(StatementImportJob.Format.CSV, new StringReader(csv))) {
+            StatementParser.Row first = parser.next();
+            assertEquals("Cà phê, \"sữa\"", first.description());
+            assertEquals("A1", first.externalId());
+            assertEquals(0, new BigDecimal("-25000").compareTo(first.amount()));
+
+            IllegalArgumentException error = assertThrows(IllegalArgumentException.class, parser::next);
+            assertTrue(error.getMessage().startsWith("Dòng 3"));
+
+            StatementParser.Row third = parser.next();
+            assertEquals(4, third.line());
+            assertEquals(LocalDateTime.of(2024, 3, 15, 18, 30), third.occurredAt());
+            assertEquals("Lương\ntháng 3", third.description());
+            assertNull(third.externalId());
+            assertNull(parser.next());
+        }
+    }
+
+    @Test
+    void ofx_ShouldReadSgmlTransactionsWithoutClosingLeafTags() throws Exception {
+        String ofx = "OFXHEADER:100\nDATA:OFXSGML\n\n<OFX><BANKMSGSRSV1><STMTTRNRS><STMTRS><BANKTRANLIST>\n"
+                + "<STMTTRN><TRNTYPE>DEBIT<DTPOSTED>20240315083000.000[+7:ICT]<TRNAMT>-45000.00"
+                + "<FITID>TX-1<NAME>GRAB<MEMO>Grab đi làm</STMTTRN>\n"
+                + "<STMTTRN><TRNTYPE>CREDIT<DTPOSTED>20240301<TRNAMT>15000000<FITID>TX-2<NAME>Lương &amp; thưởng</STMTTRN>\n"
+                + "</BANKTRANLIST></STMTRS></STMTTRNRS></BANKMSGSRSV1></OFX>";
+        try (StatementParser parser = StatementParser.open(StatementImportJob.Format.OFX, new StringReader(ofx))) {
+            StatementParser.Row debit = parser.next();
+            assertEquals(LocalDateTime.of(2024, 3, 15, 8, 30), debit.occurredAt());
+            assertEquals(0, new BigDecimal("-45000").compareTo(debit.amount()));
+            assertEquals("GRAB - Grab đi làm", debit.description());
+            assertEquals("TX-1", debit.externalId());
+
+            StatementParser.Row credit = parser.next();
+            assertEquals("Lương & thưởng", credit.description());
+            assertEquals(LocalDateTime.of(2024, 3, 1, 0, 0), credit.occurredAt());
+            assertNull(parser.next());
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.financebackend.service;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for SyncSequenceService, dùng H2 trong bộ nhớ với các bảng tối thiểu
+ */
+class SyncSequenceServiceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private SyncSequenceService service;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:sync_sequence;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=5000");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS users (id BIGINT PRIMARY KEY, sync_seq BIGINT)");
+        for (String table : SyncSequenceService.TRACKED_TABLES) {
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + table
+                    + " (id BIGINT PRIMARY KEY, user_id BIGINT, sync_seq BIGINT)");
+        }
+        jdbcTemplate.execute("DELETE FROM users");
+        jdbcTemplate.update("INSERT INTO users (id, sync_seq) VALUES (1, 0), (2, 0), (3, 0)");
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        service = new SyncSequenceService(jdbcTemplate);
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void reserveInOrder_OppositeWriteOrder_ShouldNotDeadlock() throws Exception {
+        CountDownLatch firstLocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        // Người ghi vào ví chia sẻ: cần số của mình (2) trước rồi của chủ ví (1)
+        Future<List<Long>> sharee = executor.submit(() -> transactionTemplate.execute(status -> {
+            service.reserveInOrder(2L, 1L);
+            firstLocked.countDown();
+            await(release);
+            return List.of(service.next(2L), service.next(1L));
+        }));
+        assertTrue(firstLocked.await(5, TimeUnit.SECONDS));
+
+        // Chủ ví ghi theo thứ tự ngược lại; không khóa trước thì hai transaction chờ nhau
+        Future<List<Long>> owner = executor.submit(() -> transactionTemplate.execute(status -> {
+            service.reserveInOrder(1L, 2L);
+            return List.of(service.next(1L), service.next(2L));
+        }));
+        release.countDown();
+
+        List<Long> first = sharee.get(10, TimeUnit.SECONDS);
+        List<Long> second = owner.get(10, TimeUnit.SECONDS);
+        Set<Long> user2 = new HashSet<>(List.of(first.get(0), second.get(1)));
+        Set<Long> user1 = new HashSet<>(List.of(first.get(1), second.get(0)));
+        assertEquals(2, user2.size());
+        assertEquals(2, user1.size());
+    }
+
+    @Test
+    void reserveInOrder_TransferAgainstOwnerCreate_ShouldNotDeadlock() throws Exception {
+        CountDownLatch firstLocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        // User 3 chuyển từ ví chia sẻ của user 2 sang ví chia sẻ của user 1: Hibernate flush theo thứ tự 3, 2, 1
+        Future<List<Long>> transfer = executor.submit(() -> transactionTemplate.execute(status -> {
+            service.reserveInOrder(3L, 2L, 1L);
+            firstLocked.countDown();
+            await(release);
+            return List.of(service.next(3L), service.next(2L), service.next(1L));
+        }));
+        assertTrue(firstLocked.await(5, TimeUnit.SECONDS));
+
+        // Chủ ví 1 tạo giao dịch trong ví của user 2 được chia sẻ cho mình: ghi 1 rồi 2
+        Future<List<Long>> create = executor.submit(() -> transactionTemplate.execute(status -> {
+            service.reserveInOrder(1L, 2L);
+            return List.of(service.next(1L), service.next(2L));
+        }));
+        release.countDown();
+
+        List<Long> first = transfer.get(10, TimeUnit.SECONDS);
+        List<Long> second = create.get(10, TimeUnit.SECONDS);
+        assertNotEquals(first.get(2), second.get(0));
+        assertNotEquals(first.get(1), second.get(1));
+    }
+
+    @Test
+    void reserveInOrder_SingleUser_ShouldNotReserve() {
+        transactionTemplate.executeWithoutResult(status -> service.reserveInOrder(1L, 1L, null));
+
+        assertEquals(0L, jdbcTemplate.queryForObject("SELECT sync_seq FROM users WHERE id = 1", Long.class));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
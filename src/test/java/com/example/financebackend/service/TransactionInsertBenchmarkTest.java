@@ -0,0 +1,181 @@
+package com.example.financebackend.service;
+
+import com.example.financebackend.entity.Category;
+import com.example.financebackend.entity.Transaction;
+import com.example.financebackend.entity.User;
+import com.example.financebackend.entity.Wallet;
+import jakarta.persistence.*;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Benchmark insert 10k giao dịch trên H2 in-memory:
+ * - before: id IDENTITY (mỗi persist là một INSERT riêng, không batch được)
+ * - after: pooled table generator + hibernate.jdbc.batch_size=50
+ *
+ * Chạy: mvn test -Dtest=TransactionInsertBenchmarkTest -Dbenchmark=true
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.format_sql=false"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class TransactionInsertBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransactionInsertBenchmarkTest.class);
+
+    private static final int ROWS = 10_000;
+    private static final int FLUSH_EVERY = 50;
+    private static final int ROUNDS = 3;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void insertTenThousandRows() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Long[] refs = tx.execute(status -> createFixtures());
+
+        // Warm-up (JIT, statement cache)
+        tx.executeWithoutResult(status -> insertIdentityRows(refs, 1_000));
+        tx.executeWithoutResult(status -> insertPooledRows(refs, 1_000));
+
+        double before = 0;
+        double after = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            before = Math.max(before, measure(tx, () -> insertIdentityRows(refs, ROWS)));
+            after = Math.max(after, measure(tx, () -> insertPooledRows(refs, ROWS)));
+        }
+
+        logger.info("Insert {} rows - IDENTITY, no batching: {} rows/s", ROWS, Math.round(before));
+        logger.info("Insert {} rows - pooled ids, batch {}: {} rows/s (x{})", ROWS, FLUSH_EVERY, Math.round(after),
+                String.format("%.2f", after / before));
+
+        Long count = tx.execute(status -> entityManager
+                .createQuery("SELECT COUNT(t) FROM Transaction t", Long.class).getSingleResult());
+        assertEquals(1_000L + (long) ROWS * ROUNDS, count);
+    }
+
+    private double measure(TransactionTemplate tx, Runnable insert) {
+        long start = System.nanoTime();
+        tx.executeWithoutResult(status -> insert.run());
+        return ROWS / ((System.nanoTime() - start) / 1e9);
+    }
+
+    private Long[] createFixtures() {
+        User user = new User();
+        user.setEmail("bench@example.com");
+        user.setPasswordHash("x");
+        user.setFullName("Benchmark");
+        entityManager.persist(user);
+
+        Wallet wallet = new Wallet();
+        wallet.setName("Bench wallet");
+        wallet.setUser(user);
+        entityManager.persist(wallet);
+
+        Category category = new Category();
+        category.setName("Bench category");
+        category.setUser(user);
+        entityManager.persist(category);
+        return new Long[]{user.getId(), wallet.getId(), category.getId()};
+    }
+
+    private void insertPooledRows(Long[] refs, int rows) {
+        entityManager.unwrap(Session.class).setJdbcBatchSize(FLUSH_EVERY);
+        for (int i = 0; i < rows; i++) {
+            Transaction transaction = new Transaction();
+            transaction.setAmount(BigDecimal.valueOf(10_000 + i));
+            transaction.setType(Transaction.TransactionType.EXPENSE);
+            transaction.setUser(entityManager.getReference(User.class, refs[0]));
+            transaction.setWallet(entityManager.getReference(Wallet.class, refs[1]));
+            transaction.setCategory(entityManager.getReference(Category.class, refs[2]));
+            transaction.setNote("bench " + i);
+            transaction.setOccurredAt(LocalDateTime.now());
+            entityManager.persist(transaction);
+            flushPeriodically(i);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private void insertIdentityRows(Long[] refs, int rows) {
+        for (int i = 0; i < rows; i++) {
+            IdentityTransactionRow row = new IdentityTransactionRow();
+            row.amount = BigDecimal.valueOf(10_000 + i);
+            row.type = Transaction.TransactionType.EXPENSE;
+            row.user = entityManager.getReference(User.class, refs[0]);
+            row.wallet = entityManager.getReference(Wallet.class, refs[1]);
+            row.category = entityManager.getReference(Category.class, refs[2]);
+            row.note = "bench " + i;
+            row.occurredAt = LocalDateTime.now();
+            entityManager.persist(row);
+            flushPeriodically(i);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private void flushPeriodically(int index) {
+        if ((index + 1) % FLUSH_EVERY == 0) {
+            entityManager.flush();
+            entityManager.clear();
+        }
+    }
+
+    /**
+     * Cùng cột với transactions nhưng id IDENTITY - mô phỏng mapping trước khi đổi generator
+     */
+    @Entity
+    @Table(name = "bench_identity_transactions")
+    static class IdentityTransactionRow {
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        Long id;
+
+        @Column(nullable = false, precision = 19, scale = 2)
+        BigDecimal amount;
+
+        @Enumerated(EnumType.STRING)
+        @Column(nullable = false, length = 20)
+        Transaction.TransactionType type;
+
+        @ManyToOne(fetch = FetchType.LAZY, optional = false)
+        @JoinColumn(name = "wallet_id")
+        Wallet wallet;
+
+        @ManyToOne(fetch = FetchType.LAZY, optional = false)
+        @JoinColumn(name = "category_id")
+        Category category;
+
+        @ManyToOne(fetch = FetchType.LAZY)
+        @JoinColumn(name = "user_id")
+        User user;
+
+        @Column(length = 255)
+        String note;
+
+        @Column(nullable = false)
+        LocalDateTime occurredAt;
+    }
+}
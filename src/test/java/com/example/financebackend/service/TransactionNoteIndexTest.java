@@ -0,0 +1,72 @@
+package com.example.financebackend.service;
+
+import com.example.financebackend.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for TransactionNoteIndex
+ */
+@ExtendWith(MockitoExtension.class)
+class TransactionNoteIndexTest {
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    private TransactionNoteIndex noteIndex;
+
+    @BeforeEach
+    void setUp() {
+        noteIndex = new TransactionNoteIndex(transactionRepository, 1024 * 1024, 10);
+        List<Object[]> notes = Arrays.asList(
+                new Object[]{1L, "Ăn trưa phở bò"},
+                new Object[]{2L, "Cà phê sáng"},
+                new Object[]{3L, "Đổ xăng xe máy"},
+                new Object[]{4L, "Ăn tối cùng gia đình"});
+        when(transactionRepository.findNotesByUserId(1L)).thenReturn(notes);
+    }
+
+    @Test
+    void search_ShouldIgnoreDiacriticsAndCase() {
+        assertArrayEquals(new long[]{3L}, noteIndex.search(1L, "do xang"));
+        assertArrayEquals(new long[]{2L}, noteIndex.search(1L, "CA PHE"));
+    }
+
+    @Test
+    void search_ShouldMatchPrefixesWithAnd() {
+        assertArrayEquals(new long[]{1L, 4L}, noteIndex.search(1L, "ăn"));
+        assertArrayEquals(new long[]{4L}, noteIndex.search(1L, "an gia"));
+        assertArrayEquals(new long[0], noteIndex.search(1L, "an xang"));
+        assertNull(noteIndex.search(1L, "  !! "));
+    }
+
+    @Test
+    void search_ShortTokens_ShouldMatchWholeWordsOnly() {
+        assertArrayEquals(new long[0], noteIndex.search(1L, "a"));
+        assertArrayEquals(new long[]{2L}, noteIndex.search(1L, "ca"));
+        assertArrayEquals(new long[]{4L}, noteIndex.search(1L, "toi gia"));
+    }
+
+    @Test
+    void onSavedAndDeleted_ShouldUpdateLoadedIndex() {
+        noteIndex.search(1L, "an");
+
+        noteIndex.onSaved(1L, 5L, "Ăn sáng bánh mì");
+        noteIndex.onSaved(1L, 2L, "Trà sữa");
+        noteIndex.onDeleted(1L, 1L);
+
+        assertArrayEquals(new long[]{4L, 5L}, noteIndex.search(1L, "an"));
+        assertArrayEquals(new long[0], noteIndex.search(1L, "phe"));
+        assertArrayEquals(new long[]{2L}, noteIndex.search(1L, "tra sua"));
+        verify(transactionRepository, times(1)).findNotesByUserId(1L);
+    }
+}
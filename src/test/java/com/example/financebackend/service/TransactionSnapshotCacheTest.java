@@ -0,0 +1,130 @@
+package com.example.financebackend.service;
+
+import com.example.financebackend.entity.Category;
+import com.example.financebackend.entity.Transaction;
+import com.example.financebackend.entity.User;
+import com.example.financebackend.entity.Wallet;
+import com.example.financebackend.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for TransactionSnapshotCache
+ */
+@ExtendWith(MockitoExtension.class)
+class TransactionSnapshotCacheTest {
+
+    private static final LocalDateTime NOON = LocalDateTime.of(2024, 3, 15, 12, 0);
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    private TransactionSnapshotCache snapshotCache;
+
+    @BeforeEach
+    void setUp() {
+        snapshotCache = new TransactionSnapshotCache(transactionRepository, 1024 * 1024, 10);
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{1L, NOON, new BigDecimal("50000.00"), 10L, 100L, Transaction.TransactionType.EXPENSE});
+        rows.add(new Object[]{2L, NOON.plusDays(1), new BigDecimal("12.50"), 11L, 100L, Transaction.TransactionType.INCOME});
+        rows.add(new Object[]{3L, NOON.plusDays(2), new BigDecimal("20000.00"), 10L, 101L, Transaction.TransactionType.EXPENSE});
+        when(transactionRepository.findSnapshotRowsByUserId(1L)).thenReturn(rows);
+    }
+
+    @Test
+    void get_ShouldLoadColumnsOnce() {
+        TransactionSnapshot snapshot = snapshotCache.get(1L);
+        snapshotCache.get(1L);
+
+        assertEquals(3, snapshot.size());
+        assertEquals(5_000_000L, snapshot.amount(0));
+        assertEquals(1_250L, snapshot.amount(1));
+        assertEquals(TransactionSnapshot.INCOME, snapshot.type(1));
+        assertEquals(NOON.toLocalDate().toEpochDay() + 2, snapshot.epochDay(2));
+        assertEquals(2, snapshot.categoryCount());
+        assertEquals(snapshot.category(0), snapshot.category(2));
+        assertEquals(10L, snapshot.categoryId(snapshot.category(0)));
+        assertEquals(101L, snapshot.walletId(snapshot.wallet(2)));
+        verify(transactionRepository, times(1)).findSnapshotRowsByUserId(1L);
+    }
+
+    @Test
+    void onSaved_ShouldAppendWithoutChangingSnapshotsInUse() {
+        TransactionSnapshot before = snapshotCache.get(1L);
+
+        snapshotCache.onSaved(transaction(4L, NOON.plusDays(3), "300.00", 12L));
+        snapshotCache.onSaved(transaction(4L, NOON.plusDays(3), "300.00", 12L)); // Lặp lại không tạo dòng trùng
+        TransactionSnapshot after = snapshotCache.get(1L);
+
+        assertEquals(3, before.size());
+        assertEquals(4, after.size());
+        assertEquals(4L, after.id(3));
+        assertEquals(30_000L, after.amount(3));
+        assertEquals(12L, after.categoryId(after.category(3)));
+        assertEquals(TransactionSnapshot.NONE, before.categoryIndex(12L));
+    }
+
+    @Test
+    void onSavedExistingAndDeleted_ShouldCopyOnWrite() {
+        TransactionSnapshot before = snapshotCache.get(1L);
+
+        snapshotCache.onSaved(transaction(2L, NOON.plusDays(1), "99.00", 11L));
+        snapshotCache.onDeleted(1L, 1L);
+        TransactionSnapshot after = snapshotCache.get(1L);
+
+        assertEquals(1_250L, before.amount(1));
+        assertEquals(2, after.size());
+        assertEquals(2L, after.id(0));
+        assertEquals(9_900L, after.amount(0));
+        assertEquals(TransactionSnapshot.EXPENSE, after.type(0));
+        assertEquals(3L, after.id(1));
+    }
+
+    @Test
+    void onSaved_NotLoaded_ShouldBeIgnored() {
+        snapshotCache.onSaved(transaction(4L, NOON, "1.00", 10L));
+
+        assertEquals(3, snapshotCache.get(1L).size());
+    }
+
+    @Test
+    void timeKeys_ShouldMatchLocalDateTimeComparison() {
+        TransactionSnapshot snapshot = snapshotCache.get(1L);
+        LocalDateTime withNanos = NOON.withNano(500);
+
+        assertEquals(TransactionSnapshot.timeKey(NOON), snapshot.time(0));
+        assertEquals(TransactionSnapshot.timeKey(NOON), TransactionSnapshot.timeKeyCeil(NOON));
+        // occurredAt = NOON nằm trước withNanos: không thỏa >= withNanos nhưng thỏa <= withNanos
+        assertTrue(snapshot.time(0) < TransactionSnapshot.timeKeyCeil(withNanos));
+        assertTrue(snapshot.time(0) <= TransactionSnapshot.timeKey(withNanos));
+    }
+
+    private static Transaction transaction(Long id, LocalDateTime occurredAt, String amount, Long categoryId) {
+        User user = new User();
+        user.setId(1L);
+        Category category = new Category();
+        category.setId(categoryId);
+        Wallet wallet = new Wallet();
+        wallet.setId(100L);
+        Transaction transaction = new Transaction();
+        transaction.setId(id);
+        transaction.setUser(user);
+        transaction.setCategory(category);
+        transaction.setWallet(wallet);
+        transaction.setType(Transaction.TransactionType.EXPENSE);
+        transaction.setAmount(new BigDecimal(amount));
+        transaction.setOccurredAt(occurredAt);
+        return transaction;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.financebackend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for Money
+ */
+class MoneyTest {
+
+    @Test
+    void toMinor_ExtraFractionDigits_ShouldBeRejected() {
+        assertThrows(IllegalArgumentException.class, () -> Money.toMinor(new BigDecimal("100.50"), 0));
+        assertThrows(IllegalArgumentException.class, () -> Money.toMinor(new BigDecimal("1.005"), 2));
+    }
+
+    @Test
+    void toMinor_ShouldBeExactForLargeAndOddScaledValues() {
+        assertEquals(99_999_999_999_999_999L, Money.toMinor(new BigDecimal("999999999999999.99"), 2));
+        assertEquals(100_000_000L, Money.toMinor(new BigDecimal("1E+6"), 2));
+        assertEquals(-1_999L, Money.toMinor(new BigDecimal("-19.990"), 2));
+        assertEquals(1L, Money.toMinor(new BigDecimal("0.01"), 2));
+    }
+
+    @Test
+    void arithmetic_ShouldDetectOverflowAndCurrencyMismatch() {
+        Money min = Money.ofMinor(Long.MIN_VALUE, 2);
+        assertThrows(ArithmeticException.class, () -> min.minus(Money.ofMinor(1, 2)));
+        assertThrows(IllegalArgumentException.class, () -> Money.ofMinor(1, 0).minus(Money.ofMinor(1, 2)));
+        assertEquals(Money.ofMinor(-500, 2), Money.ofMinor(1_000, 2).minus(Money.ofMinor(1_500, 2)));
+    }
+
+    @Test
+    void accumulator_ShouldTrackSumMinMaxAndAverage() {
+        Money.Accumulator accumulator = new Money.Accumulator();
+        accumulator.add(new BigDecimal("10.00")).add(new BigDecimal("2.50")).add(null).add(new BigDecimal("7"));
+
+        assertEquals(3, accumulator.count());
+        assertEquals(new BigDecimal("19.50"), accumulator.sum());
+        assertEquals(new BigDecimal("2.50"), accumulator.min());
+        assertEquals(new BigDecimal("10.00"), accumulator.max());
+        assertEquals(new BigDecimal("6.50"), accumulator.average(RoundingMode.HALF_UP));
+        assertEquals(new BigDecimal("0.65"), accumulator.average(30, RoundingMode.HALF_UP));
+
+        Money.Accumulator other = new Money.Accumulator().add(new BigDecimal("-1.00"));
+        accumulator.merge(other);
+        assertEquals(new BigDecimal("18.50"), accumulator.sum());
+        assertEquals(new BigDecimal("-1.00"), accumulator.min());
+    }
+
+    @Test
+    void accumulator_Empty_ShouldReturnZero() {
+        Money.Accumulator accumulator = new Money.Accumulator();
+
+        assertEquals(new BigDecimal("0.00"), accumulator.sum());
+        assertEquals(new BigDecimal("0.00"), accumulator.min());
+        assertEquals(new BigDecimal("0.00"), accumulator.average(RoundingMode.HALF_UP));
+    }
+}